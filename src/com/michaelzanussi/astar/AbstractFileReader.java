@@ -78,10 +78,8 @@ public abstract class AbstractFileReader extends Reader implements BasicIO {
 	 */
 	public int read(char cbuf[], int off, int len) throws IOException {
 		
-		// Although this method is abstract in the abstract Reader
-		// class, we're not going to implement it here. We'll let
-		// derived subclasses deal with it if they want. 
-		throw new UnsupportedOperationException("The 'read' operation is not supported at this time.");
+		// Read straight from the buffer, many characters at a time.
+		return buffer.read(cbuf, off, len);
 		
 	}
 	
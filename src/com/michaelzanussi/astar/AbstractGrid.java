@@ -45,9 +45,9 @@ public abstract class AbstractGrid extends AbstractPuzState implements Grid {
 	protected double distance;
 	
 	/**
-	 * The obstacle table.
+	 * The obstacle table (cell costs and blocked cells).
 	 */
-	protected int[][] obstacles;
+	protected CostMap obstacles;
 	
 	/**
 	 * Standard constructor.
@@ -197,9 +197,9 @@ public abstract class AbstractGrid extends AbstractPuzState implements Grid {
 	/**
 	 * Set the grid obstacles.
 	 * 
-	 * @param obstacles the obstacles table.
+	 * @param obstacles the cost map.
 	 */
-	public void setObstacles(int[][] obstacles) {
+	public void setObstacles(CostMap obstacles) {
 		
 		this.obstacles = obstacles;
 		
@@ -247,5 +247,36 @@ public abstract class AbstractGrid extends AbstractPuzState implements Grid {
 		return "Current state: " + string + ", heursitic: " + heuristic();
 		
 	}
+	
+	/**
+	 * Helper function. Returns the cost of moving into a cell. If an
+	 * obstacle has been defined there, its cost is used instead of the
+	 * default cost.
+	 * 
+	 * @param x the x coordinate.
+	 * @param y the y coordinate.
+	 * @param cost the default cost of the move.
+	 * @return the cost of the move.
+	 */
+	protected double cellCost(int x, int y, double cost) {
+		
+		int c = obstacles.getCost(x, y);
+		
+		return (c > 0 ? c : cost);
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether a cell may be entered.
+	 * 
+	 * @param x the x coordinate.
+	 * @param y the y coordinate.
+	 * @return <code>true</code> if the cell is not blocked.
+	 */
+	protected boolean isPassable(int x, int y) {
+		
+		return !obstacles.isBlocked(x, y);
+		
+	}
 		
 }
@@ -1,12 +1,14 @@
 package com.michaelzanussi.astar;
 
 import java.util.Iterator;
+import java.util.LinkedList;
 
 /**
  * The <tt>AbstractMandC</tt> class provides a minimal implementation 
  * of the <tt>MandC</tt> interface. When subclassing, at a minimum only
- * the <code>children()</code>, <code>equals()</code>, <code>heuristic()</code> 
- * and <code>toString()</code> methods need to be overridden.
+ * the <code>equals()</code>, <code>estimate()</code>, <code>heuristic()</code>,
+ * <code>newState()</code> and <code>toString()</code> methods need to be
+ * overridden.
  * 
  * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
  * @version 1.0 (29 Mar 2004) 
@@ -86,13 +88,39 @@ public abstract class AbstractMandC extends AbstractPuzState implements MandC {
 	 * <CODE>false</CODE> for <CODE>hasNext()</CODE>.<p>
 	 * 
 	 * The children for this current node are automatically generated
-	 * based on boat capacity and current node tuple settings.<p>  
-	 *
-	 * Defer to subclass for implementation. 
+	 * based on boat capacity and current node tuple settings, from the
+	 * ranges found by <code>moves()</code>: fewest cannibals moved first,
+	 * then fewest missionaries.
 	 *
 	 * @return Iterator over the children state of this node.
 	 */
-	public abstract Iterator<Object> children();
+	public Iterator<Object> children() {
+		
+		// The child list.
+		children = new LinkedList<Object>();
+		
+		int[] ranges = new int[getMaxMoves()];
+		int n = moves(c, m, bank, ranges);
+		int next = (bank == WEST ? EAST : WEST);
+		for (int k = 0; k < n; k += 3) {
+			
+			// Leaving the west bank, more missionaries moved leaves fewer.
+			if (bank == WEST) {
+				for (int nm = ranges[k + 2]; nm >= ranges[k + 1]; nm--) {
+					children.add(newState(ranges[k], nm, next, this));
+				}
+			} else {
+				for (int nm = ranges[k + 1]; nm <= ranges[k + 2]; nm++) {
+					children.add(newState(ranges[k], nm, next, this));
+				}
+			}
+			
+		}
+		
+		// Return an iterator over this list of children.
+		return children.iterator();
+		
+	}
 
 	/**
 	 * Return the distance from the start state, or <code>g(s)</code>.  
@@ -120,6 +148,19 @@ public abstract class AbstractMandC extends AbstractPuzState implements MandC {
 	 */
 	public abstract boolean equals(Object o);
 
+	/**
+	 * Returns the estimated cost-to-goal, <code>h()</code>, of any state of
+	 * this puzzle, so that a search can rate a state without building it. <p>
+	 * 
+	 * Defer to subclass for implementation. 
+	 * 
+	 * @param c the cannibals.
+	 * @param m the missionaries.
+	 * @param bank the boat location.
+	 * @return the estimated cost-to-goal.
+	 */
+	public abstract double estimate(int c, int m, int bank);
+	
 	/**
 	 * Returns the boat location.
 	 * 
@@ -131,6 +172,17 @@ public abstract class AbstractMandC extends AbstractPuzState implements MandC {
 		
 	}
 	
+	/**
+	 * Returns the boat capacity.
+	 * 
+	 * @return the boat capacity.
+	 */
+	public int getBoatCapacity() { 
+		
+		return capacity; 
+		
+	}
+	
 	/**
 	 * Returns the number of cannibals.
 	 * 
@@ -175,6 +227,18 @@ public abstract class AbstractMandC extends AbstractPuzState implements MandC {
 		
 	}
 	
+	/**
+	 * Returns the length of the array <code>moves()</code> needs.
+	 * 
+	 * @return three entries for each number of cannibals the boat can
+	 * carry.
+	 */
+	public int getMaxMoves() {
+		
+		return 3 * (Math.min(capacity, totalC) + 1);
+		
+	}
+	
 	/**
 	 * Returns the hash code value for this object. Needed mainly by the
 	 * <code>HashMap</code> in <code>HashingHeap</code>.
@@ -187,6 +251,28 @@ public abstract class AbstractMandC extends AbstractPuzState implements MandC {
 		
 	}
 	
+	/**
+	 * Returns the puzzle's total number of cannibals.
+	 * 
+	 * @return the total number of cannibals.
+	 */
+	public int getTotalC() { 
+		
+		return totalC; 
+		
+	}
+	
+	/**
+	 * Returns the puzzle's total number of missionaries.
+	 * 
+	 * @return the total number of missionaries.
+	 */
+	public int getTotalM() { 
+		
+		return totalM; 
+		
+	}
+	
 	/**
 	 * Return the heuristic estimate of the value of this node.  This
 	 * function should provide the combined "cost-so-far" function <code>g()</code>
@@ -202,6 +288,82 @@ public abstract class AbstractMandC extends AbstractPuzState implements MandC {
 	 */
 	public abstract double heuristic();
 
+	/**
+	 * Returns a new state of the same heuristic, totals and boat capacity
+	 * as this one. <p>
+	 * 
+	 * Defer to subclass for implementation. 
+	 * 
+	 * @param c the cannibals.
+	 * @param m the missionaries.
+	 * @param bank the boat location.
+	 * @param parent the previous state.
+	 * @return the new state.
+	 */
+	public abstract AbstractMandC newState(int c, int m, int bank, PuzState parent);
+
+	/**
+	 * Finds the legal moves from any state of this puzzle without building
+	 * them. For each number of cannibals the boat can carry, the
+	 * missionaries left on the west bank by a legal move form one range:
+	 * the boat carries at least one and at most its capacity, and the
+	 * cannibals on a bank may be outnumbered only if there are none. Each
+	 * range is written as three entries: the cannibals then on the west
+	 * bank, and the fewest and most missionaries then on it. The boat
+	 * then lies on the other bank. Ranges are written from the fewest
+	 * cannibals moved to the most.
+	 * 
+	 * @param c the cannibals on the west bank.
+	 * @param m the missionaries on the west bank.
+	 * @param bank the boat location.
+	 * @param ranges receives the ranges; it must hold at least
+	 * <code>getMaxMoves()</code> entries.
+	 * @return the number of entries written.
+	 */
+	public int moves(int c, int m, int bank, int[] ranges) {
+		
+		// The cannibals and missionaries on the bank the boat leaves.
+		int fromC = (bank == WEST ? c : totalC - c);
+		int fromM = (bank == WEST ? m : totalM - m);
+		int sign = (bank == WEST ? -1 : 1);
+		
+		int n = 0;
+		int most = Math.min(capacity, fromC);
+		for (int i = 0; i <= most; i++) {
+			
+			int nc = c + (sign * i);
+			
+			// The missionaries the boat can carry with i cannibals.
+			int fewest = (i == 0 ? 1 : 0);
+			int largest = Math.min(capacity - i, fromM);
+			if (fewest > largest) {
+				continue;
+			}
+			
+			int lo = (bank == WEST ? m - largest : m + fewest);
+			int hi = (bank == WEST ? m - fewest : m + largest);
+			
+			// The cannibals left on the west bank must not be outnumbered,
+			// nor those on the east bank.
+			if (nc > 0) {
+				hi = Math.min(hi, nc);
+			}
+			if (totalC - nc > 0) {
+				lo = Math.max(lo, totalM - totalC + nc);
+			}
+			
+			if (lo <= hi) {
+				ranges[n++] = nc;
+				ranges[n++] = lo;
+				ranges[n++] = hi;
+			}
+			
+		}
+		
+		return n;
+		
+	}
+	
 	/**
 	 * Set the boat capacity.
 	 * 
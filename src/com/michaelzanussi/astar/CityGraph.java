@@ -0,0 +1,512 @@
+package com.michaelzanussi.astar;
+
+/**
+ * The <code>CityGraph</code> class is an <code>IndexedGraph</code> view of a
+ * <code>ShortestPaths</code> map. Vertices are the city IDs assigned by the
+ * <code>CityTable</code>, and the roads are kept in per-city adjacency arrays
+ * of neighbour IDs and distances. Roads are undirected, so the predecessors
+ * of a city are the same as its successors. Graphs loaded from DIMACS files
+ * are made of one-way arcs instead; once such an arc is added the
+ * predecessors are read from a reverse adjacency list, built when first
+ * needed. <p>
+ * 
+ * Unlike the <code>PuzState</code> objects built by the driver, road
+ * distances may be changed (or new roads added) after the graph has been
+ * built, which is what the incremental search engine relies on.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class CityGraph implements IndexedGraph {
+	
+	// Initial capacity of each adjacency array.
+	private static final int INITIAL_DEGREE = 4;
+	
+	// The city table.
+	private CityTable table;
+	
+	// Use the scaled straight-line distance as the heuristic?
+	private boolean straightLine;
+	
+	// The neighbours and road distances of each city, indexed by city ID.
+	private int[][] adjacent;
+	private double[][] distance;
+	private int[] degree;
+	
+	// The number of roads entering each city, indexed by city ID.
+	private int[] inDegree;
+	
+	// The largest degree (in or out) of any city.
+	private int maxDegree;
+	
+	// Does the graph hold one-way arcs?
+	private boolean directed;
+	
+	// The reverse adjacency list of a directed graph, in compressed form:
+	// the predecessors of city v are reverseNode[reverseStart[v]] up to
+	// reverseNode[reverseStart[v + 1] - 1]. Null until needed, and reset
+	// whenever a road changes.
+	private int[] reverseStart;
+	private int[] reverseNode;
+	private double[] reverseCost;
+	
+	/**
+	 * Standard constructor. Builds a graph with every city in the table
+	 * and no roads.
+	 * 
+	 * @param table the city table.
+	 * @param straightLine <code>true</code> to estimate distances with the
+	 * scaled straight-line distance, <code>false</code> to use no estimate.
+	 * @throws NullPointerException If no city table was specified.
+	 */
+	public CityGraph(CityTable table, boolean straightLine) throws NullPointerException {
+		
+		this(table, straightLine, null);
+		
+	}
+	
+	/**
+	 * Standard constructor. Builds a graph with every city in the table
+	 * and no roads, sizing each city's adjacency arrays to hold the given
+	 * number of roads. Used by loaders that count the roads leaving each
+	 * city before adding them, so that no array has to grow.
+	 * 
+	 * @param table the city table.
+	 * @param straightLine <code>true</code> to estimate distances with the
+	 * scaled straight-line distance, <code>false</code> to use no estimate.
+	 * @param capacity the number of roads expected to leave each city,
+	 * indexed by city ID, or <code>null</code> for the default.
+	 * @throws NullPointerException If no city table was specified.
+	 */
+	public CityGraph(CityTable table, boolean straightLine, int[] capacity) throws NullPointerException {
+		
+		if (table == null) {
+			throw new NullPointerException("CityGraph.CityGraph error: The city table cannot be null.");
+		}
+		
+		this.table = table;
+		this.straightLine = straightLine;
+		
+		int n = table.size();
+		adjacent = new int[n][];
+		distance = new double[n][];
+		degree = new int[n];
+		inDegree = new int[n];
+		maxDegree = 0;
+		directed = false;
+		reverseStart = null;
+		reverseNode = null;
+		reverseCost = null;
+		
+		for (int i = 0; i < n; i++) {
+			int size = (capacity == null ? INITIAL_DEGREE : capacity[i]);
+			adjacent[i] = new int[size];
+			distance[i] = new double[size];
+		}
+		
+	}
+	
+	/**
+	 * Adds a one-way road (an arc) from city <code>a</code> to city
+	 * <code>b</code> without replacing any existing road. Once an arc
+	 * has been added the graph is treated as directed.
+	 * 
+	 * @param a the city the road leaves.
+	 * @param b the city the road enters.
+	 * @param d the road distance.
+	 * @throws IllegalArgumentException If the distance is negative.
+	 */
+	public void addArc(int a, int b, double d) throws IllegalArgumentException {
+		
+		if (d < 0.0) {
+			throw new IllegalArgumentException("CityGraph.addArc error: Distance must be >= 0.0. Received: " + d);
+		}
+		
+		directed = true;
+		append(a, b, d);
+		
+	}
+	
+	/**
+	 * Adds a road between two cities without replacing any existing road,
+	 * as used while loading the map.
+	 * 
+	 * @param a the first city ID.
+	 * @param b the second city ID.
+	 * @param d the road distance.
+	 * @throws IllegalArgumentException If the distance is negative.
+	 */
+	public void addRoad(int a, int b, double d) throws IllegalArgumentException {
+		
+		if (d < 0.0) {
+			throw new IllegalArgumentException("CityGraph.addRoad error: Distance must be >= 0.0. Received: " + d);
+		}
+		
+		append(a, b, d);
+		append(b, a, d);
+		
+	}
+	
+	/**
+	 * Returns the distance of the road between two cities. If there is
+	 * more than one road, the first one given is used.
+	 * 
+	 * @param a the first city ID.
+	 * @param b the second city ID.
+	 * @return the road distance, or <code>Double.POSITIVE_INFINITY</code> if
+	 * there is no road.
+	 */
+	public double getDistance(int a, int b) {
+		
+		for (int i = 0; i < degree[a]; i++) {
+			if (adjacent[a][i] == b) {
+				return distance[a][i];
+			}
+		}
+		
+		return Double.POSITIVE_INFINITY;
+		
+	}
+	
+	/**
+	 * Returns the city name of a vertex.
+	 * 
+	 * @param u the city ID.
+	 * @return the city name.
+	 */
+	public String getLabel(int u) {
+		
+		return table.getName(u);
+		
+	}
+	
+	/**
+	 * Returns the city table.
+	 * 
+	 * @return the city table.
+	 */
+	public CityTable getTable() {
+		
+		return table;
+		
+	}
+	
+	/**
+	 * Returns the scaled straight-line distance between two cities, or
+	 * 0.0 if this graph was built without the straight-line estimate.
+	 * 
+	 * @param u the first city ID.
+	 * @param v the second city ID.
+	 * @return the estimated distance between the two cities.
+	 */
+	public double heuristic(int u, int v) {
+		
+		if (!straightLine) {
+			return 0.0;
+		}
+		
+		return table.getScale() * table.straightLine(u, v);
+		
+	}
+	
+	/**
+	 * Returns the largest number of roads leaving or entering any city.
+	 * 
+	 * @return the maximum vertex degree.
+	 */
+	public int maxDegree() {
+		
+		return maxDegree;
+		
+	}
+	
+	/**
+	 * Returns <code>true</code> if one-way arcs have been added to the graph.
+	 * 
+	 * @return <code>true</code> if the graph is directed.
+	 */
+	public boolean isDirected() {
+		
+		return directed;
+		
+	}
+	
+	/**
+	 * Fills the supplied arrays with the cities that have a road leading
+	 * into city <code>v</code>. Unless one-way arcs have been added, roads
+	 * are undirected, so these are the same as the successors.
+	 * 
+	 * @param v the city ID.
+	 * @param nodes receives the neighbouring city IDs.
+	 * @param costs receives the road distances.
+	 * @return the number of neighbouring cities.
+	 */
+	public int predecessors(int v, int[] nodes, double[] costs) {
+		
+		if (!directed) {
+			return successors(v, nodes, costs);
+		}
+		
+		// Build the reverse adjacency list if a road changed since last time.
+		if (reverseStart == null) {
+			buildReverse();
+		}
+		
+		int n = reverseStart[v + 1] - reverseStart[v];
+		System.arraycopy(reverseNode, reverseStart[v], nodes, 0, n);
+		System.arraycopy(reverseCost, reverseStart[v], costs, 0, n);
+		
+		return n;
+		
+	}
+	
+	/**
+	 * Reads a graph written by <code>write()</code> from a compiled puzzle
+	 * file, with its city table. Each city's adjacency arrays are sized to
+	 * hold exactly its roads.
+	 * 
+	 * @param in the compiled puzzle file.
+	 * @return the graph.
+	 * @throws ParsingException If the file is truncated or corrupt.
+	 */
+	public static CityGraph read(PuzzleFileReader in) throws ParsingException {
+		
+		CityTable table = CityTable.read(in);
+		boolean straightLine = (in.readInt() != 0);
+		boolean directed = (in.readInt() != 0);
+		
+		// The roads leaving city u are node[start[u]] up to
+		// node[start[u + 1] - 1].
+		int[] start = in.readInts();
+		int[] node = in.readInts();
+		double[] cost = in.readDoubles();
+		int n = table.size();
+		if (start == null || node == null || cost == null || start.length != n + 1 || start[0] != 0 || start[n] != node.length || cost.length != node.length) {
+			throw new ParsingException("CityGraph.read error: The roads of " + n + " cities are missing.");
+		}
+		
+		int[] capacity = new int[n];
+		for (int u = 0; u < n; u++) {
+			capacity[u] = start[u + 1] - start[u];
+			if (capacity[u] < 0) {
+				throw new ParsingException("CityGraph.read error: The roads of city " + u + " are corrupt.");
+			}
+		}
+		
+		CityGraph graph = new CityGraph(table, straightLine, capacity);
+		for (int u = 0; u < n; u++) {
+			for (int i = start[u]; i < start[u + 1]; i++) {
+				if (node[i] < 0 || node[i] >= n) {
+					throw new ParsingException("CityGraph.read error: Road " + i + " leads to an unknown city.");
+				}
+				graph.append(u, node[i], cost[i]);
+			}
+		}
+		graph.directed = directed;
+		
+		return graph;
+		
+	}
+	
+	/**
+	 * Sets the distance of the road between two cities, in both directions.
+	 * If there is no road between the cities, one is added. If there is
+	 * more than one, all of them are changed. On a directed graph only the
+	 * arc from <code>a</code> to <code>b</code> is set.
+	 * 
+	 * @param a the first city ID.
+	 * @param b the second city ID.
+	 * @param d the new road distance.
+	 * @throws IllegalArgumentException If the distance is negative.
+	 */
+	public void setDistance(int a, int b, double d) throws IllegalArgumentException {
+		
+		if (d < 0.0) {
+			throw new IllegalArgumentException("CityGraph.setDistance error: Distance must be >= 0.0. Received: " + d);
+		}
+		
+		// Update the existing road, or add a new one.
+		if (!replace(a, b, d)) {
+			append(a, b, d);
+			if (!directed) {
+				append(b, a, d);
+			}
+		} else if (!directed) {
+			replace(b, a, d);
+		}
+		
+	}
+	
+	/**
+	 * Returns the number of cities in the graph.
+	 * 
+	 * @return the number of cities.
+	 */
+	public int size() {
+		
+		return degree.length;
+		
+	}
+	
+	/**
+	 * Fills the supplied arrays with the cities reachable from city
+	 * <code>u</code> by a single road.
+	 * 
+	 * @param u the city ID.
+	 * @param nodes receives the neighbouring city IDs.
+	 * @param costs receives the road distances.
+	 * @return the number of neighbouring cities.
+	 */
+	public int successors(int u, int[] nodes, double[] costs) {
+		
+		int n = degree[u];
+		System.arraycopy(adjacent[u], 0, nodes, 0, n);
+		System.arraycopy(distance[u], 0, costs, 0, n);
+		
+		return n;
+		
+	}
+	
+	/**
+	 * Builds a <code>ShortestPathsMono</code> state for a city. The state is
+	 * used only to report the path, so its heuristic is never consulted.
+	 * 
+	 * @param u the city ID.
+	 * @param cost the distance of the road leading to this city.
+	 * @param parent the city we traveled from.
+	 * @return the puzzle state for the city.
+	 */
+	public PuzState toState(int u, double cost, PuzState parent) {
+		
+		return new ShortestPathsMono(table.getName(u), cost, parent);
+		
+	}
+	
+	/**
+	 * Writes the graph to a compiled puzzle file, for <code>read()</code>:
+	 * the city table, then the roads leaving each city in turn, in the
+	 * order they were added.
+	 * 
+	 * @param out the compiled puzzle file.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void write(PuzzleFileWriter out) throws ParsingException {
+		
+		table.write(out);
+		out.writeInt(straightLine ? 1 : 0);
+		out.writeInt(directed ? 1 : 0);
+		
+		int n = degree.length;
+		int[] start = new int[n + 1];
+		for (int u = 0; u < n; u++) {
+			start[u + 1] = start[u] + degree[u];
+		}
+		
+		int[] node = new int[start[n]];
+		double[] cost = new double[start[n]];
+		for (int u = 0; u < n; u++) {
+			System.arraycopy(adjacent[u], 0, node, start[u], degree[u]);
+			System.arraycopy(distance[u], 0, cost, start[u], degree[u]);
+		}
+		
+		out.writeInts(start);
+		out.writeInts(node);
+		out.writeDoubles(cost);
+		
+	}
+	
+	/**
+	 * Helper function. Appends a road from city <code>a</code> to city
+	 * <code>b</code>, growing the adjacency arrays if necessary.
+	 */
+	private void append(int a, int b, double d) {
+		
+		if (degree[a] == adjacent[a].length) {
+			
+			int size = Math.max(degree[a] * 2, INITIAL_DEGREE);
+			int[] nodes = new int[size];
+			double[] costs = new double[size];
+			System.arraycopy(adjacent[a], 0, nodes, 0, degree[a]);
+			System.arraycopy(distance[a], 0, costs, 0, degree[a]);
+			adjacent[a] = nodes;
+			distance[a] = costs;
+			
+		}
+		
+		adjacent[a][degree[a]] = b;
+		distance[a][degree[a]] = d;
+		degree[a]++;
+		inDegree[b]++;
+		
+		if (degree[a] > maxDegree) {
+			maxDegree = degree[a];
+		}
+		
+		if (inDegree[b] > maxDegree) {
+			maxDegree = inDegree[b];
+		}
+		
+		reverseStart = null;
+		
+	}
+	
+	/**
+	 * Helper function. Builds the reverse adjacency list of a directed
+	 * graph from the forward one.
+	 */
+	private void buildReverse() {
+		
+		int n = degree.length;
+		int[] start = new int[n + 1];
+		
+		// Each city's block starts after the blocks of the cities before it.
+		for (int v = 0; v < n; v++) {
+			start[v + 1] = start[v] + inDegree[v];
+		}
+		
+		// Drop every road into its destination's block.
+		int[] fill = new int[n];
+		System.arraycopy(start, 0, fill, 0, n);
+		int[] nodes = new int[start[n]];
+		double[] costs = new double[start[n]];
+		for (int u = 0; u < n; u++) {
+			for (int i = 0; i < degree[u]; i++) {
+				int v = adjacent[u][i];
+				nodes[fill[v]] = u;
+				costs[fill[v]] = distance[u][i];
+				fill[v]++;
+			}
+		}
+		
+		reverseStart = start;
+		reverseNode = nodes;
+		reverseCost = costs;
+		
+	}
+	
+	/**
+	 * Helper function. Changes the distance of every road from city
+	 * <code>a</code> to city <code>b</code>, returning <code>true</code>
+	 * if there was at least one such road.
+	 */
+	private boolean replace(int a, int b, double d) {
+		
+		boolean found = false;
+		
+		for (int i = 0; i < degree[a]; i++) {
+			if (adjacent[a][i] == b) {
+				distance[a][i] = d;
+				found = true;
+			}
+		}
+		
+		// The reverse adjacency list holds a copy of the distance.
+		if (found) {
+			reverseStart = null;
+		}
+		
+		return found;
+		
+	}
+	
+}
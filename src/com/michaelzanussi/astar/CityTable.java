@@ -0,0 +1,474 @@
+package com.michaelzanussi.astar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The <code>CityTable</code> class assigns each city of a <code>ShortestPaths</code>
+ * puzzle a dense integer ID (in order of first appearance) and keeps the
+ * optional planar coordinates of every city in primitive arrays indexed by
+ * that ID. <p>
+ * 
+ * The table also tracks the scale factor used by the straight-line heuristic.
+ * The scale is the smallest ratio of road distance to straight-line distance
+ * over all known roads, so that the scaled straight-line distance never
+ * overestimates the remaining cost and is monotonic by the triangle inequality. <p>
+ * 
+ * A table may also be built for a fixed number of cities named by number
+ * (<tt>1</tt>, <tt>2</tt>, ...), as in the DIMACS graph files read by
+ * <code>DimacsFileReader</code>. Such a table keeps no name list or name map,
+ * so it costs only the coordinate arrays however many cities there are.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class CityTable {
+	
+	// Initial capacity of the coordinate arrays.
+	private static final int INITIAL_CAPACITY = 16;
+	
+	// The city names, indexed by city ID (null if the cities are numbered).
+	private List<String> names;
+	
+	// The number of cities, if the cities are numbered.
+	private int numbered;
+	
+	// Maps a city name to its city ID.
+	private Map<String, Integer> ids;
+	
+	// The city coordinates, indexed by city ID.
+	private int[] xcoord;
+	private int[] ycoord;
+	private boolean[] located;
+	
+	// The number of cities that have coordinates.
+	private int locatedCount;
+	
+	// The admissible straight-line scale factor.
+	private double scale;
+	
+	/**
+	 * No-arg constructor.
+	 */
+	public CityTable() {
+		
+		names = new ArrayList<String>();
+		ids = new HashMap<String, Integer>();
+		numbered = 0;
+		xcoord = new int[INITIAL_CAPACITY];
+		ycoord = new int[INITIAL_CAPACITY];
+		located = new boolean[INITIAL_CAPACITY];
+		locatedCount = 0;
+		scale = Double.POSITIVE_INFINITY;
+		
+	}
+	
+	/**
+	 * Standard constructor. Builds a table of <code>count</code> cities
+	 * named <tt>1</tt> to <tt>count</tt>, none of which have coordinates.
+	 * City <tt>n</tt> has the city ID <tt>n - 1</tt>.
+	 * 
+	 * @param count the number of cities.
+	 * @throws IllegalArgumentException If the count is negative.
+	 */
+	public CityTable(int count) throws IllegalArgumentException {
+		
+		if (count < 0) {
+			throw new IllegalArgumentException("CityTable.CityTable error: City count must be >= 0. Received: " + count);
+		}
+		
+		names = null;
+		ids = null;
+		numbered = count;
+		xcoord = new int[count];
+		ycoord = new int[count];
+		located = new boolean[count];
+		locatedCount = 0;
+		scale = Double.POSITIVE_INFINITY;
+		
+	}
+	
+	/**
+	 * Adds a city without coordinates to the table, if not already present.
+	 * 
+	 * @param city the city name.
+	 * @return the city ID.
+	 * @throws NullPointerException If the city name is <code>null</code>.
+	 * @throws IllegalArgumentException If the cities are numbered and the
+	 * name is not one of the numbers.
+	 */
+	public int add(String city) throws NullPointerException, IllegalArgumentException {
+		
+		if (city == null) {
+			throw new NullPointerException("CityTable.add error: City name cannot be null.");
+		}
+		
+		// Numbered cities cannot be added to.
+		if (names == null) {
+			int id = getId(city);
+			if (id < 0) {
+				throw new IllegalArgumentException("CityTable.add error: Unknown city: " + city);
+			}
+			return id;
+		}
+		
+		Integer id = ids.get(city);
+		if (id != null) {
+			return id.intValue();
+		}
+		
+		// New city. Grow the coordinate arrays if necessary.
+		int newId = names.size();
+		ensureCapacity(newId + 1);
+		names.add(city);
+		ids.put(city, Integer.valueOf(newId));
+		
+		return newId;
+		
+	}
+	
+	/**
+	 * Adds a city with coordinates to the table. If the city is already
+	 * present, its coordinates are replaced.
+	 * 
+	 * @param city the city name.
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @return the city ID.
+	 */
+	public int add(String city, int x, int y) {
+		
+		int id = add(city);
+		setCoordinates(id, x, y);
+		
+		return id;
+		
+	}
+	
+	/**
+	 * Narrows the straight-line scale factor so that the scaled straight-line
+	 * distance between the two cities does not exceed the given road distance.
+	 * Roads between cities without coordinates are ignored.
+	 * 
+	 * @param a the first city ID.
+	 * @param b the second city ID.
+	 * @param distance the road distance between the two cities.
+	 */
+	public void fitScale(int a, int b, double distance) {
+		
+		if (!located[a] || !located[b]) {
+			return;
+		}
+		
+		double line = straightLine(a, b);
+		if (line > 0.0 && distance / line < scale) {
+			scale = distance / line;
+		}
+		
+	}
+	
+	/**
+	 * Returns the city ID for the specified city name.
+	 * 
+	 * @param city the city name.
+	 * @return the city ID, or <code>-1</code> if the city is unknown.
+	 */
+	public int getId(String city) {
+		
+		// Numbered cities: the name is the city ID plus one.
+		if (names == null) {
+			return parseNumber(city);
+		}
+		
+		Integer id = ids.get(city);
+		return (id == null ? -1 : id.intValue());
+		
+	}
+	
+	/**
+	 * Returns the city name for the specified city ID.
+	 * 
+	 * @param id the city ID.
+	 * @return the city name.
+	 */
+	public String getName(int id) {
+		
+		if (names == null) {
+			return Integer.toString(id + 1);
+		}
+		
+		return names.get(id);
+		
+	}
+	
+	/**
+	 * Returns the straight-line scale factor. If not every city has
+	 * coordinates the heuristic cannot be guaranteed admissible, so the
+	 * scale collapses to 0.0.
+	 * 
+	 * @return the straight-line scale factor.
+	 */
+	public double getScale() {
+		
+		if (!hasCoordinates() || Double.isInfinite(scale)) {
+			return 0.0;
+		}
+		
+		return scale;
+		
+	}
+	
+	/**
+	 * Returns the <tt>x</tt> coordinate of a city.
+	 * 
+	 * @param id the city ID.
+	 * @return the <tt>x</tt> coordinate.
+	 */
+	public int getX(int id) {
+		
+		return xcoord[id];
+		
+	}
+	
+	/**
+	 * Returns the <tt>y</tt> coordinate of a city.
+	 * 
+	 * @param id the city ID.
+	 * @return the <tt>y</tt> coordinate.
+	 */
+	public int getY(int id) {
+		
+		return ycoord[id];
+		
+	}
+	
+	/**
+	 * Tests whether every city in the table has coordinates.
+	 * 
+	 * @return <code>true</code> if all cities have coordinates, otherwise
+	 * <code>false</code>.
+	 */
+	public boolean hasCoordinates() {
+		
+		return (size() > 0 && locatedCount == size());
+		
+	}
+	
+	/**
+	 * Tests whether the cities in the table are named by number.
+	 * 
+	 * @return <code>true</code> if the cities are numbered, otherwise
+	 * <code>false</code>.
+	 */
+	public boolean isNumbered() {
+		
+		return (names == null);
+		
+	}
+	
+	/**
+	 * Reads a table written by <code>write()</code> from a compiled puzzle
+	 * file.
+	 * 
+	 * @param in the compiled puzzle file.
+	 * @return the city table.
+	 * @throws ParsingException If the file is truncated or corrupt.
+	 */
+	public static CityTable read(PuzzleFileReader in) throws ParsingException {
+		
+		// The names, ended one after another in a single block.
+		int count = in.readInt();
+		CityTable table;
+		if (count >= 0) {
+			table = new CityTable(count);
+		} else {
+			
+			int[] ends = in.readInts();
+			char[] chars = in.readChars();
+			if (ends == null || chars == null) {
+				throw new ParsingException("CityTable.read error: The city names are missing.");
+			}
+			
+			table = new CityTable();
+			table.ids = new HashMap<String, Integer>((ends.length * 4 / 3) + 1);
+			int from = 0;
+			for (int i = 0; i < ends.length; i++) {
+				if (ends[i] < from || ends[i] > chars.length) {
+					throw new ParsingException("CityTable.read error: City name " + i + " is corrupt.");
+				}
+				String city = new String(chars, from, ends[i] - from);
+				table.names.add(city);
+				table.ids.put(city, Integer.valueOf(i));
+				from = ends[i];
+			}
+			count = ends.length;
+			
+		}
+		
+		// The coordinates.
+		int[] x = in.readInts();
+		int[] y = in.readInts();
+		byte[] located = in.readBytes();
+		if (x == null || y == null || located == null || x.length != count || y.length != count || located.length != count) {
+			throw new ParsingException("CityTable.read error: The coordinates of " + count + " cities are missing.");
+		}
+		
+		table.xcoord = x;
+		table.ycoord = y;
+		table.located = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			if (located[i] != 0) {
+				table.located[i] = true;
+				table.locatedCount++;
+			}
+		}
+		table.scale = in.readDouble();
+		
+		return table;
+		
+	}
+	
+	/**
+	 * Sets the coordinates of a city already in the table.
+	 * 
+	 * @param id the city ID.
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 */
+	public void setCoordinates(int id, int x, int y) {
+		
+		if (!located[id]) {
+			located[id] = true;
+			locatedCount++;
+		}
+		
+		xcoord[id] = x;
+		ycoord[id] = y;
+		
+	}
+	
+	/**
+	 * Returns the number of cities in the table.
+	 * 
+	 * @return the number of cities.
+	 */
+	public int size() {
+		
+		return (names == null ? numbered : names.size());
+		
+	}
+	
+	/**
+	 * Returns the unscaled straight-line distance between two cities.
+	 * 
+	 * @param a the first city ID.
+	 * @param b the second city ID.
+	 * @return the straight-line distance.
+	 */
+	public double straightLine(int a, int b) {
+		
+		double x = (double)xcoord[a] - xcoord[b];
+		double y = (double)ycoord[a] - ycoord[b];
+		
+		return Math.sqrt((x * x) + (y * y));
+		
+	}
+	
+	/**
+	 * Writes the table to a compiled puzzle file, for <code>read()</code>:
+	 * the city names (or the number of numbered cities), the coordinates
+	 * and the straight-line scale.
+	 * 
+	 * @param out the compiled puzzle file.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void write(PuzzleFileWriter out) throws ParsingException {
+		
+		int count = size();
+		if (names == null) {
+			out.writeInt(count);
+		} else {
+			
+			// The names, one after another, and where each ends.
+			out.writeInt(-1);
+			int[] ends = new int[count];
+			StringBuilder chars = new StringBuilder();
+			for (int i = 0; i < count; i++) {
+				chars.append(names.get(i));
+				ends[i] = chars.length();
+			}
+			out.writeInts(ends);
+			out.writeString(chars.toString());
+			
+		}
+		
+		int[] x = new int[count];
+		int[] y = new int[count];
+		byte[] l = new byte[count];
+		System.arraycopy(xcoord, 0, x, 0, count);
+		System.arraycopy(ycoord, 0, y, 0, count);
+		for (int i = 0; i < count; i++) {
+			l[i] = (byte)(located[i] ? 1 : 0);
+		}
+		out.writeInts(x);
+		out.writeInts(y);
+		out.writeBytes(l);
+		out.writeDouble(scale);
+		
+	}
+	
+	/**
+	 * Helper function. Grows the coordinate arrays to hold at least
+	 * <code>capacity</code> cities.
+	 * 
+	 * @param capacity the required capacity.
+	 */
+	private void ensureCapacity(int capacity) {
+		
+		if (capacity <= xcoord.length) {
+			return;
+		}
+		
+		int newCapacity = Math.max(capacity, xcoord.length * 2);
+		
+		int[] x = new int[newCapacity];
+		int[] y = new int[newCapacity];
+		boolean[] l = new boolean[newCapacity];
+		System.arraycopy(xcoord, 0, x, 0, xcoord.length);
+		System.arraycopy(ycoord, 0, y, 0, ycoord.length);
+		System.arraycopy(located, 0, l, 0, located.length);
+		xcoord = x;
+		ycoord = y;
+		located = l;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the city ID of a numbered city, or
+	 * <code>-1</code> if the name is not one of the numbers.
+	 * 
+	 * @param city the city name.
+	 * @return the city ID, or <code>-1</code>.
+	 */
+	private int parseNumber(String city) {
+		
+		if (city == null || city.length() == 0 || city.length() > 10) {
+			return -1;
+		}
+		
+		long n = 0;
+		for (int i = 0; i < city.length(); i++) {
+			char ch = city.charAt(i);
+			if (ch < '0' || ch > '9') {
+				return -1;
+			}
+			n = (n * 10) + (ch - '0');
+		}
+		
+		return (n >= 1 && n <= numbered ? (int)(n - 1) : -1);
+		
+	}
+	
+}
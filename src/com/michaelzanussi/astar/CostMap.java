@@ -0,0 +1,436 @@
+package com.michaelzanussi.astar;
+
+import java.io.File;
+
+/**
+ * The <code>CostMap</code> class holds the cost of entering every cell of
+ * a <code>Grid</code> puzzle in a single flat array, in row-major order
+ * (cell <tt>x,y</tt> is element <tt>y * width + x</tt>). The grid need not
+ * be square. <p>
+ * 
+ * The array holds bytes, shorts or ints, whichever is the narrowest that
+ * can hold the largest cost, so a grid of a million cells with small
+ * costs takes a megabyte rather than the four megabytes (plus a header
+ * per row) of an <code>int[][]</code>. A cost of <tt>0</tt> means the
+ * default cost of a move. Cells that cannot be entered at all are marked
+ * in a separate bit set. Should a later change need a larger cost, the
+ * array is widened once to the next cell width. <p>
+ * 
+ * A map made by <code>map()</code> keeps its cells in a
+ * <code>TiledCostFile</code> instead, outside the Java heap, for grids too
+ * large for an array. Its cell width is fixed when the file is created.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public final class CostMap {
+	
+	// The largest cost each cell width can hold.
+	private static final int BYTE_MAX = 0xFF;
+	private static final int SHORT_MAX = 0xFFFF;
+	
+	// The grid dimensions.
+	private int width;
+	private int height;
+	
+	// The largest cost that may be stored.
+	private int maxCost;
+	
+	// The cell costs. Exactly one of these is used.
+	private byte[] byteCells;
+	private short[] shortCells;
+	private int[] intCells;
+	
+	// The blocked cells, one bit per cell.
+	private long[] blocked;
+	
+	// The tiled file holding the cells instead, or null.
+	private TiledCostFile tiles;
+	
+	/**
+	 * Standard constructor. Builds a map in which every cell has the
+	 * default cost and none are blocked.
+	 * 
+	 * @param width the number of cells along the <tt>x</tt> axis.
+	 * @param height the number of cells along the <tt>y</tt> axis.
+	 * @param maxCost the largest cost expected; a larger one widens the cells.
+	 * @throws IllegalArgumentException If a dimension is not positive, the
+	 * map is too large, or the maximum cost is negative.
+	 */
+	public CostMap(int width, int height, int maxCost) throws IllegalArgumentException {
+		
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("CostMap.CostMap error: Width and height must be > 0. Received: " + width + ", " + height);
+		}
+		
+		if ((long)width * height > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("CostMap.CostMap error: Grid too large: " + width + " x " + height);
+		}
+		
+		if (maxCost < 0) {
+			throw new IllegalArgumentException("CostMap.CostMap error: Maximum cost must be >= 0. Received: " + maxCost);
+		}
+		
+		this.width = width;
+		this.height = height;
+		this.maxCost = maxCost;
+		
+		// Pick the narrowest cell that holds the largest cost.
+		int cells = width * height;
+		if (maxCost <= BYTE_MAX) {
+			byteCells = new byte[cells];
+		} else if (maxCost <= SHORT_MAX) {
+			shortCells = new short[cells];
+		} else {
+			intCells = new int[cells];
+		}
+		
+		blocked = new long[(cells + 63) >>> 6];
+		
+	}
+	
+	/**
+	 * Helper constructor. Builds a map backed by a tiled cost file.
+	 */
+	private CostMap(TiledCostFile tiles) {
+		
+		this.width = tiles.getWidth();
+		this.height = tiles.getHeight();
+		this.maxCost = tiles.getMaxCost();
+		this.tiles = tiles;
+		
+	}
+	
+	/**
+	 * Helper constructor. Builds a map around cells already read.
+	 */
+	private CostMap(int width, int height, int maxCost, byte[] byteCells, short[] shortCells, int[] intCells, long[] blocked) {
+		
+		this.width = width;
+		this.height = height;
+		this.maxCost = maxCost;
+		this.byteCells = byteCells;
+		this.shortCells = shortCells;
+		this.intCells = intCells;
+		this.blocked = blocked;
+		
+	}
+	
+	/**
+	 * Opens a map whose cells are kept in a tiled cost file outside the
+	 * Java heap, creating the file if it does not exist. The grid may
+	 * have more cells than an array can hold. Tiles are read from the file
+	 * only as they are touched, and changes are written through to it, so
+	 * the map can be opened again in a later run with no load time.
+	 * 
+	 * @param file the tiled cost file.
+	 * @param width the number of cells along the <tt>x</tt> axis.
+	 * @param height the number of cells along the <tt>y</tt> axis.
+	 * @param maxCost the largest cost expected, used to choose the cell
+	 * width of a new file.
+	 * @return the cost map.
+	 * @throws ParsingException If the file cannot be opened or created, or
+	 * holds a grid of other dimensions.
+	 */
+	public static CostMap map(File file, int width, int height, int maxCost) throws ParsingException {
+		
+		return new CostMap(TiledCostFile.open(file, width, height, maxCost));
+		
+	}
+	
+	/**
+	 * Reads a map written by <code>write()</code> from a compiled puzzle
+	 * file.
+	 * 
+	 * @param in the compiled puzzle file.
+	 * @return the cost map.
+	 * @throws ParsingException If the file is truncated or corrupt.
+	 */
+	public static CostMap read(PuzzleFileReader in) throws ParsingException {
+		
+		int width = in.readInt();
+		int height = in.readInt();
+		int maxCost = in.readInt();
+		
+		if (width <= 0 || height <= 0 || (long)width * height > Integer.MAX_VALUE) {
+			throw new ParsingException("CostMap.read error: Invalid grid size " + width + " x " + height + ".");
+		}
+		
+		// Exactly one of the cell arrays is given.
+		int cells = width * height;
+		byte[] b = in.readBytes();
+		short[] s = in.readShorts();
+		int[] i = in.readInts();
+		long[] blocked = in.readLongs();
+		int length = (b != null ? b.length : (s != null ? s.length : (i != null ? i.length : -1)));
+		if (length != cells || (b != null ? 1 : 0) + (s != null ? 1 : 0) + (i != null ? 1 : 0) != 1 || blocked == null || blocked.length != (cells + 63) >>> 6) {
+			throw new ParsingException("CostMap.read error: The cells of the " + width + " x " + height + " grid are missing.");
+		}
+		
+		return new CostMap(width, height, maxCost, b, s, i, blocked);
+		
+	}
+	
+	/**
+	 * Creates a map whose cells are kept in a new tiled cost file outside
+	 * the Java heap, as <code>map()</code>, but replacing any existing
+	 * file so that every cell starts open at the default cost.
+	 * 
+	 * @param file the tiled cost file.
+	 * @param width the number of cells along the <tt>x</tt> axis.
+	 * @param height the number of cells along the <tt>y</tt> axis.
+	 * @param maxCost the largest cost expected, used to choose the cell
+	 * width of the file.
+	 * @return the cost map.
+	 * @throws ParsingException If the file cannot be replaced or created.
+	 */
+	public static CostMap create(File file, int width, int height, int maxCost) throws ParsingException {
+		
+		return new CostMap(TiledCostFile.create(file, width, height, maxCost));
+		
+	}
+	
+	/**
+	 * Returns the number of bytes used to store the cost of each cell.
+	 * 
+	 * @return <tt>1</tt>, <tt>2</tt> or <tt>4</tt>.
+	 */
+	public int getCellWidth() {
+		
+		if (tiles != null) {
+			return tiles.getCellWidth();
+		}
+		
+		return (byteCells != null ? 1 : (shortCells != null ? 2 : 4));
+		
+	}
+	
+	/**
+	 * Returns the cost of entering a cell.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @return the cost, or <tt>0</tt> for the default cost.
+	 */
+	public int getCost(int x, int y) {
+		
+		int i = index(x, y);
+		
+		if (tiles != null) {
+			return tiles.getCost(x, y);
+		}
+		
+		if (byteCells != null) {
+			return byteCells[i] & BYTE_MAX;
+		} else if (shortCells != null) {
+			return shortCells[i] & SHORT_MAX;
+		}
+		
+		return intCells[i];
+		
+	}
+	
+	/**
+	 * Returns the number of cells along the <tt>y</tt> axis.
+	 * 
+	 * @return the grid height.
+	 */
+	public int getHeight() {
+		
+		return height;
+		
+	}
+	
+	/**
+	 * Returns the tiled cost file holding the cells.
+	 * 
+	 * @return the tiled cost file, or <code>null</code> if the cells are
+	 * held on the heap.
+	 */
+	public TiledCostFile getTiles() {
+		
+		return tiles;
+		
+	}
+	
+	/**
+	 * Returns the number of cells along the <tt>x</tt> axis.
+	 * 
+	 * @return the grid width.
+	 */
+	public int getWidth() {
+		
+		return width;
+		
+	}
+	
+	/**
+	 * Tests whether a cell is blocked.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @return <code>true</code> if the cell cannot be entered, otherwise
+	 * <code>false</code>.
+	 */
+	public boolean isBlocked(int x, int y) {
+		
+		int i = index(x, y);
+		
+		if (tiles != null) {
+			return tiles.isBlocked(x, y);
+		}
+		
+		return ((blocked[i >>> 6] & (1L << i)) != 0);
+		
+	}
+	
+	/**
+	 * Tests whether a cell lies on the grid.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @return <code>true</code> if the cell is on the grid, otherwise
+	 * <code>false</code>.
+	 */
+	public boolean isOnGrid(int x, int y) {
+		
+		return (x >= 0 && x < width && y >= 0 && y < height);
+		
+	}
+	
+	/**
+	 * Marks a cell as blocked or passable.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @param value <code>true</code> to block the cell, <code>false</code>
+	 * to make it passable.
+	 */
+	public void setBlocked(int x, int y, boolean value) {
+		
+		int i = index(x, y);
+		
+		if (tiles != null) {
+			tiles.setBlocked(x, y, value);
+			return;
+		}
+		
+		if (value) {
+			blocked[i >>> 6] |= (1L << i);
+		} else {
+			blocked[i >>> 6] &= ~(1L << i);
+		}
+		
+	}
+	
+	/**
+	 * Sets the cost of entering a cell. If the cost is larger than the
+	 * current cell width can hold, every cell is widened first.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @param cost the cost, or <tt>0</tt> for the default cost.
+	 * @throws IllegalArgumentException If the cost is negative, or too
+	 * large for the cell width of a tiled cost file.
+	 */
+	public void setCost(int x, int y, int cost) throws IllegalArgumentException {
+		
+		if (cost < 0) {
+			throw new IllegalArgumentException("CostMap.setCost error: Cost must be >= 0. Received: " + cost);
+		}
+		
+		int i = index(x, y);
+		
+		if (tiles != null) {
+			tiles.setCost(x, y, cost);
+			return;
+		}
+		
+		if (cost > maxCost) {
+			widen(cost);
+		}
+		
+		if (byteCells != null) {
+			byteCells[i] = (byte)cost;
+		} else if (shortCells != null) {
+			shortCells[i] = (short)cost;
+		} else {
+			intCells[i] = cost;
+		}
+		
+	}
+	
+	/**
+	 * Writes the map to a compiled puzzle file, for <code>read()</code>:
+	 * the cells and blocked cells as they are held. A map kept in a tiled
+	 * cost file is not written; its puzzle names the file instead.
+	 * 
+	 * @param out the compiled puzzle file.
+	 * @throws ParsingException If the file cannot be written, or the map
+	 * is kept in a tiled cost file.
+	 */
+	public void write(PuzzleFileWriter out) throws ParsingException {
+		
+		if (tiles != null) {
+			throw new ParsingException("CostMap.write error: The cells are kept in " + tiles.getFile() + ", which cannot be written to a compiled puzzle file.");
+		}
+		
+		out.writeInt(width);
+		out.writeInt(height);
+		out.writeInt(maxCost);
+		out.writeBytes(byteCells);
+		out.writeShorts(shortCells);
+		out.writeInts(intCells);
+		out.writeLongs(blocked);
+		
+	}
+	
+	/**
+	 * Helper function. Copies the cells into the narrowest width that
+	 * holds the new largest cost.
+	 */
+	private void widen(int cost) {
+		
+		if (cost <= BYTE_MAX) {
+			maxCost = Math.max(maxCost, cost);
+			return;
+		}
+		
+		int cells = width * height;
+		if (cost <= SHORT_MAX) {
+			if (byteCells != null) {
+				shortCells = new short[cells];
+				for (int i = 0; i < cells; i++) {
+					shortCells[i] = (short)(byteCells[i] & BYTE_MAX);
+				}
+				byteCells = null;
+			}
+		} else if (intCells == null) {
+			intCells = new int[cells];
+			for (int i = 0; i < cells; i++) {
+				intCells[i] = (byteCells != null ? byteCells[i] & BYTE_MAX : shortCells[i] & SHORT_MAX);
+			}
+			byteCells = null;
+			shortCells = null;
+		}
+		
+		maxCost = Math.max(maxCost, cost);
+		
+	}
+	
+	/**
+	 * Helper function. Returns the array index of a cell.
+	 * 
+	 * @throws IndexOutOfBoundsException If the cell is not on the grid.
+	 */
+	private int index(int x, int y) throws IndexOutOfBoundsException {
+		
+		if (!isOnGrid(x, y)) {
+			throw new IndexOutOfBoundsException("CostMap.index error: Cell " + x + "," + y + " is not on the " + width + " x " + height + " grid.");
+		}
+		
+		return (y * width) + x;
+		
+	}
+	
+}
@@ -0,0 +1,408 @@
+package com.michaelzanussi.astar;
+
+import java.util.LinkedList;
+
+/**
+ * The D* Lite algorithm for incremental path planning on an
+ * <code>IndexedGraph</code>. D* Lite searches backwards from the goal and
+ * keeps, for every vertex, its cost-to-goal <code>g</code> and the one-step
+ * lookahead value <code>rhs</code> between calls to <code>path()</code>.
+ * When the cost of an edge changes, <code>edgeChanged()</code> marks only the
+ * affected vertex as inconsistent, and the next call to <code>path()</code>
+ * repairs just the part of the search that the change reaches instead of
+ * searching again from scratch. <p>
+ * 
+ * The start may also move, as when an agent follows its path while the
+ * graph changes around it. Rather than recalculating every key on the
+ * open list, <code>moveStart()</code> adds the estimate between the old
+ * and new starts to a key modifier, and keys found to be out of date are
+ * requeued as they reach the top of the open list. <p>
+ * 
+ * The heuristic supplied by the graph must be consistent and every edge
+ * cost must be positive. The values of
+ * <code>g</code> and <code>rhs</code> are kept in primitive arrays indexed
+ * by vertex and the open list is an <code>IndexedMinHeap</code>, so a
+ * search allocates nothing beyond the returned path. <p>
+ * 
+ * Statistics are reported through <code>Global</code> in the same way as
+ * <code>AStar</code>: every vertex expansion counts as a node opened, and
+ * the number of vertices with a known cost-to-goal (kept as a running
+ * count, so it costs nothing per call) is reported as the number of
+ * nodes closed.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class DStarLite implements PuzzleEngine {
+	
+	// An unreachable cost.
+	private static final double INFINITY = Double.POSITIVE_INFINITY;
+	
+	// The graph being searched.
+	private IndexedGraph graph;
+	
+	// The start and goal vertices.
+	private int start;
+	private int goal;
+	
+	// The start when the keys were last brought up to date, and the
+	// key modifier accumulated by moving the start since the search began.
+	private int last;
+	private double km;
+	
+	// The cost-to-goal and one-step lookahead of each vertex.
+	private double[] g;
+	private double[] rhs;
+	
+	// The number of vertices with a known (finite) cost-to-goal.
+	private int known;
+	
+	// The open list.
+	private IndexedMinHeap open;
+	
+	// Neighbour buffers: one pair for the vertex being expanded and one
+	// pair for the vertex whose rhs is being recalculated.
+	private int[] outerNodes;
+	private double[] outerCosts;
+	private int[] innerNodes;
+	private double[] innerCosts;
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param graph the graph to search.
+	 * @param start the start vertex.
+	 * @param goal the goal vertex.
+	 * @throws NullPointerException If no graph was specified.
+	 * @throws IllegalArgumentException If the start or goal vertex is not
+	 * in the graph.
+	 */
+	public DStarLite(IndexedGraph graph, int start, int goal) throws NullPointerException, IllegalArgumentException {
+		
+		if (graph == null) {
+			throw new NullPointerException("DStarLite.DStarLite error: The graph cannot be null.");
+		}
+		
+		int n = graph.size();
+		if (start < 0 || start >= n || goal < 0 || goal >= n) {
+			throw new IllegalArgumentException("DStarLite.DStarLite error: Start and goal must be in the graph. Start = " + start + ", Goal = " + goal + ", Size = " + n);
+		}
+		
+		this.graph = graph;
+		this.start = start;
+		this.goal = goal;
+		
+		last = start;
+		km = 0.0;
+		known = 0;
+		
+		g = new double[n];
+		rhs = new double[n];
+		open = new IndexedMinHeap(n);
+		
+		outerNodes = new int[0];
+		outerCosts = new double[0];
+		innerNodes = new int[0];
+		innerCosts = new double[0];
+		
+		// Every vertex starts out unreached, except the goal, which is
+		// inconsistent until it is first expanded.
+		for (int i = 0; i < n; i++) {
+			g[i] = INFINITY;
+			rhs[i] = INFINITY;
+		}
+		
+		rhs[goal] = 0.0;
+		open.insert(goal, graph.heuristic(start, goal), 0.0);
+		
+	}
+	
+	/**
+	 * Notifies the engine that the cost of the edge from vertex
+	 * <code>u</code> to vertex <code>v</code> has changed in the graph. For an
+	 * undirected edge, call this method for both directions.
+	 * 
+	 * @param u the vertex the edge leaves.
+	 * @param v the vertex the edge enters.
+	 */
+	public void edgeChanged(int u, int v) {
+		
+		ensureBuffers();
+		updateVertex(u);
+		
+	}
+	
+	/**
+	 * Returns the current cost-to-goal of a vertex, as known to the engine.
+	 * 
+	 * @param u the vertex.
+	 * @return the cost-to-goal, or <code>Double.POSITIVE_INFINITY</code> if the
+	 * goal is not (yet) known to be reachable from the vertex.
+	 */
+	public double getCost(int u) {
+		
+		return g[u];
+		
+	}
+	
+	/**
+	 * Notifies the engine that the heuristic of the graph has changed (for
+	 * example, because the straight-line scale of a city map was narrowed).
+	 * Every key on the open list is recalculated.
+	 */
+	public void heuristicChanged() {
+		
+		// Rebuilding the heap one vertex at a time is fine here, as
+		// heuristic changes are rare compared with edge changes.
+		for (int u = 0; u < g.length; u++) {
+			if (open.contains(u)) {
+				open.update(u, key1(u), key2(u));
+			}
+		}
+		
+	}
+	
+	/**
+	 * Moves the start to another vertex, typically the next vertex on the
+	 * path as the agent travels. The goal and everything learned about
+	 * the graph are kept.
+	 * 
+	 * @param u the new start vertex.
+	 * @throws IllegalArgumentException If the vertex is not in the graph.
+	 */
+	public void moveStart(int u) throws IllegalArgumentException {
+		
+		if (u < 0 || u >= g.length) {
+			throw new IllegalArgumentException("DStarLite.moveStart error: Start must be in the graph. Start = " + u + ", Size = " + g.length);
+		}
+		
+		start = u;
+		
+	}
+	
+	/**
+	 * Brings the search up to date with any edge changes reported since
+	 * the last call, then returns the shortest path from the start to the
+	 * goal. The path begins with the goal state and descends to the start
+	 * state, as with <code>AStar.path()</code>.
+	 * 
+	 * @return the path to the goal if one exists, or <code>null</code> if no
+	 * path exists.
+	 * @throws IllegalStateException If the system times out searching for a path.
+	 * @throws IndexOutOfBoundsException If bounds have been exceeded.
+	 */
+	public LinkedList<Object> path() throws IllegalStateException, IndexOutOfBoundsException {
+		
+		ensureBuffers();
+		
+		// Account for the start having moved since the last search.
+		if (start != last) {
+			km += graph.heuristic(last, start);
+			last = start;
+		}
+		
+		computeShortestPath();
+		
+		// Set global nodes closed (every vertex with a known cost-to-goal).
+		Global.setNodesClosed(known);
+		
+		// Unreachable?
+		if (g[start] == INFINITY) {
+			return null;
+		}
+		
+		// Walk from the start to the goal, always stepping to the neighbour
+		// with the smallest edge cost plus cost-to-goal.
+		PuzState state = graph.toState(start, 0.0, null);
+		LinkedList<Object> path = new LinkedList<Object>();
+		path.addFirst(state);
+		
+		int u = start;
+		while (u != goal) {
+			
+			int best = -1;
+			double bestCost = INFINITY;
+			double bestEdge = 0.0;
+			
+			int n = graph.successors(u, outerNodes, outerCosts);
+			for (int i = 0; i < n; i++) {
+				double cost = outerCosts[i] + g[outerNodes[i]];
+				if (cost < bestCost) {
+					best = outerNodes[i];
+					bestCost = cost;
+					bestEdge = outerCosts[i];
+				}
+			}
+			
+			// A consistent search always has a way forward, but guard
+			// against looping forever all the same.
+			if (best < 0 || path.size() > g.length) {
+				return null;
+			}
+			
+			state = graph.toState(best, bestEdge, state);
+			path.addFirst(state);
+			u = best;
+			
+		}
+		
+		return path;
+		
+	}
+	
+	/**
+	 * Helper function. Expands inconsistent vertices until the start vertex
+	 * is consistent and no vertex on the open list could still improve it.
+	 */
+	private void computeShortestPath() throws IllegalStateException {
+		
+		while (!open.isEmpty() && (topLess(key1(start), key2(start)) || rhs[start] != g[start])) {
+			
+			// Have we timed out?
+			if (Global.isTimeUp()) {
+				throw new IllegalStateException("DStarLite.path error: System timed out searching for a solution.");
+			}
+			
+			int u = open.top();
+			double k1 = key1(u);
+			double k2 = key2(u);
+			
+			if (open.getKey1(u) < k1 || (open.getKey1(u) == k1 && open.getKey2(u) < k2)) {
+				
+				// The key is out of date. Requeue with the correct key.
+				open.update(u, k1, k2);
+				continue;
+				
+			}
+			
+			// If applicable, print the current state.
+			if (Global.reportStatePath()) {
+				Global.output(graph.toState(u, 0.0, null).toString());
+			}
+			
+			if (g[u] > rhs[u]) {
+				
+				// Overconsistent: the vertex got cheaper. Settle it and
+				// let its predecessors know.
+				open.remove(u);
+				if (g[u] == INFINITY) {
+					known++;
+				}
+				g[u] = rhs[u];
+				Global.incNodesOpened();
+				
+				int n = graph.predecessors(u, outerNodes, outerCosts);
+				for (int i = 0; i < n; i++) {
+					updateVertex(outerNodes[i]);
+				}
+				
+			} else {
+				
+				// Underconsistent: the vertex got more expensive. Forget its
+				// cost and recalculate it and its predecessors.
+				if (g[u] != INFINITY) {
+					known--;
+				}
+				g[u] = INFINITY;
+				Global.incNodesOpened();
+				Global.incNodesReopened();
+				
+				int n = graph.predecessors(u, outerNodes, outerCosts);
+				for (int i = 0; i < n; i++) {
+					updateVertex(outerNodes[i]);
+				}
+				updateVertex(u);
+				
+			}
+			
+			// Record the open list size (and with it the open/closed ratio).
+			Global.setOpenListSize(open.size());
+			
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Makes sure the neighbour buffers can hold the
+	 * neighbours of any vertex, as the graph may have grown.
+	 */
+	private void ensureBuffers() {
+		
+		int d = graph.maxDegree();
+		if (outerNodes.length < d) {
+			outerNodes = new int[d];
+			outerCosts = new double[d];
+			innerNodes = new int[d];
+			innerCosts = new double[d];
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Returns the primary key of a vertex.
+	 */
+	private double key1(int u) {
+		
+		return Math.min(g[u], rhs[u]) + graph.heuristic(start, u) + km;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the secondary key of a vertex.
+	 */
+	private double key2(int u) {
+		
+		return Math.min(g[u], rhs[u]);
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether the smallest key on the open list
+	 * is less than the given key.
+	 */
+	private boolean topLess(double k1, double k2) {
+		
+		int u = open.top();
+		
+		return (open.getKey1(u) < k1 || (open.getKey1(u) == k1 && open.getKey2(u) < k2));
+		
+	}
+	
+	/**
+	 * Helper function. Recalculates the one-step lookahead of a vertex and
+	 * puts it on (or takes it off) the open list according to whether it
+	 * is consistent.
+	 */
+	private void updateVertex(int u) {
+		
+		if (u != goal) {
+			
+			double best = INFINITY;
+			int n = graph.successors(u, innerNodes, innerCosts);
+			for (int i = 0; i < n; i++) {
+				
+				// Zero-cost edges would let two vertices keep each other's
+				// out-of-date cost alive after an increase elsewhere.
+				if (innerCosts[i] <= 0.0) {
+					throw new IllegalArgumentException("DStarLite.updateVertex error: Edge costs must be > 0.0. Received: " + innerCosts[i]);
+				}
+				
+				double cost = innerCosts[i] + g[innerNodes[i]];
+				if (cost < best) {
+					best = cost;
+				}
+				
+			}
+			rhs[u] = best;
+			
+		}
+		
+		if (g[u] != rhs[u]) {
+			open.update(u, key1(u), key2(u));
+		} else {
+			open.remove(u);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,610 @@
+package com.michaelzanussi.astar;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Delta-stepping single-source shortest paths on an
+ * <code>IndexedGraph</code>. The search finds the cost from the start to
+ * every vertex, not just the goal, with the same result as a Dijkstra
+ * search, but settles whole buckets of vertices at a time so that the
+ * work can be spread over several threads. <p>
+ * 
+ * Vertices are kept in buckets of width <tt>delta</tt> by tentative cost.
+ * The lowest bucket is emptied again and again, relaxing the light edges
+ * (no longer than <tt>delta</tt>) of all its vertices at once, until no
+ * vertex falls back into it; the heavy edges of every vertex it settled
+ * are then relaxed once. Each relaxation round is split into two parallel
+ * phases: the frontier is cut into one slice per thread, and each thread
+ * scans the edges of its slice into requests addressed by target vertex;
+ * then each thread applies the requests for the vertices it owns. No two
+ * threads ever write the same vertex, so no locking is needed. Small
+ * frontiers are relaxed on the calling thread. <p>
+ * 
+ * Among equally short paths, each vertex keeps the lowest-numbered
+ * predecessor, so the path returned does not depend on the number of
+ * threads. <tt>delta</tt> is the mean edge cost of the graph. <p>
+ * 
+ * Nodes opened counts the vertices whose edges were scanned; nodes
+ * closed counts the vertices reachable from the start. The state path is
+ * not reported.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class DeltaStepping implements PuzzleEngine {
+	
+	// Frontiers smaller than this are relaxed on the calling thread.
+	private static final int PARALLEL_THRESHOLD = 512;
+	
+	// An unreachable cost.
+	private static final double INFINITY = Double.POSITIVE_INFINITY;
+	
+	// The graph being searched.
+	private IndexedGraph graph;
+	
+	// The start and goal vertices.
+	private int start;
+	private int goal;
+	
+	// The bucket width.
+	private double delta;
+	
+	// The cost of each vertex from the start, and the vertex before it on
+	// the shortest path.
+	private double[] dist;
+	private int[] parent;
+	
+	// The non-empty buckets of vertices by tentative cost, kept sparse as
+	// a few long edges can leave wide gaps. A vertex may be left in a
+	// bucket it has since improved out of; such entries are skipped.
+	private TreeMap<Long, IntList> buckets;
+	
+	// The number of worker threads.
+	private int threads;
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param graph the graph to search.
+	 * @param start the start vertex.
+	 * @param goal the goal vertex.
+	 * @throws NullPointerException If no graph was specified.
+	 * @throws IllegalArgumentException If the start or goal vertex is not
+	 * in the graph.
+	 */
+	public DeltaStepping(IndexedGraph graph, int start, int goal) throws NullPointerException, IllegalArgumentException {
+		
+		if (graph == null) {
+			throw new NullPointerException("DeltaStepping.DeltaStepping error: The graph cannot be null.");
+		}
+		
+		int n = graph.size();
+		if (start < 0 || start >= n || goal < 0 || goal >= n) {
+			throw new IllegalArgumentException("DeltaStepping.DeltaStepping error: Start and goal must be in the graph. Start = " + start + ", Goal = " + goal + ", Size = " + n);
+		}
+		
+		this.graph = graph;
+		this.start = start;
+		this.goal = goal;
+		this.threads = Runtime.getRuntime().availableProcessors();
+		
+	}
+	
+	/**
+	 * Returns the cost of a vertex from the start, as found by the last
+	 * search.
+	 * 
+	 * @param u the vertex.
+	 * @return the cost, or <code>Double.POSITIVE_INFINITY</code> if the
+	 * vertex cannot be reached (or no search has been made).
+	 */
+	public double getCost(int u) {
+		
+		return (dist == null ? INFINITY : dist[u]);
+		
+	}
+	
+	/**
+	 * Returns the bucket width used by the last search.
+	 * 
+	 * @return the bucket width.
+	 */
+	public double getDelta() {
+		
+		return delta;
+		
+	}
+	
+	/**
+	 * Finds the cost of every vertex from the start, then reads off the
+	 * path to the goal. The path begins with the goal state and descends
+	 * to the start state, as with <code>AStar.path()</code>.
+	 * 
+	 * @return the path to the goal if one exists, or <code>null</code> if no
+	 * path exists.
+	 * @throws IllegalStateException If the system times out searching.
+	 */
+	public LinkedList<Object> path() throws IllegalStateException {
+		
+		search();
+		
+		// Unreachable?
+		if (dist[goal] == INFINITY) {
+			return null;
+		}
+		
+		// Walk back from the goal to the start.
+		LinkedList<Integer> cells = new LinkedList<Integer>();
+		for (int u = goal; u != -1; u = parent[u]) {
+			cells.addFirst(u);
+			if (cells.size() > dist.length) {
+				return null;
+			}
+		}
+		
+		// Build the states, start first, and push each onto the front of
+		// the list so the goal comes first.
+		LinkedList<Object> path = new LinkedList<Object>();
+		int[] nodes = new int[graph.maxDegree()];
+		double[] costs = new double[graph.maxDegree()];
+		PuzState state = null;
+		for (Integer u : cells) {
+			
+			// Find the cheapest edge from the previous vertex.
+			double cost = 0.0;
+			if (state != null) {
+				cost = INFINITY;
+				int n = graph.successors(parent[u], nodes, costs);
+				for (int i = 0; i < n; i++) {
+					if (nodes[i] == u) {
+						cost = Math.min(cost, costs[i]);
+					}
+				}
+			}
+			
+			state = graph.toState(u, cost, state);
+			path.addFirst(state);
+			
+		}
+		
+		return path;
+		
+	}
+	
+	/**
+	 * Finds the cost of every vertex from the start.
+	 * 
+	 * @throws IllegalStateException If the system times out searching.
+	 */
+	public void search() throws IllegalStateException {
+		
+		int n = graph.size();
+		
+		dist = new double[n];
+		parent = new int[n];
+		for (int i = 0; i < n; i++) {
+			dist[i] = INFINITY;
+			parent[i] = -1;
+		}
+		
+		delta = meanCost();
+		buckets = new TreeMap<Long, IntList>();
+		
+		// The pass each vertex was last taken in, and the round (one per
+		// bucket) it was last settled in; zero means never.
+		int[] taken = new int[n];
+		int[] settled = new int[n];
+		
+		dist[start] = 0.0;
+		bucket(0L).add(start);
+		
+		int opened = 0;
+		ExecutorService pool = (threads > 1 ? Executors.newFixedThreadPool(threads) : null);
+		try {
+			
+			int pass = 0;
+			int round = 0;
+			while (!buckets.isEmpty()) {
+				
+				long i = buckets.firstKey();
+				round++;
+				IntList done = new IntList();
+				
+				// Empty the lowest bucket, relaxing light edges, until
+				// nothing falls back into it.
+				while (buckets.containsKey(i)) {
+					
+					// Have we timed out?
+					if (Global.isTimeUp()) {
+						throw new IllegalStateException("DeltaStepping.search error: System timed out searching for a solution.");
+					}
+					
+					// Take the vertices still in this bucket, once each.
+					IntList bucket = buckets.remove(i);
+					pass++;
+					
+					IntList frontier = new IntList();
+					for (int j = 0; j < bucket.count; j++) {
+						int u = bucket.items[j];
+						if (taken[u] != pass && index(dist[u]) == i) {
+							taken[u] = pass;
+							frontier.add(u);
+							if (settled[u] != round) {
+								settled[u] = round;
+								done.add(u);
+							}
+						}
+					}
+					
+					opened += frontier.count;
+					relax(pool, frontier, true);
+					
+				}
+				
+				// Relax the heavy edges of every vertex settled.
+				relax(pool, done, false);
+				
+			}
+			
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+			Global.addNodesOpened(opened);
+		}
+		
+		// Count the vertices reached.
+		int reached = 0;
+		for (int i = 0; i < n; i++) {
+			if (dist[i] != INFINITY) {
+				reached++;
+			}
+		}
+		Global.setNodesClosed(reached);
+		
+		buckets = null;
+		
+	}
+	
+	/**
+	 * Helper function. Returns bucket <code>i</code>, adding it if it is
+	 * empty.
+	 */
+	private IntList bucket(long i) {
+		
+		IntList b = buckets.get(i);
+		if (b == null) {
+			b = new IntList();
+			buckets.put(i, b);
+		}
+		
+		return b;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the bucket index of a cost.
+	 */
+	private long index(double cost) {
+		
+		return (long)(cost / delta);
+		
+	}
+	
+	/**
+	 * Helper function. Waits for a task to finish, passing on any
+	 * exception it threw.
+	 */
+	private <T> T join(Future<T> future) throws IllegalStateException {
+		
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("DeltaStepping.search error: Interrupted while searching.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException("DeltaStepping.search error: " + e.getCause());
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Returns the mean edge cost of the graph, or
+	 * <tt>1</tt> if it has no edges.
+	 */
+	private double meanCost() {
+		
+		int[] nodes = new int[graph.maxDegree()];
+		double[] costs = new double[graph.maxDegree()];
+		
+		double total = 0.0;
+		long edges = 0;
+		for (int u = 0; u < graph.size(); u++) {
+			int n = graph.successors(u, nodes, costs);
+			for (int i = 0; i < n; i++) {
+				total += costs[i];
+			}
+			edges += n;
+		}
+		
+		return (edges == 0 || total <= 0.0 ? 1.0 : total / edges);
+		
+	}
+	
+	/**
+	 * Helper function. Relaxes the light or heavy edges of every vertex of
+	 * the frontier, and files the improved vertices into their buckets.
+	 */
+	private void relax(ExecutorService pool, IntList frontier, boolean light) throws IllegalStateException {
+		
+		if (frontier.count == 0) {
+			return;
+		}
+		
+		IntList improved;
+		
+		// A small frontier is relaxed here, as one slice owning every vertex.
+		if (pool == null || frontier.count < PARALLEL_THRESHOLD) {
+			Requests[] requests = new ScanTask(frontier, 0, frontier.count, light, 1).call();
+			improved = new ApplyTask(new Requests[][] { requests }, 0).call();
+		}
+		
+		// Otherwise scan a slice of the frontier per thread, then apply
+		// the requests for the vertices owned by each thread.
+		else {
+			
+			List<Future<Requests[]>> scans = new ArrayList<Future<Requests[]>>();
+			int slice = (frontier.count + threads - 1) / threads;
+			for (int from = 0; from < frontier.count; from += slice) {
+				scans.add(pool.submit(new ScanTask(frontier, from, Math.min(from + slice, frontier.count), light, threads)));
+			}
+			
+			Requests[][] outboxes = new Requests[scans.size()][];
+			for (int i = 0; i < scans.size(); i++) {
+				outboxes[i] = join(scans.get(i));
+			}
+			
+			List<Future<IntList>> applies = new ArrayList<Future<IntList>>();
+			for (int owner = 0; owner < threads; owner++) {
+				applies.add(pool.submit(new ApplyTask(outboxes, owner)));
+			}
+			
+			improved = new IntList();
+			for (int i = 0; i < applies.size(); i++) {
+				IntList part = join(applies.get(i));
+				for (int j = 0; j < part.count; j++) {
+					improved.add(part.items[j]);
+				}
+			}
+			
+		}
+		
+		// File the improved vertices into their new buckets.
+		for (int i = 0; i < improved.count; i++) {
+			int v = improved.items[i];
+			bucket(index(dist[v])).add(v);
+		}
+		
+	}
+	
+	/**
+	 * This inner class is a growable list of vertices.
+	 */
+	private static class IntList {
+		
+		// The vertices.
+		private int[] items = new int[16];
+		private int count = 0;
+		
+		/**
+		 * Adds a vertex.
+		 * 
+		 * @param u the vertex.
+		 */
+		public void add(int u) {
+			
+			if (count == items.length) {
+				int[] a = new int[count * 2];
+				System.arraycopy(items, 0, a, 0, count);
+				items = a;
+			}
+			
+			items[count++] = u;
+			
+		}
+		
+	}
+	
+	/**
+	 * This inner class is a list of relaxation requests: a vertex, the
+	 * vertex it would be reached from, and the cost it would be reached at.
+	 */
+	private static class Requests {
+		
+		// The requests.
+		private int[] to = new int[16];
+		private int[] from = new int[16];
+		private double[] cost = new double[16];
+		private int count = 0;
+		
+		/**
+		 * Adds a request.
+		 * 
+		 * @param v the vertex reached.
+		 * @param u the vertex it is reached from.
+		 * @param c the cost it is reached at.
+		 */
+		public void add(int v, int u, double c) {
+			
+			if (count == to.length) {
+				int[] t = new int[count * 2];
+				int[] f = new int[count * 2];
+				double[] d = new double[count * 2];
+				System.arraycopy(to, 0, t, 0, count);
+				System.arraycopy(from, 0, f, 0, count);
+				System.arraycopy(cost, 0, d, 0, count);
+				to = t;
+				from = f;
+				cost = d;
+			}
+			
+			to[count] = v;
+			from[count] = u;
+			cost[count] = c;
+			count++;
+			
+		}
+		
+	}
+	
+	/**
+	 * This inner class scans the light or heavy edges of a slice of the
+	 * frontier. It only reads the costs, and sorts its requests by the
+	 * thread that owns each target vertex.
+	 */
+	private class ScanTask implements Callable<Requests[]> {
+		
+		// The slice of the frontier.
+		private IntList frontier;
+		private int from;
+		private int to;
+		
+		// Scan the light edges, or the heavy?
+		private boolean light;
+		
+		// The number of owners.
+		private int owners;
+		
+		/**
+		 * Standard constructor.
+		 * 
+		 * @param frontier the frontier.
+		 * @param from the first position of the slice.
+		 * @param to the position after the last of the slice.
+		 * @param light <code>true</code> to scan light edges, <code>false</code>
+		 * to scan heavy edges.
+		 * @param owners the number of owners.
+		 */
+		public ScanTask(IntList frontier, int from, int to, boolean light, int owners) {
+			
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+			this.light = light;
+			this.owners = owners;
+			
+		}
+		
+		/**
+		 * Scans the slice.
+		 * 
+		 * @return the requests for each owner.
+		 */
+		public Requests[] call() {
+			
+			Requests[] out = new Requests[owners];
+			for (int i = 0; i < owners; i++) {
+				out[i] = new Requests();
+			}
+			
+			int[] nodes = new int[graph.maxDegree()];
+			double[] costs = new double[graph.maxDegree()];
+			
+			for (int j = from; j < to; j++) {
+				
+				int u = frontier.items[j];
+				int n = graph.successors(u, nodes, costs);
+				for (int i = 0; i < n; i++) {
+					
+					if ((costs[i] <= delta) != light) {
+						continue;
+					}
+					
+					// Only requests that could improve the vertex are sent.
+					int v = nodes[i];
+					double c = dist[u] + costs[i];
+					if (c <= dist[v]) {
+						out[v % owners].add(v, u, c);
+					}
+					
+				}
+				
+			}
+			
+			return out;
+			
+		}
+		
+	}
+	
+	/**
+	 * This inner class applies the requests for the vertices owned by one
+	 * thread.
+	 */
+	private class ApplyTask implements Callable<IntList> {
+		
+		// The requests of every scan, by owner.
+		private Requests[][] outboxes;
+		
+		// The owner.
+		private int owner;
+		
+		/**
+		 * Standard constructor.
+		 * 
+		 * @param outboxes the requests of every scan, by owner.
+		 * @param owner the owner.
+		 */
+		public ApplyTask(Requests[][] outboxes, int owner) {
+			
+			this.outboxes = outboxes;
+			this.owner = owner;
+			
+		}
+		
+		/**
+		 * Applies the requests.
+		 * 
+		 * @return the vertices whose cost improved.
+		 */
+		public IntList call() {
+			
+			IntList improved = new IntList();
+			
+			for (int i = 0; i < outboxes.length; i++) {
+				
+				Requests r = outboxes[i][owner];
+				for (int j = 0; j < r.count; j++) {
+					
+					int v = r.to[j];
+					double c = r.cost[j];
+					if (c < dist[v]) {
+						dist[v] = c;
+						parent[v] = r.from[j];
+						improved.add(v);
+					} else if (c == dist[v] && r.from[j] < parent[v]) {
+						parent[v] = r.from[j];
+					}
+					
+				}
+				
+			}
+			
+			return improved;
+			
+		}
+		
+	}
+	
+}
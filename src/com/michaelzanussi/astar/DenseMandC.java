@@ -0,0 +1,256 @@
+package com.michaelzanussi.astar;
+
+import java.util.LinkedList;
+
+/**
+ * An A* search for the Missionaries and Cannibals puzzles over a dense
+ * state space. A state is no more than the cannibals and missionaries on
+ * the west bank and the bank the boat is on, so every state of a puzzle
+ * has a number of its own, <tt>(c * (totalM + 1) + m) * 2 + bank</tt>,
+ * and the cost, parent and closed flag of each are kept in primitive
+ * arrays of exactly that many entries. The open list is an
+ * <code>IndexedMinHeap</code> over the same numbers, so the search builds
+ * no state objects and makes no hash lookups; states are built only for
+ * the path returned. <p>
+ *
+ * The heuristic is that of the start state, read through
+ * <code>AbstractMandC.estimate()</code>. A state is reopened whenever a
+ * cheaper path to it is found, so a heuristic that is not monotonic still
+ * gives the shortest path. Ties on the total cost go to the state with the
+ * lower estimate. <p>
+ *
+ * Statistics are reported through <code>Global</code> in the same way as
+ * <code>AStar</code>.
+ *
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004)
+ */
+public final class DenseMandC implements PuzzleEngine {
+
+	// An unreached state.
+	private static final int INFINITY = Integer.MAX_VALUE;
+
+	// No parent.
+	private static final int NONE = -1;
+
+	// The start and goal states.
+	private AbstractMandC start;
+	private AbstractMandC goal;
+
+	// The total cannibals and missionaries.
+	private int totalC;
+	private int totalM;
+
+	// The number of states.
+	private int size;
+	
+	// The moves from the state being expanded, as ranges.
+	private int[] ranges;
+
+	/**
+	 * Standard constructor.
+	 *
+	 * @param start the start state.
+	 * @param goal the goal state.
+	 * @throws NullPointerException If no start or goal state was specified.
+	 * @throws IllegalArgumentException If a state does not fit the totals of
+	 * the start state, its boat capacity is not positive, or there are too
+	 * many states.
+	 */
+	public DenseMandC(AbstractMandC start, AbstractMandC goal) throws NullPointerException, IllegalArgumentException {
+
+		if (start == null || goal == null) {
+			throw new NullPointerException("DenseMandC.DenseMandC error: The start and goal states cannot be null.");
+		}
+
+		int totalC = start.getTotalC();
+		int totalM = start.getTotalM();
+		if (start.getBoatCapacity() < 1) {
+			throw new IllegalArgumentException("DenseMandC.DenseMandC error: Boat capacity must be > 0. Received: " + start.getBoatCapacity());
+		}
+
+		long states = (totalC + 1L) * (totalM + 1L) * 2L;
+		if (states > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("DenseMandC.DenseMandC error: Too many states: " + states);
+		}
+
+		this.start = start;
+		this.goal = goal;
+		this.totalC = totalC;
+		this.totalM = totalM;
+		this.size = (int)states;
+		this.ranges = new int[start.getMaxMoves()];
+
+		checkState(start, "start");
+		checkState(goal, "goal");
+
+	}
+
+	/**
+	 * Returns the number of a state.
+	 *
+	 * @param c the cannibals on the west bank.
+	 * @param m the missionaries on the west bank.
+	 * @param bank the boat location.
+	 * @return the state number.
+	 */
+	public int index(int c, int m, int bank) {
+
+		return (((c * (totalM + 1)) + m) * 2) + bank;
+
+	}
+
+	/**
+	 * Searches for the shortest path between the start and goal states. The
+	 * path holds the states along the way, with the goal state first.
+	 *
+	 * @return the path, or <code>null</code> if the goal cannot be reached.
+	 * @throws IllegalStateException If the system times out searching for
+	 * a path.
+	 * @throws IndexOutOfBoundsException If a bound has been exceeded.
+	 */
+	public LinkedList<Object> path() throws IllegalStateException, IndexOutOfBoundsException {
+
+		int[] g = new int[size];
+		int[] parent = new int[size];
+		boolean[] closed = new boolean[size];
+		for (int u = 0; u < size; u++) {
+			g[u] = INFINITY;
+			parent[u] = NONE;
+		}
+
+		IndexedMinHeap open = new IndexedMinHeap(size);
+
+		int s = index(start.getC(), start.getM(), start.getBank());
+		int t = index(goal.getC(), goal.getM(), goal.getBank());
+		g[s] = 0;
+		double h = start.estimate(start.getC(), start.getM(), start.getBank());
+		open.insert(s, h, h);
+
+		// The states reached, and those closed.
+		int reached = 1;
+		int expanded = 0;
+		int opened = 0;
+		try {
+
+			while (!open.isEmpty()) {
+
+				// Have we timed out?
+				if (Global.isTimeUp()) {
+					throw new IllegalStateException("DenseMandC.path error: System timed out searching for a solution.");
+				}
+
+				// Pop off the state with the smallest heuristic.
+				int u = open.pop();
+				opened++;
+
+				// Are we at the goal?
+				if (u == t) {
+					return toPath(parent, t);
+				}
+
+				int bank = u & 1;
+				int m = (u >> 1) % (totalM + 1);
+				int c = (u >> 1) / (totalM + 1);
+
+				// If applicable, print the current state.
+				if (Global.reportStatePath()) {
+					Global.output("Current state: " + c + "," + m + "," + bank + ", heuristic: " + open.getKey1(u));
+				}
+
+				// Only the legal moves are found, as ranges of missionaries
+				// for each number of cannibals left on the west bank.
+				int n = start.moves(c, m, bank, ranges);
+				int next = (bank == MandC.WEST ? MandC.EAST : MandC.WEST);
+				int cost = g[u] + 1;
+				for (int k = 0; k < n; k += 3) {
+					int nc = ranges[k];
+					for (int j = 0; j <= ranges[k + 2] - ranges[k + 1]; j++) {
+
+						// Fewest missionaries moved first, as in children().
+						int nm = (bank == MandC.WEST ? ranges[k + 2] - j : ranges[k + 1] + j);
+						int v = index(nc, nm, next);
+						if (cost >= g[v]) {
+							continue;
+						}
+
+						// A cheaper path to a closed state reopens it.
+						if (closed[v]) {
+							closed[v] = false;
+							expanded--;
+							Global.incNodesReopened();
+						} else if (g[v] == INFINITY) {
+
+							// Verify we haven't reached the total nodes bound yet.
+							if (++reached > Global.getTotalNodesBound()) {
+								throw new IndexOutOfBoundsException("DenseMandC.path error: TotalNodesBound exceeded. Set to: " + Global.getTotalNodesBound() + ", Current count: " + reached);
+							}
+
+						}
+
+						g[v] = cost;
+						parent[v] = u;
+						h = start.estimate(nc, nm, next);
+						open.update(v, cost + h, h);
+
+					}
+				}
+
+				closed[u] = true;
+				expanded++;
+
+				// Record the list sizes and then calculate the open/closed
+				// ratio (performed by setClosedListSize and setOpenListSize).
+				Global.setClosedListSize(expanded);
+				Global.setOpenListSize(open.size());
+
+			}
+
+			// No path found!
+			return null;
+
+		} finally {
+			Global.addNodesOpened(opened);
+			Global.setNodesClosed(expanded);
+		}
+
+	}
+
+	/**
+	 * Helper function. Verifies a state fits the totals of the puzzle.
+	 */
+	private void checkState(AbstractMandC state, String name) throws IllegalArgumentException {
+
+		if (state.getC() > totalC || state.getM() > totalM || state.getBank() < 0 || state.getBank() > 1) {
+			throw new IllegalArgumentException("DenseMandC.checkState error: The " + name + " state " + state.getLabel() + " does not fit " + totalC + " cannibals and " + totalM + " missionaries.");
+		}
+
+	}
+
+	/**
+	 * Helper function. Builds the path of states ending at a state, with
+	 * that state first.
+	 */
+	private LinkedList<Object> toPath(int[] parent, int t) {
+
+		// The state numbers from the start on.
+		LinkedList<Integer> numbers = new LinkedList<Integer>();
+		for (int u = t; u != NONE; u = parent[u]) {
+			numbers.addFirst(u);
+		}
+
+		LinkedList<Object> path = new LinkedList<Object>();
+		PuzState prev = null;
+		for (Integer u : numbers) {
+			int bank = u & 1;
+			int m = (u >> 1) % (totalM + 1);
+			int c = (u >> 1) / (totalM + 1);
+			prev = start.newState(c, m, bank, prev);
+			path.addFirst(prev);
+		}
+
+		return path;
+
+	}
+
+}
@@ -0,0 +1,252 @@
+package com.michaelzanussi.astar;
+
+import java.io.File;
+
+/**
+ * Loads a road graph in the format of the 9th DIMACS Implementation
+ * Challenge directly into a <code>CityGraph</code>. The files are read
+ * through a <code>MappedFileReader</code>, so no <code>Token</code>,
+ * <code>String</code> or <code>String[]</code> is created per arc, and the
+ * adjacency arrays of every city are sized exactly before any arc is added.
+ * Cities are named by their DIMACS node number. Example graph (<tt>.gr</tt>)
+ * and coordinate (<tt>.co</tt>) files: <p>
+ * 
+ * <pre>
+ * c A comment line.
+ * p sp 3 4
+ * a 1 2 10
+ * a 2 1 10
+ * a 2 3 7
+ * a 3 2 7
+ * 
+ * c A comment line.
+ * p aux sp co 3
+ * v 1 -73530767 41085396
+ * v 2 -73530538 41086098
+ * v 3 -73519366 41048796
+ * </pre>
+ * 
+ * Each arc is one-way, as in the DIMACS files themselves, and arc lengths
+ * must be non-negative integers.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class DimacsFileReader {
+	
+	/**
+	 * Loads a road graph, and optionally the coordinates of its cities.
+	 * 
+	 * @param graphFile the graph (<tt>.gr</tt>) file.
+	 * @param coordFile the coordinate (<tt>.co</tt>) file, or <code>null</code>.
+	 * @param straightLine <code>true</code> to estimate distances with the
+	 * scaled straight-line distance, <code>false</code> to use no estimate.
+	 * @return the road graph.
+	 * @throws ParsingException If a file cannot be read or is malformed.
+	 */
+	public static CityGraph read(File graphFile, File coordFile, boolean straightLine) throws ParsingException {
+		
+		MappedFileReader reader = open(graphFile);
+		
+		// The number of cities and arcs given by the problem line.
+		int n = -1;
+		int m = 0;
+		
+		// The arcs, held until the degree of every city is known.
+		int[] tail = null;
+		int[] head = null;
+		double[] length = null;
+		int count = 0;
+		
+		try {
+			
+			int ch = reader.skipWhitespace();
+			while (ch != MappedFileReader.EOF) {
+				
+				// Comment line.
+				if (ch == 'c') {
+					reader.skipLine();
+				}
+				
+				// Problem line: p sp N M
+				else if (ch == 'p') {
+					
+					if (n >= 0) {
+						throw new ParsingException("DimacsFileReader.read error: More than one problem line in " + graphFile + ".");
+					}
+					
+					reader.read();
+					expect(reader, "sp", graphFile);
+					n = reader.readInt();
+					m = reader.readInt();
+					if (n < 0 || m < 0) {
+						throw new ParsingException("DimacsFileReader.read error: Invalid problem line in " + graphFile + ".");
+					}
+					
+					tail = new int[m];
+					head = new int[m];
+					length = new double[m];
+					reader.skipLine();
+					
+				}
+				
+				// Arc line: a U V W
+				else if (ch == 'a') {
+					
+					if (n < 0) {
+						throw new ParsingException("DimacsFileReader.read error: Arc found before the problem line in " + graphFile + ".");
+					}
+					
+					if (count == m) {
+						throw new ParsingException("DimacsFileReader.read error: More than " + m + " arcs in " + graphFile + ".");
+					}
+					
+					reader.read();
+					int u = reader.readInt();
+					int v = reader.readInt();
+					long w = reader.readLong();
+					if (u < 1 || u > n || v < 1 || v > n) {
+						throw new ParsingException("DimacsFileReader.read error: Arc " + u + " -> " + v + " names a node outside 1.." + n + ".");
+					}
+					if (w < 0) {
+						throw new ParsingException("DimacsFileReader.read error: Arc " + u + " -> " + v + " has a negative length: " + w);
+					}
+					
+					tail[count] = u - 1;
+					head[count] = v - 1;
+					length[count] = w;
+					count++;
+					reader.skipLine();
+					
+				}
+				
+				else {
+					throw new ParsingException("DimacsFileReader.read error: Unknown line type '" + (char)ch + "' in " + graphFile + ".");
+				}
+				
+				ch = reader.skipWhitespace();
+				
+			}
+			
+		} finally {
+			reader.close();
+		}
+		
+		// Verify the file was complete.
+		if (n < 0) {
+			throw new ParsingException("DimacsFileReader.read error: No problem line in " + graphFile + ".");
+		}
+		if (count != m) {
+			throw new ParsingException("DimacsFileReader.read error: Expected " + m + " arcs but read " + count + " in " + graphFile + ".");
+		}
+		
+		// Build the city table, with coordinates if we have them.
+		CityTable table = new CityTable(n);
+		if (coordFile != null) {
+			readCoordinates(coordFile, table);
+		}
+		
+		// Count the arcs leaving each city, so every adjacency array
+		// is allocated once at its final size.
+		int[] degree = new int[n];
+		for (int i = 0; i < m; i++) {
+			degree[tail[i]]++;
+		}
+		
+		// Build the graph and narrow the straight-line scale to each arc.
+		CityGraph graph = new CityGraph(table, straightLine, degree);
+		for (int i = 0; i < m; i++) {
+			graph.addArc(tail[i], head[i], length[i]);
+			table.fitScale(tail[i], head[i], length[i]);
+		}
+		
+		return graph;
+		
+	}
+	
+	/**
+	 * Helper function. Reads the coordinates of the cities into the table.
+	 */
+	private static void readCoordinates(File coordFile, CityTable table) throws ParsingException {
+		
+		MappedFileReader reader = open(coordFile);
+		
+		try {
+			
+			int ch = reader.skipWhitespace();
+			while (ch != MappedFileReader.EOF) {
+				
+				// Comment or problem line (p aux sp co N).
+				if (ch == 'c' || ch == 'p') {
+					reader.skipLine();
+				}
+				
+				// Coordinate line: v ID X Y
+				else if (ch == 'v') {
+					
+					reader.read();
+					int id = reader.readInt();
+					int x = reader.readInt();
+					int y = reader.readInt();
+					if (id < 1 || id > table.size()) {
+						throw new ParsingException("DimacsFileReader.readCoordinates error: Node " + id + " is outside 1.." + table.size() + ".");
+					}
+					
+					table.setCoordinates(id - 1, x, y);
+					reader.skipLine();
+					
+				}
+				
+				else {
+					throw new ParsingException("DimacsFileReader.readCoordinates error: Unknown line type '" + (char)ch + "' in " + coordFile + ".");
+				}
+				
+				ch = reader.skipWhitespace();
+				
+			}
+			
+		} finally {
+			reader.close();
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Skips blanks, then verifies the next word of
+	 * the line.
+	 */
+	private static void expect(MappedFileReader reader, String word, File file) throws ParsingException {
+		
+		int ch = reader.read();
+		while (ch == ' ' || ch == '\t') {
+			ch = reader.read();
+		}
+		
+		for (int i = 0; i < word.length(); i++) {
+			if (ch != word.charAt(i)) {
+				throw new ParsingException("DimacsFileReader.read error: Expected '" + word + "' on the problem line of " + file + ".");
+			}
+			ch = reader.read();
+		}
+		
+		if (ch != ' ' && ch != '\t') {
+			throw new ParsingException("DimacsFileReader.read error: Expected '" + word + "' on the problem line of " + file + ".");
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Opens a file for mapped reading.
+	 */
+	private static MappedFileReader open(File file) throws ParsingException {
+		
+		MappedFileReader reader = new MappedFileReader();
+		if (!reader.open(file)) {
+			throw new ParsingException("DimacsFileReader.read error: Unable to read file " + file + ".");
+		}
+		
+		return reader;
+		
+	}
+	
+}
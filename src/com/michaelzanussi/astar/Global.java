@@ -20,6 +20,7 @@ public class Global {
 	private static int _openListMaxLen;
 	private static long _timeBound;
 	private static int _totalNodesBound;
+	private static int _tieBreaking;
 	
 	// RESULTS
 	private static boolean _statePath;
@@ -50,6 +51,18 @@ public class Global {
 		
 	}
 
+	/**
+	 * Add to the open node count. Used by engines that count nodes
+	 * opened on worker threads and report the total once they finish.
+	 * 
+	 * @param value the number of nodes opened.
+	 */
+	public static void addNodesOpened( int value ) {
+		
+		_nodesOpened += value;
+		
+	}
+	
 	/**
 	 * Outputs a line of text to the standard output or an error file.
 	 * If the file handle is <code>null</code>, output goes to the standard 
@@ -173,6 +186,18 @@ public class Global {
 	
 	}
 	
+	/**
+	 * Returns how the open list orders states of equal heuristic. The
+	 * default value is <code>HashingHeap.TIE_NONE</code>.
+	 * 
+	 * @return one of the <code>HashingHeap.TIE_</code> constants.
+	 */
+	public static int getTieBreaking() {
+		
+		return _tieBreaking;
+		
+	}
+	
 	/**
 	 * Returns the maximum number of nodes on the open list encountered
 	 * so far.
@@ -321,6 +346,7 @@ public class Global {
 		_openListSize = 0;
 		_startTime = System.currentTimeMillis();
 		_statePath = false;
+		_tieBreaking = HashingHeap.TIE_NONE;
 		_timeBound = Long.MAX_VALUE;
 		_totalNodesBound = Integer.MAX_VALUE;
 		data = "";
@@ -439,6 +465,19 @@ public class Global {
 		
 	}
 	
+	/**
+	 * Sets how the open list orders states of equal heuristic, for open
+	 * lists made from now on. The default value is
+	 * <code>HashingHeap.TIE_NONE</code>.
+	 * 
+	 * @param value one of the <code>HashingHeap.TIE_</code> constants.
+	 */
+	public static void setTieBreaking( int value ) {
+		
+		_tieBreaking = value;
+		
+	}
+	
 	/**
 	 * Sets the maximum running time of the search, given in milliseconds.
 	 * The search is terminated if this value is exceeded. The default
@@ -44,9 +44,9 @@ public interface Grid {
 	/**
 	 * Set the grid obstacles.
 	 * 
-	 * @param obstacles the obstacles table.
+	 * @param obstacles the cost map.
 	 */
-	public void setObstacles(int[][] obstacles);
+	public void setObstacles(CostMap obstacles);
 	
 	/**
 	 * Set the total number of rows.
@@ -0,0 +1,753 @@
+package com.michaelzanussi.astar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The abstract graph used by <code>HPAStar</code> (hierarchical path-finding
+ * A*). The grid is cut into square clusters of <code>clusterSize</code>
+ * cells. Along each border between two clusters, every run of cells that
+ * is open on both sides is an entrance. A narrow entrance gets one
+ * transition at its middle and a wide one gets a transition at each end.
+ * The two cells of a transition become abstract nodes, joined by an inter
+ * edge in each direction. <p>
+ * 
+ * The abstract nodes of a cluster are joined by intra edges, costing the
+ * shortest distance between them without leaving the cluster. These are
+ * found by a Dijkstra search from every abstract node, restricted to its
+ * cluster. The clusters are independent of each other, so they are
+ * searched in parallel, one task per cluster, with each worker thread
+ * keeping its own search arrays sized to one cluster. <p>
+ * 
+ * Building the abstraction depends only on the cost map and the movement
+ * rules, so it is built once per obstacle table and reused by every
+ * query. Only the searches made for a query count towards the nodes
+ * opened. Entrances are found on the orthogonal borders only, so on an
+ * eight-connected grid a path never crosses between clusters diagonally.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class GridAbstraction {
+	
+	// An unreachable cost.
+	private static final double INFINITY = Double.POSITIVE_INFINITY;
+	
+	// Entrances at least this wide get a transition at each end.
+	private static final int WIDE_ENTRANCE = 6;
+	
+	// The grid being abstracted.
+	private GridGraph graph;
+	
+	// The grid and cluster dimensions.
+	private int width;
+	private int height;
+	private int clusterSize;
+	private int clustersX;
+	private int clustersY;
+	
+	// The grid cell of each abstract node, and the abstract nodes of each
+	// cluster (in node order).
+	private int[] cells;
+	private int[][] members;
+	
+	// The edges leaving each abstract node, and their costs.
+	private int[][] edges;
+	private double[][] costs;
+	
+	// Each thread's cluster search.
+	private ThreadLocal<ClusterSearch> searches;
+	
+	/**
+	 * Standard constructor. Builds the abstract graph.
+	 * 
+	 * @param graph the grid.
+	 * @param clusterSize the number of cells along each side of a cluster.
+	 * @throws NullPointerException If no grid was specified.
+	 * @throws IllegalArgumentException If the cluster size is not positive.
+	 * @throws IllegalStateException If the system times out building the
+	 * abstract graph.
+	 */
+	public GridAbstraction(GridGraph graph, int clusterSize) throws NullPointerException, IllegalArgumentException, IllegalStateException {
+		
+		if (graph == null) {
+			throw new NullPointerException("GridAbstraction.GridAbstraction error: The grid cannot be null.");
+		}
+		
+		if (clusterSize < 1) {
+			throw new IllegalArgumentException("GridAbstraction.GridAbstraction error: Cluster size must be > 0. Received: " + clusterSize);
+		}
+		
+		this.graph = graph;
+		this.width = graph.getMap().getWidth();
+		this.height = graph.getMap().getHeight();
+		this.clusterSize = clusterSize;
+		this.clustersX = (width + clusterSize - 1) / clusterSize;
+		this.clustersY = (height + clusterSize - 1) / clusterSize;
+		
+		searches = new ThreadLocal<ClusterSearch>() {
+			protected ClusterSearch initialValue() {
+				return new ClusterSearch();
+			}
+		};
+		
+		build();
+		
+	}
+	
+	/**
+	 * Returns the grid cell of an abstract node.
+	 * 
+	 * @param node the abstract node.
+	 * @return the grid cell.
+	 */
+	public int getCell(int node) {
+		
+		return cells[node];
+		
+	}
+	
+	/**
+	 * Returns the cluster holding a grid cell.
+	 * 
+	 * @param cell the grid cell.
+	 * @return the cluster number.
+	 */
+	public int getCluster(int cell) {
+		
+		return ((graph.getY(cell) / clusterSize) * clustersX) + (graph.getX(cell) / clusterSize);
+		
+	}
+	
+	/**
+	 * Returns the number of cells along each side of a cluster.
+	 * 
+	 * @return the cluster size.
+	 */
+	public int getClusterSize() {
+		
+		return clusterSize;
+		
+	}
+	
+	/**
+	 * Returns the costs of the edges leaving an abstract node, in the same
+	 * order as <code>getEdges()</code>. The array must not be modified.
+	 * 
+	 * @param node the abstract node.
+	 * @return the edge costs.
+	 */
+	public double[] getCosts(int node) {
+		
+		return costs[node];
+		
+	}
+	
+	/**
+	 * Returns the abstract nodes reached by the edges leaving an abstract
+	 * node. The array must not be modified.
+	 * 
+	 * @param node the abstract node.
+	 * @return the neighbouring abstract nodes.
+	 */
+	public int[] getEdges(int node) {
+		
+		return edges[node];
+		
+	}
+	
+	/**
+	 * Returns the grid.
+	 * 
+	 * @return the grid.
+	 */
+	public GridGraph getGraph() {
+		
+		return graph;
+		
+	}
+	
+	/**
+	 * Returns the abstract nodes of a cluster, in node order. The array
+	 * must not be modified.
+	 * 
+	 * @param cluster the cluster number.
+	 * @return the abstract nodes of the cluster.
+	 */
+	public int[] getMembers(int cluster) {
+		
+		return members[cluster];
+		
+	}
+	
+	/**
+	 * Finds the shortest distances, without leaving its cluster, between a
+	 * grid cell and each abstract node of the cluster. Used to join the
+	 * start and goal of a query to the abstract graph.
+	 * 
+	 * @param cell the grid cell.
+	 * @param reverse <code>false</code> for the distances from the cell to
+	 * each node, <code>true</code> for the distances from each node to the cell.
+	 * @return the distance for each node of <code>getMembers()</code>, or
+	 * infinity if the node cannot be reached within the cluster.
+	 * @throws IllegalStateException If the system times out searching.
+	 */
+	public double[] link(int cell, boolean reverse) throws IllegalStateException {
+		
+		ClusterSearch search = searches.get();
+		search.run(cell, -1, reverse);
+		Global.addNodesOpened(search.opened);
+		
+		int[] nodes = members[getCluster(cell)];
+		double[] dist = new double[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			dist[i] = search.distance(cells[nodes[i]]);
+		}
+		
+		return dist;
+		
+	}
+	
+	/**
+	 * Finds the shortest path between two grid cells of the same cluster
+	 * without leaving the cluster. Used to turn the edges of an abstract
+	 * path back into grid moves.
+	 * 
+	 * @param from the first grid cell.
+	 * @param to the second grid cell.
+	 * @return the cells of the path, from <code>from</code> to <code>to</code>
+	 * inclusive, or <code>null</code> if there is no path within the cluster.
+	 * @throws IllegalArgumentException If the cells are in different clusters.
+	 * @throws IllegalStateException If the system times out searching.
+	 */
+	public int[] refine(int from, int to) throws IllegalArgumentException, IllegalStateException {
+		
+		if (getCluster(from) != getCluster(to)) {
+			throw new IllegalArgumentException("GridAbstraction.refine error: Cells " + graph.getLabel(from) + " and " + graph.getLabel(to) + " are in different clusters.");
+		}
+		
+		ClusterSearch search = searches.get();
+		search.run(from, to, false);
+		Global.addNodesOpened(search.opened);
+		
+		if (search.distance(to) == INFINITY) {
+			return null;
+		}
+		
+		// Count the cells, then walk the parents back from the end.
+		int length = 1;
+		for (int u = to; u != from; u = search.parent(u)) {
+			length++;
+		}
+		
+		int[] path = new int[length];
+		int u = to;
+		for (int i = length - 1; i >= 0; i--) {
+			path[i] = u;
+			u = search.parent(u);
+		}
+		
+		return path;
+		
+	}
+	
+	/**
+	 * Returns the number of abstract nodes.
+	 * 
+	 * @return the number of abstract nodes.
+	 */
+	public int size() {
+		
+		return cells.length;
+		
+	}
+	
+	/**
+	 * Helper function. Finds the transitions, computes the intra edges of
+	 * every cluster in parallel, then builds the edge arrays.
+	 */
+	private void build() throws IllegalStateException {
+		
+		Transitions t = new Transitions();
+		
+		// Vertical borders: column x - 1 against column x.
+		for (int bx = 1; bx < clustersX; bx++) {
+			int x = bx * clusterSize;
+			for (int cy = 0; cy < clustersY; cy++) {
+				int y = cy * clusterSize;
+				scanBorder(t, graph.index(x - 1, y), graph.index(x, y), width, Math.min(clusterSize, height - y));
+			}
+		}
+		
+		// Horizontal borders: row y - 1 against row y.
+		for (int by = 1; by < clustersY; by++) {
+			int y = by * clusterSize;
+			for (int cx = 0; cx < clustersX; cx++) {
+				int x = cx * clusterSize;
+				scanBorder(t, graph.index(x, y - 1), graph.index(x, y), 1, Math.min(clusterSize, width - x));
+			}
+		}
+		
+		cells = new int[t.nodes];
+		System.arraycopy(t.cells, 0, cells, 0, t.nodes);
+		
+		// Sort the abstract nodes into their clusters.
+		int[] count = new int[clustersX * clustersY];
+		for (int i = 0; i < cells.length; i++) {
+			count[getCluster(cells[i])]++;
+		}
+		members = new int[count.length][];
+		for (int c = 0; c < count.length; c++) {
+			members[c] = new int[count[c]];
+			count[c] = 0;
+		}
+		for (int i = 0; i < cells.length; i++) {
+			int c = getCluster(cells[i]);
+			members[c][count[c]++] = i;
+		}
+		
+		// Find the intra edges, one task per cluster with two or more
+		// abstract nodes, and collect the results in cluster order.
+		double[][][] intra = new double[members.length][][];
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			
+			List<Future<double[][]>> tasks = new ArrayList<Future<double[][]>>();
+			for (int c = 0; c < members.length; c++) {
+				tasks.add(members[c].length > 1 ? pool.submit(new ClusterTask(c)) : null);
+			}
+			
+			for (int c = 0; c < members.length; c++) {
+				if (tasks.get(c) != null) {
+					intra[c] = join(tasks.get(c));
+				}
+			}
+			
+		} finally {
+			pool.shutdownNow();
+		}
+		
+		// Count the edges leaving each abstract node.
+		int[] degree = new int[cells.length];
+		for (int i = 0; i < t.edges; i++) {
+			degree[t.tail[i]]++;
+		}
+		for (int c = 0; c < members.length; c++) {
+			if (intra[c] != null) {
+				for (int i = 0; i < members[c].length; i++) {
+					for (int j = 0; j < members[c].length; j++) {
+						if (i != j && intra[c][i][j] != INFINITY) {
+							degree[members[c][i]]++;
+						}
+					}
+				}
+			}
+		}
+		
+		// Fill in the edges: inter edges first, then intra edges.
+		edges = new int[cells.length][];
+		costs = new double[cells.length][];
+		for (int i = 0; i < cells.length; i++) {
+			edges[i] = new int[degree[i]];
+			costs[i] = new double[degree[i]];
+			degree[i] = 0;
+		}
+		for (int i = 0; i < t.edges; i++) {
+			int u = t.tail[i];
+			edges[u][degree[u]] = t.head[i];
+			costs[u][degree[u]] = t.cost[i];
+			degree[u]++;
+		}
+		for (int c = 0; c < members.length; c++) {
+			if (intra[c] != null) {
+				for (int i = 0; i < members[c].length; i++) {
+					int u = members[c][i];
+					for (int j = 0; j < members[c].length; j++) {
+						if (i != j && intra[c][i][j] != INFINITY) {
+							edges[u][degree[u]] = members[c][j];
+							costs[u][degree[u]] = intra[c][i][j];
+							degree[u]++;
+						}
+					}
+				}
+			}
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Waits for a cluster task to finish, passing on any
+	 * exception it threw.
+	 */
+	private double[][] join(Future<double[][]> future) throws IllegalStateException {
+		
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("GridAbstraction.build error: Interrupted while building the abstract graph.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException("GridAbstraction.build error: " + e.getCause());
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Walks along one side of a border between two
+	 * clusters, adding the transitions of each entrance. Cell <tt>i</tt> of
+	 * the first side is <code>a + i * step</code> and faces cell
+	 * <code>b + i * step</code> of the second side.
+	 */
+	private void scanBorder(Transitions t, int a, int b, int step, int length) {
+		
+		int first = -1;
+		for (int i = 0; i <= length; i++) {
+			
+			boolean open = (i < length && isOpen(a + (i * step)) && isOpen(b + (i * step)));
+			
+			// Start of an entrance.
+			if (open && first < 0) {
+				first = i;
+			}
+			
+			// End of an entrance: i - 1 is its last cell.
+			else if (!open && first >= 0) {
+				int last = i - 1;
+				if (last - first + 1 < WIDE_ENTRANCE) {
+					int mid = (first + last) / 2;
+					t.add(a + (mid * step), b + (mid * step));
+				} else {
+					t.add(a + (first * step), b + (first * step));
+					t.add(a + (last * step), b + (last * step));
+				}
+				first = -1;
+			}
+			
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether a grid cell can be entered.
+	 */
+	private boolean isOpen(int cell) {
+		
+		return !graph.getMap().isBlocked(graph.getX(cell), graph.getY(cell));
+		
+	}
+	
+	/**
+	 * This inner class collects the abstract nodes and inter edges while
+	 * the borders are scanned.
+	 */
+	private class Transitions {
+		
+		// The abstract node of each grid cell already added.
+		private HashMap<Integer, Integer> nodeOf = new HashMap<Integer, Integer>();
+		
+		// The grid cell of each abstract node.
+		private int[] cells = new int[16];
+		private int nodes = 0;
+		
+		// The inter edges.
+		private int[] tail = new int[16];
+		private int[] head = new int[16];
+		private double[] cost = new double[16];
+		private int edges = 0;
+		
+		/**
+		 * Adds a transition between two facing cells.
+		 * 
+		 * @param a the cell on the first side.
+		 * @param b the cell on the second side.
+		 */
+		public void add(int a, int b) {
+			
+			int u = node(a);
+			int v = node(b);
+			
+			edge(u, v, graph.cost(a, b));
+			edge(v, u, graph.cost(b, a));
+			
+		}
+		
+		/**
+		 * Helper function. Adds a directed inter edge.
+		 */
+		private void edge(int u, int v, double c) {
+			
+			if (edges == tail.length) {
+				tail = grow(tail);
+				head = grow(head);
+				double[] d = new double[cost.length * 2];
+				System.arraycopy(cost, 0, d, 0, edges);
+				cost = d;
+			}
+			
+			tail[edges] = u;
+			head[edges] = v;
+			cost[edges] = c;
+			edges++;
+			
+		}
+		
+		/**
+		 * Helper function. Returns the abstract node of a cell, adding it
+		 * if it is new. A cell may be on two borders of its cluster.
+		 */
+		private int node(int cell) {
+			
+			Integer n = nodeOf.get(cell);
+			if (n != null) {
+				return n;
+			}
+			
+			if (nodes == cells.length) {
+				cells = grow(cells);
+			}
+			
+			cells[nodes] = cell;
+			nodeOf.put(cell, nodes);
+			
+			return nodes++;
+			
+		}
+		
+		/**
+		 * Helper function. Doubles the length of an array.
+		 */
+		private int[] grow(int[] a) {
+			
+			int[] b = new int[a.length * 2];
+			System.arraycopy(a, 0, b, 0, a.length);
+			
+			return b;
+			
+		}
+		
+	}
+	
+	/**
+	 * This inner class finds the intra edges of one cluster.
+	 */
+	private class ClusterTask implements Callable<double[][]> {
+		
+		// The cluster.
+		private int cluster;
+		
+		/**
+		 * Standard constructor.
+		 * 
+		 * @param cluster the cluster number.
+		 */
+		public ClusterTask(int cluster) {
+			
+			this.cluster = cluster;
+			
+		}
+		
+		/**
+		 * Searches from each abstract node of the cluster.
+		 * 
+		 * @return the shortest distance within the cluster from each
+		 * abstract node to each other, in the order of <code>getMembers()</code>.
+		 */
+		public double[][] call() {
+			
+			int[] nodes = members[cluster];
+			double[][] dist = new double[nodes.length][nodes.length];
+			
+			ClusterSearch search = searches.get();
+			for (int i = 0; i < nodes.length; i++) {
+				search.run(cells[nodes[i]], -1, false);
+				for (int j = 0; j < nodes.length; j++) {
+					dist[i][j] = search.distance(cells[nodes[j]]);
+				}
+			}
+			
+			return dist;
+			
+		}
+		
+	}
+	
+	/**
+	 * This inner class is a Dijkstra (or, given a target, A*) search that
+	 * never leaves the cluster it starts in. Its arrays are sized to one
+	 * cluster and indexed by the position of a cell within the cluster,
+	 * and are stamped rather than cleared between searches.
+	 */
+	private class ClusterSearch {
+		
+		// The cost from the source, the previous cell, and the search that
+		// last set them, for each cell of the cluster.
+		private double[] g;
+		private int[] parent;
+		private int[] stamp;
+		private int visit;
+		
+		// The open list, indexed by position within the cluster.
+		private IndexedMinHeap open;
+		
+		// Neighbour buffers.
+		private int[] nodes;
+		private double[] edgeCosts;
+		
+		// The bounds of the cluster being searched.
+		private int x0;
+		private int y0;
+		private int w;
+		private int h;
+		
+		// The number of cells expanded by the last search.
+		private int opened;
+		
+		/**
+		 * No-arg constructor.
+		 */
+		public ClusterSearch() {
+			
+			int n = clusterSize * clusterSize;
+			g = new double[n];
+			parent = new int[n];
+			stamp = new int[n];
+			visit = 0;
+			open = new IndexedMinHeap(n);
+			nodes = new int[graph.maxDegree()];
+			edgeCosts = new double[graph.maxDegree()];
+			
+		}
+		
+		/**
+		 * Returns the cost from the source of the last search to a cell.
+		 * 
+		 * @param cell a cell of the cluster searched.
+		 * @return the cost, or infinity if the cell was not reached.
+		 */
+		public double distance(int cell) {
+			
+			int l = local(cell);
+			
+			return (stamp[l] == visit ? g[l] : INFINITY);
+			
+		}
+		
+		/**
+		 * Returns the cell before a cell on its path from the source.
+		 * 
+		 * @param cell a cell reached by the last search.
+		 * @return the previous cell, or <tt>-1</tt> for the source.
+		 */
+		public int parent(int cell) {
+			
+			return parent[local(cell)];
+			
+		}
+		
+		/**
+		 * Searches from a cell without leaving its cluster.
+		 * 
+		 * @param source the cell to search from.
+		 * @param target the cell to stop at (searching with the grid
+		 * estimate), or <tt>-1</tt> to reach every cell.
+		 * @param reverse <code>true</code> to follow moves backwards, giving
+		 * the cost from each cell to the source.
+		 * @throws IllegalStateException If the system times out searching.
+		 */
+		public void run(int source, int target, boolean reverse) throws IllegalStateException {
+			
+			// Find the bounds of the cluster.
+			x0 = (graph.getX(source) / clusterSize) * clusterSize;
+			y0 = (graph.getY(source) / clusterSize) * clusterSize;
+			w = Math.min(clusterSize, width - x0);
+			h = Math.min(clusterSize, height - y0);
+			
+			visit++;
+			opened = 0;
+			
+			int l = local(source);
+			g[l] = 0.0;
+			parent[l] = -1;
+			stamp[l] = visit;
+			open.insert(l, estimate(source, target), 0.0);
+			
+			while (!open.isEmpty()) {
+				
+				// Have we timed out?
+				if (Global.isTimeUp()) {
+					throw new IllegalStateException("GridAbstraction.search error: System timed out searching for a solution.");
+				}
+				
+				l = open.pop();
+				int u = (x0 + (l % w)) + ((y0 + (l / w)) * width);
+				opened++;
+				
+				// Reached the target?
+				if (u == target) {
+					break;
+				}
+				
+				int n = (reverse ? graph.predecessors(u, nodes, edgeCosts) : graph.successors(u, nodes, edgeCosts));
+				for (int i = 0; i < n; i++) {
+					
+					int v = nodes[i];
+					int vx = graph.getX(v) - x0;
+					int vy = graph.getY(v) - y0;
+					
+					// Stay inside the cluster.
+					if (vx < 0 || vx >= w || vy < 0 || vy >= h) {
+						continue;
+					}
+					
+					int lv = (vy * w) + vx;
+					double cost = g[l] + edgeCosts[i];
+					if (stamp[lv] != visit || cost < g[lv]) {
+						g[lv] = cost;
+						parent[lv] = u;
+						stamp[lv] = visit;
+						open.update(lv, cost + estimate(v, target), 0.0);
+					}
+					
+				}
+				
+			}
+			
+			// Empty the open list for the next search.
+			while (!open.isEmpty()) {
+				open.pop();
+			}
+			
+		}
+		
+		/**
+		 * Helper function. Returns the estimate from a cell to the target,
+		 * or zero if there is none.
+		 */
+		private double estimate(int cell, int target) {
+			
+			return (target < 0 ? 0.0 : graph.heuristic(cell, target));
+			
+		}
+		
+		/**
+		 * Helper function. Returns the position of a cell within the
+		 * cluster being searched.
+		 */
+		private int local(int cell) {
+			
+			return ((graph.getY(cell) - y0) * w) + (graph.getX(cell) - x0);
+			
+		}
+		
+	}
+	
+}
@@ -0,0 +1,608 @@
+package com.michaelzanussi.astar;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The cost from every cell of a <code>Grid</code> puzzle to one goal cell
+ * (a goal distance field, or flow field). Once the field is built, the
+ * path from any start cell is read off by stepping to whichever
+ * neighbour has the smallest move cost plus distance, so any number of
+ * agents heading for the same goal share a single search. <p>
+ * 
+ * The field is built by a reverse Dijkstra search from the goal, split
+ * over square tiles of <code>TILE_SIZE</code> cells a side so that it can
+ * run on several threads. Each round searches every tile with improved
+ * cells in parallel, each search staying inside its tile; the cells along
+ * the edges of the neighbouring tiles are then relaxed across the tile
+ * borders, and any cell that improves seeds its tile for the next round.
+ * Rounds continue until no cell improves, at which point every distance
+ * is exact. Each worker thread keeps its own search arrays sized to one
+ * tile. <p>
+ * 
+ * Nodes opened counts the cells expanded while building the field;
+ * nodes closed counts the cells that can reach the goal.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class GridDistanceField implements PuzzleEngine {
+	
+	/**
+	 * The number of cells along each side of a tile.
+	 */
+	public static final int TILE_SIZE = 64;
+	
+	// An unreachable cost.
+	private static final double INFINITY = Double.POSITIVE_INFINITY;
+	
+	// The grid and its dimensions in cells and tiles.
+	private GridGraph graph;
+	private int width;
+	private int height;
+	private int tilesX;
+	private int tilesY;
+	
+	// The goal cell, and the start cell of the next path.
+	private int goal;
+	private int start;
+	
+	// The cost from each cell to the goal.
+	private double[] dist;
+	
+	// The number of cells that can reach the goal.
+	private int reachable;
+	
+	// Each thread's tile search.
+	private ThreadLocal<TileSearch> searches;
+	
+	/**
+	 * Standard constructor. Builds the distance field.
+	 * 
+	 * @param graph the grid.
+	 * @param goal the goal cell.
+	 * @throws NullPointerException If no grid was specified.
+	 * @throws IllegalArgumentException If the goal cell is not on the grid.
+	 * @throws IllegalStateException If the system times out building the field.
+	 */
+	public GridDistanceField(GridGraph graph, int goal) throws NullPointerException, IllegalArgumentException, IllegalStateException {
+		
+		if (graph == null) {
+			throw new NullPointerException("GridDistanceField.GridDistanceField error: The grid cannot be null.");
+		}
+		
+		if (goal < 0 || goal >= graph.size()) {
+			throw new IllegalArgumentException("GridDistanceField.GridDistanceField error: Goal must be on the grid. Goal = " + goal + ", Size = " + graph.size());
+		}
+		
+		this.graph = graph;
+		this.width = graph.getMap().getWidth();
+		this.height = graph.getMap().getHeight();
+		this.tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		this.tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+		this.goal = goal;
+		this.start = goal;
+		
+		searches = new ThreadLocal<TileSearch>() {
+			protected TileSearch initialValue() {
+				return new TileSearch();
+			}
+		};
+		
+		build();
+		
+	}
+	
+	/**
+	 * Returns the cost from a cell to the goal.
+	 * 
+	 * @param u the cell.
+	 * @return the cost, or <code>Double.POSITIVE_INFINITY</code> if the goal
+	 * cannot be reached from the cell.
+	 */
+	public double getCost(int u) {
+		
+		return dist[u];
+		
+	}
+	
+	/**
+	 * Returns the goal cell.
+	 * 
+	 * @return the goal cell.
+	 */
+	public int getGoal() {
+		
+		return goal;
+		
+	}
+	
+	/**
+	 * Returns the grid.
+	 * 
+	 * @return the grid.
+	 */
+	public GridGraph getGraph() {
+		
+		return graph;
+		
+	}
+	
+	/**
+	 * Reads the path from the start cell off the field. The path begins
+	 * with the goal state and descends to the start state, as with
+	 * <code>AStar.path()</code>.
+	 * 
+	 * @return the path to the goal if one exists, or <code>null</code> if no
+	 * path exists.
+	 */
+	public LinkedList<Object> path() {
+		
+		Global.setNodesClosed(reachable);
+		
+		// Unreachable?
+		if (dist[start] == INFINITY) {
+			return null;
+		}
+		
+		int[] nodes = new int[graph.maxDegree()];
+		double[] costs = new double[graph.maxDegree()];
+		
+		PuzState state = graph.toState(start, 0.0, null);
+		LinkedList<Object> path = new LinkedList<Object>();
+		path.addFirst(state);
+		
+		// Walk downhill, always stepping to the neighbour with the
+		// smallest move cost plus distance.
+		int u = start;
+		while (u != goal) {
+			
+			int best = -1;
+			double bestCost = INFINITY;
+			double bestEdge = 0.0;
+			
+			int n = graph.successors(u, nodes, costs);
+			for (int i = 0; i < n; i++) {
+				double cost = costs[i] + dist[nodes[i]];
+				if (cost < bestCost) {
+					best = nodes[i];
+					bestCost = cost;
+					bestEdge = costs[i];
+				}
+			}
+			
+			// An exact field always has a way downhill, but guard
+			// against looping forever all the same.
+			if (best < 0 || path.size() > reachable) {
+				return null;
+			}
+			
+			state = graph.toState(best, bestEdge, state);
+			path.addFirst(state);
+			u = best;
+			
+		}
+		
+		return path;
+		
+	}
+	
+	/**
+	 * Sets the start cell of the next path.
+	 * 
+	 * @param u the start cell.
+	 * @throws IllegalArgumentException If the cell is not on the grid.
+	 */
+	public void setStart(int u) throws IllegalArgumentException {
+		
+		if (u < 0 || u >= dist.length) {
+			throw new IllegalArgumentException("GridDistanceField.setStart error: Start must be on the grid. Start = " + u + ", Size = " + dist.length);
+		}
+		
+		start = u;
+		
+	}
+	
+	/**
+	 * Helper function. Builds the field, one round of tile searches and
+	 * border relaxations at a time.
+	 */
+	private void build() throws IllegalStateException {
+		
+		int tiles = tilesX * tilesY;
+		
+		dist = new double[graph.size()];
+		for (int i = 0; i < dist.length; i++) {
+			dist[i] = INFINITY;
+		}
+		
+		// The improved cells of each tile, which seed its next search.
+		Seeds[] seeds = new Seeds[tiles];
+		for (int t = 0; t < tiles; t++) {
+			seeds[t] = new Seeds();
+		}
+		
+		dist[goal] = 0.0;
+		seeds[tile(goal)].add(goal);
+		
+		int opened = 0;
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			
+			boolean active = true;
+			while (active) {
+				
+				// Search every seeded tile.
+				List<Future<Integer>> searched = new ArrayList<Future<Integer>>();
+				boolean[] changed = new boolean[tiles];
+				for (int t = 0; t < tiles; t++) {
+					if (seeds[t].count > 0) {
+						changed[t] = true;
+						searched.add(pool.submit(new SearchTask(t, seeds[t].toArray())));
+						seeds[t].count = 0;
+					}
+				}
+				for (int i = 0; i < searched.size(); i++) {
+					opened += join(searched.get(i));
+				}
+				
+				// Relax the borders of every tile next to a tile that changed.
+				List<Future<Seeds>> relaxed = new ArrayList<Future<Seeds>>();
+				List<Integer> order = new ArrayList<Integer>();
+				for (int t = 0; t < tiles; t++) {
+					if (nearChange(t, changed)) {
+						relaxed.add(pool.submit(new BorderTask(t)));
+						order.add(t);
+					}
+				}
+				
+				// Apply the improvements, which seed the next round.
+				active = false;
+				for (int i = 0; i < relaxed.size(); i++) {
+					Seeds improved = join(relaxed.get(i));
+					Seeds next = seeds[order.get(i)];
+					for (int j = 0; j < improved.count; j++) {
+						int u = improved.cells[j];
+						if (improved.values[j] < dist[u]) {
+							dist[u] = improved.values[j];
+							next.add(u);
+							active = true;
+						}
+					}
+				}
+				
+			}
+			
+		} finally {
+			pool.shutdownNow();
+			Global.addNodesOpened(opened);
+		}
+		
+		// Count the cells that can reach the goal.
+		reachable = 0;
+		for (int i = 0; i < dist.length; i++) {
+			if (dist[i] != INFINITY) {
+				reachable++;
+			}
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Waits for a task to finish, passing on any
+	 * exception it threw.
+	 */
+	private <T> T join(Future<T> future) throws IllegalStateException {
+		
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("GridDistanceField.build error: Interrupted while building the distance field.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException("GridDistanceField.build error: " + e.getCause());
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether a tile, or any tile touching it,
+	 * changed in this round.
+	 */
+	private boolean nearChange(int t, boolean[] changed) {
+		
+		int tx = t % tilesX;
+		int ty = t / tilesX;
+		
+		for (int y = Math.max(ty - 1, 0); y <= Math.min(ty + 1, tilesY - 1); y++) {
+			for (int x = Math.max(tx - 1, 0); x <= Math.min(tx + 1, tilesX - 1); x++) {
+				if (changed[(y * tilesX) + x]) {
+					return true;
+				}
+			}
+		}
+		
+		return false;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the tile holding a cell.
+	 */
+	private int tile(int cell) {
+		
+		return ((graph.getY(cell) / TILE_SIZE) * tilesX) + (graph.getX(cell) / TILE_SIZE);
+		
+	}
+	
+	/**
+	 * This inner class is a growable list of cells, each with an
+	 * optional value.
+	 */
+	private static class Seeds {
+		
+		// The cells and their values.
+		private int[] cells = new int[16];
+		private double[] values = new double[16];
+		private int count = 0;
+		
+		/**
+		 * Adds a cell.
+		 * 
+		 * @param cell the cell.
+		 */
+		public void add(int cell) {
+			
+			add(cell, 0.0);
+			
+		}
+		
+		/**
+		 * Adds a cell and its value.
+		 * 
+		 * @param cell the cell.
+		 * @param value the value.
+		 */
+		public void add(int cell, double value) {
+			
+			if (count == cells.length) {
+				int[] c = new int[count * 2];
+				double[] v = new double[count * 2];
+				System.arraycopy(cells, 0, c, 0, count);
+				System.arraycopy(values, 0, v, 0, count);
+				cells = c;
+				values = v;
+			}
+			
+			cells[count] = cell;
+			values[count] = value;
+			count++;
+			
+		}
+		
+		/**
+		 * Returns a copy of the cells.
+		 * 
+		 * @return the cells.
+		 */
+		public int[] toArray() {
+			
+			int[] a = new int[count];
+			System.arraycopy(cells, 0, a, 0, count);
+			
+			return a;
+			
+		}
+		
+	}
+	
+	/**
+	 * This inner class searches one tile from its seeded cells.
+	 */
+	private class SearchTask implements Callable<Integer> {
+		
+		// The tile and its seeded cells.
+		private int tile;
+		private int[] cells;
+		
+		/**
+		 * Standard constructor.
+		 * 
+		 * @param tile the tile.
+		 * @param cells the seeded cells.
+		 */
+		public SearchTask(int tile, int[] cells) {
+			
+			this.tile = tile;
+			this.cells = cells;
+			
+		}
+		
+		/**
+		 * Searches the tile.
+		 * 
+		 * @return the number of cells expanded.
+		 */
+		public Integer call() {
+			
+			return searches.get().run(tile, cells);
+			
+		}
+		
+	}
+	
+	/**
+	 * This inner class relaxes the cells along the edges of one tile
+	 * across the tile border. It only reads the distances of other tiles
+	 * and returns its improvements rather than storing them, so it can
+	 * run alongside the tasks for the neighbouring tiles.
+	 */
+	private class BorderTask implements Callable<Seeds> {
+		
+		// The tile.
+		private int tile;
+		
+		/**
+		 * Standard constructor.
+		 * 
+		 * @param tile the tile.
+		 */
+		public BorderTask(int tile) {
+			
+			this.tile = tile;
+			
+		}
+		
+		/**
+		 * Relaxes the edge cells of the tile.
+		 * 
+		 * @return the improved cells and their new distances.
+		 */
+		public Seeds call() {
+			
+			int x0 = (tile % tilesX) * TILE_SIZE;
+			int y0 = (tile / tilesX) * TILE_SIZE;
+			int x1 = Math.min(x0 + TILE_SIZE, width) - 1;
+			int y1 = Math.min(y0 + TILE_SIZE, height) - 1;
+			
+			int[] nodes = new int[graph.maxDegree()];
+			double[] costs = new double[graph.maxDegree()];
+			Seeds improved = new Seeds();
+			
+			// Walk the ring of cells along the edges of the tile.
+			for (int y = y0; y <= y1; y++) {
+				
+				int step = (y == y0 || y == y1 ? 1 : Math.max(x1 - x0, 1));
+				for (int x = x0; x <= x1; x += step) {
+					
+					// A blocked cell can never reach the goal.
+					if (graph.getMap().isBlocked(x, y)) {
+						continue;
+					}
+					
+					int u = graph.index(x, y);
+					double best = dist[u];
+					
+					int n = graph.successors(u, nodes, costs);
+					for (int i = 0; i < n; i++) {
+						int vx = graph.getX(nodes[i]);
+						int vy = graph.getY(nodes[i]);
+						if (vx < x0 || vx > x1 || vy < y0 || vy > y1) {
+							best = Math.min(best, costs[i] + dist[nodes[i]]);
+						}
+					}
+					
+					if (best < dist[u]) {
+						improved.add(u, best);
+					}
+					
+				}
+				
+			}
+			
+			return improved;
+			
+		}
+		
+	}
+	
+	/**
+	 * This inner class is a Dijkstra search that never leaves the tile it
+	 * is given. Its open list is sized to one tile and indexed by the
+	 * position of a cell within the tile.
+	 */
+	private class TileSearch {
+		
+		// The open list.
+		private IndexedMinHeap open;
+		
+		// Neighbour buffers.
+		private int[] nodes;
+		private double[] costs;
+		
+		/**
+		 * No-arg constructor.
+		 */
+		public TileSearch() {
+			
+			open = new IndexedMinHeap(TILE_SIZE * TILE_SIZE);
+			nodes = new int[graph.maxDegree()];
+			costs = new double[graph.maxDegree()];
+			
+		}
+		
+		/**
+		 * Lowers the distances of the cells of a tile that can reach one of
+		 * the seeded cells more cheaply within the tile.
+		 * 
+		 * @param tile the tile.
+		 * @param seeds the cells whose distances have improved.
+		 * @return the number of cells expanded.
+		 * @throws IllegalStateException If the system times out searching.
+		 */
+		public int run(int tile, int[] seeds) throws IllegalStateException {
+			
+			int x0 = (tile % tilesX) * TILE_SIZE;
+			int y0 = (tile / tilesX) * TILE_SIZE;
+			int w = Math.min(TILE_SIZE, width - x0);
+			int h = Math.min(TILE_SIZE, height - y0);
+			
+			for (int i = 0; i < seeds.length; i++) {
+				int u = seeds[i];
+				open.update(((graph.getY(u) - y0) * w) + (graph.getX(u) - x0), dist[u], 0.0);
+			}
+			
+			int opened = 0;
+			while (!open.isEmpty()) {
+				
+				// Have we timed out?
+				if (Global.isTimeUp()) {
+					while (!open.isEmpty()) {
+						open.pop();
+					}
+					throw new IllegalStateException("GridDistanceField.build error: System timed out building the distance field.");
+				}
+				
+				int l = open.pop();
+				int v = graph.index(x0 + (l % w), y0 + (l / w));
+				opened++;
+				
+				// Every cell that can move into v might now be closer.
+				int n = graph.predecessors(v, nodes, costs);
+				for (int i = 0; i < n; i++) {
+					
+					int u = nodes[i];
+					int ux = graph.getX(u) - x0;
+					int uy = graph.getY(u) - y0;
+					
+					// Stay inside the tile.
+					if (ux < 0 || ux >= w || uy < 0 || uy >= h) {
+						continue;
+					}
+					
+					double cost = dist[v] + costs[i];
+					if (cost < dist[u]) {
+						dist[u] = cost;
+						open.update((uy * w) + ux, cost, 0.0);
+					}
+					
+				}
+				
+			}
+			
+			return opened;
+			
+		}
+		
+	}
+	
+}
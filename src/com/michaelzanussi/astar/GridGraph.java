@@ -0,0 +1,357 @@
+package com.michaelzanussi.astar;
+
+/**
+ * The <code>GridGraph</code> class is an <code>IndexedGraph</code> view of a
+ * <code>Grid</code> puzzle. Each cell of the <code>CostMap</code> is a vertex,
+ * numbered in the same row-major order as the map (cell <tt>x,y</tt> is
+ * vertex <tt>y * width + x</tt>), so the graph itself stores nothing per
+ * cell. <p>
+ * 
+ * The graph follows the movement of either <code>GridManhattan</code>
+ * (four orthogonal moves) or <code>GridOctile</code> (eight moves, with
+ * diagonal moves costing <tt>sqrt(2)</tt> times as much and limited by the
+ * corner-cutting rule). Moving into a cell costs its obstacle cost, or
+ * <tt>1</tt> if it has none, and blocked cells cannot be entered. The
+ * estimate is the Manhattan or octile distance, which is consistent since
+ * no move costs less than its length.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class GridGraph implements IndexedGraph {
+	
+	// The cost factor of a diagonal move.
+	private static final double SQRT2 = Math.sqrt(2.0);
+	
+	// The column and row offsets of the moves: four orthogonal, then
+	// four diagonal (in the same order as GridOctile).
+	private static final int[] DX = { -1, 0, 1, 0, -1, 1, 1, -1 };
+	private static final int[] DY = { 0, -1, 0, 1, -1, -1, 1, 1 };
+	
+	// The cost map.
+	private CostMap map;
+	
+	// The grid dimensions.
+	private int width;
+	private int height;
+	
+	// Are diagonal moves allowed, and may they cut corners?
+	private boolean diagonal;
+	private int cornerCutting;
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param map the cost map.
+	 * @param diagonal <code>true</code> for eight moves per cell (as in
+	 * <code>GridOctile</code>), <code>false</code> for four.
+	 * @param cornerCutting the corner-cutting rule for diagonal moves, one of
+	 * the <code>GridOctile.CUT_</code> constants.
+	 * @throws NullPointerException If no cost map was specified.
+	 * @throws IllegalArgumentException If the grid has too many cells to
+	 * number (only a map held in a tiled cost file can).
+	 */
+	public GridGraph(CostMap map, boolean diagonal, int cornerCutting) throws NullPointerException, IllegalArgumentException {
+		
+		if (map == null) {
+			throw new NullPointerException("GridGraph.GridGraph error: The cost map cannot be null.");
+		}
+		
+		if ((long)map.getWidth() * map.getHeight() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("GridGraph.GridGraph error: Grid too large to index: " + map.getWidth() + " x " + map.getHeight());
+		}
+		
+		this.map = map;
+		this.width = map.getWidth();
+		this.height = map.getHeight();
+		this.diagonal = diagonal;
+		this.cornerCutting = cornerCutting;
+		
+	}
+	
+	/**
+	 * Returns the cost of moving from a cell to a neighbouring cell.
+	 * 
+	 * @param u the cell moved from.
+	 * @param v the cell moved to.
+	 * @return the cost of the move, or <code>Double.POSITIVE_INFINITY</code>
+	 * if it is not allowed.
+	 */
+	public double cost(int u, int v) {
+		
+		int x = u % width;
+		int y = u / width;
+		int dx = (v % width) - x;
+		int dy = (v / width) - y;
+		
+		for (int i = 0; i < (diagonal ? 8 : 4); i++) {
+			if (DX[i] == dx && DY[i] == dy) {
+				return (isMoveOpen(x, y, i) ? moveCost(x + dx, y + dy, i) : Double.POSITIVE_INFINITY);
+			}
+		}
+		
+		return Double.POSITIVE_INFINITY;
+		
+	}
+	
+	/**
+	 * Returns the corner-cutting rule for diagonal moves.
+	 * 
+	 * @return one of the <code>GridOctile.CUT_</code> constants.
+	 */
+	public int getCornerCutting() {
+		
+		return cornerCutting;
+		
+	}
+	
+	/**
+	 * Returns the label of a cell (e.g. <tt>3,4</tt>).
+	 * 
+	 * @param u the cell.
+	 * @return the label of the cell.
+	 */
+	public String getLabel(int u) {
+		
+		return Integer.toString(u % width) + "," + Integer.toString(u / width);
+		
+	}
+	
+	/**
+	 * Returns the cost map.
+	 * 
+	 * @return the cost map.
+	 */
+	public CostMap getMap() {
+		
+		return map;
+		
+	}
+	
+	/**
+	 * Returns the <tt>x</tt> coordinate of a cell.
+	 * 
+	 * @param u the cell.
+	 * @return the <tt>x</tt> coordinate.
+	 */
+	public int getX(int u) {
+		
+		return u % width;
+		
+	}
+	
+	/**
+	 * Returns the <tt>y</tt> coordinate of a cell.
+	 * 
+	 * @param u the cell.
+	 * @return the <tt>y</tt> coordinate.
+	 */
+	public int getY(int u) {
+		
+		return u / width;
+		
+	}
+	
+	/**
+	 * Returns the Manhattan distance (four moves) or octile distance (eight
+	 * moves) between two cells.
+	 * 
+	 * @param u the first cell.
+	 * @param v the second cell.
+	 * @return the estimated cost between the two cells.
+	 */
+	public double heuristic(int u, int v) {
+		
+		double dx = Math.abs((u % width) - (v % width));
+		double dy = Math.abs((u / width) - (v / width));
+		
+		if (!diagonal) {
+			return dx + dy;
+		}
+		
+		return Math.max(dx, dy) + ((SQRT2 - 1.0) * Math.min(dx, dy));
+		
+	}
+	
+	/**
+	 * Returns the vertex number of a cell.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @return the vertex number.
+	 */
+	public int index(int x, int y) {
+		
+		return (y * width) + x;
+		
+	}
+	
+	/**
+	 * Tests whether diagonal moves are allowed.
+	 * 
+	 * @return <code>true</code> for eight moves per cell, <code>false</code>
+	 * for four.
+	 */
+	public boolean isDiagonal() {
+		
+		return diagonal;
+		
+	}
+	
+	/**
+	 * Returns the largest number of neighbours of any cell.
+	 * 
+	 * @return <tt>8</tt> if diagonal moves are allowed, otherwise <tt>4</tt>.
+	 */
+	public int maxDegree() {
+		
+		return (diagonal ? 8 : 4);
+		
+	}
+	
+	/**
+	 * Fills the supplied arrays with the cells from which cell
+	 * <code>v</code> can be entered in one move, and the cost of each move.
+	 * 
+	 * @param v the cell.
+	 * @param nodes receives the neighbouring cells.
+	 * @param costs receives the cost of moving from each into <code>v</code>.
+	 * @return the number of neighbouring cells.
+	 */
+	public int predecessors(int v, int[] nodes, double[] costs) {
+		
+		int x = v % width;
+		int y = v / width;
+		
+		// A blocked cell cannot be entered at all.
+		if (map.isBlocked(x, y)) {
+			return 0;
+		}
+		
+		// The moves are symmetric, so a neighbour can reach this cell
+		// exactly when this cell could reach the neighbour if it were open.
+		int n = 0;
+		for (int i = 0; i < (diagonal ? 8 : 4); i++) {
+			int nx = x + DX[i];
+			int ny = y + DY[i];
+			if (map.isOnGrid(nx, ny) && !map.isBlocked(nx, ny) && isCornerOpen(x, y, i)) {
+				nodes[n] = index(nx, ny);
+				costs[n] = moveCost(x, y, i);
+				n++;
+			}
+		}
+		
+		return n;
+		
+	}
+	
+	/**
+	 * Returns the number of cells in the grid.
+	 * 
+	 * @return the number of cells.
+	 */
+	public int size() {
+		
+		return width * height;
+		
+	}
+	
+	/**
+	 * Fills the supplied arrays with the cells that can be entered from
+	 * cell <code>u</code> in one move, and the cost of each move.
+	 * 
+	 * @param u the cell.
+	 * @param nodes receives the neighbouring cells.
+	 * @param costs receives the cost of moving into each.
+	 * @return the number of neighbouring cells.
+	 */
+	public int successors(int u, int[] nodes, double[] costs) {
+		
+		int x = u % width;
+		int y = u / width;
+		
+		int n = 0;
+		for (int i = 0; i < (diagonal ? 8 : 4); i++) {
+			if (isMoveOpen(x, y, i)) {
+				nodes[n] = index(x + DX[i], y + DY[i]);
+				costs[n] = moveCost(x + DX[i], y + DY[i], i);
+				n++;
+			}
+		}
+		
+		return n;
+		
+	}
+	
+	/**
+	 * Builds a <code>GridOctile</code> (eight moves) or <code>GridManhattan</code>
+	 * (four moves) state for a cell, used to report the path.
+	 * 
+	 * @param u the cell.
+	 * @param cost the cost of the move leading to this cell.
+	 * @param parent the cell we traveled from.
+	 * @return the puzzle state for the cell.
+	 */
+	public PuzState toState(int u, double cost, PuzState parent) {
+		
+		AbstractGrid state;
+		if (diagonal) {
+			state = new GridOctile(u % width, u / width, cost, parent);
+		} else {
+			state = new GridManhattan(u % width, u / width, cost, parent);
+		}
+		
+		state.setTotalX(width);
+		state.setTotalY(height);
+		state.setObstacles(map);
+		
+		return state;
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether the corner-cutting rule allows move
+	 * <code>i</code> from cell <tt>x,y</tt>, given only the two cells beside
+	 * the move. Orthogonal moves are always allowed.
+	 */
+	private boolean isCornerOpen(int x, int y, int i) {
+		
+		if (i < 4 || cornerCutting == GridOctile.CUT_ALWAYS) {
+			return true;
+		}
+		
+		boolean side1 = !map.isBlocked(x + DX[i], y);
+		boolean side2 = !map.isBlocked(x, y + DY[i]);
+		
+		return (cornerCutting == GridOctile.CUT_ONE_FREE ? (side1 || side2) : (side1 && side2));
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether move <code>i</code> from cell
+	 * <tt>x,y</tt> stays on the grid, enters an open cell and obeys the
+	 * corner-cutting rule.
+	 */
+	private boolean isMoveOpen(int x, int y, int i) {
+		
+		int nx = x + DX[i];
+		int ny = y + DY[i];
+		
+		return (map.isOnGrid(nx, ny) && !map.isBlocked(nx, ny) && isCornerOpen(x, y, i));
+		
+	}
+	
+	/**
+	 * Helper function. Returns the cost of making move <code>i</code>
+	 * into cell <tt>x,y</tt>.
+	 */
+	private double moveCost(int x, int y, int i) {
+		
+		int c = map.getCost(x, y);
+		double cost = (c > 0 ? c : 1.0);
+		
+		return (i < 4 ? cost : SQRT2 * cost);
+		
+	}
+	
+}
@@ -0,0 +1,250 @@
+package com.michaelzanussi.astar;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * The <tt>GridOctile</tt> heuristic allows diagonal as well as orthogonal
+ * moves. A diagonal move costs <tt>sqrt(2)</tt> times the cost of the
+ * cell entered. The estimate is the octile distance to the goal, which is
+ * the exact cost of the cheapest path on an open grid, so the heuristic is
+ * both monotonic and as tight as possible for this movement model. <p>
+ * 
+ * Whether a diagonal move may cut the corner of a blocked cell is set by
+ * the corner-cutting rule: <code>CUT_ALWAYS</code> ignores the blocked
+ * cells beside the move, <code>CUT_ONE_FREE</code> needs at least one of
+ * the two orthogonal cells beside the move to be passable, and
+ * <code>CUT_NEVER</code> (the default) needs both.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class GridOctile extends AbstractGrid implements Monotonic {
+	
+	/**
+	 * Diagonal moves may always cut corners.
+	 */
+	public static final int CUT_ALWAYS = 0;
+	
+	/**
+	 * Diagonal moves may cut a corner if one of the two cells beside
+	 * the move is passable.
+	 */
+	public static final int CUT_ONE_FREE = 1;
+	
+	/**
+	 * Diagonal moves may never cut the corner of a blocked cell.
+	 */
+	public static final int CUT_NEVER = 2;
+	
+	// The cost factor of a diagonal move.
+	private static final double SQRT2 = Math.sqrt(2.0);
+	
+	// The corner-cutting rule.
+	private int cornerCutting;
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @param distance the distance from this location to its parent.
+	 * @param parent the parent location of this location.
+	 */
+	public GridOctile(int x, int y, double distance, PuzState parent) {
+		
+		super(x, y, distance, parent);
+		cornerCutting = CUT_NEVER;
+		
+	}
+	
+	/**
+	 * Return an iterator over the children of the current node.  If no
+	 * children are available, the iterator should simply return
+	 * <CODE>false</CODE> for <CODE>hasNext()</CODE>.<p>
+	 * 
+	 * The children for this current node are automatically generated.
+	 * The four orthogonal cells come first, then the four diagonal cells
+	 * allowed by the corner-cutting rule. Blocked cells are skipped.
+	 * 
+	 * @return Iterator over the children state of this node.
+	 */
+	public Iterator<Object> children() {
+		
+		children = new LinkedList<Object>();
+		
+		// Which orthogonal cells can be entered?
+		boolean west = (xcoord != 0 && isPassable(xcoord - 1, ycoord));
+		boolean north = (ycoord != 0 && isPassable(xcoord, ycoord - 1));
+		boolean east = (xcoord != totalX - 1 && isPassable(xcoord + 1, ycoord));
+		boolean south = (ycoord != totalY - 1 && isPassable(xcoord, ycoord + 1));
+		
+		if (west) {
+			// Add the cell to the west.
+			children.add(childLocation(xcoord - 1, ycoord, 1.0));
+		}
+		
+		if (north) {
+			// Add the cell to the north.
+			children.add(childLocation(xcoord, ycoord - 1, 1.0));
+		}
+		
+		if (east) {
+			// Add the cell to the east.
+			children.add(childLocation(xcoord + 1, ycoord, 1.0));
+		}
+		
+		if (south) {
+			// Add the cell to the south.
+			children.add(childLocation(xcoord, ycoord + 1, 1.0));
+		}
+		
+		if (xcoord != 0 && ycoord != 0 && isDiagonalOpen(xcoord - 1, ycoord - 1, west, north)) {
+			// Add the cell to the north-west.
+			children.add(childLocation(xcoord - 1, ycoord - 1, SQRT2));
+		}
+		
+		if (xcoord != totalX - 1 && ycoord != 0 && isDiagonalOpen(xcoord + 1, ycoord - 1, east, north)) {
+			// Add the cell to the north-east.
+			children.add(childLocation(xcoord + 1, ycoord - 1, SQRT2));
+		}
+		
+		if (xcoord != totalX - 1 && ycoord != totalY - 1 && isDiagonalOpen(xcoord + 1, ycoord + 1, east, south)) {
+			// Add the cell to the south-east.
+			children.add(childLocation(xcoord + 1, ycoord + 1, SQRT2));
+		}
+		
+		if (xcoord != 0 && ycoord != totalY - 1 && isDiagonalOpen(xcoord - 1, ycoord + 1, west, south)) {
+			// Add the cell to the south-west.
+			children.add(childLocation(xcoord - 1, ycoord + 1, SQRT2));
+		}
+		
+		return children.iterator();
+		
+	}
+	
+	/**
+	 * Determines whether the passed <code>state</code> and the current state
+	 * are one and the same. Checks against <code>x</code> and <code>y</code>
+	 * coordinates.
+	 * 
+	 * @param o the state to test the current state against.
+	 * @return <code>true</code> if these states are equal, otherwise
+	 * <code>false</code>
+	 */
+	public boolean equals(Object o) {
+		
+		return (string.compareTo(((GridOctile)o).getLabel()) == 0);
+		
+	}
+	
+	/**
+	 * Returns the corner-cutting rule.
+	 * 
+	 * @return the corner-cutting rule.
+	 */
+	public int getCornerCutting() {
+		
+		return cornerCutting;
+		
+	}
+	
+	/**
+	 * Return the heuristic estimate of the value of this node.  This
+	 * function should provide the combined "cost-so-far" function <code>g()</code>
+	 * with the "estimated cost-to-goal" function, <code>h()</code>.  That is,
+	 * this represents the complete function <code>f(s)=g(s)+h(s)</code>.
+	 * 
+	 * @return the total function representing cost-from-start
+	 * <em>plus</em> estimated cost-to-goal.
+	 * @throws NullPointerException If the goal state <code>_theGoal</code>
+	 * is <code>null</code>.
+	 */
+	public double heuristic() throws NullPointerException {
+		
+		if (theGoal == null) {
+			throw new NullPointerException("GridOctile.heuristic error: Goal state has not been set.");
+		}
+		
+		double dx = Math.abs((double)getX() - ((GridOctile)theGoal).getX());
+		double dy = Math.abs((double)getY() - ((GridOctile)theGoal).getY());
+		
+		// Octile distance: as many diagonal moves as possible, then
+		// straight moves for the rest. No cell costs less than 1.0.
+		double h = Math.max(dx, dy) + ((SQRT2 - 1.0) * Math.min(dx, dy));
+		
+		// *DEBUG*
+		if (Global.getDebug()) {
+			System.out.println("*DEBUG* [" + string + "]  g = " + g + ", h = " + h + ", Heuristic() = " + (g + h));
+		}
+		
+		return g + h;
+		
+	}
+	
+	/**
+	 * Set the corner-cutting rule.
+	 * 
+	 * @param value one of <code>CUT_ALWAYS</code>, <code>CUT_ONE_FREE</code>
+	 * or <code>CUT_NEVER</code>.
+	 * @throws IllegalArgumentException If the rule is unknown.
+	 */
+	public void setCornerCutting(int value) throws IllegalArgumentException {
+		
+		if (value != CUT_ALWAYS && value != CUT_ONE_FREE && value != CUT_NEVER) {
+			throw new IllegalArgumentException("GridOctile.setCornerCutting error: Unknown corner-cutting rule: " + value);
+		}
+		
+		cornerCutting = value;
+		
+	}
+	
+	/**
+	 * Helper function. Creates a new child to be added to the list
+	 * of children for this state. If any obstacles have been defined
+	 * for this puzzle, their cost is used instead of the default cost,
+	 * scaled by the cost factor of the move.
+	 * 
+	 * @param x the x coordinate.
+	 * @param y the y coordinate.
+	 * @param factor the cost factor of the move (1.0 or sqrt(2)).
+	 * @return the new child.
+	 */
+	protected GridOctile childLocation(int x, int y, double factor) {
+		
+		// Account for any obstacles.
+		double dcost = factor * cellCost(x, y, 1.0);
+		
+		// Create the new child.
+		GridOctile child = new GridOctile(x, y, dcost, this);
+		child.setTotalX(totalX);
+		child.setTotalY(totalY);
+		child.setObstacles(obstacles);
+		child.cornerCutting = cornerCutting;
+		
+		return child;
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether a diagonal move into a cell is
+	 * allowed, given whether the two orthogonal cells beside the move
+	 * can be entered.
+	 */
+	private boolean isDiagonalOpen(int x, int y, boolean side1, boolean side2) {
+		
+		if (!isPassable(x, y)) {
+			return false;
+		}
+		
+		if (cornerCutting == CUT_ALWAYS) {
+			return true;
+		} else if (cornerCutting == CUT_ONE_FREE) {
+			return (side1 || side2);
+		}
+		
+		return (side1 && side2);
+		
+	}
+	
+}
@@ -33,7 +33,7 @@ public class GridStraight extends AbstractGrid {
 	 * <CODE>false</CODE> for <CODE>hasNext()</CODE>.<p>
 	 * 
 	 * The children for this current node are automatically generated.
-	 * Diagonal movement is not allowed.  
+	 * Diagonal movement is not allowed, and blocked cells are skipped.  
 	 *
 	 * @return Iterator over the children state of this node.
 	 */
@@ -41,22 +41,22 @@ public class GridStraight extends AbstractGrid {
 		
 		children = new LinkedList<Object>();
 		
-		if (xcoord != 0) {
+		if (xcoord != 0 && isPassable(xcoord - 1, ycoord)) {
 			// Add the cell to the west.
 			children.add(childLocation(xcoord - 1, ycoord, 1.0));
 		}
 		
-		if (ycoord != 0) {
+		if (ycoord != 0 && isPassable(xcoord, ycoord - 1)) {
 			// Add the cell to the north.
 			children.add(childLocation(xcoord, ycoord - 1, 1.0));
 		}
 		
-		if (xcoord != totalX - 1) {
+		if (xcoord != totalX - 1 && isPassable(xcoord + 1, ycoord)) {
 			// Add the cell to the east.
 			children.add(childLocation(xcoord + 1, ycoord, 1.0));
 		}
 		
-		if (ycoord != totalY - 1) {
+		if (ycoord != totalY - 1 && isPassable(xcoord, ycoord + 1)) {
 			// Add the cell to the south.
 			children.add(childLocation(xcoord, ycoord + 1, 1.0));
 		}
@@ -125,7 +125,7 @@ public class GridStraight extends AbstractGrid {
 	protected GridStraight childLocation(int x, int y, double cost) {
 
 		// Account for any obstacles.
-		double dcost = (obstacles[x][y] > 0 ? obstacles[x][y] : cost);
+		double dcost = cellCost(x, y, cost);
 
 		// Create the new child.
 		GridStraight child = new GridStraight(x, y, dcost, this);
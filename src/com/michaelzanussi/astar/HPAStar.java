@@ -0,0 +1,282 @@
+package com.michaelzanussi.astar;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Hierarchical path-finding A* (HPA*) on a <code>Grid</code> puzzle. The
+ * search runs on a <code>GridAbstraction</code> of the grid rather than on
+ * the grid itself: the start and goal are joined to the abstract nodes of
+ * their clusters, A* finds the cheapest abstract path, and each intra edge
+ * of that path is then refined into grid moves by a search that never
+ * leaves its cluster. On a large grid this expands a small fraction of the
+ * cells an A* search on the grid would. <p>
+ * 
+ * The path found is not always optimal, as it must cross between
+ * clusters at a transition, but it is usually within a few percent. When
+ * the start and goal share a cluster, the best path within the cluster is
+ * used if it is cheaper. <p>
+ * 
+ * Nodes opened counts the cells expanded by the searches made for this
+ * query and the abstract nodes expanded; nodes closed counts the abstract
+ * nodes expanded. The state path is not reported.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class HPAStar implements PuzzleEngine {
+	
+	// An unreachable cost.
+	private static final double INFINITY = Double.POSITIVE_INFINITY;
+	
+	// The abstraction and the grid it abstracts.
+	private GridAbstraction abstraction;
+	private GridGraph graph;
+	
+	// The start and goal cells.
+	private int start;
+	private int goal;
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param abstraction the abstract graph of the grid.
+	 * @param start the start cell.
+	 * @param goal the goal cell.
+	 * @throws NullPointerException If no abstraction was specified.
+	 * @throws IllegalArgumentException If the start or goal cell is not on
+	 * the grid.
+	 */
+	public HPAStar(GridAbstraction abstraction, int start, int goal) throws NullPointerException, IllegalArgumentException {
+		
+		if (abstraction == null) {
+			throw new NullPointerException("HPAStar.HPAStar error: The abstraction cannot be null.");
+		}
+		
+		int n = abstraction.getGraph().size();
+		if (start < 0 || start >= n || goal < 0 || goal >= n) {
+			throw new IllegalArgumentException("HPAStar.HPAStar error: Start and goal must be on the grid. Start = " + start + ", Goal = " + goal + ", Size = " + n);
+		}
+		
+		this.abstraction = abstraction;
+		this.graph = abstraction.getGraph();
+		this.start = start;
+		this.goal = goal;
+		
+	}
+	
+	/**
+	 * Searches for a path from the start to the goal. The path begins with
+	 * the goal state and descends to the start state, as with
+	 * <code>AStar.path()</code>.
+	 * 
+	 * @return the path to the goal if one exists, or <code>null</code> if no
+	 * path exists.
+	 * @throws IllegalStateException If the system times out searching for a path.
+	 */
+	public LinkedList<Object> path() throws IllegalStateException {
+		
+		int[] cells;
+		
+		if (start == goal) {
+			cells = new int[] { start };
+		} else {
+			
+			// Search the abstract graph, and within the cluster if the
+			// start and goal share one; keep the cheaper.
+			cells = abstractPath();
+			if (abstraction.getCluster(start) == abstraction.getCluster(goal)) {
+				int[] local = abstraction.refine(start, goal);
+				if (local != null && (cells == null || cost(local) <= cost(cells))) {
+					cells = local;
+				}
+			}
+			
+		}
+		
+		// Unreachable?
+		if (cells == null) {
+			return null;
+		}
+		
+		// Build the states, start first, and push each onto the front of
+		// the list so the goal comes first.
+		LinkedList<Object> path = new LinkedList<Object>();
+		PuzState state = graph.toState(cells[0], 0.0, null);
+		path.addFirst(state);
+		for (int i = 1; i < cells.length; i++) {
+			state = graph.toState(cells[i], graph.cost(cells[i - 1], cells[i]), state);
+			path.addFirst(state);
+		}
+		
+		return path;
+		
+	}
+	
+	/**
+	 * Helper function. Runs A* on the abstract graph, with the start and
+	 * goal joined to their clusters, then refines the abstract path into
+	 * grid cells. Returns <code>null</code> if no abstract path exists.
+	 */
+	private int[] abstractPath() throws IllegalStateException {
+		
+		int n = abstraction.size();
+		
+		// The start and goal are two extra abstract nodes.
+		int s = n;
+		int t = n + 1;
+		
+		// Join the start and goal to the abstract nodes of their clusters.
+		int[] startNodes = abstraction.getMembers(abstraction.getCluster(start));
+		double[] fromStart = abstraction.link(start, false);
+		int goalCluster = abstraction.getCluster(goal);
+		int[] goalNodes = abstraction.getMembers(goalCluster);
+		double[] toGoal = abstraction.link(goal, true);
+		
+		double[] g = new double[n + 2];
+		int[] parent = new int[n + 2];
+		for (int i = 0; i < n + 2; i++) {
+			g[i] = INFINITY;
+			parent[i] = -1;
+		}
+		
+		IndexedMinHeap open = new IndexedMinHeap(n + 2);
+		g[s] = 0.0;
+		open.insert(s, graph.heuristic(start, goal), 0.0);
+		
+		// The estimate is consistent, so a node is final once expanded.
+		int closed = 0;
+		try {
+			
+			while (!open.isEmpty()) {
+				
+				// Have we timed out?
+				if (Global.isTimeUp()) {
+					throw new IllegalStateException("HPAStar.path error: System timed out searching for a solution.");
+				}
+				
+				int u = open.pop();
+				closed++;
+				
+				// Reached the goal?
+				if (u == t) {
+					break;
+				}
+				
+				// The start leads to the abstract nodes of its cluster.
+				if (u == s) {
+					for (int i = 0; i < startNodes.length; i++) {
+						relax(open, g, parent, s, startNodes[i], fromStart[i]);
+					}
+					continue;
+				}
+				
+				// Follow the abstract edges.
+				int[] edges = abstraction.getEdges(u);
+				double[] costs = abstraction.getCosts(u);
+				for (int i = 0; i < edges.length; i++) {
+					relax(open, g, parent, u, edges[i], costs[i]);
+				}
+				
+				// The abstract nodes of the goal's cluster lead to the goal.
+				int cell = abstraction.getCell(u);
+				if (abstraction.getCluster(cell) == goalCluster) {
+					for (int i = 0; i < goalNodes.length; i++) {
+						if (goalNodes[i] == u) {
+							relax(open, g, parent, u, t, toGoal[i]);
+						}
+					}
+				}
+				
+			}
+			
+		} finally {
+			Global.addNodesOpened(closed);
+			Global.setNodesClosed(closed);
+		}
+		
+		// Unreachable?
+		if (g[t] == INFINITY) {
+			return null;
+		}
+		
+		// Read off the abstract path, start first.
+		LinkedList<Integer> nodes = new LinkedList<Integer>();
+		for (int u = t; u != -1; u = parent[u]) {
+			nodes.addFirst(u);
+		}
+		
+		// Refine each step into grid cells. Steps within a cluster are
+		// searched again; steps between clusters are a single move.
+		List<int[]> steps = new ArrayList<int[]>();
+		int length = 1;
+		int prev = start;
+		for (Integer u : nodes) {
+			
+			if (u == s) {
+				continue;
+			}
+			
+			int cell = (u == t ? goal : abstraction.getCell(u));
+			if (cell == prev) {
+				continue;
+			}
+			
+			int[] step;
+			if (abstraction.getCluster(cell) == abstraction.getCluster(prev)) {
+				step = abstraction.refine(prev, cell);
+			} else {
+				step = new int[] { prev, cell };
+			}
+			
+			steps.add(step);
+			length += step.length - 1;
+			prev = cell;
+			
+		}
+		
+		// Join the steps, each of which begins where the last one ended.
+		int[] cells = new int[length];
+		cells[0] = start;
+		int next = 1;
+		for (int[] step : steps) {
+			System.arraycopy(step, 1, cells, next, step.length - 1);
+			next += step.length - 1;
+		}
+		
+		return cells;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the cost of a path of grid cells.
+	 */
+	private double cost(int[] cells) {
+		
+		double total = 0.0;
+		for (int i = 1; i < cells.length; i++) {
+			total += graph.cost(cells[i - 1], cells[i]);
+		}
+		
+		return total;
+		
+	}
+	
+	/**
+	 * Helper function. Lowers the cost of an abstract node if the edge
+	 * from <code>u</code> leads to it more cheaply.
+	 */
+	private void relax(IndexedMinHeap open, double[] g, int[] parent, int u, int v, double c) {
+		
+		double cost = g[u] + c;
+		if (cost < g[v]) {
+			g[v] = cost;
+			parent[v] = u;
+			int cell = (v == abstraction.size() + 1 ? goal : abstraction.getCell(v));
+			open.update(v, cost + graph.heuristic(cell, goal), 0.0);
+		}
+		
+	}
+	
+}
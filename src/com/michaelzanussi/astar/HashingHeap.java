@@ -6,13 +6,43 @@ import java.util.Vector;
 
 /**
  * A hybrid priority queue data structure, combining the best of the
- * hash and heap worlds. 
+ * hash and heap worlds. <p>
+ * 
+ * States are ordered by <code>heuristic()</code>. States of equal
+ * heuristic are ordered by the tie-breaking policy in force when the
+ * queue is made (see <code>Global.setTieBreaking()</code>): in no
+ * particular order, deepest first (highest distance from the start, and
+ * so lowest estimate to the goal), most recently inserted first, or by
+ * state key. Either of the first two lets the search run straight along
+ * a plateau of equal heuristic rather than widen across it. The policy
+ * only orders states; it never changes their cost.
  * 
  * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
  * @version 1.0 (29 Mar 2004) 
  */
 public final class HashingHeap implements PriorityQueue {
 
+	/**
+	 * Tie-breaking policy: states of equal heuristic in no particular order.
+	 */
+	public static final int TIE_NONE = 0;
+	
+	/**
+	 * Tie-breaking policy: the state farthest from the start first.
+	 */
+	public static final int TIE_HIGH_G = 1;
+	
+	/**
+	 * Tie-breaking policy: the state inserted last first.
+	 */
+	public static final int TIE_LIFO = 2;
+	
+	/**
+	 * Tie-breaking policy: the state with the lowest hash code (its state
+	 * key) first.
+	 */
+	public static final int TIE_STATE_KEY = 3;
+	
 	// Position of the root element in the vector.
 	private static final int ROOT = 0;
 
@@ -21,13 +51,42 @@ public final class HashingHeap implements PriorityQueue {
 	private Vector<PuzState> heap = null;
 	private Map<PuzState, Integer> hash = null;
 	
+	// The tie-breaking policy.
+	private int tieBreaking;
+	
+	// The insertion sequence number of each heap element, kept in step
+	// with the vector, and the last number handed out.
+	private long[] order;
+	private long sequence;
+	
 	/**
-	 * No-arg constructor.
+	 * No-arg constructor. Uses the tie-breaking policy currently set in
+	 * <code>Global</code>.
 	 */
 	public HashingHeap() {
 		
+		this(Global.getTieBreaking());
+		
+	}
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param tieBreaking the tie-breaking policy, one of the
+	 * <code>TIE_</code> constants.
+	 * @throws IllegalArgumentException If the policy is unknown.
+	 */
+	public HashingHeap(int tieBreaking) throws IllegalArgumentException {
+		
+		if (tieBreaking < TIE_NONE || tieBreaking > TIE_STATE_KEY) {
+			throw new IllegalArgumentException("HashingHeap.HashingHeap error: Unknown tie-breaking policy: " + tieBreaking);
+		}
+		
 		heap = new Vector<PuzState>();
 		hash = new HashMap<PuzState, Integer>();
+		this.tieBreaking = tieBreaking;
+		order = new long[16];
+		sequence = 0;
 		
 	}
 	
@@ -75,6 +134,17 @@ public final class HashingHeap implements PriorityQueue {
 		
 	}
 	
+	/**
+	 * Returns the tie-breaking policy of this queue.
+	 * 
+	 * @return one of the <code>TIE_</code> constants.
+	 */
+	public int getTieBreaking() {
+		
+		return tieBreaking;
+		
+	}
+	
 	/**
 	 * Inserts a new element into the hybrid priority queue. Runs in
 	 * <tt>O(logn)</tt> time.
@@ -100,8 +170,14 @@ public final class HashingHeap implements PriorityQueue {
 			throw new IndexOutOfBoundsException("HashingHeap.insertItem error: OpenListBound exceeded. Set to: " + Global.getOpenListBound() + ", Current count: " + size());
 		}
 		
-		// Calculate the key's index.		
+		// Calculate the key's index, and number it.		
 		int i = size() - 1;
+		if (i == order.length) {
+			long[] a = new long[order.length * 2];
+			System.arraycopy(order, 0, a, 0, order.length);
+			order = a;
+		}
+		order[i] = ++sequence;
 		
 		// Add the key to the hash table, using the index into the 
 		// heap as its value. This operation occurs amortized in O(1) time.
@@ -113,7 +189,7 @@ public final class HashingHeap implements PriorityQueue {
 		// Put this new key into its correct position in the heap. This
 		// is a min-heap, so the shortest distance is located at the root.
 		// This operation occurs in O(logn) time.
-		while (i > ROOT && (getHeapElement(parent(i)).heuristic() > getHeapElement(i).heuristic())) {
+		while (i > ROOT && less(i, parent(i))) {
 			swap(i, parent(i));
 			i = parent(i);
 		}
@@ -218,6 +294,7 @@ public final class HashingHeap implements PriorityQueue {
 			// Replace the element we'd like to remove with the last element
 			// that we just removed.
 			setHeapElement(last, index);
+			order[index] = order[size()];
 			// Put that last element back into the hash with the new index.
 			hash.put(last, new Integer(index));
 		}
@@ -266,6 +343,7 @@ public final class HashingHeap implements PriorityQueue {
 		// Rebuild the heap. Runs in O(logn) time.		
 		if (first != last) {
 			setHeapElement(last, ROOT);
+			order[ROOT] = order[size()];
 			if (hash.remove( last ) == null) {
 				throw new NullPointerException("HashingHeap.removeMin error: Cannot locate key in hash table.");
 			}
@@ -329,14 +407,14 @@ public final class HashingHeap implements PriorityQueue {
 		int r = right(root);
 		
 		// See if the left child is smaller than the root.
-		if (l <= size() - 1 && getHeapElement(l).heuristic() < getHeapElement(root).heuristic()) {
+		if (l <= size() - 1 && less(l, root)) {
 			smallest = l;
 		} else {
 			smallest = root;
 		}
 
 		// See if the right child is smaller than the root or left child.
-		if (r <= size() - 1 && getHeapElement(r).heuristic() < getHeapElement(smallest).heuristic()) {
+		if (r <= size() - 1 && less(r, smallest)) {
 			smallest = r;
 		}
 
@@ -368,6 +446,39 @@ public final class HashingHeap implements PriorityQueue {
 		
 	}
 
+	/**
+	 * Tests whether the element at index <code>a</code> should leave the
+	 * queue before the element at index <code>b</code>: it has the smaller
+	 * heuristic, or an equal heuristic and wins the tie. Runs in constant
+	 * <tt>O(1)</tt> time.
+	 * 
+	 * @param a the index of the first element.
+	 * @param b the index of the second element.
+	 * @return <code>true</code> if the first element comes first.
+	 */
+	private boolean less(int a, int b) {
+		
+		PuzState psA = getHeapElement(a);
+		PuzState psB = getHeapElement(b);
+		
+		double fA = psA.heuristic();
+		double fB = psB.heuristic();
+		if (fA != fB || tieBreaking == TIE_NONE) {
+			return fA < fB;
+		}
+		
+		// Break the tie.
+		switch (tieBreaking) {
+			case TIE_HIGH_G:
+				return psA.distFromStart() > psB.distFromStart();
+			case TIE_LIFO:
+				return order[a] > order[b];
+			default:
+				return psA.hashCode() < psB.hashCode();
+		}
+		
+	}
+	
 	/**
 	 * Given the index <code>i</code> of a node, returns the index of
 	 * the node's parent or -1 if <code>null</code>. Runs in constant
@@ -469,6 +580,10 @@ public final class HashingHeap implements PriorityQueue {
 		setHeapElement(psB, a);
 		setHeapElement(temp, b);
 		
+		long o = order[a];
+		order[a] = order[b];
+		order[b] = o;
+		
 	}
 	
 }
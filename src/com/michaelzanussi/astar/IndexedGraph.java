@@ -0,0 +1,85 @@
+package com.michaelzanussi.astar;
+
+/**
+ * An interface for a graph whose vertices are numbered densely from
+ * <tt>0</tt> to <tt>size() - 1</tt>. Search engines that keep per-vertex
+ * values between queries (such as <code>DStarLite</code>) work on an
+ * <code>IndexedGraph</code> rather than on <code>PuzState</code> objects,
+ * so that those values can be stored in primitive arrays indexed by
+ * vertex. <p>
+ * 
+ * Neighbours are returned by filling caller-supplied arrays, which must
+ * hold at least <code>maxDegree()</code> entries. This allows the engine
+ * to walk the graph without allocating.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public interface IndexedGraph {
+	
+	/**
+	 * Returns an estimate of the cost of travelling between two vertices.
+	 * The estimate must be admissible and consistent.
+	 * 
+	 * @param u the first vertex.
+	 * @param v the second vertex.
+	 * @return the estimated cost between the two vertices.
+	 */
+	public double heuristic(int u, int v);
+	
+	/**
+	 * Returns the label of a vertex (a city name or grid coordinate).
+	 * 
+	 * @param u the vertex.
+	 * @return the label of the vertex.
+	 */
+	public String getLabel(int u);
+	
+	/**
+	 * Returns the largest number of neighbours any vertex may have.
+	 * 
+	 * @return the maximum vertex degree.
+	 */
+	public int maxDegree();
+	
+	/**
+	 * Fills the supplied arrays with the vertices that have an edge
+	 * leading into vertex <code>v</code>, and the cost of each such edge.
+	 * 
+	 * @param v the vertex.
+	 * @param nodes receives the predecessor vertices.
+	 * @param costs receives the cost from each predecessor to <code>v</code>.
+	 * @return the number of predecessors.
+	 */
+	public int predecessors(int v, int[] nodes, double[] costs);
+	
+	/**
+	 * Returns the number of vertices in the graph.
+	 * 
+	 * @return the number of vertices.
+	 */
+	public int size();
+	
+	/**
+	 * Fills the supplied arrays with the vertices reachable from vertex
+	 * <code>u</code> by a single edge, and the cost of each such edge.
+	 * 
+	 * @param u the vertex.
+	 * @param nodes receives the successor vertices.
+	 * @param costs receives the cost from <code>u</code> to each successor.
+	 * @return the number of successors.
+	 */
+	public int successors(int u, int[] nodes, double[] costs);
+	
+	/**
+	 * Builds a <code>PuzState</code> for a vertex, used to report a path
+	 * found on the graph in the same form as <code>AStar.path()</code>.
+	 * 
+	 * @param u the vertex.
+	 * @param cost the cost of the edge leading to this vertex.
+	 * @param parent the state we traveled from.
+	 * @return the puzzle state for the vertex.
+	 */
+	public PuzState toState(int u, double cost, PuzState parent);
+	
+}
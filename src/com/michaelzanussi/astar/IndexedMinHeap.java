@@ -0,0 +1,292 @@
+package com.michaelzanussi.astar;
+
+/**
+ * A binary min-heap of integer vertices, each ordered by a two-part key
+ * compared lexicographically. The position of every vertex in the heap is
+ * kept in an array indexed by vertex, so <code>contains()</code> runs in
+ * <tt>O(1)</tt> time and <code>update()</code> and <code>remove()</code>
+ * run in <tt>O(logn)</tt> time. Nothing is allocated after construction.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public final class IndexedMinHeap {
+	
+	// Position of the root element in the heap.
+	private static final int ROOT = 0;
+	
+	// Marks a vertex that is not in the heap.
+	private static final int ABSENT = -1;
+	
+	// The heap of vertices.
+	private int[] heap;
+	
+	// The position of each vertex in the heap, or ABSENT.
+	private int[] position;
+	
+	// The two-part key of each vertex, indexed by vertex.
+	private double[] key1;
+	private double[] key2;
+	
+	// The number of vertices in the heap.
+	private int size;
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param capacity the number of vertices (vertices are numbered
+	 * from <tt>0</tt> to <tt>capacity - 1</tt>).
+	 */
+	public IndexedMinHeap(int capacity) {
+		
+		heap = new int[capacity];
+		position = new int[capacity];
+		key1 = new double[capacity];
+		key2 = new double[capacity];
+		size = 0;
+		
+		for (int i = 0; i < capacity; i++) {
+			position[i] = ABSENT;
+		}
+		
+	}
+	
+	/**
+	 * Tests whether the heap contains a vertex.
+	 * 
+	 * @param u the vertex.
+	 * @return <code>true</code> if the vertex is in the heap, otherwise
+	 * <code>false</code>.
+	 */
+	public boolean contains(int u) {
+		
+		return (position[u] != ABSENT);
+		
+	}
+	
+	/**
+	 * Inserts a vertex into the heap.
+	 * 
+	 * @param u the vertex.
+	 * @param k1 the primary key.
+	 * @param k2 the secondary key.
+	 * @throws IllegalArgumentException If the vertex is already in the heap.
+	 * @throws IndexOutOfBoundsException If the open list bound is exceeded.
+	 */
+	public void insert(int u, double k1, double k2) throws IllegalArgumentException, IndexOutOfBoundsException {
+		
+		if (contains(u)) {
+			throw new IllegalArgumentException("IndexedMinHeap.insert error: Vertex " + u + " is already in the heap.");
+		}
+		
+		// Verify we haven't reached the open list bound yet.
+		if (size + 1 > Global.getOpenListBound()) {
+			throw new IndexOutOfBoundsException("IndexedMinHeap.insert error: OpenListBound exceeded. Set to: " + Global.getOpenListBound() + ", Current count: " + (size + 1));
+		}
+		
+		// Add the vertex to the end of the heap and sift it up.
+		key1[u] = k1;
+		key2[u] = k2;
+		heap[size] = u;
+		position[u] = size;
+		size++;
+		siftUp(size - 1);
+		
+	}
+	
+	/**
+	 * Tests whether the heap is empty.
+	 * 
+	 * @return <code>true</code> if the heap is empty, otherwise
+	 * <code>false</code>.
+	 */
+	public boolean isEmpty() {
+		
+		return (size == 0);
+		
+	}
+	
+	/**
+	 * Removes and returns the vertex with the smallest key.
+	 * 
+	 * @return the vertex with the smallest key.
+	 * @throws IllegalStateException If the heap is empty.
+	 */
+	public int pop() throws IllegalStateException {
+		
+		int u = top();
+		remove(u);
+		
+		return u;
+		
+	}
+	
+	/**
+	 * Removes a vertex from the heap. Does nothing if the vertex is
+	 * not in the heap.
+	 * 
+	 * @param u the vertex.
+	 */
+	public void remove(int u) {
+		
+		int i = position[u];
+		if (i == ABSENT) {
+			return;
+		}
+		
+		// Move the last vertex into the hole and restore the heap.
+		size--;
+		position[u] = ABSENT;
+		if (i != size) {
+			heap[i] = heap[size];
+			position[heap[i]] = i;
+			siftDown(i);
+			siftUp(i);
+		}
+		
+	}
+	
+	/**
+	 * Returns the number of vertices in the heap.
+	 * 
+	 * @return the number of vertices.
+	 */
+	public int size() {
+		
+		return size;
+		
+	}
+	
+	/**
+	 * Returns (but does not remove) the vertex with the smallest key.
+	 * 
+	 * @return the vertex with the smallest key.
+	 * @throws IllegalStateException If the heap is empty.
+	 */
+	public int top() throws IllegalStateException {
+		
+		if (isEmpty()) {
+			throw new IllegalStateException("IndexedMinHeap.top error: Heap is empty.");
+		}
+		
+		return heap[ROOT];
+		
+	}
+	
+	/**
+	 * Returns the primary key of a vertex.
+	 * 
+	 * @param u the vertex.
+	 * @return the primary key.
+	 */
+	public double getKey1(int u) {
+		
+		return key1[u];
+		
+	}
+	
+	/**
+	 * Returns the secondary key of a vertex.
+	 * 
+	 * @param u the vertex.
+	 * @return the secondary key.
+	 */
+	public double getKey2(int u) {
+		
+		return key2[u];
+		
+	}
+	
+	/**
+	 * Changes the key of a vertex already in the heap, or inserts the
+	 * vertex if it is not.
+	 * 
+	 * @param u the vertex.
+	 * @param k1 the new primary key.
+	 * @param k2 the new secondary key.
+	 */
+	public void update(int u, double k1, double k2) {
+		
+		if (!contains(u)) {
+			insert(u, k1, k2);
+			return;
+		}
+		
+		key1[u] = k1;
+		key2[u] = k2;
+		siftDown(position[u]);
+		siftUp(position[u]);
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether the vertex at heap position
+	 * <code>i</code> has a smaller key than the one at position <code>j</code>.
+	 */
+	private boolean less(int i, int j) {
+		
+		int a = heap[i];
+		int b = heap[j];
+		
+		return (key1[a] < key1[b] || (key1[a] == key1[b] && key2[a] < key2[b]));
+		
+	}
+	
+	/**
+	 * Helper function. Moves the vertex at heap position <code>i</code>
+	 * down until the heap property is restored.
+	 */
+	private void siftDown(int i) {
+		
+		while (true) {
+			
+			int left = (2 * i) + 1;
+			int right = left + 1;
+			int smallest = i;
+			
+			if (left < size && less(left, smallest)) {
+				smallest = left;
+			}
+			
+			if (right < size && less(right, smallest)) {
+				smallest = right;
+			}
+			
+			if (smallest == i) {
+				return;
+			}
+			
+			swap(i, smallest);
+			i = smallest;
+			
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Moves the vertex at heap position <code>i</code>
+	 * up until the heap property is restored.
+	 */
+	private void siftUp(int i) {
+		
+		while (i > ROOT && less(i, (i - 1) / 2)) {
+			swap(i, (i - 1) / 2);
+			i = (i - 1) / 2;
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Swaps the vertices at two heap positions.
+	 */
+	private void swap(int i, int j) {
+		
+		int t = heap[i];
+		heap[i] = heap[j];
+		heap[j] = t;
+		position[heap[i]] = i;
+		position[heap[j]] = j;
+		
+	}
+	
+}
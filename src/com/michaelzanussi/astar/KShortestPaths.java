@@ -0,0 +1,636 @@
+package com.michaelzanussi.astar;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Yen's algorithm for the <tt>K</tt> shortest loopless paths between two
+ * vertices of an <code>IndexedGraph</code>. <p>
+ * 
+ * A single backwards Dijkstra search from the goal builds the shortest-path
+ * tree of every vertex to the goal. The first path is read straight off
+ * the tree, and the tree distances serve as the heuristic for every spur
+ * search. Removing vertices and edges can only make the remaining
+ * distances longer, so the heuristic stays admissible and consistent, and
+ * in practice a spur search expands little more than the path it returns.
+ * <p>
+ * 
+ * The spur searches made for one path are independent of each other, so
+ * they run in parallel, one task per spur vertex. Each worker thread keeps
+ * its own search arrays, which are stamped rather than cleared between
+ * searches. Candidates are ordered by cost, then length, then vertex
+ * sequence, so the paths returned do not depend on thread scheduling. <p>
+ * 
+ * Nodes opened by all searches are added to <code>Global</code> once the
+ * search is complete. The state path is not reported, as it would
+ * interleave output from several threads.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class KShortestPaths {
+	
+	// An unreachable cost.
+	private static final double INFINITY = Double.POSITIVE_INFINITY;
+	
+	// The graph being searched.
+	private IndexedGraph graph;
+	
+	// The start and goal vertices.
+	private int start;
+	private int goal;
+	
+	// The shortest distance from each vertex to the goal, and the next
+	// vertex on the way there (the shortest-path tree).
+	private double[] toGoal;
+	private int[] next;
+	
+	// Nodes opened by the spur searches, not yet added to Global.
+	private int pendingOpened;
+	
+	// The number of worker threads.
+	private int threads;
+	
+	// Each worker thread's spur search.
+	private ThreadLocal<SpurSearch> searches;
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param graph the graph to search.
+	 * @param start the start vertex.
+	 * @param goal the goal vertex.
+	 * @throws NullPointerException If no graph was specified.
+	 * @throws IllegalArgumentException If the start or goal vertex is not
+	 * in the graph.
+	 */
+	public KShortestPaths(IndexedGraph graph, int start, int goal) throws NullPointerException, IllegalArgumentException {
+		
+		if (graph == null) {
+			throw new NullPointerException("KShortestPaths.KShortestPaths error: The graph cannot be null.");
+		}
+		
+		int n = graph.size();
+		if (start < 0 || start >= n || goal < 0 || goal >= n) {
+			throw new IllegalArgumentException("KShortestPaths.KShortestPaths error: Start and goal must be in the graph. Start = " + start + ", Goal = " + goal + ", Size = " + n);
+		}
+		
+		this.graph = graph;
+		this.start = start;
+		this.goal = goal;
+		
+		toGoal = null;
+		next = null;
+		pendingOpened = 0;
+		threads = Runtime.getRuntime().availableProcessors();
+		searches = new ThreadLocal<SpurSearch>() {
+			protected SpurSearch initialValue() {
+				return new SpurSearch();
+			}
+		};
+		
+	}
+	
+	/**
+	 * Finds up to <code>k</code> shortest loopless paths from the start to
+	 * the goal, shortest first. Each path begins with the goal state and
+	 * descends to the start state, as with <code>AStar.path()</code>, and the
+	 * cost of a path is the <code>distFromStart()</code> of its goal state.
+	 * 
+	 * @param k the number of paths wanted.
+	 * @return the paths found; fewer than <code>k</code> if the graph has no
+	 * more, and none if the goal is unreachable.
+	 * @throws IllegalArgumentException If <code>k</code> is not positive.
+	 * @throws IllegalStateException If the system times out searching for a path.
+	 */
+	public List<LinkedList<Object>> paths(int k) throws IllegalArgumentException, IllegalStateException {
+		
+		if (k < 1) {
+			throw new IllegalArgumentException("KShortestPaths.paths error: K must be > 0. Received: " + k);
+		}
+		
+		List<LinkedList<Object>> result = new ArrayList<LinkedList<Object>>();
+		
+		// Build the shortest-path tree to the goal.
+		if (toGoal == null) {
+			buildTree();
+		}
+		
+		// Unreachable?
+		if (toGoal[start] == INFINITY) {
+			return result;
+		}
+		
+		// The accepted paths and the candidates not yet accepted.
+		List<Route> accepted = new ArrayList<Route>();
+		TreeSet<Route> candidates = new TreeSet<Route>(new RouteComparator());
+		
+		// The first path follows the tree.
+		accepted.add(treePath());
+		
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			
+			while (accepted.size() < k) {
+				
+				Route last = accepted.get(accepted.size() - 1);
+				
+				// Start one spur search for every vertex on the last path
+				// except the goal.
+				List<Future<Route>> spurs = new ArrayList<Future<Route>>();
+				for (int i = 0; i < last.nodes.length - 1; i++) {
+					spurs.add(pool.submit(new SpurTask(last, i, accepted)));
+				}
+				
+				// Collect the results in spur order.
+				for (int i = 0; i < spurs.size(); i++) {
+					Route r = join(spurs.get(i));
+					if (r != null) {
+						candidates.add(r);
+					}
+				}
+				
+				// No more loopless paths.
+				if (candidates.isEmpty()) {
+					break;
+				}
+				
+				accepted.add(candidates.pollFirst());
+				
+			}
+			
+		} finally {
+			pool.shutdownNow();
+			Global.addNodesOpened(pendingOpened);
+			pendingOpened = 0;
+		}
+		
+		// Convert the routes to puzzle states.
+		for (int i = 0; i < accepted.size(); i++) {
+			result.add(accepted.get(i).toPath());
+		}
+		
+		return result;
+		
+	}
+	
+	/**
+	 * Helper function. Runs Dijkstra's algorithm backwards from the goal,
+	 * filling in the shortest distance from every vertex to the goal.
+	 */
+	private void buildTree() throws IllegalStateException {
+		
+		int n = graph.size();
+		int d = Math.max(graph.maxDegree(), 1);
+		int[] nodes = new int[d];
+		double[] costs = new double[d];
+		
+		toGoal = new double[n];
+		next = new int[n];
+		for (int i = 0; i < n; i++) {
+			toGoal[i] = INFINITY;
+			next[i] = -1;
+		}
+		
+		IndexedMinHeap open = new IndexedMinHeap(n);
+		toGoal[goal] = 0.0;
+		open.insert(goal, 0.0, 0.0);
+		
+		int opened = 0;
+		while (!open.isEmpty()) {
+			
+			// Have we timed out?
+			if (Global.isTimeUp()) {
+				throw new IllegalStateException("KShortestPaths.paths error: System timed out searching for a solution.");
+			}
+			
+			int v = open.pop();
+			opened++;
+			
+			int count = graph.predecessors(v, nodes, costs);
+			for (int i = 0; i < count; i++) {
+				double cost = toGoal[v] + costs[i];
+				if (cost < toGoal[nodes[i]]) {
+					toGoal[nodes[i]] = cost;
+					next[nodes[i]] = v;
+					open.update(nodes[i], cost, 0.0);
+				}
+			}
+			
+		}
+		
+		Global.addNodesOpened(opened);
+		
+	}
+	
+	/**
+	 * Helper function. Waits for a spur search to finish, passing on any
+	 * exception it threw.
+	 */
+	private Route join(Future<Route> future) throws IllegalStateException {
+		
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("KShortestPaths.paths error: Interrupted while searching for a solution.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException("KShortestPaths.paths error: " + e.getCause());
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Reads the shortest path off the shortest-path tree.
+	 */
+	private Route treePath() {
+		
+		List<Integer> path = new ArrayList<Integer>();
+		List<Double> cost = new ArrayList<Double>();
+		
+		// The tree distances give the cost still to go, so the cost so far
+		// is the total less the cost still to go.
+		for (int u = start; u != -1; u = next[u]) {
+			path.add(u);
+			cost.add(toGoal[start] - toGoal[u]);
+		}
+		
+		return new Route(path, cost);
+		
+	}
+	
+	/**
+	 * A path as an array of vertices and the cost from the start to each
+	 * vertex on it.
+	 * 
+	 * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+	 * @version 1.0 (29 Mar 2004)
+	 */
+	private class Route {
+		
+		// The vertices on the path, start first.
+		private int[] nodes;
+		
+		// The cost from the start to each vertex.
+		private double[] costs;
+		
+		/**
+		 * Standard constructor.
+		 * 
+		 * @param path the vertices on the path, start first.
+		 * @param cost the cost from the start to each vertex.
+		 */
+		public Route(List<Integer> path, List<Double> cost) {
+			
+			nodes = new int[path.size()];
+			costs = new double[path.size()];
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i] = path.get(i);
+				costs[i] = cost.get(i);
+			}
+			
+		}
+		
+		/**
+		 * Returns the total cost of the path.
+		 * 
+		 * @return the total cost.
+		 */
+		public double cost() {
+			
+			return costs[costs.length - 1];
+			
+		}
+		
+		/**
+		 * Tests whether the first <code>length</code> vertices of this path
+		 * are the same as those of another path.
+		 * 
+		 * @param other the other path.
+		 * @param length the number of vertices to compare.
+		 * @return <code>true</code> if the prefixes match, otherwise
+		 * <code>false</code>.
+		 */
+		public boolean sharesRoot(Route other, int length) {
+			
+			if (nodes.length < length || other.nodes.length < length) {
+				return false;
+			}
+			
+			for (int i = 0; i < length; i++) {
+				if (nodes[i] != other.nodes[i]) {
+					return false;
+				}
+			}
+			
+			return true;
+			
+		}
+		
+		/**
+		 * Converts the path to a list of puzzle states, goal first.
+		 * 
+		 * @return the path of puzzle states.
+		 */
+		public LinkedList<Object> toPath() {
+			
+			LinkedList<Object> path = new LinkedList<Object>();
+			PuzState state = null;
+			for (int i = 0; i < nodes.length; i++) {
+				state = graph.toState(nodes[i], (i == 0 ? 0.0 : costs[i] - costs[i - 1]), state);
+				path.addFirst(state);
+			}
+			
+			return path;
+			
+		}
+		
+	}
+	
+	/**
+	 * Orders candidate paths by cost, then by number of vertices, then by
+	 * vertex sequence. Two paths compare equal only if they are the same.
+	 * 
+	 * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+	 * @version 1.0 (29 Mar 2004)
+	 */
+	private class RouteComparator implements Comparator<Route> {
+		
+		/**
+		 * Compares two paths.
+		 * 
+		 * @param a the first path.
+		 * @param b the second path.
+		 * @return a negative integer, zero, or a positive integer as the
+		 * first path is less than, equal to, or greater than the second.
+		 */
+		public int compare(Route a, Route b) {
+			
+			if (a.cost() != b.cost()) {
+				return (a.cost() < b.cost() ? -1 : 1);
+			}
+			
+			if (a.nodes.length != b.nodes.length) {
+				return a.nodes.length - b.nodes.length;
+			}
+			
+			for (int i = 0; i < a.nodes.length; i++) {
+				if (a.nodes[i] != b.nodes[i]) {
+					return a.nodes[i] - b.nodes[i];
+				}
+			}
+			
+			return 0;
+			
+		}
+		
+	}
+	
+	/**
+	 * The A* search used for spur paths. Every array is indexed by vertex
+	 * and tagged with the number of the search that last wrote it, so
+	 * starting a new search costs nothing.
+	 * 
+	 * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+	 * @version 1.0 (29 Mar 2004)
+	 */
+	private class SpurSearch {
+		
+		// The current search number.
+		private int stamp;
+		
+		// The search number that last reached, closed or blocked each vertex.
+		private int[] reached;
+		private int[] closed;
+		private int[] blocked;
+		
+		// The cost from the spur vertex, and the parent, of each vertex.
+		private double[] g;
+		private int[] parent;
+		
+		// The open list.
+		private IndexedMinHeap open;
+		
+		// Neighbour buffers.
+		private int[] nodes;
+		private double[] costs;
+		
+		/**
+		 * No-arg constructor.
+		 */
+		public SpurSearch() {
+			
+			int n = graph.size();
+			int d = Math.max(graph.maxDegree(), 1);
+			
+			stamp = 0;
+			reached = new int[n];
+			closed = new int[n];
+			blocked = new int[n];
+			g = new double[n];
+			parent = new int[n];
+			open = new IndexedMinHeap(n);
+			nodes = new int[d];
+			costs = new double[d];
+			
+		}
+		
+		/**
+		 * Searches for the shortest path from the spur vertex of
+		 * <code>last</code> to the goal that avoids the root of the path
+		 * and every edge that an accepted path with the same root takes
+		 * out of the spur vertex.
+		 * 
+		 * @param last the path the spur leaves.
+		 * @param spur the index of the spur vertex on the path.
+		 * @param accepted the paths accepted so far.
+		 * @return the root joined with the spur path, or <code>null</code> if
+		 * there is no spur path.
+		 */
+		public Route search(Route last, int spur, List<Route> accepted) {
+			
+			stamp++;
+			int opened = 0;
+			
+			// Block the root of the path, except for the spur vertex.
+			for (int i = 0; i < spur; i++) {
+				blocked[last.nodes[i]] = stamp;
+			}
+			
+			// Collect the next vertices that accepted paths with the
+			// same root take out of the spur vertex.
+			int[] banned = new int[accepted.size()];
+			int bannedCount = 0;
+			for (int i = 0; i < accepted.size(); i++) {
+				Route r = accepted.get(i);
+				if (r.sharesRoot(last, spur + 1) && r.nodes.length > spur + 1) {
+					banned[bannedCount++] = r.nodes[spur + 1];
+				}
+			}
+			
+			int source = last.nodes[spur];
+			reached[source] = stamp;
+			g[source] = 0.0;
+			parent[source] = -1;
+			open.insert(source, toGoal[source], 0.0);
+			
+			boolean found = false;
+			while (!open.isEmpty()) {
+				
+				// Have we timed out?
+				if (Global.isTimeUp()) {
+					clear();
+					throw new IllegalStateException("KShortestPaths.paths error: System timed out searching for a solution.");
+				}
+				
+				int u = open.pop();
+				closed[u] = stamp;
+				opened++;
+				
+				if (u == goal) {
+					found = true;
+					break;
+				}
+				
+				int count = graph.successors(u, nodes, costs);
+				for (int i = 0; i < count; i++) {
+					
+					int v = nodes[i];
+					
+					// Skip blocked vertices and vertices that cannot reach the goal.
+					if (blocked[v] == stamp || closed[v] == stamp || toGoal[v] == INFINITY) {
+						continue;
+					}
+					
+					// Skip edges out of the spur vertex already used by an
+					// accepted path with this root.
+					if (u == source && isBanned(v, banned, bannedCount)) {
+						continue;
+					}
+					
+					double cost = g[u] + costs[i];
+					if (reached[v] != stamp || cost < g[v]) {
+						reached[v] = stamp;
+						g[v] = cost;
+						parent[v] = u;
+						open.update(v, cost + toGoal[v], -cost);
+					}
+					
+				}
+				
+			}
+			
+			clear();
+			synchronized (KShortestPaths.this) {
+				pendingOpened += opened;
+			}
+			
+			if (!found) {
+				return null;
+			}
+			
+			// Join the root and the spur path.
+			List<Integer> path = new ArrayList<Integer>();
+			List<Double> cost = new ArrayList<Double>();
+			for (int i = 0; i < spur; i++) {
+				path.add(last.nodes[i]);
+				cost.add(last.costs[i]);
+			}
+			
+			LinkedList<Integer> tail = new LinkedList<Integer>();
+			for (int v = goal; v != -1; v = parent[v]) {
+				tail.addFirst(v);
+			}
+			
+			double base = last.costs[spur];
+			for (int i = 0; i < tail.size(); i++) {
+				int v = tail.get(i);
+				path.add(v);
+				cost.add(base + g[v]);
+			}
+			
+			return new Route(path, cost);
+			
+		}
+		
+		/**
+		 * Helper function. Empties the open list after a search.
+		 */
+		private void clear() {
+			
+			while (!open.isEmpty()) {
+				open.pop();
+			}
+			
+		}
+		
+		/**
+		 * Helper function. Tests whether a vertex is in the banned list.
+		 */
+		private boolean isBanned(int v, int[] banned, int count) {
+			
+			for (int i = 0; i < count; i++) {
+				if (banned[i] == v) {
+					return true;
+				}
+			}
+			
+			return false;
+			
+		}
+		
+	}
+	
+	/**
+	 * A spur search submitted to the worker threads.
+	 * 
+	 * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+	 * @version 1.0 (29 Mar 2004)
+	 */
+	private class SpurTask implements Callable<Route> {
+		
+		// The path the spur leaves, the spur index and the accepted paths.
+		private Route last;
+		private int spur;
+		private List<Route> accepted;
+		
+		/**
+		 * Standard constructor.
+		 * 
+		 * @param last the path the spur leaves.
+		 * @param spur the index of the spur vertex on the path.
+		 * @param accepted the paths accepted so far.
+		 */
+		public SpurTask(Route last, int spur, List<Route> accepted) {
+			
+			this.last = last;
+			this.spur = spur;
+			this.accepted = accepted;
+			
+		}
+		
+		/**
+		 * Runs the spur search on the current worker thread's arrays.
+		 * 
+		 * @return the root joined with the spur path, or <code>null</code>.
+		 */
+		public Route call() {
+			
+			return searches.get().search(last, spur, accepted);
+			
+		}
+		
+	}
+	
+}
@@ -0,0 +1,296 @@
+package com.michaelzanussi.astar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a (possibly very large) ASCII file through a memory-mapped NIO
+ * buffer. The file is mapped one window at a time, so files larger than
+ * a single mapping can be read. <p>
+ * 
+ * Unlike <code>TextFileReader</code>, no <code>String</code> is built for
+ * each line. Numbers are parsed straight out of the mapped bytes by
+ * <code>readInt()</code> and <code>readLong()</code>, which is what makes
+ * loading graph files with millions of edges practical.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class MappedFileReader implements BasicIO {
+	
+	/**
+	 * Returned by <code>read()</code> and <code>peek()</code> at end of file.
+	 */
+	public static final int EOF = -1;
+	
+	// Size of each mapped window of the file.
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+	
+	// The file channel.
+	private FileChannel channel;
+	
+	// The currently mapped window, and its offset within the file.
+	private MappedByteBuffer window;
+	private long offset;
+	
+	// The length of the file.
+	private long length;
+	
+	/**
+	 * No-arg constructor.
+	 */
+	public MappedFileReader() {
+		
+		channel = null;
+		window = null;
+		offset = 0;
+		length = 0;
+		
+	}
+	
+	/**
+	 * Closes the file reader.
+	 */
+	public void close() {
+		
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (IOException e) {
+			System.err.println("ERROR: " + e.getMessage());
+		}
+		
+		channel = null;
+		window = null;
+		
+	}
+	
+	/**
+	 * Opens the specified file for reading and maps its first window.
+	 * 
+	 * @param file the file to open.
+	 * @return <code>true</code> if successful.
+	 */
+	public boolean open(File file) {
+		
+		try {
+			
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				channel = raf.getChannel();
+				length = channel.size();
+				offset = 0;
+				window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(length, WINDOW_SIZE));
+			} catch (IOException e) {
+				// Don't leak the file if it can't be mapped.
+				raf.close();
+				channel = null;
+				throw e;
+			}
+			
+			return true;
+			
+		} catch (IOException e) {
+			System.err.println("ERROR: " + e.getMessage());
+		}
+		
+		return false;
+		
+	}
+	
+	/**
+	 * Returns the next byte of the file without consuming it.
+	 * 
+	 * @return the next byte, or <code>EOF</code> at end of file.
+	 */
+	public int peek() {
+		
+		if (!window.hasRemaining() && !nextWindow()) {
+			return EOF;
+		}
+		
+		return window.get(window.position()) & 0xFF;
+		
+	}
+	
+	/**
+	 * Reads and returns the next byte of the file.
+	 * 
+	 * @return the next byte, or <code>EOF</code> at end of file.
+	 */
+	public int read() {
+		
+		if (!window.hasRemaining() && !nextWindow()) {
+			return EOF;
+		}
+		
+		return window.get() & 0xFF;
+		
+	}
+	
+	/**
+	 * Reads an integer, skipping any spaces or tabs before it.
+	 * 
+	 * @return the integer read.
+	 * @throws ParsingException If no integer is found, or it is out of range.
+	 */
+	public int readInt() throws ParsingException {
+		
+		long value = readLong();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw new ParsingException("MappedFileReader.readInt error: Integer out of range: " + value);
+		}
+		
+		return (int)value;
+		
+	}
+	
+	/**
+	 * Reads a long integer, skipping any spaces or tabs before it. A
+	 * leading minus sign is allowed.
+	 * 
+	 * @return the long integer read.
+	 * @throws ParsingException If no integer is found, or it is out of
+	 * range.
+	 */
+	public long readLong() throws ParsingException {
+		
+		// Skip blanks on the current line.
+		int ch = read();
+		while (ch == ' ' || ch == '\t') {
+			ch = read();
+		}
+		
+		// Optional sign.
+		boolean negative = (ch == '-');
+		if (negative) {
+			ch = read();
+		}
+		
+		// There must be at least one digit.
+		if (ch < '0' || ch > '9') {
+			throw new ParsingException("MappedFileReader.readLong error: Expected a digit but received '" + (ch == EOF ? "EOF" : String.valueOf((char)ch)) + "'.");
+		}
+		
+		// Accumulate the digits, stopping before the value overflows.
+		long value = 0;
+		while (ch >= '0' && ch <= '9') {
+			if (value > (Long.MAX_VALUE - 9) / 10) {
+				throw new ParsingException("MappedFileReader.readLong error: Integer out of range.");
+			}
+			value = (value * 10) + (ch - '0');
+			ch = read();
+		}
+		
+		// Leave the character that ended the number for the caller.
+		if (ch != EOF) {
+			unread();
+		}
+		
+		return (negative ? -value : value);
+		
+	}
+	
+	/**
+	 * Reads a word (a run of characters other than spaces, tabs and line
+	 * terminators), skipping any spaces or tabs before it. Meant for the
+	 * keywords and names of a file, not for bulk data.
+	 * 
+	 * @return the word read.
+	 * @throws ParsingException If no word is found before the end of the line.
+	 */
+	public String readWord() throws ParsingException {
+		
+		// Skip blanks on the current line.
+		int ch = read();
+		while (ch == ' ' || ch == '\t') {
+			ch = read();
+		}
+		
+		// Accumulate the characters of the word.
+		StringBuilder word = new StringBuilder();
+		while (ch != ' ' && ch != '\t' && ch != '\r' && ch != '\n' && ch != EOF) {
+			word.append((char)ch);
+			ch = read();
+		}
+		
+		// Leave the character that ended the word for the caller.
+		if (ch != EOF) {
+			unread();
+		}
+		
+		if (word.length() == 0) {
+			throw new ParsingException("MappedFileReader.readWord error: Expected a word but received '" + (ch == EOF ? "EOF" : "end of line") + "'.");
+		}
+		
+		return word.toString();
+		
+	}
+	
+	/**
+	 * Skips the rest of the current line, including the line terminator.
+	 */
+	public void skipLine() {
+		
+		int ch = read();
+		while (ch != '\n' && ch != EOF) {
+			ch = read();
+		}
+		
+	}
+	
+	/**
+	 * Skips spaces, tabs and line terminators.
+	 * 
+	 * @return the next byte (not consumed), or <code>EOF</code> at end of file.
+	 */
+	public int skipWhitespace() {
+		
+		int ch = peek();
+		while (ch == ' ' || ch == '\t' || ch == '\r' || ch == '\n') {
+			read();
+			ch = peek();
+		}
+		
+		return ch;
+		
+	}
+	
+	/**
+	 * Helper function. Maps the window following the current one,
+	 * returning <code>false</code> at end of file.
+	 */
+	private boolean nextWindow() {
+		
+		long next = offset + window.limit();
+		if (next >= length) {
+			return false;
+		}
+		
+		try {
+			window = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(length - next, WINDOW_SIZE));
+			offset = next;
+		} catch (IOException e) {
+			System.err.println("ERROR: " + e.getMessage());
+			return false;
+		}
+		
+		return true;
+		
+	}
+	
+	/**
+	 * Helper function. Steps back over the byte just read. The byte
+	 * just read always lies in the current window.
+	 */
+	private void unread() {
+		
+		window.position(window.position() - 1);
+		
+	}
+	
+}
@@ -0,0 +1,260 @@
+package com.michaelzanussi.astar;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads grid maps and scenario lists in the format of the Moving AI Lab
+ * path-finding benchmarks. The files are read through a
+ * <code>MappedFileReader</code>, and each row of a map is decoded byte by
+ * byte straight into a <code>CostMap</code>, so no token or string is
+ * created per cell. Example map (<tt>.map</tt>) and scenario
+ * (<tt>.scen</tt>) files: <p>
+ * 
+ * <pre>
+ * type octile
+ * height 3
+ * width 5
+ * map
+ * ..@..
+ * ..@..
+ * .....
+ * 
+ * version 1
+ * 0	example.map	5	3	0	0	4	0	5.41421356
+ * </pre>
+ * 
+ * In a map, <tt>.</tt>, <tt>G</tt> and <tt>S</tt> are passable at the
+ * default cost; <tt>@</tt>, <tt>O</tt>, <tt>T</tt> and <tt>W</tt> are
+ * blocked. Each scenario line gives a bucket, the map name, the map width
+ * and height, the start and goal coordinates, and the optimal path cost.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class MovingAIFileReader {
+	
+	/**
+	 * Loads a grid map.
+	 * 
+	 * @param mapFile the map (<tt>.map</tt>) file.
+	 * @return the cost map, with the blocked cells marked.
+	 * @throws ParsingException If the file cannot be read or is malformed.
+	 */
+	public static CostMap readMap(File mapFile) throws ParsingException {
+		
+		MappedFileReader reader = open(mapFile);
+		
+		try {
+			
+			// Read the header: type, height and width in any order, then "map".
+			int width = -1;
+			int height = -1;
+			String word = reader.readWord();
+			while (!word.equals("map")) {
+				if (word.equals("type")) {
+					reader.readWord();
+				} else if (word.equals("height")) {
+					height = reader.readInt();
+				} else if (word.equals("width")) {
+					width = reader.readInt();
+				} else {
+					throw new ParsingException("MovingAIFileReader.readMap error: Unknown header line '" + word + "' in " + mapFile + ".");
+				}
+				reader.skipWhitespace();
+				word = reader.readWord();
+			}
+			reader.skipLine();
+			
+			if (width <= 0 || height <= 0) {
+				throw new ParsingException("MovingAIFileReader.readMap error: Missing or invalid width and height in " + mapFile + ".");
+			}
+			
+			// Decode the rows.
+			CostMap map = new CostMap(width, height, 0);
+			for (int y = 0; y < height; y++) {
+				
+				for (int x = 0; x < width; x++) {
+					
+					int ch = reader.read();
+					switch (ch) {
+						case '.':
+						case 'G':
+						case 'S':
+							break;
+						case '@':
+						case 'O':
+						case 'T':
+						case 'W':
+							map.setBlocked(x, y, true);
+							break;
+						default:
+							throw new ParsingException("MovingAIFileReader.readMap error: Invalid cell '" + (ch == MappedFileReader.EOF ? "EOF" : String.valueOf((char)ch)) + "' at " + x + "," + y + " in " + mapFile + ".");
+					}
+					
+				}
+				
+				// Skip the line terminator.
+				reader.skipLine();
+				
+			}
+			
+			return map;
+			
+		} finally {
+			reader.close();
+		}
+		
+	}
+	
+	/**
+	 * Loads a scenario list.
+	 * 
+	 * @param scenFile the scenario (<tt>.scen</tt>) file.
+	 * @param map the map the scenarios were written for.
+	 * @return the scenarios, in file order.
+	 * @throws ParsingException If the file cannot be read or is malformed,
+	 * or a scenario was written for a map of another size.
+	 */
+	public static List<Scenario> readScenarios(File scenFile, CostMap map) throws ParsingException {
+		
+		MappedFileReader reader = open(scenFile);
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		
+		try {
+			
+			int ch = reader.skipWhitespace();
+			while (ch != MappedFileReader.EOF) {
+				
+				// Version line.
+				if (ch == 'v') {
+					reader.skipLine();
+				}
+				
+				// Scenario line: BUCKET MAP WIDTH HEIGHT SX SY GX GY OPTIMAL
+				else {
+					
+					reader.readInt();
+					reader.readWord();
+					int width = reader.readInt();
+					int height = reader.readInt();
+					if (width != map.getWidth() || height != map.getHeight()) {
+						throw new ParsingException("MovingAIFileReader.readScenarios error: Scenario " + (scenarios.size() + 1) + " is for a " + width + " x " + height + " map, not " + map.getWidth() + " x " + map.getHeight() + ".");
+					}
+					
+					int sx = reader.readInt();
+					int sy = reader.readInt();
+					int gx = reader.readInt();
+					int gy = reader.readInt();
+					String optimal = reader.readWord();
+					
+					scenarios.add(new Scenario(sx, sy, gx, gy, optimal));
+					reader.skipLine();
+					
+				}
+				
+				ch = reader.skipWhitespace();
+				
+			}
+			
+		} finally {
+			reader.close();
+		}
+		
+		return scenarios;
+		
+	}
+	
+	/**
+	 * Helper function. Opens a file for mapped reading.
+	 */
+	private static MappedFileReader open(File file) throws ParsingException {
+		
+		MappedFileReader reader = new MappedFileReader();
+		if (!reader.open(file)) {
+			throw new ParsingException("MovingAIFileReader.open error: Unable to read file " + file + ".");
+		}
+		
+		return reader;
+		
+	}
+	
+	/**
+	 * A single scenario: a start and goal cell, and the optimal cost
+	 * between them as given in the file.
+	 */
+	public static class Scenario {
+		
+		// The start and goal coordinates.
+		private int startX;
+		private int startY;
+		private int goalX;
+		private int goalY;
+		
+		// The optimal cost, as written in the file.
+		private String optimal;
+		
+		/**
+		 * Standard constructor.
+		 * 
+		 * @param startX the start <tt>x</tt> coordinate.
+		 * @param startY the start <tt>y</tt> coordinate.
+		 * @param goalX the goal <tt>x</tt> coordinate.
+		 * @param goalY the goal <tt>y</tt> coordinate.
+		 * @param optimal the optimal cost.
+		 */
+		public Scenario(int startX, int startY, int goalX, int goalY, String optimal) {
+			
+			this.startX = startX;
+			this.startY = startY;
+			this.goalX = goalX;
+			this.goalY = goalY;
+			this.optimal = optimal;
+			
+		}
+		
+		/**
+		 * Returns the goal coordinates.
+		 * 
+		 * @return the goal <tt>x</tt> and <tt>y</tt> coordinates.
+		 */
+		public List<Integer> getGoal() {
+			
+			List<Integer> goal = new ArrayList<Integer>();
+			goal.add(goalX);
+			goal.add(goalY);
+			
+			return goal;
+			
+		}
+		
+		/**
+		 * Returns the optimal cost, as written in the file.
+		 * 
+		 * @return the optimal cost.
+		 */
+		public String getOptimal() {
+			
+			return optimal;
+			
+		}
+		
+		/**
+		 * Returns the start coordinates.
+		 * 
+		 * @return the start <tt>x</tt> and <tt>y</tt> coordinates.
+		 */
+		public List<Integer> getStart() {
+			
+			List<Integer> start = new ArrayList<Integer>();
+			start.add(startX);
+			start.add(startY);
+			
+			return start;
+			
+		}
+		
+	}
+	
+}
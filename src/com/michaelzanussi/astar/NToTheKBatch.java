@@ -0,0 +1,373 @@
+package com.michaelzanussi.astar;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves a list of <code>NToTheKPuzzle</code> instances that share a goal
+ * board, such as Korf's 100 random 15-puzzles, side by side on several
+ * threads. The pattern databases are made once and shared by every
+ * search, as they are only read while searching. Each instance is solved
+ * by a search of its own, whose counts are kept apart from the others'
+ * rather than reported through <code>Global</code>, so the result of each
+ * is read back by its place in the list, whatever order they finish in.
+ * <p>
+ *
+ * An instance file lists one start board per line, as the tiles of its
+ * cells in order, separated by spaces or tabs. A line may begin with the
+ * number of the instance, which is ignored; blank lines and lines
+ * beginning with <tt>#</tt> are skipped. Example (two 8-puzzles): <p>
+ *
+ * <pre>
+ * # Two 8-puzzles
+ * 1  8 6 7 2 5 4 3 0 1
+ * 2  1 2 3 4 5 6 0 7 8
+ * </pre>
+ *
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004)
+ */
+public final class NToTheKBatch {
+
+	// The instances, each ready to search until it has been solved.
+	private NToTheKPuzzle[] puzzles;
+
+	// The path, boards opened and closed, and time in milliseconds of each
+	// instance once solved.
+	private List<LinkedList<Object>> paths;
+	private int[] nodesOpened;
+	private int[] nodesClosed;
+	private long[] times;
+
+	// The number of worker threads.
+	private int threads;
+
+	// Whether the instances have been solved.
+	private boolean solved;
+
+	/**
+	 * Standard constructor.
+	 *
+	 * @param side the number of cells along each side of the board.
+	 * @param dims the number of sides of the board.
+	 * @param starts the start board of each instance, giving the tile in
+	 * each cell.
+	 * @param goal the goal board, giving the tile in each cell.
+	 * @throws NullPointerException If no start boards or goal board were
+	 * specified.
+	 * @throws IllegalArgumentException If there are no start boards, or a
+	 * board does not fit the shape.
+	 */
+	public NToTheKBatch(int side, int dims, List<int[]> starts, int[] goal) throws NullPointerException, IllegalArgumentException {
+
+		if (starts == null || goal == null) {
+			throw new NullPointerException("NToTheKBatch.NToTheKBatch error: The start and goal boards cannot be null.");
+		}
+
+		if (starts.isEmpty()) {
+			throw new IllegalArgumentException("NToTheKBatch.NToTheKBatch error: There must be at least one start board.");
+		}
+
+		// Check every board before any is searched.
+		puzzles = new NToTheKPuzzle[starts.size()];
+		for (int i = 0; i < puzzles.length; i++) {
+			try {
+				puzzles[i] = new NToTheKPuzzle(side, dims, starts.get(i), goal);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("NToTheKBatch.NToTheKBatch error: Instance " + (i + 1) + ": " + e.getMessage());
+			}
+			puzzles[i].setReporting(false);
+		}
+
+		paths = new ArrayList<LinkedList<Object>>(puzzles.length);
+		for (int i = 0; i < puzzles.length; i++) {
+			paths.add(null);
+		}
+		nodesOpened = new int[puzzles.length];
+		nodesClosed = new int[puzzles.length];
+		times = new long[puzzles.length];
+		threads = Runtime.getRuntime().availableProcessors();
+		solved = false;
+
+	}
+
+	/**
+	 * Reads the start boards listed in an instance file.
+	 *
+	 * @param file the instance file.
+	 * @param cells the number of cells of each board.
+	 * @return the start boards, in file order.
+	 * @throws ParsingException If the file cannot be read, or a line does
+	 * not hold a board of that many cells.
+	 */
+	public static List<int[]> readInstances(File file, int cells) throws ParsingException {
+
+		MappedFileReader reader = new MappedFileReader();
+		if (!reader.open(file)) {
+			throw new ParsingException("NToTheKBatch.readInstances error: Unable to read file " + file + ".");
+		}
+
+		List<int[]> starts = new ArrayList<int[]>();
+		int[] line = new int[cells + 1];
+
+		try {
+
+			int ch = reader.skipWhitespace();
+			while (ch != MappedFileReader.EOF) {
+
+				// Comment line.
+				if (ch == '#') {
+					reader.skipLine();
+				}
+
+				// Board line: an optional instance number, then the tiles.
+				else {
+
+					int count = 0;
+					while (ch != '\r' && ch != '\n' && ch != MappedFileReader.EOF) {
+						if (count == line.length) {
+							throw new ParsingException("NToTheKBatch.readInstances error: Instance " + (starts.size() + 1) + " has more numbers than an instance number and " + cells + " cells.");
+						}
+						line[count++] = reader.readInt();
+						ch = reader.peek();
+						while (ch == ' ' || ch == '\t') {
+							reader.read();
+							ch = reader.peek();
+						}
+					}
+
+					if (count < cells) {
+						throw new ParsingException("NToTheKBatch.readInstances error: Instance " + (starts.size() + 1) + " has " + count + " cells but should have " + cells + ".");
+					}
+
+					int[] board = new int[cells];
+					System.arraycopy(line, count - cells, board, 0, cells);
+					starts.add(board);
+
+				}
+
+				ch = reader.skipWhitespace();
+
+			}
+
+		} finally {
+			reader.close();
+		}
+
+		if (starts.isEmpty()) {
+			throw new ParsingException("NToTheKBatch.readInstances error: " + file + " lists no instances.");
+		}
+
+		return starts;
+
+	}
+
+	/**
+	 * Returns the number of boards closed solving an instance.
+	 *
+	 * @param i the instance, from <tt>0</tt>.
+	 * @return the number of boards closed.
+	 */
+	public int getNodesClosed(int i) {
+
+		return nodesClosed[i];
+
+	}
+
+	/**
+	 * Returns the number of boards opened solving an instance.
+	 *
+	 * @param i the instance, from <tt>0</tt>.
+	 * @return the number of boards opened.
+	 */
+	public int getNodesOpened(int i) {
+
+		return nodesOpened[i];
+
+	}
+
+	/**
+	 * Returns the path found for an instance, with the goal board first,
+	 * as returned by <code>NToTheKPuzzle.path()</code>.
+	 *
+	 * @param i the instance, from <tt>0</tt>.
+	 * @return the path, or <code>null</code> if the goal cannot be reached.
+	 */
+	public LinkedList<Object> getPath(int i) {
+
+		return paths.get(i);
+
+	}
+
+	/**
+	 * Returns the number of instances.
+	 *
+	 * @return the number of instances.
+	 */
+	public int getSize() {
+
+		return puzzles.length;
+
+	}
+
+	/**
+	 * Returns the time spent solving an instance.
+	 *
+	 * @param i the instance, from <tt>0</tt>.
+	 * @return the time in milliseconds.
+	 */
+	public long getTime(int i) {
+
+		return times[i];
+
+	}
+
+	/**
+	 * Sets the pattern databases every instance adds to the Manhattan
+	 * distance.
+	 *
+	 * @param patterns the pattern databases.
+	 * @throws IllegalArgumentException If a database was made for another
+	 * board or goal, or two share a tile.
+	 * @throws IllegalStateException If the batch has already been solved.
+	 */
+	public void setPatterns(PatternDatabase[] patterns) throws IllegalArgumentException, IllegalStateException {
+
+		if (solved) {
+			throw new IllegalStateException("NToTheKBatch.setPatterns error: The batch has already been solved.");
+		}
+
+		for (int i = 0; i < puzzles.length; i++) {
+			puzzles[i].setPatterns(patterns);
+		}
+
+	}
+
+	/**
+	 * Solves every instance, as many at once as there are threads. The
+	 * totals of the boards opened and closed are then reported through
+	 * <code>Global</code>.
+	 *
+	 * @throws IllegalStateException If the system times out searching for
+	 * a path, or the batch has already been solved.
+	 * @throws IndexOutOfBoundsException If a bound has been exceeded by
+	 * any instance.
+	 */
+	public void solve() throws IllegalStateException, IndexOutOfBoundsException {
+
+		if (solved) {
+			throw new IllegalStateException("NToTheKBatch.solve error: The batch has already been solved.");
+		}
+		solved = true;
+
+		ExecutorService pool = (threads > 1 && puzzles.length > 1 ? Executors.newFixedThreadPool(Math.min(threads, puzzles.length)) : null);
+		try {
+
+			if (pool == null) {
+				for (int i = 0; i < puzzles.length; i++) {
+					new SolveTask(i).call();
+				}
+			} else {
+
+				// The instances are taken up in order as threads come free;
+				// the first failure, in instance order, is the one reported.
+				List<Future<Object>> tasks = new ArrayList<Future<Object>>();
+				for (int i = 0; i < puzzles.length; i++) {
+					tasks.add(pool.submit(new SolveTask(i)));
+				}
+				for (int i = 0; i < tasks.size(); i++) {
+					join(tasks.get(i));
+				}
+
+			}
+
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+
+		// Report the totals.
+		int opened = 0;
+		int closed = 0;
+		for (int i = 0; i < nodesOpened.length; i++) {
+			opened += nodesOpened[i];
+			closed += nodesClosed[i];
+		}
+		Global.addNodesOpened(opened);
+		Global.setNodesClosed(closed);
+
+	}
+
+	/**
+	 * Helper function. Waits for a task and returns its result.
+	 */
+	private static <T> T join(Future<T> future) throws IllegalStateException {
+
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("NToTheKBatch.solve error: Interrupted while solving.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException("NToTheKBatch.solve error: " + e.getCause());
+		}
+
+	}
+
+	/**
+	 * This inner class solves one instance and keeps its results. The
+	 * search itself is dropped once solved, so only the instances being
+	 * searched hold their boards in memory.
+	 */
+	private class SolveTask implements Callable<Object> {
+
+		// The instance.
+		private int i;
+
+		/**
+		 * Standard constructor.
+		 *
+		 * @param i the instance, from <tt>0</tt>.
+		 */
+		public SolveTask(int i) {
+
+			this.i = i;
+
+		}
+
+		/**
+		 * Solves the instance.
+		 *
+		 * @return <code>null</code>.
+		 */
+		public Object call() {
+
+			NToTheKPuzzle puzzle = puzzles[i];
+			puzzles[i] = null;
+
+			long begin = System.currentTimeMillis();
+			LinkedList<Object> path = puzzle.path();
+			times[i] = System.currentTimeMillis() - begin;
+
+			paths.set(i, path);
+			nodesOpened[i] = puzzle.getNodesOpened();
+			nodesClosed[i] = puzzle.getNodesClosed();
+
+			return null;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,966 @@
+package com.michaelzanussi.astar;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * The <code>NToTheKPuzzle</code> class solves the sliding-tile puzzles of
+ * the N to the K family (the 8-, 15- and 24-puzzles among them) by an A*
+ * search over packed boards. A board of <tt>N</tt> cells a side in
+ * <tt>K</tt> dimensions holds the tiles <tt>1</tt> to <tt>N^K - 1</tt> and
+ * one blank, written <tt>0</tt>; a move slides a tile next to the blank
+ * into it, along any one side. Cells are numbered row by row, then plane
+ * by plane, so a cell's coordinate along side <tt>d</tt> is
+ * <tt>(cell / N^d) % N</tt>. A board of one row (<tt>K = 1</tt>) is also
+ * allowed. <p>
+ * 
+ * Each board is packed into as few <code>long</code> words as hold one
+ * tile per cell, with just enough bits per tile for the number of cells
+ * (one word for the 8- and 15-puzzles, three for the 24-puzzle). Boards
+ * are kept in flat arrays with their cost, heuristic, parent and blank
+ * cell, and found again through an open-addressing hash table of board
+ * numbers, so the search allocates no objects per state. The blank is
+ * tracked rather than searched for, so the moves of a board are found in
+ * constant time, and its Manhattan distance is updated from its parent's
+ * by the one tile that moved. The cells next to each cell are worked out
+ * once, so a board of any number of sides is expanded by the same loop. <p>
+ * 
+ * As every move costs one and the Manhattan distance is monotonic, the
+ * open list is a stack of boards for each total cost; taking the top of
+ * the lowest stack expands the deepest of the boards found last, which
+ * runs straight along the plateaus of equal cost. A board is never
+ * reopened, and the move straight back to the parent is never made. <p>
+ * 
+ * Disjoint <code>PatternDatabase</code>s may be set to raise the estimate:
+ * the excess of each over the Manhattan distance of its tiles is added.
+ * Only the database holding the moved tile is looked up again per move. <p>
+ * 
+ * Before any search, the start board is checked against the goal board.
+ * Each move swaps the blank with a tile next to it, so on a board of two
+ * or more sides the parity of the permutation taking one board to the other must match
+ * the parity of the distance between their blanks; on a single row the
+ * tiles never pass one another, so they must be in the same order. A
+ * start board that fails is answered at once with no path, rather than
+ * by searching the half of the boards it can reach.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public final class NToTheKPuzzle implements PuzzleEngine {
+	
+	// The number of boards room is first made for.
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	
+	// An empty hash table slot.
+	private static final int EMPTY = -1;
+	
+	// The most cells a board may have.
+	private static final int MAX_CELLS = 1 << 12;
+	
+	// The number of cells a side, the number of sides, and the number of
+	// cells.
+	private int side;
+	private int dims;
+	private int cells;
+	
+	// The cells next to each cell.
+	private int[][] neighbours;
+	
+	// The start and goal boards, tile by cell.
+	private int[] start;
+	private int[] goal;
+	
+	// The bits per tile, tiles per word, words per board, and tile mask.
+	private int bits;
+	private int perWord;
+	private int words;
+	private long mask;
+	
+	// The goal board, packed.
+	private long[] goalBoard;
+	
+	// The Manhattan distance of each tile from its goal cell, by
+	// (tile * cells) + cell. The blank is not counted.
+	private int[] manhattan;
+	
+	// The boards found, packed one after another, and the cost, heuristic,
+	// parent and blank cell of each. A board is closed once expanded.
+	private long[] boards;
+	private int[] g;
+	private int[] h;
+	private int[] parent;
+	private int[] blank;
+	private boolean[] closed;
+	private int size;
+	
+	// The hash table of board numbers, always at most half full.
+	private int[] table;
+	
+	// The open list: a stack of board numbers for each total cost. A board
+	// whose cost has since dropped is left in its old stack and skipped.
+	private int[][] stacks;
+	private int[] heights;
+	private int lowest;
+	private int open;
+	
+	// The pattern databases added to the Manhattan distance, if any, the
+	// database holding each tile (or -1), and the cell of each tile of the
+	// board being expanded.
+	private PatternDatabase[] patterns;
+	private int[] patternOf;
+	private int[] where;
+	
+	// A board being built.
+	private long[] scratch;
+	
+	// Whether the goal board can be reached from the start board.
+	private boolean solvable;
+	
+	// Whether the search reports through Global, and the boards it opened
+	// and closed.
+	private boolean reporting;
+	private int nodesOpened;
+	private int nodesClosed;
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param side the number of cells along each side of the board.
+	 * @param dims the number of sides: <tt>1</tt> for a single row,
+	 * <tt>2</tt> for a square board, <tt>3</tt> for a cube, and so on.
+	 * @param start the start board, giving the tile in each cell.
+	 * @param goal the goal board, giving the tile in each cell.
+	 * @throws NullPointerException If no start or goal board was specified.
+	 * @throws IllegalArgumentException If a board does not fit the shape,
+	 * holds a tile too large for it or twice, or has no blank, or the shape
+	 * has too many cells.
+	 */
+	public NToTheKPuzzle(int side, int dims, int[] start, int[] goal) throws NullPointerException, IllegalArgumentException {
+		
+		if (start == null || goal == null) {
+			throw new NullPointerException("NToTheKPuzzle.NToTheKPuzzle error: The start and goal boards cannot be null.");
+		}
+		
+		if (side < 2 || dims < 1) {
+			throw new IllegalArgumentException("NToTheKPuzzle.NToTheKPuzzle error: The board must have at least 1 side of at least 2 cells. Side = " + side + ", Dimensions = " + dims);
+		}
+		
+		long count = 1;
+		for (int d = 0; d < dims && count <= MAX_CELLS; d++) {
+			count *= side;
+		}
+		if (count > MAX_CELLS) {
+			throw new IllegalArgumentException("NToTheKPuzzle.NToTheKPuzzle error: Boards of more than " + MAX_CELLS + " cells are not supported. Side = " + side + ", Dimensions = " + dims);
+		}
+		
+		this.side = side;
+		this.dims = dims;
+		this.cells = (int)count;
+		this.neighbours = neighbours(side, dims);
+		
+		checkBoard(start, "start");
+		checkBoard(goal, "goal");
+		this.start = start.clone();
+		this.goal = goal.clone();
+		
+		// Pack as many tiles into each word as will fit whole.
+		bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(cells - 1));
+		perWord = 64 / bits;
+		words = (cells + perWord - 1) / perWord;
+		mask = (1L << bits) - 1;
+		
+		goalBoard = new long[words];
+		pack(this.goal, goalBoard);
+		
+		// The distance of every tile in every cell from its goal cell.
+		manhattan = new int[cells * cells];
+		for (int cell = 0; cell < cells; cell++) {
+			int tile = this.goal[cell];
+			if (tile == 0) {
+				continue;
+			}
+			for (int i = 0; i < cells; i++) {
+				manhattan[(tile * cells) + i] = distance(side, dims, i, cell);
+			}
+		}
+		
+		scratch = new long[words];
+		patterns = new PatternDatabase[0];
+		patternOf = new int[cells];
+		Arrays.fill(patternOf, -1);
+		where = new int[cells];
+		
+		solvable = checkParity();
+		reporting = true;
+		
+	}
+	
+	/**
+	 * Returns the number of cells on the board.
+	 * 
+	 * @return the number of cells.
+	 */
+	public int getCells() {
+		
+		return cells;
+		
+	}
+	
+	/**
+	 * Returns the coordinates of a cell, column first, as used in the
+	 * move sequence. For example: <tt>2,0</tt>, or <tt>2,0,1</tt> on a cube.
+	 * 
+	 * @param cell the cell.
+	 * @return the coordinates of the cell.
+	 */
+	public String getCoordinates(int cell) {
+		
+		StringBuffer sb = new StringBuffer();
+		for (int d = 0; d < dims; d++) {
+			if (d > 0) {
+				sb.append(",");
+			}
+			sb.append(cell % side);
+			cell /= side;
+		}
+		
+		return sb.toString();
+		
+	}
+	
+	/**
+	 * Returns the number of sides of the board.
+	 * 
+	 * @return <tt>1</tt> for a single row, <tt>2</tt> for a square board,
+	 * and so on.
+	 */
+	public int getDims() {
+		
+		return dims;
+		
+	}
+	
+	/**
+	 * Returns the Manhattan distance of a board from the goal: the number of
+	 * moves each tile is from its goal cell, summed over the tiles.
+	 * 
+	 * @param board the board, giving the tile in each cell.
+	 * @return the Manhattan distance.
+	 */
+	public int getManhattan(int[] board) {
+		
+		int sum = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			sum += manhattan[(board[cell] * cells) + cell];
+		}
+		
+		return sum;
+		
+	}
+	
+	/**
+	 * Returns the number of boards closed by the last search.
+	 * 
+	 * @return the number of boards closed.
+	 */
+	public int getNodesClosed() {
+		
+		return nodesClosed;
+		
+	}
+	
+	/**
+	 * Returns the number of boards opened by the last search.
+	 * 
+	 * @return the number of boards opened.
+	 */
+	public int getNodesOpened() {
+		
+		return nodesOpened;
+		
+	}
+	
+	/**
+	 * Returns the pattern databases in use.
+	 * 
+	 * @return the pattern databases, none if the heuristic is the
+	 * Manhattan distance alone.
+	 */
+	public PatternDatabase[] getPatterns() {
+		
+		return patterns.clone();
+		
+	}
+	
+	/**
+	 * Returns the number of cells along each side of the board.
+	 * 
+	 * @return the side length.
+	 */
+	public int getSide() {
+		
+		return side;
+		
+	}
+	
+	/**
+	 * Returns the number of <code>long</code> words each board is packed
+	 * into.
+	 * 
+	 * @return the number of words.
+	 */
+	public int getWords() {
+		
+		return words;
+		
+	}
+	
+	/**
+	 * Tests whether the goal board can be reached from the start board.
+	 * 
+	 * @return <code>true</code> if the puzzle has a solution, otherwise
+	 * <code>false</code>.
+	 */
+	public boolean isSolvable() {
+		
+		return solvable;
+		
+	}
+	
+	/**
+	 * Searches for the shortest sequence of moves from the start board to
+	 * the goal board. The path holds the boards along the way, each an
+	 * <code>int[]</code> giving the tile in each cell, with the goal board
+	 * first. An unsolvable puzzle is answered without searching.
+	 * 
+	 * @return the path, or <code>null</code> if the goal cannot be reached.
+	 * @throws IllegalStateException If the system times out searching for
+	 * a path, or the searching thread is interrupted.
+	 * @throws IndexOutOfBoundsException If a bound has been exceeded.
+	 */
+	public LinkedList<Object> path() throws IllegalStateException, IndexOutOfBoundsException {
+		
+		nodesOpened = 0;
+		nodesClosed = 0;
+		if (!solvable) {
+			return null;
+		}
+		
+		int found = search();
+		if (found < 0) {
+			return null;
+		}
+		
+		// Walk back from the goal board to the start board.
+		LinkedList<Object> path = new LinkedList<Object>();
+		for (int u = found; u >= 0; u = parent[u]) {
+			path.add(unpack(u));
+		}
+		
+		return path;
+		
+	}
+	
+	/**
+	 * Sets the pattern databases whose excess over the Manhattan distance
+	 * is added to it. The patterns must not share a tile.
+	 * 
+	 * @param patterns the pattern databases, or none for the Manhattan
+	 * distance alone.
+	 * @throws IllegalArgumentException If a database was made for another
+	 * board or goal, or two share a tile.
+	 */
+	public void setPatterns(PatternDatabase[] patterns) throws IllegalArgumentException {
+		
+		int[] owner = new int[cells];
+		Arrays.fill(owner, -1);
+		
+		for (int p = 0; p < patterns.length; p++) {
+			
+			if (!patterns[p].matches(side, dims, goal)) {
+				throw new IllegalArgumentException("NToTheKPuzzle.setPatterns error: Pattern database " + p + " was made for another board or goal.");
+			}
+			
+			int[] tiles = patterns[p].getTiles();
+			for (int i = 0; i < tiles.length; i++) {
+				if (owner[tiles[i]] >= 0) {
+					throw new IllegalArgumentException("NToTheKPuzzle.setPatterns error: Tile " + tiles[i] + " is in more than one pattern.");
+				}
+				owner[tiles[i]] = p;
+			}
+			
+		}
+		
+		this.patterns = patterns.clone();
+		this.patternOf = owner;
+		
+	}
+	
+	/**
+	 * Sets whether the search reports its statistics through
+	 * <code>Global</code>, as it does by default. Searches run side by side
+	 * on several threads must not, as <code>Global</code> is shared; their
+	 * counts are read from <code>getNodesOpened()</code> and
+	 * <code>getNodesClosed()</code> instead.
+	 * 
+	 * @param reporting <code>true</code> to report through
+	 * <code>Global</code>, otherwise <code>false</code>.
+	 */
+	public void setReporting(boolean reporting) {
+		
+		this.reporting = reporting;
+		
+	}
+	
+	/**
+	 * Returns a board as it is written in the input file. For example:
+	 * <tt>[[1,2,3],[4,5,6],[7,8,0]]</tt>, or
+	 * <tt>[[[1,2],[3,4]],[[5,6],[7,0]]]</tt> on a cube.
+	 * 
+	 * @param board the board, giving the tile in each cell.
+	 * @return the string representation of the board.
+	 */
+	public String toString(int[] board) {
+		
+		// A single row is nested as deep as a square.
+		int depth = Math.max(dims, 2);
+		
+		StringBuffer sb = new StringBuffer();
+		for (int cell = 0; cell < cells; cell++) {
+			
+			// Close and open a bracket for each side whose line ends here.
+			int ends = 0;
+			for (int span = side; ends < dims - 1 && cell % span == 0; span *= side) {
+				ends++;
+			}
+			if (cell == 0) {
+				ends = depth;
+			} else {
+				for (int i = 0; i < ends; i++) {
+					sb.append("]");
+				}
+				sb.append(",");
+			}
+			for (int i = 0; i < ends; i++) {
+				sb.append("[");
+			}
+			
+			sb.append(board[cell]);
+			
+		}
+		for (int i = 0; i < depth; i++) {
+			sb.append("]");
+		}
+		
+		return sb.toString();
+		
+	}
+	
+	/**
+	 * Helper function. Adds a board found from a parent and returns its
+	 * number.
+	 */
+	private int add(long[] board, int from, int cost, int estimate, int hole) {
+		
+		if (size == parent.length) {
+			
+			int capacity = size * 2;
+			boards = Arrays.copyOf(boards, capacity * words);
+			g = Arrays.copyOf(g, capacity);
+			h = Arrays.copyOf(h, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			blank = Arrays.copyOf(blank, capacity);
+			closed = Arrays.copyOf(closed, capacity);
+			
+		}
+		
+		int u = size++;
+		System.arraycopy(board, 0, boards, u * words, words);
+		g[u] = cost;
+		h[u] = estimate;
+		parent[u] = from;
+		blank[u] = hole;
+		
+		// Keep the hash table at most half full.
+		if (size * 2 > table.length) {
+			table = new int[table.length * 2];
+			Arrays.fill(table, EMPTY);
+			for (int v = 0; v < size; v++) {
+				table[slot(boards, v * words)] = v;
+			}
+		} else {
+			table[slot(board, 0)] = u;
+		}
+		
+		return u;
+		
+	}
+	
+	/**
+	 * Helper function. Verifies a board fits the shape of the puzzle.
+	 */
+	private void checkBoard(int[] board, String name) throws IllegalArgumentException {
+		
+		if (board.length != cells) {
+			throw new IllegalArgumentException("NToTheKPuzzle.checkBoard error: The " + name + " board has " + board.length + " cells but should have " + cells + ".");
+		}
+		
+		// Each tile may appear only once; as there are as many tiles as
+		// cells, every board then holds the same tiles.
+		boolean[] seen = new boolean[cells];
+		for (int cell = 0; cell < cells; cell++) {
+			if (board[cell] < 0 || board[cell] >= cells) {
+				throw new IllegalArgumentException("NToTheKPuzzle.checkBoard error: Tile " + board[cell] + " of the " + name + " board must be from 0 to " + (cells - 1) + ".");
+			}
+			if (seen[board[cell]]) {
+				throw new IllegalArgumentException("NToTheKPuzzle.checkBoard error: Tile " + board[cell] + " appears more than once on the " + name + " board.");
+			}
+			seen[board[cell]] = true;
+		}
+		
+		if (!seen[0]) {
+			throw new IllegalArgumentException("NToTheKPuzzle.checkBoard error: The " + name + " board has no blank (0).");
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether the goal board can be reached from
+	 * the start board by the parity of the boards.
+	 */
+	private boolean checkParity() {
+		
+		// On a single row the tiles keep their order.
+		if (dims == 1) {
+			int i = 0;
+			for (int cell = 0; cell < cells; cell++) {
+				if (start[cell] == 0) {
+					continue;
+				}
+				while (goal[i] == 0) {
+					i++;
+				}
+				if (start[cell] != goal[i++]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		// The goal cell of each tile.
+		int[] target = new int[cells];
+		for (int cell = 0; cell < cells; cell++) {
+			target[goal[cell]] = cell;
+		}
+		
+		// The permutation from start to goal, blank included, is odd when
+		// its cells less its cycles is odd.
+		boolean[] visited = new boolean[cells];
+		int cycles = 0;
+		int from = -1;
+		for (int cell = 0; cell < cells; cell++) {
+			if (start[cell] == 0) {
+				from = cell;
+			}
+			if (!visited[cell]) {
+				cycles++;
+				for (int c = cell; !visited[c]; c = target[start[c]]) {
+					visited[c] = true;
+				}
+			}
+		}
+		
+		// Every move flips both parities.
+		return ((cells - cycles) % 2) == (distance(side, dims, from, target[0]) % 2);
+		
+	}
+	
+	/**
+	 * Helper function. Returns the number of moves between two cells: the
+	 * sum of the differences of their coordinates along each side.
+	 */
+	static int distance(int side, int dims, int a, int b) {
+		
+		int sum = 0;
+		for (int d = 0; d < dims; d++) {
+			sum += Math.abs((a % side) - (b % side));
+			a /= side;
+			b /= side;
+		}
+		
+		return sum;
+		
+	}
+	
+	/**
+	 * Helper function. Expands a board: each tile next to the blank is
+	 * slid into it, except the tile that has just left it.
+	 */
+	private void expand(int u) throws IndexOutOfBoundsException {
+		
+		int hole = blank[u];
+		int back = (parent[u] < 0 ? -1 : blank[parent[u]]);
+		
+		// Find the cell of each tile for the pattern databases.
+		if (patterns.length > 0) {
+			int offset = u * words;
+			for (int cell = 0; cell < cells; cell++) {
+				where[(int)((boards[offset + (cell / perWord)] >>> ((cell % perWord) * bits)) & mask)] = cell;
+			}
+		}
+		
+		// The cells next to the blank: left and right, then up and down,
+		// and so on along each further side.
+		int[] around = neighbours[hole];
+		for (int i = 0; i < around.length; i++) {
+			if (around[i] != back) {
+				move(u, hole, around[i]);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Returns the cells next to each cell of a board, side
+	 * by side, the lower cell first along each.
+	 */
+	static int[][] neighbours(int side, int dims) {
+		
+		int cells = 1;
+		for (int d = 0; d < dims; d++) {
+			cells *= side;
+		}
+		
+		int[][] neighbours = new int[cells][];
+		int[] next = new int[2 * dims];
+		for (int cell = 0; cell < cells; cell++) {
+			int n = 0;
+			int stride = 1;
+			for (int d = 0; d < dims; d++) {
+				int at = (cell / stride) % side;
+				if (at > 0) {
+					next[n++] = cell - stride;
+				}
+				if (at < side - 1) {
+					next[n++] = cell + stride;
+				}
+				stride *= side;
+			}
+			neighbours[cell] = Arrays.copyOf(next, n);
+		}
+		
+		return neighbours;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the number of the board held in the scratch
+	 * board, or <tt>-1</tt> if it has not been found yet.
+	 */
+	private int find() {
+		
+		int i = slot(scratch, 0);
+		return table[i];
+		
+	}
+	
+	/**
+	 * Helper function. Returns the hash of a packed board.
+	 */
+	private static long hash(long[] board, int offset, int words) {
+		
+		long x = 0;
+		for (int i = 0; i < words; i++) {
+			x = (x ^ board[offset + i]) * 0x9E3779B97F4A7C15L;
+		}
+		
+		return x ^ (x >>> 29);
+		
+	}
+	
+	/**
+	 * Helper function. Builds the board found by sliding the tile in cell
+	 * <code>to</code> into the blank at <code>from</code>, and adds it to
+	 * the open list unless it has been found at no greater cost.
+	 */
+	private void move(int u, int from, int to) throws IndexOutOfBoundsException {
+		
+		// Build the child board in place of the parent's.
+		int offset = u * words;
+		System.arraycopy(boards, offset, scratch, 0, words);
+		int tile = tileAt(scratch, to);
+		setTile(scratch, to, 0);
+		setTile(scratch, from, tile);
+		
+		// Only the moved tile changes the distance to the goal, and only
+		// the excess of the pattern holding it.
+		int estimate = h[u] - manhattan[(tile * cells) + to] + manhattan[(tile * cells) + from];
+		int p = patternOf[tile];
+		if (p >= 0) {
+			estimate += patterns[p].getExcess(where, tile, from) - patterns[p].getExcess(where);
+		}
+		int cost = g[u] + 1;
+		
+		int v = find();
+		if (v < 0) {
+			
+			v = add(scratch, u, cost, estimate, to);
+			push(v);
+			
+			// Verify we haven't reached the total nodes bound yet.
+			if (size > Global.getTotalNodesBound()) {
+				throw new IndexOutOfBoundsException("NToTheKPuzzle.path error: TotalNodesBound exceeded. Set to: " + Global.getTotalNodesBound() + ", Current count: " + size);
+			}
+			
+		} else if (!closed[v] && cost < g[v]) {
+			
+			// A shorter way to a board still on the open list.
+			g[v] = cost;
+			parent[v] = u;
+			push(v);
+			
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Packs a board into words.
+	 */
+	private void pack(int[] board, long[] packed) {
+		
+		Arrays.fill(packed, 0L);
+		for (int cell = 0; cell < cells; cell++) {
+			setTile(packed, cell, board[cell]);
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Returns the open board of lowest total cost, most
+	 * recently added first, or <tt>-1</tt> if the open list is empty.
+	 */
+	private int pop() {
+		
+		while (open > 0) {
+			
+			while (heights[lowest] == 0) {
+				lowest++;
+			}
+			
+			int u = stacks[lowest][--heights[lowest]];
+			open--;
+			
+			// Skip boards already expanded, or since found more cheaply.
+			if (!closed[u] && g[u] + h[u] == lowest) {
+				return u;
+			}
+			
+		}
+		
+		return -1;
+		
+	}
+	
+	/**
+	 * Helper function. Adds a board to the open list at its total cost.
+	 */
+	private void push(int u) throws IndexOutOfBoundsException {
+		
+		int f = g[u] + h[u];
+		if (f >= stacks.length) {
+			int length = Math.max(f + 1, stacks.length * 2);
+			stacks = Arrays.copyOf(stacks, length);
+			heights = Arrays.copyOf(heights, length);
+		}
+		if (stacks[f] == null) {
+			stacks[f] = new int[16];
+		} else if (heights[f] == stacks[f].length) {
+			stacks[f] = Arrays.copyOf(stacks[f], heights[f] * 2);
+		}
+		
+		stacks[f][heights[f]++] = u;
+		if (f < lowest) {
+			lowest = f;
+		}
+		
+		// Verify we haven't reached the open list bound yet.
+		if (++open > Global.getOpenListBound()) {
+			throw new IndexOutOfBoundsException("NToTheKPuzzle.path error: OpenListBound exceeded. Set to: " + Global.getOpenListBound() + ", Current count: " + open);
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Runs the search and returns the number of the goal
+	 * board, or <tt>-1</tt> if it cannot be reached.
+	 */
+	private int search() throws IllegalStateException, IndexOutOfBoundsException {
+		
+		boards = new long[INITIAL_CAPACITY * words];
+		g = new int[INITIAL_CAPACITY];
+		h = new int[INITIAL_CAPACITY];
+		parent = new int[INITIAL_CAPACITY];
+		blank = new int[INITIAL_CAPACITY];
+		closed = new boolean[INITIAL_CAPACITY];
+		size = 0;
+		table = new int[INITIAL_CAPACITY * 2];
+		Arrays.fill(table, EMPTY);
+		stacks = new int[64][];
+		heights = new int[64];
+		lowest = 0;
+		open = 0;
+		
+		// Add the start board.
+		int hole = 0;
+		while (start[hole] != 0) {
+			hole++;
+		}
+		for (int cell = 0; cell < cells; cell++) {
+			where[start[cell]] = cell;
+		}
+		int estimate = getManhattan(start);
+		for (int p = 0; p < patterns.length; p++) {
+			estimate += patterns[p].getExcess(where);
+		}
+		pack(start, scratch);
+		push(add(scratch, -1, 0, estimate, hole));
+		
+		int expanded = 0;
+		int opened = 0;
+		try {
+			
+			int u;
+			while ((u = pop()) >= 0) {
+				
+				// Have we timed out?
+				if (Global.isTimeUp()) {
+					throw new IllegalStateException("NToTheKPuzzle.path error: System timed out searching for a solution.");
+				}
+				
+				// Has the batch given up on this instance?
+				if (Thread.currentThread().isInterrupted()) {
+					throw new IllegalStateException("NToTheKPuzzle.path error: Interrupted while searching.");
+				}
+				
+				opened++;
+				
+				// Are we at the goal?
+				if (h[u] == 0 && same(u)) {
+					return u;
+				}
+				
+				// If applicable, print the current state.
+				if (reporting && Global.reportStatePath()) {
+					Global.output("Current state: " + toString(unpack(u)) + ", heuristic: " + (g[u] + h[u]));
+				}
+				
+				expand(u);
+				closed[u] = true;
+				expanded++;
+				
+				// Record the list sizes and then calculate the open/closed
+				// ratio (performed by setClosedListSize and setOpenListSize).
+				if (reporting) {
+					Global.setClosedListSize(expanded);
+					Global.setOpenListSize(open);
+				}
+				
+			}
+			
+			// No path found!
+			return -1;
+			
+		} finally {
+			nodesOpened = opened;
+			nodesClosed = expanded;
+			if (reporting) {
+				Global.addNodesOpened(opened);
+				Global.setNodesClosed(expanded);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether a board is the goal board.
+	 */
+	private boolean same(int u) {
+		
+		int offset = u * words;
+		for (int i = 0; i < words; i++) {
+			if (boards[offset + i] != goalBoard[i]) {
+				return false;
+			}
+		}
+		
+		return true;
+		
+	}
+	
+	/**
+	 * Helper function. Sets the tile in a cell of a packed board.
+	 */
+	private void setTile(long[] board, int cell, int tile) {
+		
+		int i = cell / perWord;
+		int shift = (cell % perWord) * bits;
+		board[i] = (board[i] & ~(mask << shift)) | ((long)tile << shift);
+		
+	}
+	
+	/**
+	 * Helper function. Returns the hash table slot of a packed board: the
+	 * slot holding it, or the empty slot where it belongs.
+	 */
+	private int slot(long[] board, int offset) {
+		
+		int i = (int)hash(board, offset, words) & (table.length - 1);
+		while (table[i] != EMPTY && !sameBoard(board, offset, table[i])) {
+			i = (i + 1) & (table.length - 1);
+		}
+		
+		return i;
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether a packed board matches a board found.
+	 */
+	private boolean sameBoard(long[] board, int offset, int u) {
+		
+		int other = u * words;
+		for (int i = 0; i < words; i++) {
+			if (board[offset + i] != boards[other + i]) {
+				return false;
+			}
+		}
+		
+		return true;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the tile in a cell of a packed board.
+	 */
+	private int tileAt(long[] board, int cell) {
+		
+		return (int)((board[cell / perWord] >>> ((cell % perWord) * bits)) & mask);
+		
+	}
+	
+	/**
+	 * Helper function. Returns a board found, tile by cell.
+	 */
+	private int[] unpack(int u) {
+		
+		System.arraycopy(boards, u * words, scratch, 0, words);
+		int[] board = new int[cells];
+		for (int cell = 0; cell < cells; cell++) {
+			board[cell] = tileAt(scratch, cell);
+		}
+		
+		return board;
+		
+	}
+	
+}
@@ -0,0 +1,82 @@
+package com.michaelzanussi.astar;
+
+/**
+ * An integer token of the <tt>PuzzleMuncher</tt> input files, as made by
+ * <code>PuzzleLexer</code>. The lexer reads the value straight from the
+ * characters of the token, and the string of the token is only built if
+ * it is asked for, so integers read through <code>getValue()</code> cost
+ * no string at all. Tokens of the smaller values are made once and
+ * shared. <p>
+ *
+ * Only integers written without leading zeros are made into number
+ * tokens, so the string built is always the one that was read.
+ *
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004)
+ */
+public final class NumberToken extends PuzzleToken {
+
+	// The shared tokens of the smaller values.
+	private static final NumberToken[] SMALL = new NumberToken[1024];
+
+	static {
+		for (int i = 0; i < SMALL.length; i++) {
+			SMALL[i] = new NumberToken(i);
+			SMALL[i].getToken();
+		}
+	}
+
+	// The value of the token.
+	private long value;
+
+	/**
+	 * Helper constructor. Use <code>valueOf()</code>.
+	 */
+	private NumberToken(long value) {
+
+		// The string is built on demand.
+		super("", PuzzleToken.TT_DIGIT);
+		this.token = null;
+		this.value = value;
+
+	}
+
+	/**
+	 * Returns the token of a value.
+	 *
+	 * @param value the value, which cannot be negative.
+	 * @return the token.
+	 */
+	public static NumberToken valueOf(long value) {
+
+		return (value < SMALL.length ? SMALL[(int)value] : new NumberToken(value));
+
+	}
+
+	/**
+	 * Returns the token, building it the first time.
+	 *
+	 * @return the token.
+	 */
+	public String getToken() {
+
+		if (token == null) {
+			token = Long.toString(value);
+		}
+
+		return token;
+
+	}
+
+	/**
+	 * Returns the value of the token.
+	 *
+	 * @return the value.
+	 */
+	public long getValue() {
+
+		return value;
+
+	}
+
+}
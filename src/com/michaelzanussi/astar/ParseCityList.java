@@ -1,33 +1,31 @@
 package com.michaelzanussi.astar;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * The <code>ParseCityList</code> class parses the BNF rule <code>CITYLIST</code>.
- * This list provides the names of all the cities for the <code>ShortestPaths</code> 
- * puzzle. Example BNF: <p>
+ * This list provides the names of all the cities for the <code>ShortestPaths</code>
+ * puzzle, each optionally followed by its planar coordinates. Example BNF: <p>
  * 
  * <pre>
- * CITYLIST := "(" ( CITYNAME ( "," CITYNAME )* )? ")"
+ * CITYLIST := "(" ( CITY ( "," CITY )* )? ")"
+ * CITY := CITYNAME ( "=" NON-NEG-INTEGER ":" NON-NEG-INTEGER )?
  * </pre>
  * 
  * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
  * @version 1.0 (29 Mar 2004) 
  */
 public class ParseCityList {
-
+	
 	/**
 	 * Parse the input file.
 	 * 
 	 * @param lexer the lexer.
-	 * @return a city list.
+	 * @return a city table.
 	 * @throws ParsingException If a problem is encountered while parsing.
 	 */
-	public static List<String> parse(Lexer lexer) throws ParsingException {
-
-		// The city table.	
-		List<String> table = new ArrayList<String>();
+	public static CityTable parse(Lexer lexer) throws ParsingException {
+		
+		// The city table.
+		CityTable table = new CityTable();
 		
 		// Check for an open parenthesis.
 		Token token = lexer.nextToken();
@@ -35,10 +33,10 @@ public class ParseCityList {
 			throw new ParsingException("ParseCityList.parse error: Expected '(' but received '" + token.getToken() + "'.");
 		}
 		
-		// Check for an end parenthesis (empty list) 
+		// Check for an end parenthesis (empty list)
 		token = lexer.nextToken();
 		if (token.getToken().equals(")")) {
-			return null;
+			return table;
 		} else {
 			// Push back the token.
 			lexer.pushBack(token);
@@ -46,22 +44,45 @@ public class ParseCityList {
 		
 		while (true) {
 			
-			// Get the city and add to list.
+			// Get the city.
 			String city = ParseCityName.parse(lexer);
-			table.add(city);
-
-			// Check for more cities to add.
+			
+			// Check for optional coordinates.
 			token = lexer.nextToken();
+			if (token.getToken().equals("=")) {
+				
+				// Get the x coordinate.
+				int x = ParseInteger.parseNonNegInteger(lexer);
+				
+				// Check for ":".
+				token = lexer.nextToken();
+				if (!token.getToken().equals(":")) {
+					throw new ParsingException("ParseCityList.parse error: Expected ':' but received '" + token.getToken() + "'.");
+				}
+				
+				// Get the y coordinate.
+				int y = ParseInteger.parseNonNegInteger(lexer);
+				
+				// Add the city and its coordinates to the table.
+				table.add(city, x, y);
+				token = lexer.nextToken();
+				
+			} else {
+				// Add the city to the table.
+				table.add(city);
+			}
+			
+			// Check for more cities to add.
 			if (token.getToken().equals(",")) {
 				continue;
 			}
-
+			
 			// Check for an end parenthesis.
 			if (!token.getToken().equals(")")) {
 				throw new ParsingException("ParseCityList.parse error: Expected ')' but received '" + token.getToken() + "'.");
 			}
 			
-			// Return the city list.
+			// Return the city table.
 			return table;
 			
 		}
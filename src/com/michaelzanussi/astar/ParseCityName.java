@@ -3,10 +3,12 @@ package com.michaelzanussi.astar;
 /**
  * The <code>ParseCityName</code> class parses the BNF rule <code>CITYNAME</code>,
  * returning a string specifying the city name. The first character of the city name 
- * must be capitalized. Example BNF: <p>
+ * must be capitalized. The cities of a map loaded from a DIMACS file are
+ * numbered instead, so their names are positive integers. Example BNF: <p>
  * 
  * <pre>
  * CITYNAME := [A-Z][a-zA-Z]+
+ * CITYNUMBER := POS-INTEGER
  * </pre>
  * 
  * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
@@ -23,22 +25,49 @@ public class ParseCityName {
 	 */
 	public static String parse(Lexer lexer) throws ParsingException {
 		
-		// Get the next token, which should be a city name.
-		Token token = lexer.nextToken();
+		// Scan the city name, or else get the next token, which should be
+		// a city name.
+		String name = (lexer instanceof PuzzleLexer ? ((PuzzleLexer)lexer).scanWord() : null);
+		if (name == null) {
+			
+			Token token = lexer.nextToken();
 
-		// Check to see if the city name is alphabetic.
-		if (token.getTokenType() != PuzzleToken.TT_ALPHA) {
-			throw new ParsingException("ParseCityName.parse: Invalid city name - " + token.getToken() + ". Token type was: " + token.getTokenType() + ". City name must be alphabetic only.");
+			// Check to see if the city name is alphabetic.
+			if (token.getTokenType() != PuzzleToken.TT_ALPHA) {
+				throw new ParsingException("ParseCityName.parse: Invalid city name - " + token.getToken() + ". Token type was: " + token.getTokenType() + ". City name must be alphabetic only.");
+			}
+			
+			name = token.getToken();
+			
 		}
 
 		// Verify the first letter is capitalized.
-		char ch = token.getToken().charAt(0);
+		char ch = name.charAt(0);
 		if (!(ch >= 'A' && ch <= 'Z')) {
-			throw new ParsingException("ParseCityName.parse: Invalid city name - " + token.getToken() + ". First letter must be uppercase."); 
+			throw new ParsingException("ParseCityName.parse: Invalid city name - " + name + ". First letter must be uppercase."); 
 		}
 		
 		// Return the city name.
-		return token.getToken();
+		return name;
+		
+	}
+	
+	/**
+	 * Parse the input file for a city name or, if the cities are
+	 * numbered, a city number.
+	 * 
+	 * @param lexer the lexer.
+	 * @param numbered <code>true</code> if the cities are numbered.
+	 * @return the city name.
+	 * @throws ParsingException If a problem is encountered while parsing.
+	 */
+	public static String parse(Lexer lexer, boolean numbered) throws ParsingException {
+		
+		if (numbered) {
+			return Integer.toString(ParseInteger.parsePosInteger(lexer));
+		}
+		
+		return parse(lexer);
 		
 	}
 	
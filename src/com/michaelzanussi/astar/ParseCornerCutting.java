@@ -0,0 +1,56 @@
+package com.michaelzanussi.astar;
+
+/**
+ * The <code>ParseCornerCutting</code> class parses the BNF rule
+ * <code>CORNER-CUTTING</code>, which sets when a diagonal move of the
+ * <code>GridOctile</code> heuristic may pass the corner of a blocked cell.
+ * <code>Never</code> is the default. Example BNF: <p>
+ * 
+ * <pre>
+ * CORNER-CUTTING := "CornerCutting" "=" CUTRULE
+ * CUTRULE := ( "Always" | "OneFree" | "Never" )
+ * </pre>
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class ParseCornerCutting {
+	
+	/**
+	 * Parse the input file.
+	 * 
+	 * @param lexer the lexer.
+	 * @return the corner-cutting rule, one of the <code>GridOctile.CUT_</code>
+	 * constants.
+	 * @throws ParsingException If a problem is encountered while parsing.
+	 */
+	public static int parse(Lexer lexer) throws ParsingException {
+		
+		// Get the option
+		Token token = lexer.nextToken();
+		if (!token.getToken().equals("CornerCutting")) {
+			throw new ParsingException("ParseCornerCutting.parse error: Expected 'CornerCutting' but received '" + token.getToken() + "'.");
+		}
+		
+		// Next token should be the "=" symbol.
+		token = lexer.nextToken();
+		if (!token.getToken().equals("=")) {
+			throw new ParsingException("ParseCornerCutting.parse error: Expected '=' but received '" + token.getToken() + "'.");
+		}
+		
+		// Get the rule and verify it.
+		token = lexer.nextToken();
+		String rule = token.getToken();
+		if (rule.equals("Always")) {
+			return GridOctile.CUT_ALWAYS;
+		} else if (rule.equals("OneFree")) {
+			return GridOctile.CUT_ONE_FREE;
+		} else if (rule.equals("Never")) {
+			return GridOctile.CUT_NEVER;
+		}
+		
+		throw new ParsingException("ParseCornerCutting.parse error: Invalid CORNER-CUTTING option: " + rule);
+		
+	}
+	
+}
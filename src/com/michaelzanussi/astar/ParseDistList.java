@@ -1,96 +1,170 @@
 package com.michaelzanussi.astar;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * The <code>ParseDistList</code> class parses the BNF rule <code>DISTLIST</code>
  * and <code>DISTPAIR</code>. This class creates the table of city/distance pairs 
- * for the <code>ShortestPaths</code> puzzle. Example BNF: <p>
+ * for the <code>ShortestPaths</code> puzzle. On a map loaded from a DIMACS
+ * file, cities are given by <code>CITYNUMBER</code> instead. Example BNF: <p>
  * 
  * <pre>
  * DISTLIST := "(" ( DISTPAIR ( "," DISTPAIR )* )? ")"
  * DISTPAIR := CITYNAME "->" CITYNAME "=" NON-NEG-INTEGER
  * </pre>
  * 
+ * The list may hold a great many roads, so each road is kept as the city
+ * IDs of its ends and its distance in primitive arrays, the cities being
+ * looked up in the city table as they are read. The symbols and integers
+ * of the list are scanned straight from the input where the lexer allows
+ * it (see <code>PuzzleLexer.scan()</code>).
+ * 
  * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
  * @version 1.0 (29 Mar 2004) 
  */
 public class ParseDistList {
 
 	/**
-	 * Parse the input file.
+	 * Index of the city IDs the roads leave in the arrays returned by
+	 * <code>parse()</code>.
+	 */
+	public static final int FROM = 0;
+	
+	/**
+	 * Index of the city IDs the roads enter in the arrays returned by
+	 * <code>parse()</code>.
+	 */
+	public static final int TO = 1;
+	
+	/**
+	 * Index of the road distances in the arrays returned by
+	 * <code>parse()</code>.
+	 */
+	public static final int DISTANCE = 2;
+	
+	// Initial capacity of the road arrays.
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/**
+	 * Parse the input file, adding any new city to the city table.
 	 * 
 	 * @param lexer the lexer.
-	 * @return a vector containing city/distance list.
+	 * @param table the city table.
+	 * @return three arrays of equal length, indexed by <code>FROM</code>,
+	 * <code>TO</code> and <code>DISTANCE</code>.
 	 * @throws ParsingException If a problem is encountered while parsing.
 	 */
-	public static List<String[]> parse(Lexer lexer) throws ParsingException {
+	public static int[][] parse(Lexer lexer, CityTable table) throws ParsingException {
+		
+		return parse(lexer, table, true);
+		
+	}
+	
+	/**
+	 * Parse the input file, where the cities may have to be in the city
+	 * table already. The cities are numbered if the table is.
+	 * 
+	 * @param lexer the lexer.
+	 * @param table the city table.
+	 * @param add <code>true</code> to add new cities to the table,
+	 * <code>false</code> if every city must be known.
+	 * @return three arrays of equal length, indexed by <code>FROM</code>,
+	 * <code>TO</code> and <code>DISTANCE</code>.
+	 * @throws ParsingException If a problem is encountered while parsing,
+	 * or a city is unknown.
+	 */
+	public static int[][] parse(Lexer lexer, CityTable table, boolean add) throws ParsingException {
 
-		// The distance table.	
-		List<String[]> table = new ArrayList<String[]>();
+		// The roads, in growable arrays.
+		int[] from = new int[INITIAL_CAPACITY];
+		int[] to = new int[INITIAL_CAPACITY];
+		int[] distances = new int[INITIAL_CAPACITY];
+		int count = 0;
 		
 		// Check for an open parenthesis.
-		Token token = lexer.nextToken();
-		if (!token.getToken().equals("(")) {
-			throw new ParsingException("ParseDistList.parse error: Expected '(' but received '" + token.getToken() + "'.");
-		}
+		ParseSymbol.expect(lexer, "(", "ParseDistList");
 		
 		// Check for an end parenthesis (empty list) 
-		token = lexer.nextToken();
-		if (token.getToken().equals(")")) {
-			return null;
-		} else {
-			// Push back the token.
-			lexer.pushBack(token);
+		if (ParseSymbol.accept(lexer, ")")) {
+			return new int[][] { new int[0], new int[0], new int[0] };
 		}
 		
 		while (true) {
 			
 			// Get the start city.
-			String start = ParseCityName.parse(lexer);
+			int a = city(lexer, table, add);
 			
 			// Check for "arrow".
-			token = lexer.nextToken();
-			if (!token.getToken().equals("->")) {
-				throw new ParsingException( "ParseDistList.parse error: Expected '->' but received '" + token.getToken() + "'.");
-			}
+			ParseSymbol.expect(lexer, "->", "ParseDistList");
 			
 			// Get the end city.
-			String end = ParseCityName.parse(lexer);
+			int b = city(lexer, table, add);
 			
 			// Check for "=".
-			token = lexer.nextToken();
-			if (!token.getToken().equals("=")) {
-				throw new ParsingException("ParseDistList.parse error: Expected '=' but received '" + token.getToken() + "'.");
-			}
+			ParseSymbol.expect(lexer, "=", "ParseDistList");
 			
 			// Get the distance.
-			Integer dist = new Integer(ParseInteger.parseNonNegInteger(lexer));
-
-			// Store the city/distance data into an array and add it to the table. 
-			String[] triple = new String[3];
-			triple[0] = start;
-			triple[1] = end;
-			triple[2] = dist.toString();
-			table.add(triple);
+			int distance = ParseInteger.parseNonNegInteger(lexer);
+			
+			// Grow the road arrays if necessary.
+			if (count == from.length) {
+				int[] nf = new int[count * 2];
+				int[] nt = new int[count * 2];
+				int[] nd = new int[count * 2];
+				System.arraycopy(from, 0, nf, 0, count);
+				System.arraycopy(to, 0, nt, 0, count);
+				System.arraycopy(distances, 0, nd, 0, count);
+				from = nf;
+				to = nt;
+				distances = nd;
+			}
+			
+			from[count] = a;
+			to[count] = b;
+			distances[count] = distance;
+			count++;
 			
 			// Check for more city/distance pairs.
-			token = lexer.nextToken();
-			if (token.getToken().equals(",")) {
+			if (ParseSymbol.accept(lexer, ",")) {
 				continue;
 			}
 			
 			// Check for ")".
-			if (!token.getToken().equals(")")) {
-				throw new ParsingException("ParseDistList.parse error: Expected ')' but received '" + token.getToken() + "'.");
-			}
+			ParseSymbol.expect(lexer, ")", "ParseDistList");
 			
-			// Return the distance list.
-			return table;
+			// Return the roads, trimmed to size.
+			int[][] list = new int[3][count];
+			System.arraycopy(from, 0, list[FROM], 0, count);
+			System.arraycopy(to, 0, list[TO], 0, count);
+			System.arraycopy(distances, 0, list[DISTANCE], 0, count);
 			
+			return list;
+			
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Reads a city name (or number) and returns its
+	 * city ID, adding it to the table if asked to.
+	 */
+	private static int city(Lexer lexer, CityTable table, boolean add) throws ParsingException {
+		
+		// Numbered cities: the number is the city ID plus one.
+		if (table.isNumbered()) {
+			int n = ParseInteger.parsePosInteger(lexer);
+			if (n > table.size()) {
+				throw new ParsingException("ParseDistList.parse error: Unknown city: " + n);
+			}
+			return n - 1;
 		}
 		
+		String name = ParseCityName.parse(lexer);
+		int id = (add ? table.add(name) : table.getId(name));
+		if (id < 0) {
+			throw new ParsingException("ParseDistList.parse error: Unknown city: " + name);
+		}
+		
+		return id;
+		
 	}
 	
 }
@@ -0,0 +1,66 @@
+package com.michaelzanussi.astar;
+
+/**
+ * The <code>ParseEngine</code> class parses the BNF rule <code>ENGINE</code>,
+ * which selects the search engine used by subsequent <code>Run</code>
+ * statements. <code>AStar</code> is the default; <code>Incremental</code>
+ * selects <code>DStarLite</code>, which keeps its search between runs and
+ * repairs it after <code>UpdateDistances</code>; <code>Hierarchical</code>
+ * selects <code>HPAStar</code>, which searches an abstract graph of a
+ * <code>Grid</code> puzzle cut into clusters of <code>ClusterSize</code>
+ * cells a side; <code>FlowField</code> selects <code>GridDistanceField</code>,
+ * which builds the cost from every cell to the goal of a <code>Grid</code>
+ * puzzle once and reads each start's path off it; <code>DeltaStepping</code>
+ * selects <code>DeltaStepping</code>, which finds the cost of every city or
+ * cell from the start on several threads; <code>Dense</code> selects
+ * <code>DenseMandC</code>, which numbers every state of a Missionaries and
+ * Cannibals puzzle and keeps the search in arrays; <code>Retrograde</code>
+ * selects <code>RetrogradeMandC</code>, which finds the way to the goal from
+ * every state of a Missionaries and Cannibals puzzle once and reads each
+ * start's path off the table. <code>KShortestPaths</code> greater than one
+ * is only supported by <code>AStar</code>. Example BNF: <p>
+ * 
+ * <pre>
+ * ENGINE := "Engine" "=" ENGINENAME
+ * ENGINENAME := ( "AStar" | "Incremental" | "Hierarchical" | "FlowField" | "DeltaStepping" | "Dense" | "Retrograde" )
+ * </pre>
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class ParseEngine {
+	
+	/**
+	 * Parse the input file.
+	 * 
+	 * @param lexer the lexer.
+	 * @return the engine name.
+	 * @throws ParsingException If a problem is encountered while parsing.
+	 */
+	public static String parse(Lexer lexer) throws ParsingException {
+		
+		// Get the option
+		Token token = lexer.nextToken();
+		if (!token.getToken().equals("Engine")) {
+			throw new ParsingException("ParseEngine.parse error: Expected 'Engine' but received '" + token.getToken() + "'.");
+		}
+		
+		// Next token should be the "=" symbol.
+		token = lexer.nextToken();
+		if (!token.getToken().equals("=")) {
+			throw new ParsingException("ParseEngine.parse error: Expected '=' but received '" + token.getToken() + "'.");
+		}
+		
+		// Get the engine name and verify it.
+		token = lexer.nextToken();
+		String engine = token.getToken();
+		if (!engine.equals("AStar") && !engine.equals("Incremental") && !engine.equals("Hierarchical") && !engine.equals("FlowField") && !engine.equals("DeltaStepping") && !engine.equals("Dense") && !engine.equals("Retrograde")) {
+			throw new ParsingException("ParseEngine.parse error: Invalid ENGINE option: " + engine);
+		}
+		
+		// Return the engine name.
+		return engine;
+		
+	}
+	
+}
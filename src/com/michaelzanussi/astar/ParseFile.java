@@ -3,12 +3,15 @@ package com.michaelzanussi.astar;
 /**
  * The <code>ParseFile</code> class parses the BNF rule <code>OUTFILE</code>,
  * <code>LOGFILE</code>, and <code>ERRFILE</code>. These rules rely on 
- * filenames, which require special parsing. Example BNF: <p>
+ * filenames, which require special parsing. The <code>FILESPEC</code> rule
+ * on its own is also used by puzzles that load their data from files. 
+ * Example BNF: <p>
  * 
  * <pre>
  * OUTFILE := "OutFile" "=" FILESPEC
  * LOGFILE := "LogFile" "=" FILESPEC
  * ERRFILE := "ErrFile" "=" FILESPEC
+ * FILESPEC := "\"" FILENAME "\""
  * </pre>
  * 
  * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
@@ -40,23 +43,37 @@ public class ParseFile {
 			throw new ParsingException("ParseFile.parse error: Expected '=' but received '" + token.getToken() + "'.");
 		}
 		
+		// Return the filename.
+		return parseFileSpec(lexer);
+		
+	}
+	
+	/**
+	 * Parse a quoted filename (the <code>FILESPEC</code> rule).
+	 * 
+	 * @param lexer the lexer.
+	 * @return the filename.
+	 * @throws ParsingException If a problem is encountered while parsing.
+	 */
+	public static String parseFileSpec(Lexer lexer) throws ParsingException {
+		
 		// Next token should be the "\"" symbol.
-		token = lexer.nextToken();
+		Token token = lexer.nextToken();
 		if (!token.getToken().equals("\"")) {
-			throw new ParsingException("ParseFile.parse error: Expected '\"' but received '" + token.getToken() + "'.");
+			throw new ParsingException("ParseFile.parseFileSpec error: Expected '\"' but received '" + token.getToken() + "'.");
 		}
 		
 		// Get the value, verify it, then store it off.
 		token = lexer.nextToken();
 		if (token.getTokenType() != PuzzleToken.TT_FILE && token.getTokenType() != PuzzleToken.TT_ALPHA) {
-			throw new ParsingException("ParseFile.parse: Invalid file name - " + token.getToken() + ". Token type was: " + token.getTokenType() + ".");
+			throw new ParsingException("ParseFile.parseFileSpec: Invalid file name - " + token.getToken() + ". Token type was: " + token.getTokenType() + ".");
 		}
 		String strToken = token.getToken();
 		
 		// Next token should be the "\"" symbol.
 		token = lexer.nextToken();
 		if (!token.getToken().equals("\"")) {
-			throw new ParsingException("ParseFile.parse error: Expected '\"' but received '" + token.getToken() + "'.");
+			throw new ParsingException("ParseFile.parseFileSpec error: Expected '\"' but received '" + token.getToken() + "'.");
 		}
 		
 		// Return the filename.
@@ -11,6 +11,9 @@ package com.michaelzanussi.astar;
  * POS-INTEGER := [1-9][0-9]+
  * </pre>
  * 
+ * An integer is scanned straight from the input when the lexer is a
+ * <code>PuzzleLexer</code>, without a token being made for it.
+ * 
  * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
  * @version 1.0 (29 Mar 2004) 
  */
@@ -25,8 +28,11 @@ public class ParseInteger {
 	 */
 	public static int parseNonNegInteger(Lexer lexer) throws ParsingException {
 		
-		// Parse the integer.
-		int i = parseInteger(lexer.nextToken());
+		// Scan the integer, or else parse its token.
+		int i = scanInteger(lexer);
+		if (i < 0) {
+			i = parseInteger(lexer.nextToken());
+		}
 		
 		// Check to see if this is a positive integer.
 		if (i < 0) {
@@ -46,8 +52,11 @@ public class ParseInteger {
 	 */
 	public static int parsePosInteger(Lexer lexer) throws ParsingException {
 		
-		// Parse the integer.
-		int i = parseInteger(lexer.nextToken());
+		// Scan the integer, or else parse its token.
+		int i = scanInteger(lexer);
+		if (i < 0) {
+			i = parseInteger(lexer.nextToken());
+		}
 		
 		// Check to see if this is a positive integer.
 		if (i <= 0) {
@@ -69,6 +78,11 @@ public class ParseInteger {
 		
 		int i = 0;
 		
+		// The lexer has already read the value of a number token.
+		if (token instanceof NumberToken && ((NumberToken)token).getValue() <= Integer.MAX_VALUE) {
+			return (int)((NumberToken)token).getValue();
+		}
+		
 		try {
 			i = Integer.parseInt(token.getToken());
 		} catch (NumberFormatException e) {
@@ -79,4 +93,21 @@ public class ParseInteger {
 		
 	}
 	
+	/**
+	 * Helper function. Scans a non-negative integer directly from the
+	 * input, if the lexer can.
+	 * 
+	 * @param lexer the lexer.
+	 * @return the integer, or <tt>-1</tt> if none was scanned.
+	 */
+	private static int scanInteger(Lexer lexer) {
+		
+		if (lexer instanceof PuzzleLexer) {
+			return ((PuzzleLexer)lexer).scanInteger();
+		}
+		
+		return -1;
+		
+	}
+	
 }
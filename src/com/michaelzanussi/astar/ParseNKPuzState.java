@@ -41,6 +41,14 @@ public class ParseNKPuzState {
 			// Add results to the vector.
 			nkPuzState.add(temp);
 			
+			// Parse any further states, such as the planes of a cube.
+			token = lexer.nextToken();
+			while (token.getToken().equals(",")) {
+				nkPuzState.add(parse(lexer));
+				token = lexer.nextToken();
+			}
+			lexer.pushBack(token);
+			
 		}
 		
 		// ...is it a number list?
@@ -3,94 +3,212 @@ package com.michaelzanussi.astar;
 /**
  * The <code>ParseObstacles</code> class parses the BNF rule <code>OBSTACLES</code>.
  * This class creates the table of obstacle locations for the <code>Grid</code>
- * family of puzzle. Example BNF: <p>
+ * family of puzzle, as a <code>CostMap</code>. A location is either given
+ * the cost of entering it, or is blocked. The obstacles are gathered first
+ * so that the map can store its cells in the narrowest width that holds
+ * the largest cost. The same list, read by <code>parseList()</code>, gives
+ * the changes of an <code>UpdateObstacles</code> statement, where
+ * <code>Open</code> returns a location to the default cost. Example BNF: <p>
  * 
  * <pre>
  * OBSTACLES := "(" ( LOCATIONS ( "," LOCATIONS )* )? ")"
- * LOCATIONS := NON-NEG-INTEGER ":" NON-NEG-INTEGER "=" POS-INTEGER
+ * LOCATIONS := NON-NEG-INTEGER ":" NON-NEG-INTEGER "=" ( POS-INTEGER | "Blocked" | "Open" )
  * </pre>
  * 
+ * A grid may have a great many obstacles, so the symbols, keywords and
+ * integers of the list are scanned straight from the input where the
+ * lexer allows it (see <code>PuzzleLexer.scan()</code>), and the
+ * locations are gathered in primitive arrays.
+ * 
  * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
  * @version 1.0 (29 Mar 2004) 
  */
 public class ParseObstacles {
 
+	/**
+	 * The cost returned by <code>parseList()</code> for a blocked location.
+	 */
+	public static final int BLOCKED = -1;
+	
+	/**
+	 * The cost returned by <code>parseList()</code> for an open location
+	 * (the default cost).
+	 */
+	public static final int OPEN = 0;
+	
+	/**
+	 * Index of the <tt>x</tt> coordinates in the arrays returned by
+	 * <code>parseList()</code>.
+	 */
+	public static final int X = 0;
+	
+	/**
+	 * Index of the <tt>y</tt> coordinates in the arrays returned by
+	 * <code>parseList()</code>.
+	 */
+	public static final int Y = 1;
+	
+	/**
+	 * Index of the costs in the arrays returned by <code>parseList()</code>.
+	 */
+	public static final int COST = 2;
+	
+	// Initial capacity of the obstacle arrays.
+	private static final int INITIAL_CAPACITY = 16;
+	
 	/**
 	 * Parse the input file.
 	 * 
 	 * @param lexer the lexer.
-	 * @return a vector containing city/distance list.
+	 * @param width the number of cells along the <tt>x</tt> axis.
+	 * @param height the number of cells along the <tt>y</tt> axis.
+	 * @return the cost map.
 	 * @throws ParsingException If a problem is encountered while parsing.
 	 */
-	public static int[][] parse(Lexer lexer, int size) throws ParsingException {
+	public static CostMap parse(Lexer lexer, int width, int height) throws ParsingException {
+		
+		int[][] list = parseList(lexer, width, height);
+		
+		// Build the cost map, in the narrowest cell width that holds the
+		// largest cost.
+		CostMap map = new CostMap(width, height, maxCost(list));
+		apply(list, map);
+		
+		// Return the cost map.
+		return map;
+		
+	}
+	
+	/**
+	 * Applies a list of locations to a cost map.
+	 * 
+	 * @param list the locations, as returned by <code>parseList()</code>.
+	 * @param map the cost map.
+	 */
+	public static void apply(int[][] list, CostMap map) {
+		
+		for (int i = 0; i < list[COST].length; i++) {
+			if (list[COST][i] == BLOCKED) {
+				map.setBlocked(list[X][i], list[Y][i], true);
+			} else {
+				map.setBlocked(list[X][i], list[Y][i], false);
+				map.setCost(list[X][i], list[Y][i], list[COST][i]);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Returns the largest cost in a list of locations.
+	 * 
+	 * @param list the locations, as returned by <code>parseList()</code>.
+	 * @return the largest cost, or <tt>0</tt> if there is none.
+	 */
+	public static int maxCost(int[][] list) {
+		
+		int maxCost = 0;
+		for (int i = 0; i < list[COST].length; i++) {
+			maxCost = Math.max(maxCost, list[COST][i]);
+		}
+		
+		return maxCost;
+		
+	}
+	
+	/**
+	 * Parse the input file into a list of locations.
+	 * 
+	 * @param lexer the lexer.
+	 * @param width the number of cells along the <tt>x</tt> axis.
+	 * @param height the number of cells along the <tt>y</tt> axis.
+	 * @return three arrays of equal length, indexed by <code>X</code>,
+	 * <code>Y</code> and <code>COST</code>; a cost is either positive,
+	 * <code>BLOCKED</code> or <code>OPEN</code>.
+	 * @throws ParsingException If a problem is encountered while parsing.
+	 */
+	public static int[][] parseList(Lexer lexer, int width, int height) throws ParsingException {
 
-		// The obstacles table.	
-		int[][] table = new int[size][size];
+		// The locations, in growable arrays.
+		int[] xs = new int[INITIAL_CAPACITY];
+		int[] ys = new int[INITIAL_CAPACITY];
+		int[] costs = new int[INITIAL_CAPACITY];
+		int count = 0;
 		
 		// Check for an open parenthesis.
-		Token token = lexer.nextToken();
-		if (!token.getToken().equals("(")) {
-			throw new ParsingException("ParseObstacles.parse error: Expected '(' but received '" + token.getToken() + "'.");
-		}
+		ParseSymbol.expect(lexer, "(", "ParseObstacles");
 		
 		// Check for an end parenthesis (empty list) 
-		token = lexer.nextToken();
-		if (token.getToken().equals(")")) {
-			return table;
-		} else {
-			// Push back the token.
-			lexer.pushBack(token);
+		if (ParseSymbol.accept(lexer, ")")) {
+			return new int[][] { new int[0], new int[0], new int[0] };
 		}
 		
-		
 		while (true) {
 			
 			// Get the start city.
 			int x = ParseInteger.parseNonNegInteger(lexer);
 			
 			// Verify coord is in range.
-			if (x < 0 || x > size) {				
+			if (x < 0 || x >= width) {				
 				throw new ParsingException("ParseObstacles.parse error: X value out of range: " + x);
 			}
 			
 			// Check for ":".
-			token = lexer.nextToken();
-			if (!token.getToken().equals(":")) {
-				throw new ParsingException("ParseObstacles.parse error: Expected ':' but received '" + token.getToken() + "'.");
-			}
+			ParseSymbol.expect(lexer, ":", "ParseObstacles");
 			
 			// Get the end city.
 			int y = ParseInteger.parseNonNegInteger(lexer);
 			
 			// Verify coord is in range.
-			if (y < 0 || y > size) {				
+			if (y < 0 || y >= height) {				
 				throw new ParsingException("ParseObstacles.parse error: Y value out of range: " + y);
 			}
 			
 			// Check for "=".
-			token = lexer.nextToken();
-			if (!token.getToken().equals("=")) {
-				throw new ParsingException("ParseObstacles.parse error: Expected '=' but received '" + token.getToken() + "'.");
+			ParseSymbol.expect(lexer, "=", "ParseObstacles");
+			
+			// Get the cost, or mark the location blocked or open.
+			int cost;
+			if (ParseSymbol.accept(lexer, "Blocked")) {
+				cost = BLOCKED;
+			} else if (ParseSymbol.accept(lexer, "Open")) {
+				cost = OPEN;
+			} else {
+				cost = ParseInteger.parsePosInteger(lexer);
 			}
 			
-			// Get the cost.
-			int cost = ParseInteger.parsePosInteger(lexer);
-
-			table[x][y] = cost;
+			// Grow the location arrays if necessary.
+			if (count == xs.length) {
+				int[] nx = new int[count * 2];
+				int[] ny = new int[count * 2];
+				int[] nc = new int[count * 2];
+				System.arraycopy(xs, 0, nx, 0, count);
+				System.arraycopy(ys, 0, ny, 0, count);
+				System.arraycopy(costs, 0, nc, 0, count);
+				xs = nx;
+				ys = ny;
+				costs = nc;
+			}
+			
+			xs[count] = x;
+			ys[count] = y;
+			costs[count] = cost;
+			count++;
 			
 			// Check for more pairs.
-			token = lexer.nextToken();
-			if (token.getToken().equals(",")) {
+			if (ParseSymbol.accept(lexer, ",")) {
 				continue;
 			}
 			
 			// Check for ")".
-			if (!token.getToken().equals(")")) {
-				throw new ParsingException( "ParseObstacles.parse error: Expected ')' but received '" + token.getToken() + "'.");
-			}
+			ParseSymbol.expect(lexer, ")", "ParseObstacles");
+			
+			// Return the locations, trimmed to size.
+			int[][] list = new int[3][count];
+			System.arraycopy(xs, 0, list[X], 0, count);
+			System.arraycopy(ys, 0, list[Y], 0, count);
+			System.arraycopy(costs, 0, list[COST], 0, count);
 			
-			// Return the distance list.
-			return table;
+			return list;
 			
 		}
 		
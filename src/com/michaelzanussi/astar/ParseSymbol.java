@@ -0,0 +1,57 @@
+package com.michaelzanussi.astar;
+
+/**
+ * The <code>ParseSymbol</code> class reads the fixed symbols and keywords
+ * that separate the items of a list, for the parsers that read long lists
+ * (<code>ParseDistList</code> and <code>ParseObstacles</code>). A
+ * <code>PuzzleLexer</code> scans them straight from its input (see
+ * <code>PuzzleLexer.scan()</code>); any other lexer reads a token.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+class ParseSymbol {
+	
+	/**
+	 * Reads the next symbol or keyword if it is the one given; otherwise it
+	 * is left to be read.
+	 * 
+	 * @param lexer the lexer.
+	 * @param symbol the symbol or keyword.
+	 * @return <code>true</code> if it was read, otherwise <code>false</code>.
+	 */
+	static boolean accept(Lexer lexer, String symbol) {
+		
+		// The lexer can tell without making a token.
+		if (lexer instanceof PuzzleLexer) {
+			return ((PuzzleLexer)lexer).scan(symbol);
+		}
+		
+		Token token = lexer.nextToken();
+		if (token.getToken().equals(symbol)) {
+			return true;
+		}
+		lexer.pushBack(token);
+		
+		return false;
+		
+	}
+	
+	/**
+	 * Reads the next symbol or keyword, which must be the one given.
+	 * 
+	 * @param lexer the lexer.
+	 * @param symbol the symbol or keyword.
+	 * @param caller the parser reading it, named in the error message.
+	 * @throws ParsingException If the next token is something else.
+	 */
+	static void expect(Lexer lexer, String symbol, String caller) throws ParsingException {
+		
+		if (!accept(lexer, symbol)) {
+			Token token = lexer.nextToken();
+			throw new ParsingException(caller + ".parse error: Expected '" + symbol + "' but received '" + token.getToken() + "'.");
+		}
+		
+	}
+	
+}
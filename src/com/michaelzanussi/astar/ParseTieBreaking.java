@@ -0,0 +1,61 @@
+package com.michaelzanussi.astar;
+
+/**
+ * The <code>ParseTieBreaking</code> class parses the BNF rule
+ * <code>TIE-BREAKING</code>, which sets how the <code>AStar</code> open list
+ * orders states of equal heuristic for subsequent <code>Run</code>
+ * statements. <code>None</code> is the default; <code>HighG</code> prefers
+ * the state farthest from the start, <code>LIFO</code> the state found
+ * last, and <code>StateKey</code> the state with the lowest key. Example
+ * BNF: <p>
+ * 
+ * <pre>
+ * TIE-BREAKING := "TieBreaking" "=" TIERULE
+ * TIERULE := ( "None" | "HighG" | "LIFO" | "StateKey" )
+ * </pre>
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class ParseTieBreaking {
+	
+	/**
+	 * Parse the input file.
+	 * 
+	 * @param lexer the lexer.
+	 * @return the tie-breaking policy, one of the <code>HashingHeap.TIE_</code>
+	 * constants.
+	 * @throws ParsingException If a problem is encountered while parsing.
+	 */
+	public static int parse(Lexer lexer) throws ParsingException {
+		
+		// Get the option
+		Token token = lexer.nextToken();
+		if (!token.getToken().equals("TieBreaking")) {
+			throw new ParsingException("ParseTieBreaking.parse error: Expected 'TieBreaking' but received '" + token.getToken() + "'.");
+		}
+		
+		// Next token should be the "=" symbol.
+		token = lexer.nextToken();
+		if (!token.getToken().equals("=")) {
+			throw new ParsingException("ParseTieBreaking.parse error: Expected '=' but received '" + token.getToken() + "'.");
+		}
+		
+		// Get the rule and verify it.
+		token = lexer.nextToken();
+		String rule = token.getToken();
+		if (rule.equals("None")) {
+			return HashingHeap.TIE_NONE;
+		} else if (rule.equals("HighG")) {
+			return HashingHeap.TIE_HIGH_G;
+		} else if (rule.equals("LIFO")) {
+			return HashingHeap.TIE_LIFO;
+		} else if (rule.equals("StateKey")) {
+			return HashingHeap.TIE_STATE_KEY;
+		}
+		
+		throw new ParsingException("ParseTieBreaking.parse error: Invalid TIE-BREAKING option: " + rule);
+		
+	}
+	
+}
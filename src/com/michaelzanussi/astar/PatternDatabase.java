@@ -0,0 +1,817 @@
+package com.michaelzanussi.astar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A pattern database for the <code>NToTheKPuzzle</code> family: the fewest
+ * moves of a set of pattern tiles needed to bring them from any placement
+ * on the board to their goal cells, where the other tiles do not count
+ * and the blank may be anywhere. Only the moves of the pattern tiles are
+ * counted, so the values of databases whose patterns share no tile may be
+ * added together and still never overestimate. <p>
+ *
+ * Each placement of the pattern tiles is numbered by a perfect hash, its
+ * rank among the placements of that many tiles on the board in
+ * lexicographic order, so a database of <tt>k</tt> tiles on <tt>n</tt>
+ * cells has exactly <tt>n! / (n - k)!</tt> entries. It is built by a
+ * breadth-first search back from the goal placement, one level at a time,
+ * each level split between several threads. <p>
+ *
+ * As every value is at least the Manhattan distance of the pattern tiles,
+ * each entry holds only the excess over it, in four bits (two entries to
+ * a byte), any excess over <tt>15</tt> being cut to <tt>15</tt>; the
+ * heuristic stays admissible and monotonic. A database saved to a file
+ * is memory-mapped when opened again, so it is ready at once however
+ * large it is. The file begins with a header giving the board and the
+ * goal cells of the pattern tiles, which must match when it is opened.
+ *
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004)
+ */
+public final class PatternDatabase {
+
+	/**
+	 * The largest number of entries of a database chosen by
+	 * <code>partition()</code>.
+	 */
+	public static final int DEFAULT_ENTRIES = 1 << 23;
+
+	// The file header: magic number ("ASTP"), version, cells a side,
+	// number of sides and number of pattern tiles, then the goal cell of
+	// each pattern tile.
+	private static final int MAGIC = 0x41535450;
+	private static final int VERSION = 1;
+
+	// The largest excess over the Manhattan distance an entry can hold.
+	private static final int MAX_EXCESS = 15;
+
+	// An entry not yet reached by the search.
+	private static final byte UNSEEN = -1;
+
+	// Levels smaller than this are searched on the calling thread.
+	private static final int PARALLEL_THRESHOLD = 4096;
+
+	// The board: cells a side, number of sides, and number of cells.
+	private int side;
+	private int dims;
+	private int cells;
+
+	// The pattern tiles and their goal cells.
+	private int[] tiles;
+	private int[] goalCells;
+
+	// The number of entries.
+	private int size;
+
+	// The cells next to each cell, and how many there are.
+	private int[][] neighbours;
+
+	// The entries, two to a byte, held in memory or mapped from a file.
+	private byte[] table;
+	private MappedByteBuffer mapped;
+	private int offset;
+
+	// The file the database was saved to or opened from, if any.
+	private File file;
+
+	/**
+	 * Helper constructor. Use <code>build()</code> or <code>open()</code>.
+	 */
+	private PatternDatabase(int side, int dims, int[] tiles, int[] goal) throws IllegalArgumentException {
+
+		if (side < 2 || dims < 1) {
+			throw new IllegalArgumentException("PatternDatabase.PatternDatabase error: The board must have at least 1 side of at least 2 cells. Side = " + side + ", Dimensions = " + dims);
+		}
+
+		long count = 1;
+		for (int d = 0; d < dims && count <= 64; d++) {
+			count *= side;
+		}
+		if (count > 64) {
+			throw new IllegalArgumentException("PatternDatabase.PatternDatabase error: Boards of more than 64 cells are not supported. Side = " + side + ", Dimensions = " + dims);
+		}
+
+		this.side = side;
+		this.dims = dims;
+		this.cells = (int)count;
+
+		if (goal.length != cells) {
+			throw new IllegalArgumentException("PatternDatabase.PatternDatabase error: The goal board has " + goal.length + " cells but should have " + cells + ".");
+		}
+
+		// Find the goal cell of each pattern tile.
+		this.tiles = tiles.clone();
+		this.goalCells = new int[tiles.length];
+		long size = 1;
+		for (int i = 0; i < tiles.length; i++) {
+
+			if (tiles[i] <= 0) {
+				throw new IllegalArgumentException("PatternDatabase.PatternDatabase error: Pattern tiles must be > 0. Received: " + tiles[i]);
+			}
+
+			goalCells[i] = -1;
+			for (int cell = 0; cell < cells; cell++) {
+				if (goal[cell] == tiles[i]) {
+					goalCells[i] = cell;
+				}
+			}
+			if (goalCells[i] < 0) {
+				throw new IllegalArgumentException("PatternDatabase.PatternDatabase error: Pattern tile " + tiles[i] + " is not on the goal board.");
+			}
+			for (int j = 0; j < i; j++) {
+				if (tiles[j] == tiles[i]) {
+					throw new IllegalArgumentException("PatternDatabase.PatternDatabase error: Pattern tile " + tiles[i] + " is listed twice.");
+				}
+			}
+
+			size *= (cells - i);
+
+		}
+
+		if (tiles.length == 0 || size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("PatternDatabase.PatternDatabase error: A pattern must have from 1 to a few tiles. Tiles = " + tiles.length);
+		}
+
+		this.size = (int)size;
+
+		// The cells next to each cell.
+		neighbours = NToTheKPuzzle.neighbours(side, dims);
+
+	}
+
+	/**
+	 * Builds a pattern database in memory.
+	 *
+	 * @param side the number of cells along each side of the board.
+	 * @param dims the number of sides.
+	 * @param tiles the pattern tiles.
+	 * @param goal the goal board, giving the tile in each cell.
+	 * @return the pattern database.
+	 * @throws IllegalArgumentException If the pattern does not fit the board.
+	 * @throws IllegalStateException If the system times out building it.
+	 */
+	public static PatternDatabase build(int side, int dims, int[] tiles, int[] goal) throws IllegalArgumentException, IllegalStateException {
+
+		PatternDatabase pdb = new PatternDatabase(side, dims, tiles, goal);
+		pdb.search();
+
+		return pdb;
+
+	}
+
+	/**
+	 * Returns the file name a pattern database is saved under in a
+	 * directory. The name is made from the board and the goal cells of the
+	 * pattern tiles, so each database has a file of its own.
+	 *
+	 * @param dir the directory.
+	 * @param side the number of cells along each side of the board.
+	 * @param dims the number of sides.
+	 * @param tiles the pattern tiles.
+	 * @param goal the goal board, giving the tile in each cell.
+	 * @return the file.
+	 * @throws IllegalArgumentException If the pattern does not fit the board.
+	 */
+	public static File fileFor(File dir, int side, int dims, int[] tiles, int[] goal) throws IllegalArgumentException {
+
+		PatternDatabase pdb = new PatternDatabase(side, dims, tiles, goal);
+
+		StringBuffer name = new StringBuffer("pdb-" + side);
+		for (int d = 1; d < dims; d++) {
+			name.append("x").append(side);
+		}
+		for (int i = 0; i < pdb.goalCells.length; i++) {
+			name.append(i == 0 ? "-" : ".").append(pdb.goalCells[i]);
+		}
+
+		return new File(dir, name.append(".pdb").toString());
+
+	}
+
+	/**
+	 * Opens the pattern database saved in a file, building it and saving
+	 * it there first if the file does not exist. The file is
+	 * memory-mapped, not read.
+	 *
+	 * @param file the file.
+	 * @param side the number of cells along each side of the board.
+	 * @param dims the number of sides.
+	 * @param tiles the pattern tiles.
+	 * @param goal the goal board, giving the tile in each cell.
+	 * @return the pattern database.
+	 * @throws ParsingException If the file cannot be read or written, or
+	 * holds a database for another board or pattern.
+	 * @throws IllegalArgumentException If the pattern does not fit the board.
+	 * @throws IllegalStateException If the system times out building it.
+	 */
+	public static PatternDatabase open(File file, int side, int dims, int[] tiles, int[] goal) throws ParsingException, IllegalArgumentException, IllegalStateException {
+
+		PatternDatabase pdb = new PatternDatabase(side, dims, tiles, goal);
+
+		if (!file.exists() || file.length() == 0) {
+			pdb.search();
+			pdb.save(file);
+			pdb.table = null;
+		}
+
+		pdb.map(file);
+
+		return pdb;
+
+	}
+
+	/**
+	 * Splits the tiles of a goal board into disjoint patterns, in order of
+	 * their goal cells, each as large as possible while its database has
+	 * no more than <code>DEFAULT_ENTRIES</code> entries.
+	 *
+	 * @param goal the goal board, giving the tile in each cell.
+	 * @return the patterns.
+	 */
+	public static List<int[]> partition(int[] goal) {
+
+		int cells = goal.length;
+
+		// The largest pattern small enough.
+		int k = 1;
+		long size = cells;
+		while (k < cells - 1 && size * (cells - k) <= DEFAULT_ENTRIES) {
+			size *= (cells - k);
+			k++;
+		}
+
+		List<int[]> patterns = new ArrayList<int[]>();
+		int[] pattern = new int[k];
+		int n = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			if (goal[cell] == 0) {
+				continue;
+			}
+			pattern[n++] = goal[cell];
+			if (n == k) {
+				patterns.add(pattern);
+				pattern = new int[k];
+				n = 0;
+			}
+		}
+		if (n > 0) {
+			int[] last = new int[n];
+			System.arraycopy(pattern, 0, last, 0, n);
+			patterns.add(last);
+		}
+
+		return patterns;
+
+	}
+
+	/**
+	 * Returns the excess over the Manhattan distance of the pattern tiles
+	 * of the moves needed to bring them to their goal cells.
+	 *
+	 * @param where the cell of each tile, by tile.
+	 * @return the excess, from <tt>0</tt> to <tt>15</tt>.
+	 */
+	public int getExcess(int[] where) {
+
+		return entry(rank(where, -1, -1));
+
+	}
+
+	/**
+	 * Returns the excess over the Manhattan distance of the pattern tiles
+	 * of the moves needed to bring them to their goal cells, with one tile
+	 * moved to another cell.
+	 *
+	 * @param where the cell of each tile, by tile.
+	 * @param tile the tile moved.
+	 * @param cell the cell it was moved to.
+	 * @return the excess, from <tt>0</tt> to <tt>15</tt>.
+	 */
+	public int getExcess(int[] where, int tile, int cell) {
+
+		return entry(rank(where, tile, cell));
+
+	}
+
+	/**
+	 * Returns the file the database was saved to or opened from.
+	 *
+	 * @return the file, or <code>null</code> if it is held in memory only.
+	 */
+	public File getFile() {
+
+		return file;
+
+	}
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return the number of placements of the pattern tiles.
+	 */
+	public int getSize() {
+
+		return size;
+
+	}
+
+	/**
+	 * Returns the pattern tiles.
+	 *
+	 * @return the pattern tiles.
+	 */
+	public int[] getTiles() {
+
+		return tiles.clone();
+
+	}
+
+	/**
+	 * Tests whether the database is memory-mapped from a file.
+	 *
+	 * @return <code>true</code> if the entries are mapped from a file,
+	 * <code>false</code> if they are held in memory.
+	 */
+	public boolean isMapped() {
+
+		return (mapped != null);
+
+	}
+
+	/**
+	 * Tests whether the database was made for a board and goal: the same
+	 * shape, with each pattern tile in the same goal cell.
+	 *
+	 * @param side the number of cells along each side of the board.
+	 * @param dims the number of sides.
+	 * @param goal the goal board, giving the tile in each cell.
+	 * @return <code>true</code> if the database applies to the board and
+	 * goal, otherwise <code>false</code>.
+	 */
+	public boolean matches(int side, int dims, int[] goal) {
+
+		if (side != this.side || dims != this.dims || goal.length != cells) {
+			return false;
+		}
+
+		for (int i = 0; i < tiles.length; i++) {
+			if (goal[goalCells[i]] != tiles[i]) {
+				return false;
+			}
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Saves the database to a file, replacing the file if it exists.
+	 *
+	 * @param file the file.
+	 * @throws ParsingException If the file cannot be written.
+	 * @throws IllegalStateException If the entries are not held in memory.
+	 */
+	public void save(File file) throws ParsingException, IllegalStateException {
+
+		if (table == null) {
+			throw new IllegalStateException("PatternDatabase.save error: Only a database built in memory can be saved.");
+		}
+
+		// Write to a scratch file first, so that an interrupted save never
+		// leaves a short file behind to be mapped later.
+		File temp = new File(file.getPath() + ".tmp");
+		RandomAccessFile raf = null;
+		try {
+
+			raf = new RandomAccessFile(temp, "rw");
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			channel.write(header(), 0);
+			channel.write(ByteBuffer.wrap(table), headerSize());
+			raf.close();
+			raf = null;
+
+			if (file.exists() && !file.delete()) {
+				throw new IOException("cannot replace " + file);
+			}
+			if (!temp.renameTo(file)) {
+				throw new IOException("cannot rename " + temp);
+			}
+
+		} catch (IOException e) {
+			throw new ParsingException("PatternDatabase.save error: Unable to write " + file + ": " + e.getMessage());
+		} finally {
+			close(raf);
+		}
+
+		this.file = file;
+
+	}
+
+	/**
+	 * Helper function. Closes a file, reporting any error.
+	 */
+	private static void close(RandomAccessFile raf) {
+
+		try {
+			if (raf != null) {
+				raf.close();
+			}
+		} catch (IOException e) {
+			System.err.println("ERROR: " + e.getMessage());
+		}
+
+	}
+
+	/**
+	 * Helper function. Returns an entry.
+	 */
+	private int entry(int r) {
+
+		int b = (mapped != null ? mapped.get(offset + (r >>> 1)) : table[r >>> 1]);
+		return (b >>> ((r & 1) << 2)) & 0xF;
+
+	}
+
+	/**
+	 * Helper function. Returns the file header.
+	 */
+	private ByteBuffer header() {
+
+		ByteBuffer header = ByteBuffer.allocate(headerSize());
+		header.putInt(MAGIC).putInt(VERSION).putInt(side).putInt(dims).putInt(goalCells.length);
+		for (int i = 0; i < goalCells.length; i++) {
+			header.putInt(goalCells[i]);
+		}
+		header.flip();
+
+		return header;
+
+	}
+
+	/**
+	 * Helper function. Returns the size of the file header.
+	 */
+	private int headerSize() {
+
+		return 4 * (5 + goalCells.length);
+
+	}
+
+	/**
+	 * Helper function. Waits for a task and returns its result.
+	 */
+	private static <T> T join(Future<T> future) throws IllegalStateException {
+
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("PatternDatabase.build error: Interrupted while building.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException("PatternDatabase.build error: " + e.getCause());
+		}
+
+	}
+
+	/**
+	 * Helper function. Memory-maps the entries of a saved database after
+	 * checking its header.
+	 */
+	private void map(File file) throws ParsingException {
+
+		RandomAccessFile raf = null;
+		try {
+
+			raf = new RandomAccessFile(file, "r");
+			FileChannel channel = raf.getChannel();
+
+			ByteBuffer expected = header();
+			ByteBuffer found = ByteBuffer.allocate(expected.remaining());
+			channel.read(found, 0);
+			found.flip();
+			if (!found.equals(expected)) {
+				throw new ParsingException("PatternDatabase.open error: " + file + " is not a pattern database for this board and pattern.");
+			}
+
+			long length = headerSize() + ((size + 1L) >>> 1);
+			if (channel.size() < length) {
+				throw new ParsingException("PatternDatabase.open error: " + file + " is truncated.");
+			}
+
+			// The mapping stays valid once the file is closed.
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			offset = headerSize();
+			this.file = file;
+
+		} catch (IOException e) {
+			throw new ParsingException("PatternDatabase.open error: Unable to open " + file + ": " + e.getMessage());
+		} finally {
+			close(raf);
+		}
+
+	}
+
+	/**
+	 * Helper function. Returns the Manhattan distance of a placement from
+	 * the goal placement.
+	 */
+	private int manhattan(int[] cellOf) {
+
+		int sum = 0;
+		for (int i = 0; i < cellOf.length; i++) {
+			sum += NToTheKPuzzle.distance(side, dims, cellOf[i], goalCells[i]);
+		}
+
+		return sum;
+
+	}
+
+	/**
+	 * Helper function. Returns the rank of the placement of the pattern
+	 * tiles, where one tile may be taken as moved to another cell: each
+	 * tile's cell, counted among the cells not taken by the tiles before
+	 * it, is one digit of a mixed-radix number.
+	 */
+	private int rank(int[] where, int tile, int cell) {
+
+		long used = 0L;
+		int r = 0;
+		for (int i = 0; i < tiles.length; i++) {
+			int c = (tiles[i] == tile ? cell : where[tiles[i]]);
+			r = (r * (cells - i)) + c - Long.bitCount(used & ((1L << c) - 1));
+			used |= (1L << c);
+		}
+
+		return r;
+
+	}
+
+	/**
+	 * Helper function. Returns the rank of a placement given as the cell
+	 * of each pattern tile, in pattern order.
+	 */
+	private int rankCells(int[] cellOf) {
+
+		long used = 0L;
+		int r = 0;
+		for (int i = 0; i < cellOf.length; i++) {
+			int c = cellOf[i];
+			r = (r * (cells - i)) + c - Long.bitCount(used & ((1L << c) - 1));
+			used |= (1L << c);
+		}
+
+		return r;
+
+	}
+
+	/**
+	 * Helper function. Searches back from the goal placement for the
+	 * number of moves to every placement, and keeps the excess of each
+	 * over its Manhattan distance.
+	 */
+	private void search() throws IllegalStateException {
+
+		// The moves to each placement, one byte each while building.
+		byte[] moves = new byte[size];
+		Arrays.fill(moves, UNSEEN);
+
+		IntList level = new IntList();
+		int goal = rankCells(goalCells);
+		moves[goal] = 0;
+		level.add(goal);
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = (threads > 1 ? Executors.newFixedThreadPool(threads) : null);
+		try {
+
+			int depth = 0;
+			while (level.count > 0) {
+
+				// Have we timed out?
+				if (Global.isTimeUp()) {
+					throw new IllegalStateException("PatternDatabase.build error: System timed out building the pattern database.");
+				}
+
+				if (depth + 1 > Byte.MAX_VALUE) {
+					throw new IllegalStateException("PatternDatabase.build error: The pattern needs more than " + Byte.MAX_VALUE + " moves.");
+				}
+
+				IntList next;
+				if (pool == null || level.count < PARALLEL_THRESHOLD) {
+					next = new LevelTask(moves, level, 0, level.count, depth).call();
+				} else {
+
+					// Split the level between the threads. Two threads may
+					// both reach a placement first; they write the same
+					// value, and it is simply searched from twice.
+					List<Future<IntList>> parts = new ArrayList<Future<IntList>>();
+					int slice = (level.count + threads - 1) / threads;
+					for (int from = 0; from < level.count; from += slice) {
+						parts.add(pool.submit(new LevelTask(moves, level, from, Math.min(from + slice, level.count), depth)));
+					}
+
+					next = new IntList();
+					for (int i = 0; i < parts.size(); i++) {
+						next.addAll(join(parts.get(i)));
+					}
+
+				}
+
+				level = next;
+				depth++;
+
+			}
+
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+
+		// Keep the excess over the Manhattan distance, two to a byte. A
+		// pattern of every tile reaches only the placements of the goal's
+		// parity; the others can never be looked up, and are left at 0.
+		table = new byte[(size + 1) >>> 1];
+		int[] cellOf = new int[tiles.length];
+		for (int r = 0; r < size; r++) {
+			if (moves[r] == UNSEEN) {
+				continue;
+			}
+			unrank(r, cellOf);
+			int excess = Math.min(MAX_EXCESS, moves[r] - manhattan(cellOf));
+			table[r >>> 1] |= (byte)(excess << ((r & 1) << 2));
+		}
+
+	}
+
+	/**
+	 * Helper function. Finds the cell of each pattern tile of the
+	 * placement of a given rank.
+	 */
+	private void unrank(int r, int[] cellOf) {
+
+		// Peel off the digits, last tile first.
+		for (int i = tiles.length - 1; i >= 0; i--) {
+			cellOf[i] = r % (cells - i);
+			r /= (cells - i);
+		}
+
+		// Turn each digit into the cell it counts to among those free.
+		long used = 0L;
+		for (int i = 0; i < tiles.length; i++) {
+			long free = ~used;
+			for (int d = cellOf[i]; d > 0; d--) {
+				free &= free - 1;
+			}
+			cellOf[i] = Long.numberOfTrailingZeros(free);
+			used |= (1L << cellOf[i]);
+		}
+
+	}
+
+	/**
+	 * This inner class is a growable list of placements.
+	 */
+	private static class IntList {
+
+		// The placements.
+		private int[] items = new int[16];
+		private int count = 0;
+
+		/**
+		 * Adds a placement.
+		 *
+		 * @param r the placement.
+		 */
+		public void add(int r) {
+
+			if (count == items.length) {
+				int[] a = new int[count * 2];
+				System.arraycopy(items, 0, a, 0, count);
+				items = a;
+			}
+
+			items[count++] = r;
+
+		}
+
+		/**
+		 * Adds every placement of another list.
+		 *
+		 * @param other the other list.
+		 */
+		public void addAll(IntList other) {
+
+			if (count + other.count > items.length) {
+				int[] a = new int[Math.max(items.length * 2, count + other.count)];
+				System.arraycopy(items, 0, a, 0, count);
+				items = a;
+			}
+
+			System.arraycopy(other.items, 0, items, count, other.count);
+			count += other.count;
+
+		}
+
+	}
+
+	/**
+	 * This inner class searches one slice of a level: each placement is
+	 * expanded by moving each pattern tile to each free cell next to it,
+	 * and the placements reached for the first time are returned as part
+	 * of the next level.
+	 */
+	private class LevelTask implements Callable<IntList> {
+
+		// The moves to each placement.
+		private byte[] moves;
+
+		// The level and the slice of it to search.
+		private IntList level;
+		private int from;
+		private int to;
+
+		// The depth of the level.
+		private int depth;
+
+		/**
+		 * Standard constructor.
+		 *
+		 * @param moves the moves to each placement.
+		 * @param level the level.
+		 * @param from the first placement of the slice.
+		 * @param to one past the last placement of the slice.
+		 * @param depth the depth of the level.
+		 */
+		public LevelTask(byte[] moves, IntList level, int from, int to, int depth) {
+
+			this.moves = moves;
+			this.level = level;
+			this.from = from;
+			this.to = to;
+			this.depth = depth;
+
+		}
+
+		/**
+		 * Searches the slice.
+		 *
+		 * @return the placements reached for the first time.
+		 */
+		public IntList call() {
+
+			IntList next = new IntList();
+			int[] cellOf = new int[tiles.length];
+			byte d = (byte)(depth + 1);
+
+			for (int j = from; j < to; j++) {
+
+				unrank(level.items[j], cellOf);
+				long used = 0L;
+				for (int i = 0; i < cellOf.length; i++) {
+					used |= (1L << cellOf[i]);
+				}
+
+				for (int i = 0; i < cellOf.length; i++) {
+					int cell = cellOf[i];
+					int[] around = neighbours[cell];
+					for (int n = 0; n < around.length; n++) {
+						if ((used & (1L << around[n])) != 0) {
+							continue;
+						}
+						cellOf[i] = around[n];
+						int r = rankCells(cellOf);
+						if (moves[r] == UNSEEN) {
+							moves[r] = d;
+							next.add(r);
+						}
+					}
+					cellOf[i] = cell;
+				}
+
+			}
+
+			return next;
+
+		}
+
+	}
+
+}
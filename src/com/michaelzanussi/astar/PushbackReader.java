@@ -63,6 +63,23 @@ public class PushbackReader extends AbstractFileReader {
 		
 	}
 	
+	/**
+	 * Reads characters into a portion of an array, any pushed back
+	 * first.
+	 * 
+	 * @param cbuf the destination buffer.
+	 * @param off the offset at which to start storing characters.
+	 * @param len the maximum number of characters to read.
+	 * @return the number of characters read, or -1 if the end of file
+	 * has been reached.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public int read(char cbuf[], int off, int len) throws IOException {
+		
+		return pbuffer.read(cbuf, off, len);
+		
+	}
+	
 	/**
 	 * Push back a single character.
 	 * 
@@ -0,0 +1,336 @@
+package com.michaelzanussi.astar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a compiled puzzle file written by <code>PuzzleFileWriter</code>.
+ * The whole file is memory-mapped when opened, and each array is copied
+ * out of the mapping in a single bulk transfer, so even the largest
+ * puzzle loads at the speed of the disk (or the page cache) without
+ * anything being parsed. A file may be no larger than a single mapping,
+ * <tt>2^31 - 1</tt> bytes; larger grids belong in a
+ * <code>TiledCostFile</code>, which a compiled file names rather than
+ * holds.
+ *
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004)
+ */
+public class PuzzleFileReader implements BasicIO {
+
+	// The file, its channel and its mapping.
+	private File file;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+
+	/**
+	 * No-arg constructor.
+	 */
+	public PuzzleFileReader() {
+
+		file = null;
+		channel = null;
+		buffer = null;
+
+	}
+
+	/**
+	 * Tests whether a file is a compiled puzzle file, by its magic number.
+	 *
+	 * @param file the file.
+	 * @return <code>true</code> if the file begins with the magic number of
+	 * a compiled puzzle file, otherwise <code>false</code>.
+	 */
+	public static boolean isCompiled(File file) {
+
+		RandomAccessFile raf = null;
+		try {
+
+			raf = new RandomAccessFile(file, "r");
+			ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			raf.getChannel().read(header, 0);
+
+			return (!header.hasRemaining() && header.getInt(0) == PuzzleFileWriter.MAGIC);
+
+		} catch (IOException e) {
+			return false;
+		} finally {
+			try {
+				if (raf != null) {
+					raf.close();
+				}
+			} catch (IOException e) {
+				System.err.println("ERROR: " + e.getMessage());
+			}
+		}
+
+	}
+
+	/**
+	 * Closes the file. The mapping is released once no longer referenced.
+	 */
+	public void close() {
+
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (IOException e) {
+			System.err.println("ERROR: " + e.getMessage());
+		}
+
+		channel = null;
+		buffer = null;
+
+	}
+
+	/**
+	 * Opens the specified file, maps it and checks its header.
+	 *
+	 * @param file the file to open.
+	 * @return <code>true</code> if successful.
+	 */
+	public boolean open(File file) {
+
+		try {
+
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			this.file = file;
+			channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				System.err.println("ERROR: " + file + " is too large to map.");
+				close();
+				return false;
+			}
+
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			// Check the magic number and version.
+			if (buffer.remaining() < 8 || buffer.getInt() != PuzzleFileWriter.MAGIC) {
+				System.err.println("ERROR: " + file + " is not a compiled puzzle file.");
+				close();
+				return false;
+			}
+
+			int version = buffer.getInt();
+			if (version != PuzzleFileWriter.VERSION) {
+				System.err.println("ERROR: " + file + " is a version " + version + " compiled puzzle file; version " + PuzzleFileWriter.VERSION + " expected. Compile it again.");
+				close();
+				return false;
+			}
+
+			return true;
+
+		} catch (IOException e) {
+			System.err.println("ERROR: " + e.getMessage());
+		}
+
+		close();
+
+		return false;
+
+	}
+
+	/**
+	 * Reads an array of bytes.
+	 *
+	 * @return the array, or <code>null</code>.
+	 * @throws ParsingException If the file is truncated.
+	 */
+	public byte[] readBytes() throws ParsingException {
+
+		int n = length(1);
+		if (n < 0) {
+			return null;
+		}
+
+		byte[] a = new byte[n];
+		buffer.get(a);
+
+		return a;
+
+	}
+
+	/**
+	 * Reads an array of characters.
+	 *
+	 * @return the array, or <code>null</code>.
+	 * @throws ParsingException If the file is truncated.
+	 */
+	public char[] readChars() throws ParsingException {
+
+		int n = length(2);
+		if (n < 0) {
+			return null;
+		}
+
+		char[] a = new char[n];
+		buffer.asCharBuffer().get(a);
+		buffer.position(buffer.position() + (n * 2));
+
+		return a;
+
+	}
+
+	/**
+	 * Reads a double.
+	 *
+	 * @return the double.
+	 * @throws ParsingException If the file is truncated.
+	 */
+	public double readDouble() throws ParsingException {
+
+		try {
+			return buffer.getDouble();
+		} catch (BufferUnderflowException e) {
+			throw truncated();
+		}
+
+	}
+
+	/**
+	 * Reads an array of doubles.
+	 *
+	 * @return the array, or <code>null</code>.
+	 * @throws ParsingException If the file is truncated.
+	 */
+	public double[] readDoubles() throws ParsingException {
+
+		int n = length(8);
+		if (n < 0) {
+			return null;
+		}
+
+		double[] a = new double[n];
+		buffer.asDoubleBuffer().get(a);
+		buffer.position(buffer.position() + (n * 8));
+
+		return a;
+
+	}
+
+	/**
+	 * Reads an integer.
+	 *
+	 * @return the integer.
+	 * @throws ParsingException If the file is truncated.
+	 */
+	public int readInt() throws ParsingException {
+
+		try {
+			return buffer.getInt();
+		} catch (BufferUnderflowException e) {
+			throw truncated();
+		}
+
+	}
+
+	/**
+	 * Reads an array of integers.
+	 *
+	 * @return the array, or <code>null</code>.
+	 * @throws ParsingException If the file is truncated.
+	 */
+	public int[] readInts() throws ParsingException {
+
+		int n = length(4);
+		if (n < 0) {
+			return null;
+		}
+
+		int[] a = new int[n];
+		buffer.asIntBuffer().get(a);
+		buffer.position(buffer.position() + (n * 4));
+
+		return a;
+
+	}
+
+	/**
+	 * Reads an array of longs.
+	 *
+	 * @return the array, or <code>null</code>.
+	 * @throws ParsingException If the file is truncated.
+	 */
+	public long[] readLongs() throws ParsingException {
+
+		int n = length(8);
+		if (n < 0) {
+			return null;
+		}
+
+		long[] a = new long[n];
+		buffer.asLongBuffer().get(a);
+		buffer.position(buffer.position() + (n * 8));
+
+		return a;
+
+	}
+
+	/**
+	 * Reads an array of shorts.
+	 *
+	 * @return the array, or <code>null</code>.
+	 * @throws ParsingException If the file is truncated.
+	 */
+	public short[] readShorts() throws ParsingException {
+
+		int n = length(2);
+		if (n < 0) {
+			return null;
+		}
+
+		short[] a = new short[n];
+		buffer.asShortBuffer().get(a);
+		buffer.position(buffer.position() + (n * 2));
+
+		return a;
+
+	}
+
+	/**
+	 * Reads a string.
+	 *
+	 * @return the string, or <code>null</code>.
+	 * @throws ParsingException If the file is truncated.
+	 */
+	public String readString() throws ParsingException {
+
+		char[] a = readChars();
+
+		return (a == null ? null : new String(a));
+
+	}
+
+	/**
+	 * Helper function. Reads the length of an array, checking that the
+	 * file holds that many elements of the given size.
+	 */
+	private int length(int size) throws ParsingException {
+
+		int n = readInt();
+		if (n < -1 || (long)n * size > buffer.remaining()) {
+			throw truncated();
+		}
+
+		return n;
+
+	}
+
+	/**
+	 * Helper function. Returns the error for a file that ends too soon.
+	 */
+	private ParsingException truncated() {
+
+		return new ParsingException("PuzzleFileReader error: " + file + " is truncated or corrupt.");
+
+	}
+
+}
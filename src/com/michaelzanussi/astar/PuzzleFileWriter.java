@@ -0,0 +1,308 @@
+package com.michaelzanussi.astar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes a compiled puzzle file, to be loaded again by
+ * <code>PuzzleFileReader</code>. A compiled puzzle file holds the
+ * statements of a <tt>PuzzleMuncher</tt> input file as already parsed,
+ * with each puzzle kept in primitive sections (the city table, the roads
+ * of a map, the cells of a grid and so on) rather than as text, so that
+ * loading it again parses nothing. <p>
+ *
+ * The file begins with a magic number (<tt>"ASTP"</tt>) and a version.
+ * Everything is written in little-endian order. An array is written as
+ * its length followed by its elements, or a length of <tt>-1</tt> for
+ * <code>null</code>; a string is written as an array of characters.
+ * Values are gathered in a buffer and written to the file in blocks.
+ *
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004)
+ */
+public class PuzzleFileWriter implements BasicIO {
+
+	/**
+	 * The magic number that begins a compiled puzzle file (<tt>"ASTP"</tt>).
+	 */
+	public static final int MAGIC = 0x41535450;
+
+	/**
+	 * The version of the compiled puzzle file format.
+	 */
+	public static final int VERSION = 2;
+
+	// The length written for a null array or string.
+	private static final int NULL = -1;
+
+	// Size of the write buffer.
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// The file and its channel.
+	private File file;
+	private FileChannel channel;
+
+	// The values not yet written to the file.
+	private ByteBuffer buffer;
+
+	/**
+	 * No-arg constructor.
+	 */
+	public PuzzleFileWriter() {
+
+		file = null;
+		channel = null;
+		buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	}
+
+	/**
+	 * Flushes the buffer and closes the file.
+	 */
+	public void close() {
+
+		try {
+			if (channel != null) {
+				flush();
+				channel.close();
+			}
+		} catch (ParsingException e) {
+			System.err.println("ERROR: " + e.getMessage());
+		} catch (IOException e) {
+			System.err.println("ERROR: " + e.getMessage());
+		}
+
+		channel = null;
+
+	}
+
+	/**
+	 * Writes the values still in the buffer to the file.
+	 *
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void flush() throws ParsingException {
+
+		try {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		} catch (IOException e) {
+			throw new ParsingException("PuzzleFileWriter.flush error: Unable to write " + file + ": " + e.getMessage());
+		}
+
+	}
+
+	/**
+	 * Opens the specified file for writing, replacing any file already
+	 * there, and writes the header.
+	 *
+	 * @param file the file to open.
+	 * @return <code>true</code> if successful.
+	 */
+	public boolean open(File file) {
+
+		try {
+
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			raf.setLength(0);
+			this.file = file;
+			channel = raf.getChannel();
+			buffer.clear();
+			buffer.putInt(MAGIC).putInt(VERSION);
+
+			return true;
+
+		} catch (IOException e) {
+			System.err.println("ERROR: " + e.getMessage());
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Writes an array of bytes.
+	 *
+	 * @param a the array, or <code>null</code>.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void writeBytes(byte[] a) throws ParsingException {
+
+		if (length(a == null ? NULL : a.length)) {
+			for (int i = 0; i < a.length; ) {
+				int n = room(a.length - i, 1);
+				buffer.put(a, i, n);
+				i += n;
+			}
+		}
+
+	}
+
+	/**
+	 * Writes an array of characters.
+	 *
+	 * @param a the array, or <code>null</code>.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void writeChars(char[] a) throws ParsingException {
+
+		if (length(a == null ? NULL : a.length)) {
+			for (int i = 0; i < a.length; ) {
+				int n = room(a.length - i, 2);
+				buffer.asCharBuffer().put(a, i, n);
+				buffer.position(buffer.position() + (n * 2));
+				i += n;
+			}
+		}
+
+	}
+
+	/**
+	 * Writes a double.
+	 *
+	 * @param value the double.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void writeDouble(double value) throws ParsingException {
+
+		room(1, 8);
+		buffer.putDouble(value);
+
+	}
+
+	/**
+	 * Writes an array of doubles.
+	 *
+	 * @param a the array, or <code>null</code>.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void writeDoubles(double[] a) throws ParsingException {
+
+		if (length(a == null ? NULL : a.length)) {
+			for (int i = 0; i < a.length; ) {
+				int n = room(a.length - i, 8);
+				buffer.asDoubleBuffer().put(a, i, n);
+				buffer.position(buffer.position() + (n * 8));
+				i += n;
+			}
+		}
+
+	}
+
+	/**
+	 * Writes an integer.
+	 *
+	 * @param value the integer.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void writeInt(int value) throws ParsingException {
+
+		room(1, 4);
+		buffer.putInt(value);
+
+	}
+
+	/**
+	 * Writes an array of integers.
+	 *
+	 * @param a the array, or <code>null</code>.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void writeInts(int[] a) throws ParsingException {
+
+		if (length(a == null ? NULL : a.length)) {
+			for (int i = 0; i < a.length; ) {
+				int n = room(a.length - i, 4);
+				buffer.asIntBuffer().put(a, i, n);
+				buffer.position(buffer.position() + (n * 4));
+				i += n;
+			}
+		}
+
+	}
+
+	/**
+	 * Writes an array of longs.
+	 *
+	 * @param a the array, or <code>null</code>.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void writeLongs(long[] a) throws ParsingException {
+
+		if (length(a == null ? NULL : a.length)) {
+			for (int i = 0; i < a.length; ) {
+				int n = room(a.length - i, 8);
+				buffer.asLongBuffer().put(a, i, n);
+				buffer.position(buffer.position() + (n * 8));
+				i += n;
+			}
+		}
+
+	}
+
+	/**
+	 * Writes an array of shorts.
+	 *
+	 * @param a the array, or <code>null</code>.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void writeShorts(short[] a) throws ParsingException {
+
+		if (length(a == null ? NULL : a.length)) {
+			for (int i = 0; i < a.length; ) {
+				int n = room(a.length - i, 2);
+				buffer.asShortBuffer().put(a, i, n);
+				buffer.position(buffer.position() + (n * 2));
+				i += n;
+			}
+		}
+
+	}
+
+	/**
+	 * Writes a string.
+	 *
+	 * @param s the string, or <code>null</code>.
+	 * @throws ParsingException If the file cannot be written.
+	 */
+	public void writeString(String s) throws ParsingException {
+
+		writeChars(s == null ? null : s.toCharArray());
+
+	}
+
+	/**
+	 * Helper function. Writes the length of an array, returning
+	 * <code>true</code> if it has elements to follow.
+	 */
+	private boolean length(int length) throws ParsingException {
+
+		writeInt(length);
+
+		return (length > 0);
+
+	}
+
+	/**
+	 * Helper function. Makes room in the buffer for at least one of the
+	 * values to be written, flushing it if need be, and returns how many
+	 * of them fit.
+	 */
+	private int room(int count, int size) throws ParsingException {
+
+		if (buffer.remaining() < size) {
+			flush();
+		}
+
+		return Math.min(count, buffer.remaining() / size);
+
+	}
+
+}
@@ -21,7 +21,26 @@ import java.io.Reader;
  * delimited by whitespace or other non-valid punctuation. Valid punctuation 
  * cannot be considered a termination character since tokens may contain 
  * punctuation (<tt>DIR-OR-FILENAME</tt>) and punctuation can occur in 
- * pairs (e.g. "<tt>-></tt>" in <tt>DISTPAIR</tt>).
+ * pairs (e.g. "<tt>-></tt>" in <tt>DISTPAIR</tt>).<p>
+ * 
+ * The input is read into a large window of characters at a time and
+ * scanned there, rather than one <code>read()</code> call per character.
+ * A token is no more than a slice of the window until it is returned:
+ * words, symbols and file names are interned, so a name or keyword seen
+ * before costs no new string or token, and integers are returned as
+ * <code>NumberToken</code>s, whose value is read from the slice and whose
+ * string is only built if asked for. Only a token that runs across the
+ * end of one window into the next is copied out as it is built.<p>
+ * 
+ * The parsers of the long lists of a puzzle (roads and obstacles) need
+ * no tokens at all for most of what they read: <code>scan()</code>,
+ * <code>scanInteger()</code> and <code>scanWord()</code> match a symbol
+ * or keyword, an integer or a word straight from the window, just as the
+ * lexer would have read it as a token. Each declines, consuming nothing
+ * but whitespace, where the next token is something else, so the parser
+ * can fall back on <code>nextToken()</code> and see exactly what it
+ * would have seen. Words scanned are city names, which recur throughout
+ * a map, so they are always interned, however many there are.
  * 
  * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
  * @version 1.0 (29 Mar 2004) 
@@ -38,10 +57,46 @@ public final class PuzzleLexer extends AbstractLexer {
 	
 	// Valid punctuation used within the input file.
 	private static final String punctuation = "=/\\.-_:(){}[]\",>";
+	
+	// Whether each 7-bit character is valid punctuation, so that a letter
+	// or digit need not be looked for in the punctuation list.
+	private static final boolean[] isPunctuation = new boolean[128];
+	
+	static {
+		for (int i = 0; i < punctuation.length(); i++) {
+			isPunctuation[punctuation.charAt(i)] = true;
+		}
+	}
 
+	// The number of characters read at a time.
+	private static final int WINDOW_SIZE = 64 * 1024;
+	
+	// The most digits of an integer scanned by scanInteger().
+	private static final int MAX_DIGITS = 12;
+	
+	// The most tokens interned, beyond which new ones are not kept. The
+	// keywords and symbols, and the names of all but the largest puzzles,
+	// fit well within it, and the table stays small enough to search fast.
+	private static final int INTERN_LIMIT = 1 << 12;
+	
 	// The current token classification.
 	private int type = PuzzleToken.TT_UNK;
 	
+	// The window of input, the next character to scan in it, the end of
+	// the characters read into it, and the start of the token being built
+	// in it (or -1). The part of a token read before the window was last
+	// refilled is kept in the token buffer.
+	private char[] window;
+	private int pos;
+	private int limit;
+	private int start;
+	
+	// The interned tokens, by a hash of their characters and type, and
+	// the hash of each.
+	private PuzzleToken[] interned;
+	private int[] hashes;
+	private int internCount;
+	
 	/**
 	 * Standard constructor.
 	 * 
@@ -61,6 +116,14 @@ public final class PuzzleLexer extends AbstractLexer {
 		super.in = in;
 		state = STATE_NONE;
 		
+		window = new char[WINDOW_SIZE];
+		pos = 0;
+		limit = 0;
+		start = -1;
+		interned = new PuzzleToken[1024];
+		hashes = new int[1024];
+		internCount = 0;
+		
 	}
 
 	/**
@@ -95,21 +158,15 @@ public final class PuzzleLexer extends AbstractLexer {
 		// so it's okay to block here.
 		while (true) {
 			
-			// Read in the next character and test for EOF. If not EOF,
-			// convert the integer to a character. If EOF, set availability 
-			// and then return the token (as it currently exists).
+			// Take the next character from the window, refilling it first
+			// if it has all been scanned. If EOF, set availability and then
+			// return the token (as it currently exists).
 			
-			char ch = 0;
-			try {
-				int i = in.read();
-				if (i < 0) {
-					avail = false;
-					return new PuzzleToken(token.toString(), type);
-				}
-				ch = (char)i;
-			} catch (IOException e) {
-				Global.error("Error reading from data stream: " + e.getMessage());
+			if (pos == limit && !fill()) {
+				avail = false;
+				return slice(pos, type);
 			}
+			char ch = window[pos++];
 			
 			// Input character is a period or an underscore. These symbols are 
 			// valid when they appear within a filename (DIR-OR-FILENAME). They 
@@ -240,7 +297,7 @@ public final class PuzzleLexer extends AbstractLexer {
 			// punctuation list (see _punctuation). This list comprises 
 			// the possible symbol list.
 			
-			else if (punctuation.indexOf(ch) >= 0) {
+			else if (ch < 128 && isPunctuation[ch]) {
 				// Switch on the current state...
 				switch (state) {
 					case STATE_NONE:
@@ -354,6 +411,158 @@ public final class PuzzleLexer extends AbstractLexer {
 		
 	}
 	
+	/**
+	 * Scans a symbol, a symbol pair or a keyword directly from the input,
+	 * skipping any whitespace before it. It is only matched if the
+	 * lexer would have read it as a whole token, so a <code>false</code>
+	 * return means the next token is something else.
+	 * 
+	 * @param s the symbol, symbol pair or keyword.
+	 * @return <code>true</code> if it was the next token and has been
+	 * consumed, otherwise <code>false</code>.
+	 */
+	public boolean scan(String s) {
+		
+		// A token pushed back is the next token.
+		if (!pushBackBuffer.isEmpty()) {
+			if (pushBackBuffer.peek().getToken().equals(s)) {
+				pushBackBuffer.pop();
+				return true;
+			}
+			return false;
+		}
+		
+		rewind();
+		skipBlanks();
+		
+		int n = s.length();
+		ensure(n + 1);
+		if (limit - pos < n) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			if (window[pos + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		
+		// A keyword must end here rather than run on into a longer word
+		// or a file name.
+		if (Character.isLetter(s.charAt(n - 1)) && pos + n < limit) {
+			char ch = window[pos + n];
+			if (Character.isLetter(ch) || ch == '.' || ch == '_' || ch == '/' || ch == '-') {
+				return false;
+			}
+		}
+		
+		pos += n;
+		
+		return true;
+		
+	}
+	
+	/**
+	 * Scans a non-negative integer directly from the input, skipping any
+	 * whitespace before it. Only an integer the lexer would have read as
+	 * a whole number token, and that fits in an <code>int</code>, is
+	 * scanned; anything else is left to be read as a token.
+	 * 
+	 * @return the integer, or <tt>-1</tt> if none was scanned.
+	 */
+	public int scanInteger() {
+		
+		// A token pushed back must be read as a token.
+		if (!pushBackBuffer.isEmpty()) {
+			return -1;
+		}
+		
+		rewind();
+		int ch = skipBlanks();
+		if (ch < '0' || ch > '9') {
+			return -1;
+		}
+		
+		// An int has at most ten digits (a few more with leading zeros);
+		// make sure they and the character after them are in the window.
+		ensure(MAX_DIGITS + 1);
+		long value = 0;
+		int i = pos;
+		while (i < limit && i - pos < MAX_DIGITS && window[i] >= '0' && window[i] <= '9') {
+			value = (value * 10) + (window[i++] - '0');
+		}
+		
+		// Too large, or running on into a longer token: a file name, or a
+		// number ending in a character the lexer drops.
+		if (value > Integer.MAX_VALUE) {
+			return -1;
+		}
+		if (i < limit && (Character.isDigit(window[i]) || window[i] == '.' || window[i] == '_' || window[i] == '/')) {
+			return -1;
+		}
+		
+		pos = i;
+		
+		return (int)value;
+		
+	}
+	
+	/**
+	 * Scans a word (a run of letters) directly from the input, skipping
+	 * any whitespace before it. The same string is returned for every
+	 * occurrence of the word.
+	 * 
+	 * @return the word, or <code>null</code> if the next token is not a
+	 * word.
+	 */
+	public String scanWord() {
+		
+		// A token pushed back must be read as a token.
+		if (!pushBackBuffer.isEmpty()) {
+			return null;
+		}
+		
+		rewind();
+		int ch = skipBlanks();
+		if (ch < 0 || !Character.isLetter((char)ch)) {
+			return null;
+		}
+		
+		// Find the end of the word, and the character after it, moving
+		// the word to the front of the window if it runs off the end.
+		// The word is hashed on the way for interning.
+		int hash = PuzzleToken.TT_ALPHA;
+		int i = pos;
+		while (true) {
+			while (i < limit && Character.isLetter(window[i])) {
+				hash = (hash * 31) + window[i++];
+			}
+			if (i < limit || limit - pos == window.length) {
+				break;
+			}
+			int length = i - pos;
+			ensure(length + 1);
+			i = pos + length;
+			if (i == limit) {
+				break;
+			}
+		}
+		
+		// The word must not run on into a file name, and must fit in the
+		// window whole.
+		if (i == pos + window.length) {
+			return null;
+		}
+		if (i < limit && (window[i] == '.' || window[i] == '_' || window[i] == '/' || window[i] == '-')) {
+			return null;
+		}
+		
+		String word = intern(pos, i - pos, PuzzleToken.TT_ALPHA, hash, true).getToken();
+		pos = i;
+		
+		return word;
+		
+	}
+	
 	/**
 	 * Helper function. Appends the current character to the token, then
 	 * continues parsing at the next state.
@@ -371,8 +580,11 @@ public final class PuzzleLexer extends AbstractLexer {
 			throw new IllegalArgumentException("PuzzleLexer._actionAppend error: Invalid state specified for the Append action: " + state);
 		}
 		
-		// Append current character to token.
-		token.append(ch);
+		// Append current character to token: the token is the slice of the
+		// window up to it.
+		if (start < 0) {
+			start = pos - 1;
+		}
 		// Set the next state.
 		super.state = state;
 		// Set the current token type being processed.
@@ -397,10 +609,17 @@ public final class PuzzleLexer extends AbstractLexer {
 			throw new IllegalArgumentException("PuzzleLexer._actionAppendReturn error: Invalid state specified for the AppendReturn action: " + state);
 		}
 		
-		// Append current character to token.
-		token.append(ch);
+		// Save the token, current character included.
+		if (start < 0) {
+			start = pos - 1;
+		}
+		Token ntoken = slice(pos, type);
+		// Empty the contents of the current token.
+		clear();
+		// Set the next state.
+		super.state = state;
 		
-		return actionIgnoreReturn(state, type);
+		return ntoken;
 		
 	}
 	
@@ -421,9 +640,9 @@ public final class PuzzleLexer extends AbstractLexer {
 		}
 		
 		// Save the token.
-		Token ntoken = new PuzzleToken(token.toString(), type);
+		Token ntoken = slice(pos - 1, type);
 		// Empty the contents of the current token.
-		token.delete(0, token.length());
+		clear();
 		// Set the next state.
 		super.state = state;
 		
@@ -449,11 +668,11 @@ public final class PuzzleLexer extends AbstractLexer {
 		}
 		
 		// Save the token.
-		Token ntoken = new PuzzleToken(token.toString(), type);
+		Token ntoken = slice(pos - 1, type);
 		// Empty the contents of the current token.
-		token.delete(0, token.length());
+		clear();
 		// Append the current character to token.
-		token.append(ch);
+		start = pos - 1;
 		// Set the next state.
 		super.state = state;
 		
@@ -461,4 +680,244 @@ public final class PuzzleLexer extends AbstractLexer {
 		
 	}
 	
+	/**
+	 * Helper function. Empties the current token.
+	 */
+	private void clear() {
+		
+		start = -1;
+		if (token.length() > 0) {
+			token.setLength(0);
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Makes at least <code>n</code> characters available
+	 * in the window from the next one to scan, unless the input ends
+	 * first, moving those not yet scanned to the front of the window.
+	 * Only used between tokens.
+	 */
+	private void ensure(int n) {
+		
+		if (limit - pos >= n) {
+			return;
+		}
+		
+		System.arraycopy(window, pos, window, 0, limit - pos);
+		limit -= pos;
+		pos = 0;
+		
+		try {
+			while (limit < n) {
+				int count = in.read(window, limit, window.length - limit);
+				if (count < 0) {
+					break;
+				}
+				limit += count;
+			}
+		} catch (IOException e) {
+			Global.error("Error reading from data stream: " + e.getMessage());
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Reads the next window of input, first copying out
+	 * the part of the current token in the old one. Returns
+	 * <code>false</code> at EOF.
+	 */
+	private boolean fill() {
+		
+		if (start >= 0) {
+			token.append(window, start, limit - start);
+			start = 0;
+		}
+		pos = 0;
+		limit = 0;
+		
+		try {
+			int n = 0;
+			while (n == 0) {
+				n = in.read(window, 0, window.length);
+			}
+			if (n > 0) {
+				limit = n;
+				return true;
+			}
+		} catch (IOException e) {
+			Global.error("Error reading from data stream: " + e.getMessage());
+		}
+		
+		return false;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the current token, ending before the given
+	 * place in the window, as an interned token or a number token where it
+	 * can be.
+	 */
+	private Token slice(int end, int type) {
+		
+		int from = (start < 0 ? end : start);
+		int length = end - from;
+		
+		// A token carried over from the last window is rare; build it whole.
+		if (token.length() > 0) {
+			String s = token.toString() + new String(window, from, length);
+			return new PuzzleToken(s, type);
+		}
+		
+		// An integer without leading zeros, small enough for a long.
+		if (type == PuzzleToken.TT_DIGIT && length > 0 && length <= 18 && (length == 1 || window[from] != '0')) {
+			long value = 0;
+			int i = from;
+			while (i < end && window[i] >= '0' && window[i] <= '9') {
+				value = (value * 10) + (window[i++] - '0');
+			}
+			if (i == end) {
+				return NumberToken.valueOf(value);
+			}
+		}
+		
+		return intern(from, length, type, hash(from, length, type), false);
+		
+	}
+	
+	/**
+	 * Helper function. Returns the hash of a slice of the window and its
+	 * token type, by which it is interned.
+	 */
+	private int hash(int from, int length, int type) {
+		
+		int hash = type;
+		for (int i = from; i < from + length; i++) {
+			hash = (hash * 31) + window[i];
+		}
+		
+		return hash;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the interned token of a slice of the
+	 * window, given its hash, interning it first if it is new and there
+	 * is room, or in any case if it is to be kept.
+	 */
+	private PuzzleToken intern(int from, int length, int type, int hash, boolean keep) {
+		
+		// Look for it by linear probing.
+		int mask = interned.length - 1;
+		int slot = slot(hash, mask);
+		for (PuzzleToken t = interned[slot]; t != null; t = interned[slot]) {
+			if (hashes[slot] == hash && t.getTokenType() == type && matches(t.getToken(), from, length)) {
+				return t;
+			}
+			slot = (slot + 1) & mask;
+		}
+		
+		PuzzleToken t = new PuzzleToken(new String(window, from, length), type);
+		if (keep || internCount < INTERN_LIMIT) {
+			interned[slot] = t;
+			hashes[slot] = hash;
+			if (++internCount * 2 > interned.length) {
+				rehash();
+			}
+		}
+		
+		return t;
+		
+	}
+	
+	/**
+	 * Helper function. Tests whether a string holds a slice of the window.
+	 */
+	private boolean matches(String s, int from, int length) {
+		
+		if (s.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (s.charAt(i) != window[from + i]) {
+				return false;
+			}
+		}
+		
+		return true;
+		
+	}
+	
+	/**
+	 * Helper function. Returns the first slot of a hash in the interned
+	 * token table. The hashes of names that differ only in their last
+	 * character are close together, so they are spread out first.
+	 */
+	private static int slot(int hash, int mask) {
+		
+		int h = hash * 0x9E3779B9;
+		
+		return (h ^ (h >>> 15)) & mask;
+		
+	}
+	
+	/**
+	 * Helper function. Returns to the start of the token being built, if
+	 * any, so the input can be scanned directly. A token returned by
+	 * <code>nextToken()</code> may have started the next one, but only
+	 * with characters still in the window.
+	 */
+	private void rewind() {
+		
+		if (start >= 0) {
+			pos = start;
+			clear();
+			super.state = STATE_NONE;
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Skips the characters the lexer ignores between
+	 * tokens, returning the next character (not consumed) or <tt>-1</tt>
+	 * at EOF.
+	 */
+	private int skipBlanks() {
+		
+		while (pos < limit || fill()) {
+			char ch = window[pos];
+			if (ch != '>' && ((ch < 128 && isPunctuation[ch]) || Character.isLetterOrDigit(ch))) {
+				return ch;
+			}
+			pos++;
+		}
+		
+		return -1;
+		
+	}
+	
+	/**
+	 * Helper function. Doubles the interned token table.
+	 */
+	private void rehash() {
+		
+		PuzzleToken[] old = interned;
+		int[] oldHashes = hashes;
+		interned = new PuzzleToken[old.length * 2];
+		hashes = new int[old.length * 2];
+		int mask = interned.length - 1;
+		for (int i = 0; i < old.length; i++) {
+			if (old[i] == null) {
+				continue;
+			}
+			int slot = slot(oldHashes[i], mask);
+			while (interned[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			interned[slot] = old[i];
+			hashes[slot] = oldHashes[i];
+		}
+		
+	}
+	
 }
@@ -1,12 +1,20 @@
 package com.michaelzanussi.astar;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The <code>PuzzleMuncher</code> universal puzzle engine driver. <p>
@@ -24,12 +32,43 @@ import java.util.Map;
  */
 public class PuzzleMuncher {
 
-	// The lexer.
+	// The most statements parsed ahead of the one being executed.
+	private static final int PIPELINE_DEPTH = 4;
+
+	// The kinds of value a statement of a compiled puzzle file may have:
+	// none, a string, an integer, obstacle locations, coordinates, roads,
+	// or the data of each family of puzzle.
+	private static final int VALUE_NONE = 0;
+	private static final int VALUE_STRING = 1;
+	private static final int VALUE_INTEGER = 2;
+	private static final int VALUE_LOCATIONS = 3;
+	private static final int VALUE_COORDINATES = 4;
+	private static final int VALUE_ROADS = 5;
+	private static final int VALUE_MC = 6;
+	private static final int VALUE_SP = 7;
+	private static final int VALUE_GRID = 8;
+	private static final int VALUE_NK = 9;
+
+	// The lexer, or the compiled puzzle file the statements are read from
+	// in its place.
 	private Lexer lexer;
+	private PuzzleFileReader compiled;
 	
 	// Current heuristic name.
 	private String hName;
 	
+	// Current search engine name.
+	private String engine;
+	
+	// The number of shortest paths to report.
+	private int kPaths;
+	
+	// The corner-cutting rule for diagonal grid moves.
+	private int cornerCutting;
+	
+	// The cluster size of the hierarchical grid engine.
+	private int clusterSize;
+	
 	// The output, log, and error files.
 	private String outFile;
 	private String logFile;
@@ -48,6 +87,23 @@ public class PuzzleMuncher {
 	private GridPuzzleData gridData;
 	private SPPuzzleData spData;
 	private MCPuzzleData mcData;
+	private NKPuzzleData nkData;
+	
+	// The retrograde Missionaries and Cannibals tables built so far, by
+	// totals, boat capacity and goal. They are kept across resets.
+	private Map<String, RetrogradeMandC> mcTables;
+
+	// The family of the puzzle last parsed, and the Grid and
+	// ShortestPaths puzzle data last parsed, which the updates that follow
+	// are parsed against. The parser may be ahead of the puzzle data being
+	// run.
+	private String parsedFamily;
+	private GridPuzzleData parsedGrid;
+	private SPPuzzleData parsedSP;
+
+	// The number of threads: with more than one, statements are parsed on
+	// a thread of their own.
+	private int threads;
 	
 	/**
 	 * Standard constructor.
@@ -57,561 +113,1616 @@ public class PuzzleMuncher {
 	 */
 	public PuzzleMuncher(Lexer lexer) {
 
+		this(lexer, null);
+
 		// Was a lexer specified?
 		if (lexer == null) {
 			throw new NullPointerException("PuzzleMuncher.PuzzleMuncher error: The lexer cannot be null.");
 		}
 		
+	}
+
+	/**
+	 * Constructor for a compiled puzzle file, as written by
+	 * <code>compile()</code>. Its statements are run just as those of the
+	 * input file it was compiled from, without being parsed again.
+	 * 
+	 * @param compiled the compiled puzzle file, opened.
+	 * @throws NullPointerException If no compiled puzzle file was specified.
+	 */
+	public PuzzleMuncher(PuzzleFileReader compiled) {
+
+		this(null, compiled);
+
+		// Was a compiled puzzle file specified?
+		if (compiled == null) {
+			throw new NullPointerException("PuzzleMuncher.PuzzleMuncher error: The compiled puzzle file cannot be null.");
+		}
+		
+	}
+
+	/**
+	 * Helper constructor.
+	 */
+	private PuzzleMuncher(Lexer lexer, PuzzleFileReader compiled) {
+
 		this.lexer = lexer;
+		this.compiled = compiled;
 		hName = null;
 		outFile = null;
 		logFile = null;
 		errFile = null;
 		spData = null;
 		mcData = null;
+		nkData = null;
 		gridData = null;
+		mcTables = new HashMap<String, RetrogradeMandC>();
+		parsedFamily = null;
+		parsedGrid = null;
+		parsedSP = null;
+		threads = Runtime.getRuntime().availableProcessors();
 		
 		reset();
 		
 	}
 
 	/**
-	 * Begins the parsing of the puzzle input file.
-	 * 
+	 * Begins the parsing of the puzzle input file. <p>
+	 *
+	 * Each statement is parsed in full before it is executed: a puzzle
+	 * definition into its puzzle data, with a city table filled in, and a
+	 * control statement into its value. Given more than one processor, the
+	 * parsing runs on a thread of its own up to <code>PIPELINE_DEPTH</code>
+	 * statements ahead of the one being executed, so the next puzzle is
+	 * read while the current one is searched. The statements are still
+	 * executed one at a time on the calling thread, in input order, so the
+	 * output is the same either way, and a statement that cannot be parsed
+	 * fails only once every statement before it has been executed.
+	 *
 	 * @throws ParsingException If any unknown grammar is encountered.
 	 */
 	public void parse() throws ParsingException {
-		
-		while (lexer.hasMoreTokens()) {
-			
-			// Get the first token.
-			Token token = lexer.nextToken();
-			String strToken = token.getToken();
 
-			// Empty file?
-			if (strToken.length() == 0) {
-				return;
+		// Parse each statement, then execute it.
+		if (threads < 2) {
+			for (Statement statement = nextStatement(); statement.getKeyword() != null; statement = nextStatement()) {
+				execute(statement);
 			}
+			return;
+		}
 
-			// The beginning of a puzzle definition. The puzzle definition
-			// defines what the puzzle is and the initial data (start and
-			// goal states, for example). The individual puzzle data
-			// structures are filled with calls to their respective parsers.
-			
-			if (strToken.equals("Puzzle")) {
-				
-				// Get the puzzle family. 
-				token = lexer.nextToken();
-				strToken = token.getToken();
-				
-				if (strToken.equals("MissionariesAndCannibals")) {
-					// Push the current token back onto the stack.
-					lexer.pushBack(token);
-					// Parse the MissionariesAndCannibals puzzle portion from the input
-					// file and store the resultant data off.
-					mcData = parseMCPuzzle(lexer);
-				} else if (strToken.equals("ShortestPaths")) {
-					// Push the current token back onto the stack.
-					lexer.pushBack(token);
-					// Parse the ShortestPaths puzzle portion from the input
-					// file and store the resultant data off.
-					spData = parseSPPuzzle(lexer);
-					// Setup the city table.
-					spData.fillTable();
-				} else if (strToken.equals("Grid")) {
-					// Push the current token back onto the stack.
-					lexer.pushBack( token );
-					// Parse the Grid puzzle portion from the input
-					// file and store the resultant data off.
-					gridData = parseGridPuzzle(lexer);
-				} else if (strToken.equals("NToTheKPuzzle")) {
-					// Push the current token back onto the stack. 
-					lexer.pushBack(token);
-					// Parse the NToTheKPuzzle puzzle portion from the input
-					// file and store the resultant data off.
-					parseN2KPuzzle(lexer);
-				}
-				
+		BlockingQueue<Statement> queue = new ArrayBlockingQueue<Statement>(PIPELINE_DEPTH);
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+
+			pool.submit(new ParseTask(queue));
+
+			Statement statement = take(queue);
+			while (statement.getKeyword() != null) {
+				execute(statement);
+				statement = take(queue);
 			}
-			
-			// The beginning of a control sequence definition, which define
-			// statistics and results to be printed, whether puzzle data
-			// is reset, and eventually to begin the puzzle excecution.
-			
-			else {
-				
-				// Handle Reset
-				if (strToken.equals("Reset")) {
-					reset();
-				}
-				
-				// Handle Run
-				else if (strToken.equals("Run")) {
-					
-					// Output the heuristic name.
-					Global.output("\nHeuristic: " + hName);
-					
-					// Execute puzzle: Missionaries and Cannibals
-					
-					if (hName.equals("MandCTrips")) {
-						
-						// Set the start state and goal state.
-						MandCTrips start = (MandCTrips)mcData.getStart();
-						MandCTrips goal = (MandCTrips)mcData.getGoal();
-						
-						// Set some initial start state values.
-						start.setGoal(goal);
-						start.setTotalC(mcData.getTotalC());
-						start.setTotalM(mcData.getTotalM());
-						
-						// Set some initial goal state values.
-						goal.setTotalC(mcData.getTotalC());
-						goal.setTotalM(mcData.getTotalM());
-						
-						// Find a solution!
-						AStar astar = new AStar(start, goal);
-						mcData.print(astar.path());
-						
-					}
-					
-					// Execute puzzle: Missionaries and Cannibals
-					
-					else if (hName.equals("MandCCount")) {
-
-						// Set the start state and goal state.
-						MandCCount start = (MandCCount)mcData.getStart();
-						MandCCount goal = (MandCCount)mcData.getGoal();
-						
-						// Set some initial start state values.
-						start.setGoal(goal);
-						start.setTotalC(mcData.getTotalC());
-						start.setTotalM(mcData.getTotalM());
-						
-						// Set some initial goal state values.
-						goal.setTotalC(mcData.getTotalC());
-						goal.setTotalM(mcData.getTotalM());
-						
-						// Find a solution!
-						AStar astar = new AStar(start, goal);
-						mcData.print(astar.path());
-						
-					}
-					
-					// Execute puzzle: ShortestPaths
-					
-					else if (hName.equals("ShortestPathsNonMono")) {
-						
-						// Set the start state and goal state.
-						ShortestPathsNonMono start = (ShortestPathsNonMono)spData.getMap().get(spData.getStart());
-						ShortestPathsNonMono goal = (ShortestPathsNonMono)spData.getMap().get(spData.getGoal());
-						start.setGoal( goal );
-						
-						// Find a solution!
-						AStar astar = new AStar(start, goal);
-						spData.print(astar.path());
-						
-					}
 
-					// Execute puzzle: ShortestPaths
-					
-					else if (hName.equals("ShortestPathsMono")) {
-
-						// Set the start state and goal state.
-						ShortestPathsMono start = (ShortestPathsMono)spData.getMap().get(spData.getStart());
-						ShortestPathsMono goal = (ShortestPathsMono)spData.getMap().get(spData.getGoal());
-						start.setGoal( goal );
-						
-						// Find a solution!
-						AStar astar = new AStar(start, goal);
-						spData.print(astar.path());
-						
-					}
-					
-					// Execute puzzle: Grid
-					
-					else if (hName.equals("GridManhattan")) {
-
-						// Set the start state and goal state.
-						GridManhattan start = (GridManhattan)gridData.getStart();
-						GridManhattan goal = (GridManhattan)gridData.getGoal();
-						start.setGoal( goal );
-						
-						// Find a solution!
-						AStar astar = new AStar( start, goal );
-						gridData.print(astar.path());
-						
-					}
-					
-					// Execute puzzle: Grid
-					
-					else if (hName.equals("GridStraight")) {
-
-						// Set the start state and goal state.
-						GridStraight start = (GridStraight)gridData.getStart();
-						GridStraight goal = (GridStraight)gridData.getGoal();
-						start.setGoal(goal);
-						
-						// Find a solution!
-						AStar astar = new AStar(start, goal);
-						gridData.print(astar.path());
-						
-					}
-					
-					// Unsupported...
-					
-					else  {
-						throw new UnsupportedOperationException("PuzzleMuncher.parse error: " + hName + " not supported at this time.");
-					}
-					
-					// Output some statistics, if applicable.
-
-					// If a log file has been specified, output the heuristic
-					// name for convenience.
-					if (Global.getLogFile() != null) {
-						
-						Global.log("\nHeuristic: " + hName);
-						
-					}
-					
-					// Report the total number of nodes opened.
-					if (nodesOpened) {
-						Global.log("NodesOpened: " + Global.getNodesOpened());
-					}
-					
-					// Report the number of nodes moved from the closed list
-					// back to the open list.
-					if (numReopened) { 
-						Global.log("NumReopened: " + Global.getNodesReopened());
-					}
-					
-					// Report the number of nodes on the closed list.
-					if (nodesClosed) {
-						Global.log("NodesClosed: " + Global.getNodesClosed());
-					}
-					
-				}
-				
-				// Handle the optional OUTFILE.
-				else if (strToken.equals("OutFile")) {
+			// The end of the input, or a statement that could not be parsed.
+			fail(statement.getError());
 
-					// Get the output filename.
-					lexer.pushBack(token);
-					outFile = ParseFile.parse(lexer);
+		} finally {
 
-					// Is filename in use by log file already?
-					if (outFile.equals(logFile)) {
-						System.err.println("PuzzleMuncher.parse error: Output filename '" + errFile + "' is already in use by the log file. Defaulting to standard output.");
-						Global.setOutFile(null);
-						outFile = null;
-						continue;
-					}
-					
-					// Is filename in use by error file already?
-					if (outFile.equals(errFile)) {
-						System.err.println("PuzzleMuncher.parse error: Output filename '" + errFile + "' is already in use by the error file. Defaulting to standard output.");
-						Global.setOutFile(null);
-						outFile = null;
-						continue;
-					}
-					
-					// Set the global output file.
-					TextFileWriter tfw = Global.getOutFile();
-					if (tfw != null) {
-						// An output file is already open. Close it.
-						tfw.close();
-					}
-					
-					// Open the new file. If the file already exists,
-					// it'll append automatically.
-					tfw = new TextFileWriter();
-					if (tfw.open(new File(outFile))) {
-						Global.setOutFile(tfw);
-					} else {
-						Global.setOutFile(null);
-					}
-					
-				}
-				
-				// Handle the optional LOGFILE.
-				else if (strToken.equals("LogFile")) {
-					
-					// Get the log filename.
-					lexer.pushBack(token);
-					logFile = ParseFile.parse(lexer);
+			// Stop the parser, should a statement have failed, and wait for
+			// it to let go of the lexer.
+			pool.shutdownNow();
+			try {
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
 
-					// Is filename in use by output file already?
-					if (logFile.equals(outFile)) {
-						System.err.println("PuzzleMuncher.parse error: Log filename '" + errFile + "' is already in use by the output file. Defaulting to standard output.");
-						Global.setLogFile(null);
-						logFile = null;
-						continue;
-					}
-					
-					// Is filename in use by error file already?
-					if (logFile.equals(errFile)) {
-						System.err.println("PuzzleMuncher.parse error: Log filename '" + errFile + "' is already in use by the error file. Defaulting to standard output.");
-						Global.setLogFile(null);
-						logFile = null;
-						continue;
-					}
-					
-					// Set the global log file.
-					TextFileWriter tfw = Global.getLogFile();
-					if (tfw != null) {
-						// A log file is already open. Close it.
-						tfw.close();
-					}
-					
-					// Open the new file. If the file already exists,
-					// it'll append automatically.
-					tfw = new TextFileWriter();
-					if (tfw.open(new File(logFile))) {
-						Global.setLogFile(tfw);
-					}
-					else {
-						Global.setLogFile(null);
-					}
-					
-				}
-				
-				// Handle the optional ERRFILE.
-				else if (strToken.equals("ErrFile")) {
-					
-					// Get the error filename.
-					lexer.pushBack(token);
-					errFile = ParseFile.parse(lexer);
-				
-					// Is filename in use by log file already?
-					if (errFile.equals(logFile)) {
-						System.err.println("PuzzleMuncher.parse error: Error filename '" + errFile + "' is already in use by the log file. Defaulting to standard output.");
-						Global.setErrFile(null);
-						errFile = null;
-						continue;
-					}
-					
-					// Is filename in use by output file already?
-					if (errFile.equals(outFile)) {
-						System.err.println("PuzzleMuncher.parse error: Error filename '" + errFile + "' is already in use by the output file. Defaulting to standard output.");
-						Global.setErrFile(null);
-						errFile = null;
-						continue;
-					}
-					
-					// Set the global error file.
-					TextFileWriter tfw = Global.getErrFile();
-					if (tfw != null) {
-						// An error file is already open. Close it.
-						tfw.close();
-					}
-					
-					// Open the new file. If the file already exists,
-					// it'll append automatically.
-					tfw = new TextFileWriter();
-					if (tfw.open(new File(errFile))) {
-						Global.setErrFile(tfw);
-					}
-					else {
-						Global.setErrFile(null);
-					}
-					
-				}
-				
-				// Handle SEARCH-CTRL / OPENLIST-BOUND.
-				else if (strToken.equals("OpenListBound")) {
-					
-					// Push token back onto stream before parsing value.
-					lexer.pushBack(token);
-					Global.setOpenListBound(ParseSearchCtrl.parse(lexer));
-					
-				}
-				
-				// Handle SEARCH-CTRL / TOTALNODES-BOUND.
-				else if (strToken.equals("TotalNodesBound")) {
+		}
 
-					// Push token back onto stream before parsing value.
-					lexer.pushBack(token);
-					Global.setTotalNodesBound(ParseSearchCtrl.parse(lexer));
-					
-				}
-				
-				// Handle SEARCH-CTRL / TIME-BOUND
-				else if (strToken.equals("TimeBound")) {
+	}
 
-					// Push token back onto stream before parsing value.
-					lexer.pushBack(token);
-					Global.setTimeBound(ParseSearchCtrl.parse(lexer));
-					
-				}
-				
-				// Handle RESULTS / SolnPathLen
-				else if (strToken.equals("SolnPathLen")) {
-					solnPathLen = true;
-				}
-				
-				// Handle RESULTS / StatePath
-				else if (strToken.equals("StatePath")) {
-					
-					Global.setStatePath(true);
-					
-				}
-				
-				// Handle RESULTS / MoveSeq
-				else if (strToken.equals("MoveSeq")) {
-					moveSeq = true;
-				}
-				
-				// Handle RESULTS / Debug
-				else if (strToken.equals("Debug")) {
-					
-					Global.setDebug(true);
-					
-				}
-				
-				// Handle STATS / NodesOpened
-				else if (strToken.equals("NodesOpened")) {
-					nodesOpened = true;
-				}
-				
-				// Handle STATS / OpenListMaxLen
-				else if (strToken.equals("OpenListMaxLen")) {
-					// Can be called at any time.
-					Global.log("OpenListMaxLen: " + Global.getOpenListMaxLen());
-				}
-				
-				// Handle STATS / NodesClosed
-				else if (strToken.equals("NodesClosed")) {
-					nodesClosed = true;
-				}
-				
-				// Handle STATS / NumReopened
-				else if (strToken.equals("NumReopened")) {
-					numReopened = true;
-				}
-				
-				// Handle STATS / OpenClosedRatio
-				else if (strToken.equals("OpenClosedRatio")) {
-					
-					// Can be called at any time.
-					Global.log( "OpenClosedRatio (min): " + Global.getMinRatio() );
-					Global.log( "OpenClosedRatio (max): " + Global.getMaxRatio() );
-					
-				}
-				
-				// Handle other. 
-				else {
-					
-					// Unknown grammar has been found.
-					throw new ParsingException("PuzzleMuncher.parse error: Unknown grammar encountered in input file: '" + strToken + "'");
-					
-				}
-				
-			}
-			
+	/**
+	 * Parses the whole of the puzzle input file, executing nothing, and
+	 * writes its statements to a compiled puzzle file as they were parsed.
+	 * Running the compiled file gives the same results as running the
+	 * input file, but nothing is parsed: each puzzle is loaded from
+	 * primitive sections, with the city table already filled. Files named
+	 * by the input (maps, scenarios, DIMACS graphs, instance files) are
+	 * read now and held in the compiled file, except for a tiled cost
+	 * file, which is named with its obstacles and only written when the
+	 * compiled file is run.
+	 * 
+	 * @param out the compiled puzzle file, opened.
+	 * @throws ParsingException If any unknown grammar is encountered, or
+	 * the compiled puzzle file cannot be written.
+	 */
+	public void compile(PuzzleFileWriter out) throws ParsingException {
+
+		for (Statement statement = nextStatement(); statement.getKeyword() != null; statement = nextStatement()) {
+			writeStatement(out, statement);
 		}
+
+		// The end of the statements.
+		out.writeString(null);
+		out.flush();
+
 	}
-	
+
 	/**
-	 * This inner class holds input file data specific to the 
-	 * Missionaries and Cannibals puzzle.
+	 * Sets the number of threads <code>parse()</code> may use. With more
+	 * than one, statements are parsed on a thread of their own. The
+	 * default is the number of processors.
 	 * 
-	 * @author <a href="mailto:zanussi@cs.unm.edu">Michael Zanussi</a>
-	 * @version 1.0 (29 Mar 2004) 
+	 * @param threads the number of threads.
 	 */
-	private class MCPuzzleData {
-		
-		// The heuristic name.
-		private String hName;
-		
-		// Holds the start and goal state array.
-		//  Row 0 cols 0 and 1 hold the west bank cannibal and missionary count.
-		//  Row 0 cols 0 and 1 hold the east bank cannibal and missionary count.
-		//  Row 0 col 1 holds the boat location (1=west,0=east)
-		private int[][] startStateArray;
-		private int[][] goalStateArray;
-		
-		// The capacity of the boat.
-		private int boatCapacity;
-		
-		// The total number of cannibals and missionaries.
-		private int totalC;
-		private int totalM;
-		
-		// The start state.
-		private MandC start;
-		
-		// The goal state.
-		private MandC goal;
-		
-		/**
-		 * No-arg constructor.
+	public void setThreads(int threads) {
+
+		this.threads = threads;
+
+	}
+
+	/**
+	 * Helper function. Executes a statement: a puzzle definition becomes
+	 * the current puzzle, and a control statement defines statistics and
+	 * results to be printed, resets the puzzle data, or runs the puzzle.
+	 */
+	private void execute(Statement statement) throws ParsingException {
+
+		String strToken = statement.getKeyword();
+		Object value = statement.getValue();
+
+		// The beginning of a puzzle definition. The puzzle definition
+		// defines what the puzzle is and the initial data (start and
+		// goal states, for example).
+
+		if (strToken.equals("Puzzle")) {
+
+			if (value instanceof MCPuzzleData) {
+				mcData = (MCPuzzleData)value;
+				hName = mcData.getHName();
+			} else if (value instanceof SPPuzzleData) {
+				spData = (SPPuzzleData)value;
+				hName = spData.getHName();
+			} else if (value instanceof GridPuzzleData) {
+				gridData = (GridPuzzleData)value;
+				gridData.open();
+				hName = gridData.getHName();
+			} else if (value instanceof NKPuzzleData) {
+				nkData = (NKPuzzleData)value;
+				hName = nkData.getHName();
+			}
+
+		}
+
+		// Handle Reset
+		else if (strToken.equals("Reset")) {
+			reset();
+		}
+
+		// Handle Run
+		else if (strToken.equals("Run")) {
+
+			// Output the heuristic name.
+			Global.output("\nHeuristic: " + hName);
+
+			// Only ShortestPaths, GridManhattan and GridOctile puzzles
+			// can be solved incrementally or by delta-stepping.
+			if ((engine.equals("Incremental") || engine.equals("DeltaStepping")) && !hName.startsWith("ShortestPaths") && !hName.equals("GridManhattan") && !hName.equals("GridOctile")) {
+				throw new UnsupportedOperationException("PuzzleMuncher.parse error: Engine " + engine + " not supported for " + hName + " at this time.");
+			}
+
+			// Only GridManhattan and GridOctile puzzles can be solved
+			// hierarchically or from a distance field.
+			if ((engine.equals("Hierarchical") || engine.equals("FlowField")) && !hName.equals("GridManhattan") && !hName.equals("GridOctile")) {
+				throw new UnsupportedOperationException("PuzzleMuncher.parse error: Engine " + engine + " not supported for " + hName + " at this time.");
+			}
+
+			// Only Missionaries and Cannibals puzzles have a dense
+			// state space, or can be solved from a table.
+			if ((engine.equals("Dense") || engine.equals("Retrograde")) && !hName.startsWith("MandC")) {
+				throw new UnsupportedOperationException("PuzzleMuncher.parse error: Engine " + engine + " not supported for " + hName + " at this time.");
+			}
+
+			// The K shortest paths are only found by A*.
+			if (kPaths > 1 && hName.startsWith("ShortestPaths") && !engine.equals("AStar")) {
+				throw new UnsupportedOperationException("PuzzleMuncher.parse error: Engine " + engine + " not supported with KShortestPaths at this time.");
+			}
+
+			// Execute puzzle: ShortestPaths (K shortest paths)
+
+			if (kPaths > 1 && hName.startsWith("ShortestPaths")) {
+
+				// Find the solutions!
+				spData.printPaths(spData.getKShortest(kPaths));
+
+			}
+
+			// Execute puzzle: Missionaries and Cannibals
+
+			else if (hName.equals("MandCTrips")) {
+
+				// Set the start state and goal state.
+				MandCTrips start = (MandCTrips)mcData.getStart();
+				MandCTrips goal = (MandCTrips)mcData.getGoal();
+
+				// Set some initial start state values.
+				start.setGoal(goal);
+				start.setTotalC(mcData.getTotalC());
+				start.setTotalM(mcData.getTotalM());
+
+				// Set some initial goal state values.
+				goal.setTotalC(mcData.getTotalC());
+				goal.setTotalM(mcData.getTotalM());
+
+				// Find a solution!
+				PuzzleEngine pe = mcEngine(start, goal);
+				mcData.print(pe.path());
+
+			}
+
+			// Execute puzzle: Missionaries and Cannibals
+
+			else if (hName.equals("MandCCount")) {
+
+				// Set the start state and goal state.
+				MandCCount start = (MandCCount)mcData.getStart();
+				MandCCount goal = (MandCCount)mcData.getGoal();
+
+				// Set some initial start state values.
+				start.setGoal(goal);
+				start.setTotalC(mcData.getTotalC());
+				start.setTotalM(mcData.getTotalM());
+
+				// Set some initial goal state values.
+				goal.setTotalC(mcData.getTotalC());
+				goal.setTotalM(mcData.getTotalM());
+
+				// Find a solution!
+				PuzzleEngine pe = mcEngine(start, goal);
+				mcData.print(pe.path());
+
+			}
+
+			// Execute puzzle: ShortestPaths
+
+			else if (hName.equals("ShortestPathsNonMono")) {
+
+				// Set the start state and goal state.
+				ShortestPathsNonMono start = (ShortestPathsNonMono)spData.getMap().get(spData.getStart());
+				ShortestPathsNonMono goal = (ShortestPathsNonMono)spData.getMap().get(spData.getGoal());
+				start.setGoal( goal );
+
+				// Find a solution!
+				PuzzleEngine pe = spEngine(start, goal);
+				spData.print(pe.path());
+
+			}
+
+			// Execute puzzle: ShortestPaths
+
+			else if (hName.equals("ShortestPathsMono")) {
+
+				// Set the start state and goal state.
+				ShortestPathsMono start = (ShortestPathsMono)spData.getMap().get(spData.getStart());
+				ShortestPathsMono goal = (ShortestPathsMono)spData.getMap().get(spData.getGoal());
+				start.setGoal( goal );
+
+				// Find a solution!
+				PuzzleEngine pe = spEngine(start, goal);
+				spData.print(pe.path());
+
+			}
+
+			// Execute puzzle: ShortestPaths
+
+			else if (hName.equals("ShortestPathsStraight")) {
+
+				// Set the start state and goal state.
+				ShortestPathsStraight start = (ShortestPathsStraight)spData.getMap().get(spData.getStart());
+				ShortestPathsStraight goal = (ShortestPathsStraight)spData.getMap().get(spData.getGoal());
+				start.setGoal(goal);
+
+				// Find a solution!
+				PuzzleEngine pe = spEngine(start, goal);
+				spData.print(pe.path());
+
+			}
+
+			// Execute puzzle: N to the K
+
+			else if (hName.equals("NToTheKManhattan") || hName.equals("NToTheKPatternDB")) {
+
+				// An instance file solves all of its instances at once.
+				if (nkData.getInstances() != null) {
+					nkData.runBatch();
+				} else {
+
+					// Find a solution!
+					NToTheKPuzzle puzzle = nkData.getPuzzle();
+					nkData.print(puzzle.path());
+
+				}
+
+			}
+
+			// Execute puzzle: Grid
+
+			else if (hName.startsWith("Grid")) {
+
+				// A scenario file runs each of its scenarios in turn.
+				List<MovingAIFileReader.Scenario> scenarios = gridData.getScenarios();
+				if (scenarios == null) {
+					runGrid();
+				} else {
+					for (int i = 0; i < scenarios.size(); i++) {
+
+						MovingAIFileReader.Scenario scen = scenarios.get(i);
+						gridData.setStart(scen.getStart());
+						gridData.setGoal(scen.getGoal());
+
+						Global.output("\nScenario " + (i + 1) + ": " + gridData.getStart().getLabel() + " TO " + gridData.getGoal().getLabel() + " (Optimal " + scen.getOptimal() + ")");
+						runGrid();
+
+					}
+				}
+
+			}
+
+			// Unsupported...
+
+			else  {
+				throw new UnsupportedOperationException("PuzzleMuncher.parse error: " + hName + " not supported at this time.");
+			}
+
+			// Output some statistics, if applicable.
+
+			// If a log file has been specified, output the heuristic
+			// name for convenience.
+			if (Global.getLogFile() != null) {
+
+				Global.log("\nHeuristic: " + hName);
+
+			}
+
+			// Report the total number of nodes opened.
+			if (nodesOpened) {
+				Global.log("NodesOpened: " + Global.getNodesOpened());
+			}
+
+			// Report the number of nodes moved from the closed list
+			// back to the open list.
+			if (numReopened) {
+				Global.log("NumReopened: " + Global.getNodesReopened());
+			}
+
+			// Report the number of nodes on the closed list.
+			if (nodesClosed) {
+				Global.log("NodesClosed: " + Global.getNodesClosed());
+			}
+
+		}
+
+		// Handle the optional OUTFILE.
+		else if (strToken.equals("OutFile")) {
+
+			// Get the output filename.
+			outFile = (String)value;
+
+			// Is filename in use by log file already?
+			if (outFile.equals(logFile)) {
+				System.err.println("PuzzleMuncher.parse error: Output filename '" + errFile + "' is already in use by the log file. Defaulting to standard output.");
+				Global.setOutFile(null);
+				outFile = null;
+				return;
+			}
+
+			// Is filename in use by error file already?
+			if (outFile.equals(errFile)) {
+				System.err.println("PuzzleMuncher.parse error: Output filename '" + errFile + "' is already in use by the error file. Defaulting to standard output.");
+				Global.setOutFile(null);
+				outFile = null;
+				return;
+			}
+
+			// Set the global output file.
+			TextFileWriter tfw = Global.getOutFile();
+			if (tfw != null) {
+				// An output file is already open. Close it.
+				tfw.close();
+			}
+
+			// Open the new file. If the file already exists,
+			// it'll append automatically.
+			tfw = new TextFileWriter();
+			if (tfw.open(new File(outFile))) {
+				Global.setOutFile(tfw);
+			} else {
+				Global.setOutFile(null);
+			}
+
+		}
+
+		// Handle the optional LOGFILE.
+		else if (strToken.equals("LogFile")) {
+
+			// Get the log filename.
+			logFile = (String)value;
+
+			// Is filename in use by output file already?
+			if (logFile.equals(outFile)) {
+				System.err.println("PuzzleMuncher.parse error: Log filename '" + errFile + "' is already in use by the output file. Defaulting to standard output.");
+				Global.setLogFile(null);
+				logFile = null;
+				return;
+			}
+
+			// Is filename in use by error file already?
+			if (logFile.equals(errFile)) {
+				System.err.println("PuzzleMuncher.parse error: Log filename '" + errFile + "' is already in use by the error file. Defaulting to standard output.");
+				Global.setLogFile(null);
+				logFile = null;
+				return;
+			}
+
+			// Set the global log file.
+			TextFileWriter tfw = Global.getLogFile();
+			if (tfw != null) {
+				// A log file is already open. Close it.
+				tfw.close();
+			}
+
+			// Open the new file. If the file already exists,
+			// it'll append automatically.
+			tfw = new TextFileWriter();
+			if (tfw.open(new File(logFile))) {
+				Global.setLogFile(tfw);
+			}
+			else {
+				Global.setLogFile(null);
+			}
+
+		}
+
+		// Handle the optional ERRFILE.
+		else if (strToken.equals("ErrFile")) {
+
+			// Get the error filename.
+			errFile = (String)value;
+
+			// Is filename in use by log file already?
+			if (errFile.equals(logFile)) {
+				System.err.println("PuzzleMuncher.parse error: Error filename '" + errFile + "' is already in use by the log file. Defaulting to standard output.");
+				Global.setErrFile(null);
+				errFile = null;
+				return;
+			}
+
+			// Is filename in use by output file already?
+			if (errFile.equals(outFile)) {
+				System.err.println("PuzzleMuncher.parse error: Error filename '" + errFile + "' is already in use by the output file. Defaulting to standard output.");
+				Global.setErrFile(null);
+				errFile = null;
+				return;
+			}
+
+			// Set the global error file.
+			TextFileWriter tfw = Global.getErrFile();
+			if (tfw != null) {
+				// An error file is already open. Close it.
+				tfw.close();
+			}
+
+			// Open the new file. If the file already exists,
+			// it'll append automatically.
+			tfw = new TextFileWriter();
+			if (tfw.open(new File(errFile))) {
+				Global.setErrFile(tfw);
+			}
+			else {
+				Global.setErrFile(null);
+			}
+
+		}
+
+		// Handle ENGINE.
+		else if (strToken.equals("Engine")) {
+			engine = (String)value;
+		}
+
+		// Handle CORNER-CUTTING.
+		else if (strToken.equals("CornerCutting")) {
+			cornerCutting = (Integer)value;
+		}
+
+		// Handle TIE-BREAKING.
+		else if (strToken.equals("TieBreaking")) {
+			Global.setTieBreaking((Integer)value);
+		}
+
+		// Handle CLUSTER-SIZE.
+		else if (strToken.equals("ClusterSize")) {
+			clusterSize = (Integer)value;
+		}
+
+		// Handle K-SHORTEST-PATHS.
+		else if (strToken.equals("KShortestPaths")) {
+			kPaths = (Integer)value;
+		}
+
+		// Handle UPDATE-OBSTACLES.
+		else if (strToken.equals("UpdateObstacles")) {
+
+			// Apply the changed locations.
+			gridData.updateObstacles((int[][])value);
+
+		}
+
+		// Handle MOVE-START.
+		else if (strToken.equals("MoveStart")) {
+
+			// Move the agent to its new cell.
+			@SuppressWarnings("unchecked")
+			List<Integer> cell = (List<Integer>)value;
+			gridData.setStart(cell);
+
+		}
+
+		// Handle UPDATE-DISTANCES.
+		else if (strToken.equals("UpdateDistances")) {
+
+			// Apply the changes (empty list is allowed).
+			spData.updateDistances((int[][])value);
+
+		}
+
+		// Handle SEARCH-CTRL / OPENLIST-BOUND.
+		else if (strToken.equals("OpenListBound")) {
+			Global.setOpenListBound((Integer)value);
+		}
+
+		// Handle SEARCH-CTRL / TOTALNODES-BOUND.
+		else if (strToken.equals("TotalNodesBound")) {
+			Global.setTotalNodesBound((Integer)value);
+		}
+
+		// Handle SEARCH-CTRL / TIME-BOUND
+		else if (strToken.equals("TimeBound")) {
+			Global.setTimeBound((Integer)value);
+		}
+
+		// Handle RESULTS / SolnPathLen
+		else if (strToken.equals("SolnPathLen")) {
+			solnPathLen = true;
+		}
+
+		// Handle RESULTS / StatePath
+		else if (strToken.equals("StatePath")) {
+
+			Global.setStatePath(true);
+
+		}
+
+		// Handle RESULTS / MoveSeq
+		else if (strToken.equals("MoveSeq")) {
+			moveSeq = true;
+		}
+
+		// Handle RESULTS / Debug
+		else if (strToken.equals("Debug")) {
+
+			Global.setDebug(true);
+
+		}
+
+		// Handle STATS / NodesOpened
+		else if (strToken.equals("NodesOpened")) {
+			nodesOpened = true;
+		}
+
+		// Handle STATS / OpenListMaxLen
+		else if (strToken.equals("OpenListMaxLen")) {
+			// Can be called at any time.
+			Global.log("OpenListMaxLen: " + Global.getOpenListMaxLen());
+		}
+
+		// Handle STATS / NodesClosed
+		else if (strToken.equals("NodesClosed")) {
+			nodesClosed = true;
+		}
+
+		// Handle STATS / NumReopened
+		else if (strToken.equals("NumReopened")) {
+			numReopened = true;
+		}
+
+		// Handle STATS / OpenClosedRatio
+		else if (strToken.equals("OpenClosedRatio")) {
+
+			// Can be called at any time.
+			Global.log( "OpenClosedRatio (min): " + Global.getMinRatio() );
+			Global.log( "OpenClosedRatio (max): " + Global.getMaxRatio() );
+
+		}
+
+	}
+
+	/**
+	 * Helper function. Rethrows the error a statement could not be parsed
+	 * for, if any.
+	 */
+	private static void fail(Throwable error) throws ParsingException {
+
+		if (error instanceof ParsingException) {
+			throw (ParsingException)error;
+		} else if (error instanceof RuntimeException) {
+			throw (RuntimeException)error;
+		} else if (error instanceof Error) {
+			throw (Error)error;
+		}
+
+	}
+
+	/**
+	 * Helper function. Parses the next statement of the input file. Only
+	 * the lexer and the puzzle data last parsed are used, so the statement
+	 * can be parsed while those before it are still being executed.
+	 */
+	private Statement nextStatement() throws ParsingException {
+
+		// A compiled puzzle file holds its statements already parsed.
+		if (compiled != null) {
+			return readStatement();
+		}
+
+		if (!lexer.hasMoreTokens()) {
+			return new Statement(null, null);
+		}
+
+		// Get the first token.
+		Token token = lexer.nextToken();
+		String strToken = token.getToken();
+
+		// Empty file?
+		if (strToken.length() == 0) {
+			return new Statement(null, null);
+		}
+
+		// The beginning of a puzzle definition. The individual puzzle data
+		// structures are filled with calls to their respective parsers.
+
+		if (strToken.equals("Puzzle")) {
+
+			// Get the puzzle family.
+			token = lexer.nextToken();
+			strToken = token.getToken();
+			parsedFamily = strToken;
+
+			Object data = null;
+			if (strToken.equals("MissionariesAndCannibals")) {
+				// Push the current token back onto the stack.
+				lexer.pushBack(token);
+				// Parse the MissionariesAndCannibals puzzle portion from the input
+				// file and store the resultant data off.
+				data = parseMCPuzzle(lexer);
+			} else if (strToken.equals("ShortestPaths")) {
+				// Push the current token back onto the stack.
+				lexer.pushBack(token);
+				// Parse the ShortestPaths puzzle portion from the input
+				// file and store the resultant data off.
+				parsedSP = parseSPPuzzle(lexer);
+				// Setup the city table.
+				parsedSP.fillTable();
+				data = parsedSP;
+			} else if (strToken.equals("Grid")) {
+				// Push the current token back onto the stack.
+				lexer.pushBack( token );
+				// Parse the Grid puzzle portion from the input
+				// file and store the resultant data off.
+				parsedGrid = parseGridPuzzle(lexer);
+				data = parsedGrid;
+			} else if (strToken.equals("NToTheKPuzzle")) {
+				// Push the current token back onto the stack.
+				lexer.pushBack(token);
+				// Parse the NToTheKPuzzle puzzle portion from the input
+				// file and store the resultant data off.
+				data = parseN2KPuzzle(lexer);
+			}
+
+			return new Statement("Puzzle", data);
+
+		}
+
+		// The beginning of a control sequence definition. Those given a
+		// value have it parsed here.
+
+		// Handle the optional OUTFILE, LOGFILE and ERRFILE.
+		else if (strToken.equals("OutFile") || strToken.equals("LogFile") || strToken.equals("ErrFile")) {
+
+			// Get the filename.
+			lexer.pushBack(token);
+			return new Statement(strToken, ParseFile.parse(lexer));
+
+		}
+
+		// Handle ENGINE.
+		else if (strToken.equals("Engine")) {
+
+			// Push token back onto stream before parsing value.
+			lexer.pushBack(token);
+			return new Statement(strToken, ParseEngine.parse(lexer));
+
+		}
+
+		// Handle CORNER-CUTTING.
+		else if (strToken.equals("CornerCutting")) {
+
+			// Push token back onto stream before parsing value.
+			lexer.pushBack(token);
+			return new Statement(strToken, ParseCornerCutting.parse(lexer));
+
+		}
+
+		// Handle TIE-BREAKING.
+		else if (strToken.equals("TieBreaking")) {
+
+			// Push token back onto stream before parsing value.
+			lexer.pushBack(token);
+			return new Statement(strToken, ParseTieBreaking.parse(lexer));
+
+		}
+
+		// Handle CLUSTER-SIZE and K-SHORTEST-PATHS.
+		else if (strToken.equals("ClusterSize") || strToken.equals("KShortestPaths")) {
+
+			String keyword = strToken;
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("PuzzleMuncher.parse error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+
+			// Get the number of cells along each side of a cluster, or
+			// the number of paths.
+			return new Statement(keyword, ParseInteger.parsePosInteger(lexer));
+
+		}
+
+		// Handle UPDATE-OBSTACLES.
+		else if (strToken.equals("UpdateObstacles")) {
+
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("PuzzleMuncher.parse error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+
+			// Obstacles can only be updated on a Grid puzzle.
+			if (!"Grid".equals(parsedFamily)) {
+				throw new ParsingException("PuzzleMuncher.parse error: UpdateObstacles requires a Grid puzzle.");
+			}
+
+			// Get the changed locations.
+			return new Statement(strToken, ParseObstacles.parseList(lexer, parsedGrid.getWidth(), parsedGrid.getHeight()));
+
+		}
+
+		// Handle MOVE-START.
+		else if (strToken.equals("MoveStart")) {
+
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("PuzzleMuncher.parse error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+
+			// Only the start of a Grid puzzle can be moved.
+			if (!"Grid".equals(parsedFamily)) {
+				throw new ParsingException("PuzzleMuncher.parse error: MoveStart requires a Grid puzzle.");
+			}
+
+			// Get the agent's new cell.
+			return new Statement("MoveStart", ParseNumList.parse(lexer));
+
+		}
+
+		// Handle UPDATE-DISTANCES.
+		else if (strToken.equals("UpdateDistances")) {
+
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("PuzzleMuncher.parse error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+
+			// Distances can only be updated on a ShortestPaths puzzle.
+			if (!"ShortestPaths".equals(parsedFamily)) {
+				throw new ParsingException("PuzzleMuncher.parse error: UpdateDistances requires a ShortestPaths puzzle.");
+			}
+
+			// Get the changed roads, between cities already on the map.
+			return new Statement("UpdateDistances", ParseDistList.parse(lexer, parsedSP.getCityTable(), false));
+
+		}
+
+		// Handle SEARCH-CTRL.
+		else if (strToken.equals("OpenListBound") || strToken.equals("TotalNodesBound") || strToken.equals("TimeBound")) {
+
+			// Push token back onto stream before parsing value.
+			lexer.pushBack(token);
+			return new Statement(strToken, ParseSearchCtrl.parse(lexer));
+
+		}
+
+		// Handle the control statements without a value.
+		else if (strToken.equals("Reset") || strToken.equals("Run") || strToken.equals("SolnPathLen") || strToken.equals("StatePath") || strToken.equals("MoveSeq") || strToken.equals("Debug") || strToken.equals("NodesOpened") || strToken.equals("OpenListMaxLen") || strToken.equals("NodesClosed") || strToken.equals("NumReopened") || strToken.equals("OpenClosedRatio")) {
+			return new Statement(strToken, null);
+		}
+
+		// Handle other.
+		else {
+
+			// Unknown grammar has been found.
+			throw new ParsingException("PuzzleMuncher.parse error: Unknown grammar encountered in input file: '" + strToken + "'");
+
+		}
+
+	}
+
+	/**
+	 * Helper function. Reads an array of rows written by
+	 * <code>writeRows()</code>.
+	 */
+	private static int[][] readRows(PuzzleFileReader in) throws ParsingException {
+
+		int count = in.readInt();
+		if (count < 0) {
+			return null;
+		}
+
+		int[][] rows = new int[count][];
+		for (int i = 0; i < count; i++) {
+			rows[i] = in.readInts();
+		}
+
+		return rows;
+
+	}
+
+	/**
+	 * Helper function. Reads the next statement of the compiled puzzle
+	 * file, as written by <code>writeStatement()</code>.
+	 */
+	private Statement readStatement() throws ParsingException {
+
+		String keyword = compiled.readString();
+		if (keyword == null) {
+			return new Statement(null, null);
+		}
+
+		Object value = null;
+		int kind = compiled.readInt();
+		if (kind == VALUE_STRING) {
+			value = compiled.readString();
+		} else if (kind == VALUE_INTEGER) {
+			value = compiled.readInt();
+		} else if (kind == VALUE_LOCATIONS) {
+			value = readRows(compiled);
+		} else if (kind == VALUE_COORDINATES) {
+			int[] cell = compiled.readInts();
+			if (cell == null) {
+				throw new ParsingException("PuzzleMuncher.readStatement error: The coordinates of " + keyword + " are missing in the compiled puzzle file.");
+			}
+			List<Integer> list = new ArrayList<Integer>();
+			for (int n : cell) {
+				list.add(n);
+			}
+			value = list;
+		} else if (kind == VALUE_ROADS) {
+			value = readRows(compiled);
+		} else if (kind == VALUE_MC) {
+			value = new MCPuzzleData(compiled);
+		} else if (kind == VALUE_SP) {
+			value = new SPPuzzleData(compiled);
+		} else if (kind == VALUE_GRID) {
+			value = new GridPuzzleData(compiled);
+		} else if (kind == VALUE_NK) {
+			value = new NKPuzzleData(compiled);
+		} else if (kind != VALUE_NONE) {
+			throw new ParsingException("PuzzleMuncher.readStatement error: Unknown value of kind " + kind + " for " + keyword + " in the compiled puzzle file.");
+		}
+
+		return new Statement(keyword, value);
+
+	}
+
+	/**
+	 * Helper function. Waits for the next statement from the parser.
+	 */
+	private static Statement take(BlockingQueue<Statement> queue) throws IllegalStateException {
+
+		try {
+			return queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("PuzzleMuncher.parse error: Interrupted while parsing.");
+		}
+
+	}
+
+	/**
+	 * Helper function. Writes an array of rows, each an array of integers,
+	 * or <code>null</code>.
+	 */
+	private static void writeRows(PuzzleFileWriter out, int[][] rows) throws ParsingException {
+
+		if (rows == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		out.writeInt(rows.length);
+		for (int i = 0; i < rows.length; i++) {
+			out.writeInts(rows[i]);
+		}
+
+	}
+
+	/**
+	 * Helper function. Writes a statement to a compiled puzzle file: its
+	 * keyword, then the kind of its value and the value itself.
+	 */
+	@SuppressWarnings("unchecked")
+	private void writeStatement(PuzzleFileWriter out, Statement statement) throws ParsingException {
+
+		String keyword = statement.getKeyword();
+		Object value = statement.getValue();
+		out.writeString(keyword);
+
+		if (value == null) {
+			out.writeInt(VALUE_NONE);
+		} else if (value instanceof String) {
+			out.writeInt(VALUE_STRING);
+			out.writeString((String)value);
+		} else if (value instanceof Integer) {
+			out.writeInt(VALUE_INTEGER);
+			out.writeInt((Integer)value);
+		} else if (keyword.equals("UpdateDistances")) {
+			out.writeInt(VALUE_ROADS);
+			writeRows(out, (int[][])value);
+		} else if (value instanceof int[][]) {
+			out.writeInt(VALUE_LOCATIONS);
+			writeRows(out, (int[][])value);
+		} else if (keyword.equals("MoveStart")) {
+			List<Integer> list = (List<Integer>)value;
+			int[] cell = new int[list.size()];
+			for (int i = 0; i < cell.length; i++) {
+				cell[i] = list.get(i);
+			}
+			out.writeInt(VALUE_COORDINATES);
+			out.writeInts(cell);
+		} else if (value instanceof MCPuzzleData) {
+			out.writeInt(VALUE_MC);
+			((MCPuzzleData)value).write(out);
+		} else if (value instanceof SPPuzzleData) {
+			out.writeInt(VALUE_SP);
+			((SPPuzzleData)value).write(out);
+		} else if (value instanceof GridPuzzleData) {
+			out.writeInt(VALUE_GRID);
+			((GridPuzzleData)value).write(out);
+		} else if (value instanceof NKPuzzleData) {
+			out.writeInt(VALUE_NK);
+			((NKPuzzleData)value).write(out);
+		} else {
+			throw new ParsingException("PuzzleMuncher.compile error: " + keyword + " cannot be compiled.");
+		}
+
+	}
+	
+	/**
+	 * This inner class holds input file data specific to the 
+	 * Missionaries and Cannibals puzzle.
+	 * 
+	 * @author <a href="mailto:zanussi@cs.unm.edu">Michael Zanussi</a>
+	 * @version 1.0 (29 Mar 2004) 
+	 */
+	private class MCPuzzleData {
+		
+		// The heuristic name.
+		private String hName;
+		
+		// Holds the start and goal state array.
+		//  Row 0 cols 0 and 1 hold the west bank cannibal and missionary count.
+		//  Row 0 cols 0 and 1 hold the east bank cannibal and missionary count.
+		//  Row 0 col 1 holds the boat location (1=west,0=east)
+		private int[][] startStateArray;
+		private int[][] goalStateArray;
+		
+		// The capacity of the boat.
+		private int boatCapacity;
+		
+		// The total number of cannibals and missionaries.
+		private int totalC;
+		private int totalM;
+		
+		// The start state.
+		private MandC start;
+		
+		// The goal state.
+		private MandC goal;
+		
+		/**
+		 * No-arg constructor.
+		 */
+		public MCPuzzleData() {
+			
+			boatCapacity = 0;
+			goal = null;
+			goalStateArray = null;
+			start = null;
+			startStateArray = null;
+			totalC = 0;
+			totalM = 0;
+			
+		}
+		
+		/**
+		 * Constructor for a puzzle read from a compiled puzzle file, as
+		 * written by <code>write()</code>.
+		 * 
+		 * @param in the compiled puzzle file.
+		 * @throws ParsingException If the file is truncated or corrupt.
+		 */
+		public MCPuzzleData(PuzzleFileReader in) throws ParsingException {
+			
+			this();
+			setHName(in.readString());
+			setBoatCapacity(in.readInt());
+			setStart(readRows(in));
+			setGoal(readRows(in));
+			calcTotalMandC();
+			
+		}
+		
+		/**
+		 * Calculates the total number of missionaries and cannibals. 
+		 */
+		public void calcTotalMandC() {
+			
+			totalC = startStateArray[0][0] + startStateArray[1][0];
+			totalM = startStateArray[0][1] + startStateArray[1][1];
+			
+		}
+		
+		/**
+		 * Returns the goal state.
+		 * 
+		 * @return the goal state.
+		 */
+		public MandC getGoal() {
+			
+			return goal;
+			
+		}
+		
+		/**
+		 * Returns the heuristic name.
+		 *
+		 * @return the heuristic name.
+		 */
+		public String getHName() {
+
+			return hName;
+
+		}
+
+		/**
+		 * Returns the start state.
+		 * 
+		 * @return the start state.
+		 */
+		public MandC getStart() {
+			
+			return start;
+			
+		}
+
+		/**
+		 * Returns the total number of cannibals.
+		 * 
+		 * @return the total number of cannibals.
+		 */
+		public int getTotalC() {
+			
+			return totalC;
+			
+		}
+		
+		/**
+		 * Returns the total number of missionaries.
+		 * 
+		 * @return the total number of missionaries.
+		 */
+		public int getTotalM() {
+			
+			return totalM;
+		}
+		
+		/**
+		 * Prints the completed path and other useful statistics.
+		 */
+		public void print(List<Object> path) {
+			
+			// No solution.
+			if (path == null) {
+				
+				Global.output("No solution.");
+				
+			}
+			
+			// Solution found!
+			else {
+				
+				// Have we just started printing the path?
+				boolean justStarted = true;
+
+				// The previous cannibals, missionaries, and bank.
+				String prevBank = null;
+				int prevC = -1;
+				int prevM = -1;
+
+				// *DEBUG*
+				String prevState = null;
+
+				// The move counter.
+				int move = 0;
+				
+				// Reverse the contents of the list then grab an iterator.
+				Collections.reverse(path);
+				Iterator<Object> it = path.iterator();
+				
+				while (it.hasNext()) {
+					
+					// Get next move.
+					MandC s = (MandC)it.next();
+					
+					// This shouldn't happen, but check anyhow.
+					if (s == null) {
+						break;
+					}
+					
+					// Get the start state off the list and
+					// store it in prev.
+					if (justStarted) {
+						justStarted = false;
+						prevBank = (s.getBank() == MandC.WEST ? "West" : "East");
+						prevC = s.getC();
+						prevM = s.getM();
+						prevState = s.getLabel();
+						continue;
+					}
+
+					// Increment the move counter.
+					move++;
+					
+					// Calculate the current cannibal and missionary numbers.
+					int currentC = Math.abs(prevC - s.getC());
+					int currentM = Math.abs(prevM - s.getM());
+
+					// Print the move sequence, if applicable.
+					if (moveSeq) {
+						Global.output("MOVE " + move + ": FERRY " + currentC + " Cannibals and " + currentM + " Missionaries FROM " + prevBank + " TO " + (s.getBank() == MandC.WEST ? "West" : "East"));
+					}
+					
+					// *DEBUG*
+					if (Global.getDebug()) {
+						System.out.println("*DEBUG* " + prevState + " -> " + s.getLabel());
+					}
+
+					// Save the current state.
+					prevBank = (s.getBank() == MandC.WEST ? "West" : "East");
+					prevC = s.getC();
+					prevM = s.getM();
+					prevState = s.getLabel();
+					
+				}
+				
+				// Report the number of moves, if applicable.
+				if (solnPathLen) {
+					Global.log("SolnPathLen: " + move);
+				}
+				
+			}
+			
+		}
+		
+		/**
+		 * Sets the boat capacity.
+		 * 
+		 * @param capacity the boat capacity.
+		 */
+		public void setBoatCapacity(int capacity) { 
+			
+			boatCapacity = capacity; 
+			
+		}
+
+		/**
+		 * Sets the goal state.
+		 * 
+		 * @param state the goal state.
+		 */
+		public void setGoal(int[][] state) { 
+			
+			goalStateArray = state;
+			
+			if (hName.equals("MandCTrips")) {
+				goal = new MandCTrips(state[0][0], state[0][1], state[2][0], null);
+			} else if (hName.equals("MandCCount")) {				
+				goal = new MandCCount(state[0][0], state[0][1], state[2][0], null);
+			}
+			
+			goal.setBoatCapacity(boatCapacity);
+			
+		}
+		
+		/**
+		 * Sets the heuristic name.
+		 * 
+		 * @param hName the heuristic name.
+		 */
+		public void setHName(String hName) { 
+			
+			this.hName = hName; 
+			
+		}
+		
+		/**
+		 * Sets the start state.
+		 * 
+		 * @param state the start state.
+		 */
+		public void setStart(int[][] state) { 
+			
+			startStateArray = state;
+
+			if (hName.equals("MandCTrips")) {
+				start = new MandCTrips(state[0][0], state[0][1], state[2][0], null);
+			}
+			else if (hName.equals("MandCCount")) {				
+				start = new MandCCount(state[0][0], state[0][1], state[2][0], null);
+			}
+			
+			start.setBoatCapacity(boatCapacity);
+			
+		}
+		
+		/**
+		 * Writes the puzzle to a compiled puzzle file: the heuristic name,
+		 * the boat capacity, and the start and goal states.
+		 * 
+		 * @param out the compiled puzzle file.
+		 * @throws ParsingException If the file cannot be written.
+		 */
+		public void write(PuzzleFileWriter out) throws ParsingException {
+			
+			out.writeString(hName);
+			out.writeInt(boatCapacity);
+			writeRows(out, startStateArray);
+			writeRows(out, goalStateArray);
+			
+		}
+				
+	}
+	
+	/**
+	 * This class holds input file data specific to the <code>GridManhattan</code> 
+	 * puzzle.
+	 * 
+	 * @author <a href="mailto:zanussi@cs.unm.edu">Michael Zanussi</a>
+	 * @version 1.0 (29 Mar 2004) 
+	 */
+	private class GridPuzzleData {
+		
+		// The heuristic name.
+		private String hName;
+
+		// The grid dimensions.
+		private int width;
+		private int height;
+		
+		// The start and goal states.
+		private Grid start;
+		private Grid goal;
+		
+		// The obstacles table (cell costs and blocked cells).
+		private CostMap obstacles;
+		
+		// A tiled cost file, the obstacles to write into it (or null to
+		// use it as it stands) and the start and goal cells. The file is
+		// only opened by open(), when the puzzle is executed, as writing
+		// it while an earlier puzzle is still being searched would change
+		// that puzzle's cells.
+		private File costFile;
+		private int[][] costFileObstacles;
+		private List<Integer> costFileStart;
+		private List<Integer> costFileGoal;
+		
+		// The abstract graph of the hierarchical engine, kept between runs
+		// as it depends only on the obstacles table and movement rules.
+		private GridAbstraction abstraction;
+		
+		// The scenarios to run, if loaded from a scenario file.
+		private List<MovingAIFileReader.Scenario> scenarios;
+		
+		// The incremental engine and the grid it searches. The engine is
+		// kept between runs so it can repair its search after obstacle
+		// changes and start moves.
+		private GridGraph graph;
+		private DStarLite incremental;
+		private int incrementalGoal;
+		
+		// The goal distance field, kept between runs as every start
+		// heading for the same goal reads its path off the same field.
+		private GridDistanceField field;
+		
+		/**
+		 * No-arg constructor.
+		 */
+		public GridPuzzleData() {
+			
+			width = 0;
+			height = 0;
+			start = null;
+			goal = null;
+			
+		}
+		
+		/**
+		 * Constructor for a puzzle read from a compiled puzzle file, as
+		 * written by <code>write()</code>.
+		 * 
+		 * @param in the compiled puzzle file.
+		 * @throws ParsingException If the file is truncated or corrupt.
+		 */
+		public GridPuzzleData(PuzzleFileReader in) throws ParsingException {
+			
+			this();
+			setHName(in.readString());
+			
+			// A tiled cost file is only named, and is opened when the
+			// puzzle is executed.
+			String tiles = in.readString();
+			int[][] costs = null;
+			if (tiles != null) {
+				int[] size = in.readInts();
+				if (size == null || size.length != 2 || size[0] <= 0 || size[1] <= 0) {
+					throw new ParsingException("_GridPuzzleData.GridPuzzleData error: The size of the grid in " + tiles + " is corrupt.");
+				}
+				setSize(size[0], size[1]);
+				costs = readRows(in);
+				if (costs != null && (costs.length != 3 || costs[ParseObstacles.X] == null || costs[ParseObstacles.Y] == null || costs[ParseObstacles.COST] == null || costs[ParseObstacles.X].length != costs[ParseObstacles.COST].length || costs[ParseObstacles.Y].length != costs[ParseObstacles.COST].length)) {
+					throw new ParsingException("_GridPuzzleData.GridPuzzleData error: The obstacles of " + tiles + " are corrupt.");
+				}
+			} else {
+				CostMap map = CostMap.read(in);
+				setSize(map.getWidth(), map.getHeight());
+				setObstacles(map);
+			}
+			
+			int[] ends = in.readInts();
+			if (ends == null || ends.length != 4) {
+				throw new ParsingException("_GridPuzzleData.GridPuzzleData error: The start and goal cells are missing.");
+			}
+			
+			// The scenarios, each as its start and goal cells and its
+			// optimal cost.
+			int count = in.readInt();
+			if (count >= 0) {
+				List<MovingAIFileReader.Scenario> list = new ArrayList<MovingAIFileReader.Scenario>(count);
+				for (int i = 0; i < count; i++) {
+					int[] cells = in.readInts();
+					if (cells == null || cells.length != 4) {
+						throw new ParsingException("_GridPuzzleData.GridPuzzleData error: Scenario " + (i + 1) + " is corrupt.");
+					}
+					list.add(new MovingAIFileReader.Scenario(cells[0], cells[1], cells[2], cells[3], in.readString()));
+				}
+				setScenarios(list);
+			}
+			
+			if (tiles != null) {
+				setCostFile(new File(tiles), costs, Arrays.asList(ends[0], ends[1]), Arrays.asList(ends[2], ends[3]));
+			} else {
+				setStart(Arrays.asList(ends[0], ends[1]));
+				setGoal(Arrays.asList(ends[2], ends[3]));
+			}
+			
+		}
+		
+		/**
+		 * Returns a delta-stepping engine from the start to the goal.
+		 * 
+		 * @param diagonal <code>true</code> for eight moves per cell.
+		 * @param cornerCutting the corner-cutting rule for diagonal moves.
+		 * @return the delta-stepping engine.
+		 */
+		public DeltaStepping getDeltaStepping(boolean diagonal, int cornerCutting) {
+			
+			return new DeltaStepping(new GridGraph(obstacles, diagonal, cornerCutting), cell(start), cell(goal));
+			
+		}
+		
+		/**
+		 * Returns a goal distance field engine from the start to the goal.
+		 * The field is built on first use and rebuilt only if the goal, the
+		 * movement rules or the obstacles change.
+		 * 
+		 * @param diagonal <code>true</code> for eight moves per cell.
+		 * @param cornerCutting the corner-cutting rule for diagonal moves.
+		 * @return the distance field, with its start set to the current start.
+		 */
+		public GridDistanceField getFlowField(boolean diagonal, int cornerCutting) {
+			
+			GridGraph g = (field == null ? null : field.getGraph());
+			if (g == null || g.isDiagonal() != diagonal || g.getCornerCutting() != cornerCutting || field.getGoal() != cell(goal)) {
+				field = new GridDistanceField(new GridGraph(obstacles, diagonal, cornerCutting), cell(goal));
+			}
+			field.setStart(cell(start));
+			
+			return field;
+			
+		}
+		
+		/**
+		 * Returns the goal state.
+		 * 
+		 * @return the goal state.
+		 */
+		public Grid getGoal() { 
+			
+			return goal; 
+			
+		}
+		
+		/**
+		 * Returns the heuristic name.
+		 *
+		 * @return the heuristic name.
+		 */
+		public String getHName() {
+
+			return hName;
+
+		}
+
+		/**
+		 * Returns the number of cells along the <tt>y</tt> axis.
+		 * 
+		 * @return the grid height.
+		 */
+		public int getHeight() { 
+			
+			return height; 
+			
+		}
+		
+		/**
+		 * Returns a hierarchical engine from the start to the goal. The
+		 * abstract graph is built on first use and rebuilt only if the
+		 * cluster size or movement rules change.
+		 * 
+		 * @param clusterSize the number of cells along each side of a cluster.
+		 * @param diagonal <code>true</code> for eight moves per cell.
+		 * @param cornerCutting the corner-cutting rule for diagonal moves.
+		 * @return the hierarchical engine.
+		 */
+		public HPAStar getHierarchical(int clusterSize, boolean diagonal, int cornerCutting) {
+			
+			GridGraph g = (abstraction == null ? null : abstraction.getGraph());
+			if (g == null || abstraction.getClusterSize() != clusterSize || g.isDiagonal() != diagonal || g.getCornerCutting() != cornerCutting) {
+				abstraction = new GridAbstraction(new GridGraph(obstacles, diagonal, cornerCutting), clusterSize);
+			}
+			
+			return new HPAStar(abstraction, cell(start), cell(goal));
+			
+		}
+		
+		/**
+		 * Returns the incremental engine from the start to the goal. The
+		 * same engine is returned on every call, with its start moved to the
+		 * current start, so that each run only repairs the search. A new
+		 * engine is made if the goal or the movement rules change.
+		 * 
+		 * @param diagonal <code>true</code> for eight moves per cell.
+		 * @param cornerCutting the corner-cutting rule for diagonal moves.
+		 * @return the incremental engine.
 		 */
-		public MCPuzzleData() {
+		public DStarLite getIncremental(boolean diagonal, int cornerCutting) {
+			
+			if (incremental == null || graph.isDiagonal() != diagonal || graph.getCornerCutting() != cornerCutting || incrementalGoal != cell(goal)) {
+				graph = new GridGraph(obstacles, diagonal, cornerCutting);
+				incremental = new DStarLite(graph, cell(start), cell(goal));
+				incrementalGoal = cell(goal);
+			} else {
+				incremental.moveStart(cell(start));
+			}
 			
-			boatCapacity = 0;
-			goal = null;
-			goalStateArray = null;
-			start = null;
-			startStateArray = null;
-			totalC = 0;
-			totalM = 0;
+			return incremental;
 			
 		}
 		
 		/**
-		 * Calculates the total number of missionaries and cannibals. 
+		 * Returns the obstacle table.
+		 * 
+		 * @return the obstacle table.
 		 */
-		public void calcTotalMandC() {
+		public CostMap getObstacles() { 
 			
-			totalC = startStateArray[0][0] + startStateArray[1][0];
-			totalM = startStateArray[0][1] + startStateArray[1][1];
+			return obstacles; 
 			
 		}
 		
 		/**
-		 * Returns the goal state.
+		 * Returns the number of cells along the <tt>x</tt> axis.
 		 * 
-		 * @return the goal state.
+		 * @return the grid width.
 		 */
-		public MandC getGoal() {
+		public int getWidth() { 
 			
-			return goal;
+			return width; 
 			
 		}
 		
 		/**
-		 * Returns the start state.
+		 * Returns the scenarios loaded from a scenario file.
 		 * 
-		 * @return the start state.
+		 * @return the scenarios, or <code>null</code> if there are none.
 		 */
-		public MandC getStart() {
+		public List<MovingAIFileReader.Scenario> getScenarios() { 
 			
-			return start;
+			return scenarios; 
 			
 		}
-
+		
 		/**
-		 * Returns the total number of cannibals.
+		 * Returns the start state.
 		 * 
-		 * @return the total number of cannibals.
+		 * @return the start state.
 		 */
-		public int getTotalC() {
+		public Grid getStart() { 
 			
-			return totalC;
+			return start; 
 			
 		}
 		
 		/**
-		 * Returns the total number of missionaries.
+		 * Opens the tiled cost file set by <code>setCostFile()</code>, if
+		 * any: the obstacles given replace whatever the file held, and the
+		 * start and goal cells are set. Does nothing if the obstacles table
+		 * is already set.
 		 * 
-		 * @return the total number of missionaries.
+		 * @throws ParsingException If the file cannot be opened or created,
+		 * or holds a grid of other dimensions.
+		 * @throws IllegalArgumentException If the start or goal cell is
+		 * blocked.
 		 */
-		public int getTotalM() {
+		public void open() throws ParsingException {
+			
+			if (costFile == null || obstacles != null) {
+				return;
+			}
+			
+			CostMap map;
+			if (costFileObstacles == null) {
+				map = CostMap.map(costFile, width, height, 0);
+			} else {
+				map = CostMap.create(costFile, width, height, ParseObstacles.maxCost(costFileObstacles));
+				ParseObstacles.apply(costFileObstacles, map);
+			}
+			
+			setObstacles(map);
+			setStart(costFileStart);
+			setGoal(costFileGoal);
 			
-			return totalM;
 		}
 		
 		/**
-		 * Prints the completed path and other useful statistics.
+		 * Prints the completed path.
 		 */
 		public void print(List<Object> path) {
 			
@@ -625,30 +1736,26 @@ public class PuzzleMuncher {
 			// Solution found!
 			else {
 				
-				// Have we just started printing the path?
+				// Reverse the contents of the list then 
+				// grab an iterator.
+				Collections.reverse(path);
+				Iterator<Object> it = path.iterator();
+				
+				// Just starting?
 				boolean justStarted = true;
-
-				// The previous cannibals, missionaries, and bank.
-				String prevBank = null;
-				int prevC = -1;
-				int prevM = -1;
-
-				// *DEBUG*
-				String prevState = null;
-
+				
+				// The previous cell visited.
+				String prevCell = "";
+				
 				// The move counter.
 				int move = 0;
 				
-				// Reverse the contents of the list then grab an iterator.
-				Collections.reverse(path);
-				Iterator<Object> it = path.iterator();
-				
 				while (it.hasNext()) {
 					
 					// Get next move.
-					MandC s = (MandC)it.next();
+					Grid s = (Grid)it.next();
 					
-					// This shouldn't happen, but check anyhow.
+					// This shouldn't happen, but check anyway.
 					if (s == null) {
 						break;
 					}
@@ -657,35 +1764,19 @@ public class PuzzleMuncher {
 					// store it in prev.
 					if (justStarted) {
 						justStarted = false;
-						prevBank = (s.getBank() == MandC.WEST ? "West" : "East");
-						prevC = s.getC();
-						prevM = s.getM();
-						prevState = s.getLabel();
+						prevCell = s.getLabel();
 						continue;
 					}
-
+					
 					// Increment the move counter.
 					move++;
 					
-					// Calculate the current cannibal and missionary numbers.
-					int currentC = Math.abs(prevC - s.getC());
-					int currentM = Math.abs(prevM - s.getM());
-
 					// Print the move sequence, if applicable.
 					if (moveSeq) {
-						Global.output("MOVE " + move + ": FERRY " + currentC + " Cannibals and " + currentM + " Missionaries FROM " + prevBank + " TO " + (s.getBank() == MandC.WEST ? "West" : "East"));
+						Global.output("MOVE " + move + ": TRAVEL FROM " + prevCell + " TO " + s.getLabel());
 					}
 					
-					// *DEBUG*
-					if (Global.getDebug()) {
-						System.out.println("*DEBUG* " + prevState + " -> " + s.getLabel());
-					}
-
-					// Save the current state.
-					prevBank = (s.getBank() == MandC.WEST ? "West" : "East");
-					prevC = s.getC();
-					prevM = s.getM();
-					prevState = s.getLabel();
+					prevCell = s.getLabel();
 					
 				}
 				
@@ -697,45 +1788,108 @@ public class PuzzleMuncher {
 			}
 			
 		}
-		
+
 		/**
-		 * Sets the boat capacity.
+		 * Keeps the cells in a tiled cost file, to be opened by
+		 * <code>open()</code> when the puzzle is executed. The size must
+		 * have been set.
 		 * 
-		 * @param capacity the boat capacity.
+		 * @param file the tiled cost file.
+		 * @param list the obstacles to write into the file, as returned by
+		 * <code>ParseObstacles.parseList()</code>, or <code>null</code> to
+		 * use the file as it stands.
+		 * @param start the start cell.
+		 * @param goal the goal cell.
 		 */
-		public void setBoatCapacity(int capacity) { 
+		public void setCostFile(File file, int[][] list, List<Integer> start, List<Integer> goal) {
 			
-			boatCapacity = capacity; 
+			costFile = file;
+			costFileObstacles = list;
+			costFileStart = start;
+			costFileGoal = goal;
 			
 		}
-
+		
 		/**
 		 * Sets the goal state.
 		 * 
-		 * @param state the goal state.
+		 * @param state the start state.
+		 * @throws IllegalArgumentException If grid coordinates exceed grid size,
+		 * or the cell is blocked.
 		 */
-		public void setGoal(int[][] state) { 
+		public void setGoal(List<Integer> state) { 
 			
-			goalStateArray = state;
+			int x = state.get(0);
+			int y = state.get(1);
 			
-			if (hName.equals("MandCTrips")) {
-				goal = new MandCTrips(state[0][0], state[0][1], state[2][0], null);
-			} else if (hName.equals("MandCCount")) {				
-				goal = new MandCCount(state[0][0], state[0][1], state[2][0], null);
+			if ((x > width - 1) || (y > height - 1)) {
+				throw new IllegalArgumentException("_GridPuzzleData.setGoal error: X and/or Y coordinates exceed grid size. X = " + x + ", Y = " + y + ", Grid size = " + width + " x " + height);
 			}
 			
-			goal.setBoatCapacity(boatCapacity);
+			if (obstacles.isBlocked(x, y)) {
+				throw new IllegalArgumentException("_GridPuzzleData.setGoal error: Goal cell is blocked. X = " + x + ", Y = " + y);
+			}
+			
+			if (hName.equals("GridManhattan")) {
+				goal = new GridManhattan(x, y, 1.0, null);
+			} else if (hName.equals("GridStraight")) {				
+				goal = new GridStraight(x, y, 1.0, null);
+			} else if (hName.equals("GridOctile")) {
+				goal = new GridOctile(x, y, 1.0, null);
+			}
+			
+			goal.setTotalX(width);
+			goal.setTotalY(height);
+			goal.setObstacles(obstacles);
 			
 		}
 		
 		/**
 		 * Sets the heuristic name.
 		 * 
-		 * @param hName the heuristic name.
+		 * @param hname the heuristic name.
 		 */
-		public void setHName(String hName) { 
+		public void setHName(String hname) { 
 			
-			this.hName = hName; 
+			this.hName = hname; 
+			
+		}
+		
+		/**
+		 * Sets the obstacle table.
+		 * 
+		 * @param obstacles the obstacle table.
+		 */
+		public void setObstacles(CostMap obstacles) { 
+			
+			this.obstacles = obstacles; 
+			abstraction = null;
+			incremental = null;
+			field = null;
+			
+		}
+		
+		/**
+		 * Sets the scenarios to run in place of a single start and goal.
+		 * 
+		 * @param scenarios the scenarios.
+		 */
+		public void setScenarios(List<MovingAIFileReader.Scenario> scenarios) { 
+			
+			this.scenarios = scenarios; 
+			
+		}
+		
+		/**
+		 * Sets the size of the grid.
+		 * 
+		 * @param width the number of cells along the <tt>x</tt> axis.
+		 * @param height the number of cells along the <tt>y</tt> axis.
+		 */
+		public void setSize(int width, int height) {
+			
+			this.width = width;
+			this.height = height;
 			
 		}
 		
@@ -743,87 +1897,354 @@ public class PuzzleMuncher {
 		 * Sets the start state.
 		 * 
 		 * @param state the start state.
+		 * @throws IllegalArgumentException If grid coordinates exceed grid size,
+		 * or the cell is blocked.
 		 */
-		public void setStart(int[][] state) { 
+		public void setStart(List<Integer> state) { 
 			
-			startStateArray = state;
-
-			if (hName.equals("MandCTrips")) {
-				start = new MandCTrips(state[0][0], state[0][1], state[2][0], null);
+			int x = state.get(0);
+			int y = state.get(1);
+			
+			if ((x > width - 1) || (y > height - 1)) {
+				throw new IllegalArgumentException("_GridPuzzleData.setStart error: X and/or Y coordinates exceed grid size. X = " + x + ", Y = " + y + ", Grid size = " + width + " x " + height);
 			}
-			else if (hName.equals("MandCCount")) {				
-				start = new MandCCount(state[0][0], state[0][1], state[2][0], null);
+			
+			if (obstacles.isBlocked(x, y)) {
+				throw new IllegalArgumentException("_GridPuzzleData.setStart error: Start cell is blocked. X = " + x + ", Y = " + y);
 			}
 			
-			start.setBoatCapacity(boatCapacity);
+			if (hName.equals("GridManhattan")) {
+				start = new GridManhattan(x, y, 1.0, null);
+			} else if (hName.equals("GridStraight")) {				
+				start = new GridStraight(x, y, 1.0, null);
+			} else if (hName.equals("GridOctile")) {
+				start = new GridOctile(x, y, 1.0, null);
+			}
+			
+			start.setTotalX(width);
+			start.setTotalY(height);
+			start.setObstacles(obstacles);
+			
+		}
+		
+		/**
+		 * Changes the cost of entering cells, or blocks or opens them. The
+		 * obstacle table is changed in place, the hierarchical engine's
+		 * abstract graph and the distance field are dropped, and the incremental engine (if any) is
+		 * told which cells may now be entered at a different cost.
+		 * 
+		 * @param updates the changed locations, as returned by
+		 * <code>ParseObstacles.parseList()</code>.
+		 * @throws IllegalArgumentException If the start or goal cell would
+		 * be blocked.
+		 */
+		public void updateObstacles(int[][] updates) throws IllegalArgumentException {
+			
+			for (int i = 0; i < updates[ParseObstacles.COST].length; i++) {
+				
+				int x = updates[ParseObstacles.X][i];
+				int y = updates[ParseObstacles.Y][i];
+				int cost = updates[ParseObstacles.COST][i];
+				
+				// Update the obstacle table.
+				if (cost == ParseObstacles.BLOCKED) {
+					if ((x == start.getX() && y == start.getY()) || (x == goal.getX() && y == goal.getY())) {
+						throw new IllegalArgumentException("_GridPuzzleData.updateObstacles error: The start and goal cells cannot be blocked. X = " + x + ", Y = " + y);
+					}
+					obstacles.setBlocked(x, y, true);
+				} else {
+					obstacles.setBlocked(x, y, false);
+					obstacles.setCost(x, y, cost);
+				}
+				
+				// Tell the incremental engine what changed: the moves into
+				// this cell, and any diagonal moves past its corners, all
+				// leave one of its eight neighbours.
+				if (incremental != null) {
+					for (int dy = -1; dy <= 1; dy++) {
+						for (int dx = -1; dx <= 1; dx++) {
+							if ((dx != 0 || dy != 0) && obstacles.isOnGrid(x + dx, y + dy)) {
+								incremental.edgeChanged(graph.index(x + dx, y + dy), graph.index(x, y));
+							}
+						}
+					}
+				}
+				
+			}
+			
+			// The abstract graph and distance field no longer match the
+			// obstacle table.
+			abstraction = null;
+			field = null;
+			
+		}
+		
+		/**
+		 * Writes the puzzle to a compiled puzzle file: the heuristic name,
+		 * the obstacle table, the start and goal cells, and the scenarios,
+		 * if any. A tiled cost file is not opened; it is named, with the
+		 * grid size and the obstacles to write into it when the compiled
+		 * puzzle is executed.
+		 * 
+		 * @param out the compiled puzzle file.
+		 * @throws ParsingException If the file cannot be written.
+		 */
+		public void write(PuzzleFileWriter out) throws ParsingException {
+			
+			out.writeString(hName);
+			if (costFile != null) {
+				out.writeString(costFile.getPath());
+				out.writeInts(new int[] { width, height });
+				writeRows(out, costFileObstacles);
+				out.writeInts(new int[] { costFileStart.get(0), costFileStart.get(1), costFileGoal.get(0), costFileGoal.get(1) });
+			} else {
+				out.writeString(null);
+				obstacles.write(out);
+				out.writeInts(new int[] { start.getX(), start.getY(), goal.getX(), goal.getY() });
+			}
+			
+			if (scenarios == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(scenarios.size());
+				for (MovingAIFileReader.Scenario scen : scenarios) {
+					List<Integer> s = scen.getStart();
+					List<Integer> g = scen.getGoal();
+					out.writeInts(new int[] { s.get(0), s.get(1), g.get(0), g.get(1) });
+					out.writeString(scen.getOptimal());
+				}
+			}
+			
+		}
+		
+		/**
+		 * Helper function. Returns the cell number of a grid state.
+		 */
+		private int cell(Grid state) {
+			
+			return (state.getY() * width) + state.getX();
 			
 		}
+		
 				
 	}
 	
 	/**
-	 * This class holds input file data specific to the <code>GridManhattan</code> 
-	 * puzzle.
+	 * This class holds input file data specific to the 
+	 * <code>ShortestPaths</code> puzzle.
 	 * 
 	 * @author <a href="mailto:zanussi@cs.unm.edu">Michael Zanussi</a>
 	 * @version 1.0 (29 Mar 2004) 
 	 */
-	private class GridPuzzleData {
+	private class SPPuzzleData {
+		
+		// HashMap to hold puzzle data.
+		private Map<String, ShortestPaths> map;
 		
 		// The heuristic name.
 		private String hName;
-
-		// The grid size (square).
-		private int gridSize;
 		
 		// The start and goal states.
-		private Grid start;
-		private Grid goal;
+		private String start;
+		private String goal;
+		
+		// The city table (city IDs and coordinates).
+		private CityTable cityTable;
+		
+		// The city/distance list, as returned by ParseDistList.parse().
+		private int[][] roads;
+		
+		// The road graph and the incremental engine searching it. The
+		// engine is kept between runs so it can repair its search.
+		private CityGraph graph;
+		private DStarLite incremental;
+		
+		/**
+		 * No-arg constructor.
+		 */
+		public SPPuzzleData() {
+			
+			map = new HashMap<String, ShortestPaths>();
+			
+			cityTable = new CityTable();
+			roads = null;
+			graph = null;
+			incremental = null;
+			hName = null;
+			goal = null;
+			start = null;
+			
+		}
+		
+		/**
+		 * Constructor for a puzzle read from a compiled puzzle file, as
+		 * written by <code>write()</code>. The road graph is read whole, so
+		 * the city table needs no filling.
+		 * 
+		 * @param in the compiled puzzle file.
+		 * @throws ParsingException If the file is truncated or corrupt.
+		 */
+		public SPPuzzleData(PuzzleFileReader in) throws ParsingException {
+			
+			this();
+			setHName(in.readString());
+			setStart(in.readString());
+			setGoal(in.readString());
+			setGraph(CityGraph.read(in));
+			fillTable();
+			
+		}
+		
+		/**
+		 * Builds the road graph from the city/distance list. The city
+		 * states searched by <code>AStar</code> are built from the graph
+		 * later, when the master city map is first asked for. A graph
+		 * loaded from a file is used as is.
+		 */
+		public void fillTable() {
+			
+			// A graph loaded from a file brings its own city table.
+			if (graph != null) {
+				cityTable = graph.getTable();
+				return;
+			}
+			
+			// Every city, even those missing from the city list, was given
+			// an ID as the list was parsed.
+			int[] from = roads[ParseDistList.FROM];
+			int[] to = roads[ParseDistList.TO];
+			int[] distances = roads[ParseDistList.DISTANCE];
+			
+			// Narrow the straight-line scale to each road, and count the
+			// roads at each city.
+			int[] degree = new int[cityTable.size()];
+			for (int i = 0; i < from.length; i++) {
+				cityTable.fitScale(from[i], to[i], distances[i]);
+				degree[from[i]]++;
+				degree[to[i]]++;
+			}
+			
+			// Build the road graph, sized exactly.
+			graph = new CityGraph(cityTable, hName.equals("ShortestPathsStraight"), degree);
+			for (int i = 0; i < from.length; i++) {
+				graph.addRoad(from[i], to[i], distances[i]);
+			}
+			
+		}
 		
-		// The obstacles table.
-		private int[][] obstacles;
+		/**
+		 * Returns the city table. Once the table has been filled its
+		 * cities are fixed, so it may be read while the puzzle runs.
+		 * 
+		 * @return the city table.
+		 */
+		public CityTable getCityTable() {
+			
+			return cityTable;
+			
+		}
 		
 		/**
-		 * No-arg constructor.
+		 * Returns a delta-stepping engine from the start city to the goal
+		 * city on the road graph.
+		 * 
+		 * @return the delta-stepping engine.
+		 * @throws IllegalArgumentException If the start or goal city is unknown.
 		 */
-		public GridPuzzleData() {
+		public DeltaStepping getDeltaStepping() throws IllegalArgumentException {
 			
-			gridSize = 0;
-			start = null;
-			goal = null;
+			int s = cityTable.getId(start);
+			int t = cityTable.getId(goal);
+			if (s < 0 || t < 0) {
+				throw new IllegalArgumentException("_SPPuzzleData.getDeltaStepping error: Unknown start or goal city. Start = " + start + ", Goal = " + goal);
+			}
+			
+			return new DeltaStepping(graph, s, t);
 			
 		}
 		
+		/**
+		 * Returns the incremental engine for this map, creating it on first
+		 * use. The same engine is returned on every call, so that each run
+		 * only repairs the search after any <code>UpdateDistances</code>.
+		 * 
+		 * @return the incremental engine.
+		 * @throws IllegalArgumentException If the start or goal city is unknown.
+		 */
+		public DStarLite getIncremental() throws IllegalArgumentException {
+			
+			if (incremental == null) {
+				
+				int s = cityTable.getId(start);
+				int t = cityTable.getId(goal);
+				if (s < 0 || t < 0) {
+					throw new IllegalArgumentException("_SPPuzzleData.getIncremental error: Unknown start or goal city. Start = " + start + ", Goal = " + goal);
+				}
+				
+				incremental = new DStarLite(graph, s, t);
+				
+			}
+			
+			return incremental;
+			
+		}
+
 		/**
 		 * Returns the goal state.
 		 * 
 		 * @return the goal state.
 		 */
-		public Grid getGoal() { 
+		public String getGoal() { 
 			
 			return goal; 
 			
 		}
 		
 		/**
-		 * Returns the obstacle table.
+		 * Returns the heuristic name.
+		 *
+		 * @return the heuristic name.
+		 */
+		public String getHName() {
+
+			return hName;
+
+		}
+
+		/**
+		 * Finds the <code>k</code> shortest loopless paths from the start
+		 * city to the goal city on the road graph.
 		 * 
-		 * @return the obstacle table.
+		 * @param k the number of paths wanted.
+		 * @return the paths found, shortest first.
+		 * @throws IllegalArgumentException If the start or goal city is unknown.
 		 */
-		public int[][] getObstacles() { 
+		public List<LinkedList<Object>> getKShortest(int k) throws IllegalArgumentException {
 			
-			return obstacles; 
+			int s = cityTable.getId(start);
+			int t = cityTable.getId(goal);
+			if (s < 0 || t < 0) {
+				throw new IllegalArgumentException("_SPPuzzleData.getKShortest error: Unknown start or goal city. Start = " + start + ", Goal = " + goal);
+			}
+			
+			return new KShortestPaths(graph, s, t).paths(k);
 			
 		}
 		
 		/**
-		 * Returns the size of the grid (square).
+		 * Returns the master city map, building the city states from the
+		 * road graph on first use. Maps that are only searched by the
+		 * indexed engines never pay for a state per road.
 		 * 
-		 * @return the size of the grid.
+		 * @return the master city map.
 		 */
-		public int getSize() { 
+		public Map<String, ShortestPaths> getMap() { 
 			
-			return gridSize; 
+			if (map.isEmpty()) {
+				buildStates();
+			}
+			
+			return map; 
 			
 		}
 		
@@ -832,17 +2253,17 @@ public class PuzzleMuncher {
 		 * 
 		 * @return the start state.
 		 */
-		public Grid getStart() { 
+		public String getStart() { 
 			
 			return start; 
 			
 		}
 		
 		/**
-		 * Prints the completed path.
+		 * Prints the completed path and other useful statistics.
 		 */
 		public void print(List<Object> path) {
-			
+
 			// No solution.
 			if (path == null) {
 				
@@ -853,48 +2274,62 @@ public class PuzzleMuncher {
 			// Solution found!
 			else {
 				
-				// Reverse the contents of the list then 
-				// grab an iterator.
-				Collections.reverse(path);
-				Iterator<Object> it = path.iterator();
+				// Is this the first city we've seen?
+				boolean firstCity = true;
 				
-				// Just starting?
-				boolean justStarted = true;
+				// The name of the previous city we've visited.
+				String prevCity = null;
 				
-				// The previous cell visited.
-				String prevCell = "";
+				// *DEBUG* 
+				double distance = 0.0;
 				
 				// The move counter.
 				int move = 0;
 				
+				// Reverse the contents of the list then grab an iterator.
+				Collections.reverse(path);
+				Iterator<Object> it = path.iterator();
+				
 				while (it.hasNext()) {
 					
 					// Get next move.
-					Grid s = (Grid)it.next();
+					ShortestPaths s = (ShortestPaths)it.next();
 					
-					// This shouldn't happen, but check anyway.
+					// This shouldn't happen, but check anyhow.
 					if (s == null) {
 						break;
 					}
 					
 					// Get the start state off the list and
 					// store it in prev.
-					if (justStarted) {
-						justStarted = false;
-						prevCell = s.getLabel();
+					if (firstCity) {
+						firstCity = false;
+						prevCity = s.getLabel();
 						continue;
 					}
 					
-					// Increment the move counter.
+					// Increment the move number.
 					move++;
 					
 					// Print the move sequence, if applicable.
 					if (moveSeq) {
-						Global.output("MOVE " + move + ": TRAVEL FROM " + prevCell + " TO " + s.getLabel());
+						Global.output("MOVE " + move + ": TRAVEL FROM " + prevCity + " TO " + s.getLabel());
 					}
 					
-					prevCell = s.getLabel();
-					
+					// *DEBUG*
+					distance += s.getDistance();
+					if (Global.getDebug()) {
+						System.out.println("*DEBUG* " + prevCity + " -> " + s.getLabel() + " (distance = " + s.getDistance() + ")");
+					}
+
+					// Save this city name.
+					prevCity = s.getLabel();
+
+				}
+				
+				// *DEBUG*
+				if (Global.getDebug()) {
+					System.out.println("*DEBUG* Total distance traveled: " + distance);
 				}
 				
 				// Report the number of moves, if applicable.
@@ -905,36 +2340,80 @@ public class PuzzleMuncher {
 			}
 			
 		}
-
+		
 		/**
-		 * Sets the goal state.
+		 * Prints several completed paths, each preceded by its number
+		 * and total cost.
 		 * 
-		 * @param state the start state.
-		 * @throws IllegalArgumentException If grid coordinates exceed grid size.
+		 * @param paths the completed paths, shortest first.
 		 */
-		public void setGoal(List<Integer> state) { 
-			
-			int x = state.get(0);
-			int y = state.get(1);
+		public void printPaths(List<LinkedList<Object>> paths) {
 			
-			if ((x > gridSize - 1) || (y > gridSize - 1)) {
-				throw new IllegalArgumentException("_GridPuzzleData.setGoal error: X and/or Y coordinates exceed grid size. X = " + x + ", Y = " + y + ", Grid size = " + gridSize);
+			// No solution.
+			if (paths.isEmpty()) {
+				print(null);
+				return;
 			}
 			
-			if (hName.equals("GridManhattan")) {
-				goal = new GridManhattan(x, y, 1.0, null);
-			} else if (hName.equals("GridStraight")) {				
-				goal = new GridStraight(x, y, 1.0, null);
+			for (int i = 0; i < paths.size(); i++) {
+				
+				// The goal state heads the path and carries the total cost.
+				LinkedList<Object> path = paths.get(i);
+				Global.output("PATH " + (i + 1) + ": COST " + ((PuzState)path.getFirst()).distFromStart());
+				print(path);
+				
 			}
 			
-			goal.setTotalX(gridSize);
-			goal.setTotalY(gridSize);
-			goal.setObstacles(obstacles);
+		}
+		
+		/**
+		 * Set the city table.
+		 * 
+		 * @param cityTable the city table.
+		 */
+		public void setCityTable(CityTable cityTable) { 
+			
+			this.cityTable = cityTable; 
 			
 		}
 		
 		/**
-		 * Sets the heuristic name.
+		 * Set the city/distance pair list.
+		 * 
+		 * @param roads the city/distance pair list, as returned by
+		 * <code>ParseDistList.parse()</code>.
+		 */
+		public void setRoads(int[][] roads) { 
+			
+			this.roads = roads; 
+			
+		}
+		
+		/**
+		 * Set the goal state.
+		 * 
+		 * @param goal the goal state.
+		 */
+		public void setGoal(String goal) { 
+			
+			this.goal = goal; 
+			
+		}
+		
+		/**
+		 * Set the road graph, when it was loaded from a file rather than
+		 * given as a city/distance pair list.
+		 * 
+		 * @param graph the road graph.
+		 */
+		public void setGraph(CityGraph graph) { 
+			
+			this.graph = graph; 
+			
+		}
+		
+		/**
+		 * Set the heuristic name.
 		 * 
 		 * @param hname the heuristic name.
 		 */
@@ -943,223 +2422,419 @@ public class PuzzleMuncher {
 			this.hName = hname; 
 			
 		}
+
+		/**
+		 * Set the start state.
+		 * 
+		 * @param start the start state.
+		 */
+		public void setStart(String start) { 
+			
+			this.start = start; 
+			
+		}
 		
 		/**
-		 * Sets the obstacle table.
+		 * Changes the distances of existing roads, or adds new roads between
+		 * known cities. Both the city states searched by <code>AStar</code>
+		 * and the road graph are updated, and the incremental engine (if
+		 * any) is told which roads changed so that it can repair its search.
 		 * 
-		 * @param obstacles the obstacle table.
+		 * @param updates the city/distance pair list of changed roads, as
+		 * returned by <code>ParseDistList.parse()</code>.
 		 */
-		public void setObstacles(int[][] obstacles) { 
+		public void updateDistances(int[][] updates) {
 			
-			this.obstacles = obstacles; 
+			for (int i = 0; i < updates[ParseDistList.FROM].length; i++) {
+				
+				// Retrieve the city/distance pair.
+				int a = updates[ParseDistList.FROM][i];
+				int b = updates[ParseDistList.TO][i];
+				double distance = updates[ParseDistList.DISTANCE][i];
+				
+				// Update the road graph and the straight-line scale.
+				double scale = cityTable.getScale();
+				graph.setDistance(a, b, distance);
+				cityTable.fitScale(a, b, distance);
+				
+				// Update the city states in both directions (one way on a
+				// directed graph), if they have been built yet.
+				if (!map.isEmpty()) {
+					setRoad(cityTable.getName(a), cityTable.getName(b), distance);
+					if (!graph.isDirected()) {
+						setRoad(cityTable.getName(b), cityTable.getName(a), distance);
+					}
+				}
+				
+				// Tell the incremental engine what changed.
+				if (incremental != null) {
+					
+					if (cityTable.getScale() != scale) {
+						incremental.heuristicChanged();
+					}
+					
+					incremental.edgeChanged(a, b);
+					if (!graph.isDirected()) {
+						incremental.edgeChanged(b, a);
+					}
+					
+				}
+				
+			}
 			
 		}
 		
 		/**
-		 * Sets the size of the grid (square).
+		 * Writes the puzzle to a compiled puzzle file: the heuristic name,
+		 * the start and goal cities, and the road graph with its city
+		 * table. The city table must have been filled.
 		 * 
-		 * @param size the size of the grid.
+		 * @param out the compiled puzzle file.
+		 * @throws ParsingException If the file cannot be written.
 		 */
-		public void setSize(int size) {
+		public void write(PuzzleFileWriter out) throws ParsingException {
 			
-			gridSize = size;
+			out.writeString(hName);
+			out.writeString(start);
+			out.writeString(goal);
+			graph.write(out);
 			
 		}
 		
 		/**
-		 * Sets the start state.
+		 * Helper function. Builds a city state for every city in the
+		 * graph, with a child state for each road leaving it. Every child
+		 * shares the children list of the city it leads to.
+		 */
+		private void buildStates() {
+			
+			int[] nodes = new int[Math.max(graph.maxDegree(), 1)];
+			double[] costs = new double[nodes.length];
+			
+			// Create every city first, so each road can find its destination.
+			for (int u = 0; u < graph.size(); u++) {
+				getCityList(cityTable.getName(u));
+			}
+			
+			for (int u = 0; u < graph.size(); u++) {
+				
+				AbstractShortestPaths city = (AbstractShortestPaths)map.get(cityTable.getName(u));
+				int n = graph.successors(u, nodes, costs);
+				for (int i = 0; i < n; i++) {
+					
+					// Setup link to the destination city.
+					String name = cityTable.getName(nodes[i]);
+					AbstractShortestPaths sp = newCity(name, costs[i], city);
+					sp.children = ((AbstractShortestPaths)map.get(name)).children;
+					city.children.add(sp);
+					
+				}
+				
+			}
+			
+		}
+		
+		/**
+		 * Helper function. Retrieves the children list for the
+		 * requested city.
 		 * 
-		 * @param state the start state.
-		 * @throws IllegalArgumentException If grid coordinates exceed grid size.
+		 * @param the city whose children list we desire.
+		 * @return the children list.
 		 */
-		public void setStart(List<Integer> state) { 
+		private PuzState getCityList(String city) {
 			
-			int x = state.get(0);
-			int y = state.get(1);
+			PuzState ps = (PuzState)map.get(city);
 			
-			if ((x > gridSize - 1) || (y > gridSize - 1)) {
-				throw new IllegalArgumentException("_GridPuzzleData.setStart error: X and/or Y coordinates exceed grid size. X = " + x + ", Y = " + y + ", Grid size = " + gridSize);
+			if (ps == null) {
+				
+				// City does not exist in hash table yet. Add it, 
+				// then and a new linked list.
+				AbstractShortestPaths sp = newCity(city, 0.0, null);
+				sp.children = new LinkedList<Object>();
+				map.put(city, sp);
+				
+				ps = sp;
+				
 			}
 			
-			if (hName.equals("GridManhattan")) {
-				start = new GridManhattan(x, y, 1.0, null);
-			} else if (hName.equals("GridStraight")) {				
-				start = new GridStraight(x, y, 1.0, null);
+			return ps;
+			
+		}
+		
+		/**
+		 * Helper function. Creates a new city state for the current
+		 * heuristic.
+		 * 
+		 * @param city the name of the city.
+		 * @param distance the cost to travel to this city from the "parent" city.
+		 * @param parent the city we traveled from.
+		 * @return the new city state.
+		 * @throws UnsupportedOperationException If the heuristic is unknown.
+		 */
+		private AbstractShortestPaths newCity(String city, double distance, PuzState parent) throws UnsupportedOperationException {
+			
+			// Make sure every city has an ID, even those missing from the city list.
+			cityTable.add(city);
+			
+			if (hName.equals("ShortestPathsNonMono")) {
+				return new ShortestPathsNonMono(city, distance, parent);
+			} else if (hName.equals("ShortestPathsMono")) {
+				return new ShortestPathsMono(city, distance, parent);
+			} else if (hName.equals("ShortestPathsStraight")) {
+				ShortestPathsStraight sp = new ShortestPathsStraight(city, distance, parent);
+				sp.setCityTable(cityTable);
+				return sp;
 			}
 			
-			start.setTotalX(gridSize);
-			start.setTotalY(gridSize);
-			start.setObstacles(obstacles);
+			throw new UnsupportedOperationException("PuzzleMuncher.newCity error: " + hName + " not supported at this time.");
 			
 		}
 		
+		/**
+		 * Helper function. Sets the distance of every road from one city
+		 * to another in the city states, adding a road if there is none.
+		 * 
+		 * @param from the city the road leaves.
+		 * @param to the city the road enters.
+		 * @param distance the new road distance.
+		 */
+		private void setRoad(String from, String to, double distance) {
+			
+			AbstractShortestPaths city = (AbstractShortestPaths)getCityList(from);
+			boolean found = false;
+			
+			Iterator<Object> it = city.children();
+			while (it.hasNext()) {
+				
+				AbstractShortestPaths sp = (AbstractShortestPaths)it.next();
+				if (sp.getLabel().equals(to)) {
+					sp.distance = distance;
+					found = true;
+				}
 				
+			}
+			
+			// No such road yet. Add one, sharing the destination's children.
+			if (!found) {
+				AbstractShortestPaths sp = newCity(to, distance, city);
+				sp.children = ((AbstractShortestPaths)getCityList(to)).children;
+				city.children.add(sp);
+			}
+			
+		}
+		
 	}
 	
 	/**
-	 * This class holds input file data specific to the 
-	 * <code>ShortestPaths</code> puzzle.
-	 * 
-	 * @author <a href="mailto:zanussi@cs.unm.edu">Michael Zanussi</a>
-	 * @version 1.0 (29 Mar 2004) 
-	 */
-	private class SPPuzzleData {
-		
-		// Given puzzle data, indexes to start state (BEGIN),
-		// goal state (END), and cost (DISTANCE).
-		private static final int BEGIN = 0;
-		private static final int END = 1;
-		private static final int DISTANCE = 2;
-		
-		// HashMap to hold puzzle data.
-		private Map<String, ShortestPaths> map;
+	 * This class holds input file data specific to the 
+	 * <code>NToTheKPuzzle</code> puzzle.
+	 * 
+	 * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+	 * @version 1.0 (29 Mar 2004) 
+	 */
+	private class NKPuzzleData {
 		
 		// The heuristic name.
 		private String hName;
 		
-		// The start and goal states.
-		private String start;
-		private String goal;
+		// The number of cells a side and the number of sides.
+		private int side;
+		private int dims;
+		
+		// The start and goal boards, tile by cell.
+		private int[] start;
+		private int[] goal;
 		
-		// The city list.
-		private List<String> cityList;
+		// The instance file, or null for the start board alone, and the
+		// start boards it lists, once read.
+		private File instanceFile;
+		private List<int[]> instances;
 		
-		// The city/distance list.
-		private List<String[]> distList;
+		// The pattern tiles, or null for the default patterns, and the
+		// directory their databases are saved in, or null to keep them in
+		// memory only.
+		private List<int[]> patternTiles;
+		private File patternDir;
+		
+		// The pattern databases, once made.
+		private PatternDatabase[] patterns;
+		
+		// The puzzle last solved.
+		private NToTheKPuzzle puzzle;
 		
 		/**
 		 * No-arg constructor.
 		 */
-		public SPPuzzleData() {
-			
-			map = new HashMap<String, ShortestPaths>();
+		public NKPuzzleData() {
 			
-			//cityList = null;
-			distList = null;
-			hName = null;
+			dims = 0;
 			goal = null;
+			instanceFile = null;
+			instances = null;
+			patternDir = null;
+			patternTiles = null;
+			patterns = null;
+			puzzle = null;
+			side = 0;
 			start = null;
 			
 		}
 		
 		/**
-		 * Loads data into master city map and sets each
-		 * city with its appropriate child list.
+		 * Constructor for a puzzle read from a compiled puzzle file, as
+		 * written by <code>write()</code>. The start boards of an instance
+		 * file are read from the compiled file, not the instance file.
+		 * 
+		 * @param in the compiled puzzle file.
+		 * @throws ParsingException If the file is truncated or corrupt.
 		 */
-		public void fillTable() {
+		public NKPuzzleData(PuzzleFileReader in) throws ParsingException {
+			
+			this();
+			setHName(in.readString());
+			side = in.readInt();
+			dims = in.readInt();
+			start = in.readInts();
+			goal = in.readInts();
+			if (goal == null) {
+				throw new ParsingException("_NKPuzzleData.NKPuzzleData error: The goal board is missing.");
+			}
 			
-			if (hName.equals("ShortestPathsNonMono")) {
-				
-				for (int i = 0; i < distList.size(); i++) {
-					
-					// Retrieve the city/distance pair.
-					String[] data = distList.get(i);
-					// Retrieve the beginning city's list of destination cities.
-					ShortestPathsNonMono bcl = (ShortestPathsNonMono)getCityList(data[BEGIN]);
-					// Retrieve the ending city's list of destination cities.
-					ShortestPathsNonMono ecl = (ShortestPathsNonMono)getCityList(data[END]);
-					ecl.parent = bcl;
-					
-					// Setup link to end state.
-					ShortestPathsNonMono endCity = new ShortestPathsNonMono(data[END], Double.parseDouble(data[DISTANCE]), bcl);
-					bcl.children.add(endCity);
-					
-					// Setup link to start state.
-					ShortestPathsNonMono beginCity = new ShortestPathsNonMono(data[BEGIN], Double.parseDouble(data[DISTANCE]), ecl);
-					ecl.children.add(beginCity);
-					
-				}
-				
-				// Now that table has been filled out, we can attach the
-				// correct children lists to each city.
-				Iterator it = map.entrySet().iterator();
-				while (it.hasNext()) {
-					
-					Map.Entry entry = (Map.Entry)it.next();
-					ShortestPathsNonMono ll = (ShortestPathsNonMono)entry.getValue();
-					Iterator llit = ll.children();
-					while (llit.hasNext()) {
-						
-						ShortestPathsNonMono sp = (ShortestPathsNonMono)llit.next();
-						List<Object> cityList = ((ShortestPathsNonMono)map.get(sp.getLabel())).children;
-						sp.children = cityList;
-						
-					}
-					
-				}
-			} else if (hName.equals("ShortestPathsMono")) {
-				
-				for (int i = 0; i < distList.size(); i++) {
-					
-					// Retrieve the city/distance pair.
-					String[] data = distList.get(i);
-					// Retrieve the beginning city's list of destination cities.
-					ShortestPathsMono bcl = (ShortestPathsMono)getCityList(data[BEGIN]);
-					// Retrieve the ending city's list of destination cities.
-					ShortestPathsMono ecl = (ShortestPathsMono)getCityList(data[END]);
-					ecl.parent = bcl;
-					
-					// Setup link to end state.
-					ShortestPathsMono endCity = new ShortestPathsMono(data[END], Double.parseDouble(data[DISTANCE]), bcl);
-					bcl.children.add(endCity);
-					
-					// Setup link to start state.
-					ShortestPathsMono beginCity = new ShortestPathsMono(data[BEGIN], Double.parseDouble(data[DISTANCE]), ecl);
-					ecl.children.add(beginCity);
-					
-				}
-
-				
-				// Now that table has been filled out, we can attach the
-				// correct children lists to each city.
-				Iterator it = map.entrySet().iterator();
-				while (it.hasNext()) {
-					
-					Map.Entry entry = (Map.Entry)it.next();
-					ShortestPathsMono ll = (ShortestPathsMono)entry.getValue();
-					Iterator llit = ll.children();
-					while (llit.hasNext()) {
-						
-						ShortestPathsMono sp = (ShortestPathsMono)llit.next();
-						List<Object> cityList = ((ShortestPathsMono)map.get(sp.getLabel())).children;
-						sp.children = cityList;
-						
-					}
-					
-				}
+			int[][] boards = readRows(in);
+			if (boards != null) {
+				instances = new ArrayList<int[]>(Arrays.asList(boards));
+			}
+			
+			int[][] tiles = readRows(in);
+			if (tiles != null) {
+				patternTiles = new LinkedList<int[]>(Arrays.asList(tiles));
+			}
+			
+			String dir = in.readString();
+			if (dir != null) {
+				patternDir = new File(dir);
 			}
+			
+		}
+		
+		/**
+		 * Returns the heuristic name.
+		 *
+		 * @return the heuristic name.
+		 */
+		public String getHName() {
+
+			return hName;
+
 		}
 
 		/**
-		 * Returns the goal state.
+		 * Returns the start boards of the instance file, reading them the
+		 * first time.
 		 * 
-		 * @return the goal state.
+		 * @return the start boards, or <code>null</code> if no instance
+		 * file was given.
+		 * @throws ParsingException If the instance file cannot be read or
+		 * is malformed.
 		 */
-		public String getGoal() { 
+		public List<int[]> getInstances() throws ParsingException {
 			
-			return goal; 
+			if (instances == null && instanceFile != null) {
+				instances = NToTheKBatch.readInstances(instanceFile, goal.length);
+			}
+			
+			return instances;
 			
 		}
 		
 		/**
-		 * Returns the master city map.
+		 * Returns the pattern databases for the goal board, making them the
+		 * first time: mapped from the pattern directory if they have been
+		 * saved there (and built and saved there if not), or else built in
+		 * memory.
 		 * 
-		 * @return the master city map.
+		 * @return the pattern databases.
+		 * @throws ParsingException If a saved database cannot be read or
+		 * written.
 		 */
-		public Map<String, ShortestPaths> getMap() { 
+		public PatternDatabase[] getPatterns() throws ParsingException {
 			
-			return map; 
+			if (patterns == null) {
+				
+				List<int[]> tiles = (patternTiles != null ? patternTiles : PatternDatabase.partition(goal));
+				PatternDatabase[] dbs = new PatternDatabase[tiles.size()];
+				for (int i = 0; i < dbs.length; i++) {
+					if (patternDir == null) {
+						dbs[i] = PatternDatabase.build(side, dims, tiles.get(i), goal);
+					} else {
+						File f = PatternDatabase.fileFor(patternDir, side, dims, tiles.get(i), goal);
+						dbs[i] = PatternDatabase.open(f, side, dims, tiles.get(i), goal);
+					}
+				}
+				patterns = dbs;
+				
+			}
+			
+			return patterns;
 			
 		}
 		
 		/**
-		 * Returns the start state.
+		 * Returns a new puzzle engine from the start board to the goal
+		 * board, with the pattern databases if the heuristic calls for them.
 		 * 
-		 * @return the start state.
+		 * @return the puzzle engine.
+		 * @throws ParsingException If a saved pattern database cannot be
+		 * read or written.
 		 */
-		public String getStart() { 
+		public NToTheKPuzzle getPuzzle() throws ParsingException {
 			
-			return start; 
+			puzzle = new NToTheKPuzzle(side, dims, start, goal);
+			if (hName.equals("NToTheKPatternDB")) {
+				puzzle.setPatterns(getPatterns());
+			}
+			
+			return puzzle;
+			
+		}
+		
+		/**
+		 * Solves every instance of the instance file at once, then prints
+		 * the path and statistics of each in file order.
+		 * 
+		 * @throws ParsingException If the instance file or a saved pattern
+		 * database cannot be read, or a pattern database written.
+		 */
+		public void runBatch() throws ParsingException {
+			
+			List<int[]> starts = getInstances();
+			NToTheKBatch batch = new NToTheKBatch(side, dims, starts, goal);
+			if (hName.equals("NToTheKPatternDB")) {
+				batch.setPatterns(getPatterns());
+			}
+			batch.solve();
+			
+			// The moves are named by the cells of the goal board's shape.
+			puzzle = new NToTheKPuzzle(side, dims, goal, goal);
+			
+			for (int i = 0; i < batch.getSize(); i++) {
+				
+				Global.output("\nInstance " + (i + 1) + ": " + puzzle.toString(starts.get(i)));
+				print(batch.getPath(i));
+				
+				if (nodesOpened) {
+					Global.log("NodesOpened: " + batch.getNodesOpened(i));
+				}
+				if (nodesClosed) {
+					Global.log("NodesClosed: " + batch.getNodesClosed(i));
+				}
+				
+			}
+			
+			// The statistics that follow are the totals of every instance.
+			if (nodesOpened || numReopened || nodesClosed) {
+				Global.output("\nTotal:");
+			}
 			
 		}
 		
@@ -1167,7 +2842,7 @@ public class PuzzleMuncher {
 		 * Prints the completed path and other useful statistics.
 		 */
 		public void print(List<Object> path) {
-
+			
 			// No solution.
 			if (path == null) {
 				
@@ -1178,62 +2853,36 @@ public class PuzzleMuncher {
 			// Solution found!
 			else {
 				
-				// Is this the first city we've seen?
-				boolean firstCity = true;
-				
-				// The name of the previous city we've visited.
-				String prevCity = null;
+				// Reverse the contents of the list then 
+				// grab an iterator.
+				Collections.reverse(path);
+				Iterator<Object> it = path.iterator();
 				
-				// *DEBUG* 
-				double distance = 0.0;
+				// The previous board, and the cell of its blank.
+				int[] prev = (int[])it.next();
+				int prevBlank = blank(prev);
 				
 				// The move counter.
 				int move = 0;
 				
-				// Reverse the contents of the list then grab an iterator.
-				Collections.reverse(path);
-				Iterator<Object> it = path.iterator();
-				
 				while (it.hasNext()) {
 					
-					// Get next move.
-					ShortestPaths s = (ShortestPaths)it.next();
-					
-					// This shouldn't happen, but check anyhow.
-					if (s == null) {
-						break;
-					}
-					
-					// Get the start state off the list and
-					// store it in prev.
-					if (firstCity) {
-						firstCity = false;
-						prevCity = s.getLabel();
-						continue;
-					}
+					// Get next move. The tile slid out of the cell where
+					// the blank is now.
+					int[] board = (int[])it.next();
+					int cell = blank(board);
 					
-					// Increment the move number.
+					// Increment the move counter.
 					move++;
 					
 					// Print the move sequence, if applicable.
 					if (moveSeq) {
-						Global.output("MOVE " + move + ": TRAVEL FROM " + prevCity + " TO " + s.getLabel());
+						Global.output("MOVE " + move + ": SLIDE " + prev[cell] + " FROM " + puzzle.getCoordinates(cell) + " TO " + puzzle.getCoordinates(prevBlank));
 					}
 					
-					// *DEBUG*
-					distance += s.getDistance();
-					if (Global.getDebug()) {
-						System.out.println("*DEBUG* " + prevCity + " -> " + s.getLabel() + " (distance = " + s.getDistance() + ")");
-					}
-
-					// Save this city name.
-					prevCity = s.getLabel();
-
-				}
-				
-				// *DEBUG*
-				if (Global.getDebug()) {
-					System.out.println("*DEBUG* Total distance traveled: " + distance);
+					prev = board;
+					prevBlank = cell;
+					
 				}
 				
 				// Report the number of moves, if applicable.
@@ -1246,100 +2895,327 @@ public class PuzzleMuncher {
 		}
 		
 		/**
-		 * Set the city list.
+		 * Sets the goal board.
 		 * 
-		 * @param cityList the city list.
+		 * @param state the goal board as parsed.
+		 * @throws IllegalArgumentException If the board is not the same
+		 * shape as the start board.
 		 */
-		public void setCityList(List<String> cityList) { 
+		public void setGoal(List<Object> state) throws IllegalArgumentException { 
+			
+			int startSide = side;
+			int startDims = dims;
 			
-			this.cityList = cityList; 
+			goal = toBoard(state, "setGoal");
+			
+			if (start != null && (side != startSide || dims != startDims)) {
+				throw new IllegalArgumentException("_NKPuzzleData.setGoal error: The goal board is not the same shape as the start board.");
+			}
 			
 		}
 		
 		/**
-		 * Set the city/distance pair list.
+		 * Sets the heuristic name.
 		 * 
-		 * @param distList the city/distance pair list.
+		 * @param hName the heuristic name.
 		 */
-		public void setDistList(List<String[]> distList) { 
+		public void setHName(String hName) { 
 			
-			this.distList = distList; 
+			this.hName = hName; 
 			
 		}
 		
 		/**
-		 * Set the goal state.
+		 * Sets the instance file, whose start boards are solved in place of
+		 * the start board.
 		 * 
-		 * @param goal the goal state.
+		 * @param file the instance file.
 		 */
-		public void setGoal(String goal) { 
+		public void setInstanceFile(File file) {
 			
-			this.goal = goal; 
+			instanceFile = file;
 			
 		}
 		
 		/**
-		 * Set the heuristic name.
+		 * Sets the directory pattern databases are saved in.
 		 * 
-		 * @param hname the heuristic name.
+		 * @param dir the directory, or <code>null</code> to keep them in
+		 * memory only.
+		 */
+		public void setPatternDir(File dir) {
+			
+			patternDir = dir;
+			
+		}
+		
+		/**
+		 * Sets the pattern tiles, one list of tiles per pattern database.
+		 * 
+		 * @param state the patterns as parsed.
+		 * @throws IllegalArgumentException If a pattern is empty.
+		 */
+		public void setPatterns(List<Object> state) throws IllegalArgumentException {
+			
+			patternTiles = new LinkedList<int[]>();
+			for (List<Integer> row : rows(state)) {
+				int[] tiles = new int[row.size()];
+				for (int i = 0; i < tiles.length; i++) {
+					tiles[i] = row.get(i).intValue();
+				}
+				patternTiles.add(tiles);
+			}
+			
+		}
+		
+		/**
+		 * Sets the start board, and with it the shape of the puzzle.
+		 * 
+		 * @param state the start board as parsed.
+		 * @throws IllegalArgumentException If the board is not a row, a
+		 * square, a cube or the like.
+		 */
+		public void setStart(List<Object> state) throws IllegalArgumentException { 
+			
+			start = toBoard(state, "setStart");
+			
+		}
+		
+		/**
+		 * Writes the puzzle to a compiled puzzle file: the heuristic name,
+		 * the board shape, the start and goal boards, the start boards of
+		 * the instance file, the pattern tiles and the pattern directory.
+		 * 
+		 * @param out the compiled puzzle file.
+		 * @throws ParsingException If the file cannot be written, or the
+		 * instance file cannot be read.
+		 */
+		public void write(PuzzleFileWriter out) throws ParsingException {
+			
+			out.writeString(hName);
+			out.writeInt(side);
+			out.writeInt(dims);
+			out.writeInts(start);
+			out.writeInts(goal);
+			
+			List<int[]> boards = getInstances();
+			writeRows(out, boards == null ? null : boards.toArray(new int[boards.size()][]));
+			writeRows(out, patternTiles == null ? null : patternTiles.toArray(new int[patternTiles.size()][]));
+			out.writeString(patternDir == null ? null : patternDir.getPath());
+			
+		}
+		
+		/**
+		 * Helper function. Returns the cell of the blank on a board.
+		 */
+		private int blank(int[] board) {
+			
+			int cell = 0;
+			while (board[cell] != 0) {
+				cell++;
+			}
+			
+			return cell;
+			
+		}
+		
+		/**
+		 * Helper function. Returns the number lists of a parsed
+		 * <code>NKPUZSTATE</code> in order. The parser nests the rows of a
+		 * board in one more list.
+		 */
+		@SuppressWarnings("unchecked")
+		private List<List<Integer>> rows(List<Object> state) {
+			
+			List<List<Integer>> rows = new LinkedList<List<Integer>>();
+			LinkedList<Object> pending = new LinkedList<Object>(state);
+			while (!pending.isEmpty()) {
+				Object o = pending.removeFirst();
+				List<Object> list = (List<Object>)o;
+				if (!list.isEmpty() && list.get(0) instanceof Integer) {
+					rows.add((List<Integer>)o);
+				} else {
+					pending.addAll(0, list);
+				}
+			}
+			
+			return rows;
+			
+		}
+		
+		/**
+		 * Helper function. Flattens a parsed board into its tiles, row by
+		 * row, and sets the shape of the puzzle from it.
+		 */
+		private int[] toBoard(List<Object> state, String method) throws IllegalArgumentException {
+			
+			List<List<Integer>> rows = rows(state);
+			
+			// One row, or as many rows as there are cells in a square, a
+			// cube and so on, less one side.
+			side = rows.get(0).size();
+			dims = 1;
+			long count = 1;
+			while (side > 1 && count < rows.size()) {
+				count *= side;
+				dims++;
+			}
+			if (count != rows.size()) {
+				throw new IllegalArgumentException("_NKPuzzleData." + method + " error: The board must be a row, a square, a cube or the like. Rows = " + rows.size() + ", Cells per row = " + side);
+			}
+			
+			int[] board = new int[rows.size() * side];
+			int cell = 0;
+			for (List<Integer> row : rows) {
+				if (row.size() != side) {
+					throw new IllegalArgumentException("_NKPuzzleData." + method + " error: Every row must have " + side + " cells. Received: " + row);
+				}
+				for (Integer tile : row) {
+					board[cell++] = tile.intValue();
+				}
+			}
+			
+			return board;
+			
+		}
+		
+	}
+	
+	/**
+	 * This inner class parses the statements of the input file in turn and
+	 * queues each one to be executed. It stops at the end of the input, at
+	 * the first statement that cannot be parsed, or once interrupted.
+	 */
+	private class ParseTask implements Callable<Object> {
+
+		// The statements parsed and not yet executed.
+		private BlockingQueue<Statement> queue;
+
+		/**
+		 * Standard constructor.
+		 *
+		 * @param queue the statements parsed and not yet executed.
+		 */
+		public ParseTask(BlockingQueue<Statement> queue) {
+
+			this.queue = queue;
+
+		}
+
+		/**
+		 * Parses the statements.
+		 *
+		 * @return <code>null</code>.
+		 * @throws InterruptedException If interrupted while waiting for room
+		 * in the queue.
+		 */
+		public Object call() throws InterruptedException {
+
+			Statement statement;
+			do {
+
+				// A statement that cannot be parsed is queued as its error.
+				try {
+					statement = nextStatement();
+				} catch (ParsingException e) {
+					statement = new Statement(e);
+				} catch (RuntimeException e) {
+					statement = new Statement(e);
+				} catch (Error e) {
+					statement = new Statement(e);
+				}
+
+				queue.put(statement);
+
+			} while (statement.getKeyword() != null);
+
+			return null;
+
+		}
+
+	}
+
+	/**
+	 * This inner class holds one statement of the input file, parsed and
+	 * ready to be executed: its keyword and the value given it, such as
+	 * the puzzle data of a puzzle definition. A statement without a keyword
+	 * marks the end of the input, or holds the error the next statement
+	 * could not be parsed for.
+	 */
+	private class Statement {
+
+		// The keyword.
+		private String keyword;
+
+		// The value, if any.
+		private Object value;
+
+		// The error, if any.
+		private Throwable error;
+
+		/**
+		 * Standard constructor.
+		 *
+		 * @param keyword the keyword, or <code>null</code> at the end of the
+		 * input.
+		 * @param value the value, if any.
+		 */
+		public Statement(String keyword, Object value) {
+
+			this.keyword = keyword;
+			this.value = value;
+			this.error = null;
+
+		}
+
+		/**
+		 * Constructor for a statement that could not be parsed.
+		 *
+		 * @param error the error.
+		 */
+		public Statement(Throwable error) {
+
+			this.keyword = null;
+			this.value = null;
+			this.error = error;
+
+		}
+
+		/**
+		 * Returns the error the statement could not be parsed for.
+		 *
+		 * @return the error, or <code>null</code> if none.
 		 */
-		public void setHName(String hname) { 
-			
-			this.hName = hname; 
-			
+		public Throwable getError() {
+
+			return error;
+
 		}
 
 		/**
-		 * Set the start state.
-		 * 
-		 * @param start the start state.
+		 * Returns the keyword.
+		 *
+		 * @return the keyword, or <code>null</code> if none.
 		 */
-		public void setStart(String start) { 
-			
-			this.start = start; 
-			
+		public String getKeyword() {
+
+			return keyword;
+
 		}
-		
+
 		/**
-		 * Helper function. Retrieves the children list for the
-		 * requested city.
-		 * 
-		 * @param the city whose children list we desire.
-		 * @return the children list.
+		 * Returns the value.
+		 *
+		 * @return the value, or <code>null</code> if none.
 		 */
-		private PuzState getCityList(String city) {
-			
-			PuzState ps = (PuzState)map.get(city);
-			
-			if (ps == null) {
-				
-				// City does not exist in hash table yet. Add it, 
-				// then and a new linked list.
-				
-				if (hName.equals("ShortestPathsNonMono")) {
-					
-					ShortestPathsNonMono sp = new ShortestPathsNonMono(city, 0.0, null);
-					sp.children = new LinkedList<Object>();
-					map.put(city, sp);
-					
-				} else if (hName.equals("ShortestPathsMono")) {
-					
-					ShortestPathsMono sp = new ShortestPathsMono(city, 0.0, null);
-					sp.children = new LinkedList<Object>();
-					map.put(city, sp);
-					
-				}
-				
-				ps = (PuzState)map.get(city);
-				
-			}
-			
-			return ps;
-			
+		public Object getValue() {
+
+			return value;
+
 		}
-		
+
 	}
-	
+
 	private GridPuzzleData parseGridPuzzle(Lexer lexer) throws ParsingException {
 		
 		Token token = lexer.nextToken();
@@ -1352,7 +3228,7 @@ public class PuzzleMuncher {
 			throw new ParsingException("parseGridPuzzle error: Expected '(' but received '" + token.getToken() + "'.");
 		}
 
-		hName = ParseHName.parse(lexer);
+		String hName = ParseHName.parse(lexer);
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals(")")) {
@@ -1369,70 +3245,151 @@ public class PuzzleMuncher {
 			throw new ParsingException("parseGridPuzzle error: Expected '{' but received '" + token.getToken() + "'.");
 		}
 
-		token = lexer.nextToken();
-		if (!token.getToken().equals("GridSize")) {
-			throw new ParsingException("parseGridPuzzle error: Expected 'Size' but received '" + token.getToken() + "'.");
-		}
-		
-		token = lexer.nextToken();
-		if (!token.getToken().equals("=")) {
-			throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
-		}
-
-		int gridSize = ParseInteger.parsePosInteger(lexer);
+		GridPuzzleData data = new GridPuzzleData();
+		data.setHName(hName);
 		
+		// Benchmark maps may be loaded from Moving AI map files instead of
+		// being listed inline, with their start and goal cells optionally
+		// taken from a scenario file.
 		token = lexer.nextToken();
-		if (!token.getToken().equals("StartCoordinates")) {
-			throw new ParsingException("parseGridPuzzle error: Expected 'StartCoordinates' but received '" + token.getToken() + "'.");
+		if (token.getToken().equals("MapFile")) {
+			
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+			
+			CostMap map = MovingAIFileReader.readMap(new File(ParseFile.parseFileSpec(lexer)));
+			data.setSize(map.getWidth(), map.getHeight());
+			data.setObstacles(map);
+			
+			token = lexer.nextToken();
+			if (token.getToken().equals("ScenarioFile")) {
+				
+				token = lexer.nextToken();
+				if (!token.getToken().equals("=")) {
+					throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+				}
+				
+				List<MovingAIFileReader.Scenario> scenarios = MovingAIFileReader.readScenarios(new File(ParseFile.parseFileSpec(lexer)), map);
+				if (scenarios.isEmpty()) {
+					throw new ParsingException("parseGridPuzzle error: The scenario file lists no scenarios.");
+				}
+				
+				data.setScenarios(scenarios);
+				data.setStart(scenarios.get(0).getStart());
+				data.setGoal(scenarios.get(0).getGoal());
+				
+			} else {
+				
+				lexer.pushBack(token);
+				data.setStart(parseCoordinates(lexer, "StartCoordinates"));
+				data.setGoal(parseCoordinates(lexer, "GoalCoordinates"));
+				
+			}
+			
+		} else {
+			
+			if (!token.getToken().equals("GridSize")) {
+				throw new ParsingException("parseGridPuzzle error: Expected 'Size' but received '" + token.getToken() + "'.");
+			}
+			
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+			
+			// The grid is square unless a height is also given.
+			int width = ParseInteger.parsePosInteger(lexer);
+			int height = width;
+			token = lexer.nextToken();
+			if (token.getToken().equals(",")) {
+				height = ParseInteger.parsePosInteger(lexer);
+			} else {
+				lexer.pushBack(token);
+			}
+			
+			List<Integer> startCoord = parseCoordinates(lexer, "StartCoordinates");
+			List<Integer> goalCoord = parseCoordinates(lexer, "GoalCoordinates");
+			
+			// The cells may be kept in a tiled cost file outside the heap,
+			// in which case the obstacles are optional. If given, they
+			// replace whatever the file held; otherwise the file is used
+			// as it stands. The file is opened when the puzzle is executed.
+			data.setSize(width, height);
+			token = lexer.nextToken();
+			if (token.getToken().equals("CostFile")) {
+				
+				token = lexer.nextToken();
+				if (!token.getToken().equals("=")) {
+					throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+				}
+				
+				File costFile = new File(ParseFile.parseFileSpec(lexer));
+				
+				token = lexer.nextToken();
+				if (token.getToken().equals("Obstacles")) {
+					
+					token = lexer.nextToken();
+					if (!token.getToken().equals("=")) {
+						throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+					}
+					
+					data.setCostFile(costFile, ParseObstacles.parseList(lexer, width, height), startCoord, goalCoord);
+					
+				} else {
+					lexer.pushBack(token);
+					data.setCostFile(costFile, null, startCoord, goalCoord);
+				}
+				
+			} else {
+				
+				if (!token.getToken().equals("Obstacles")) {
+					throw new ParsingException("parseGridPuzzle error: Expected 'Obstacles' but received '" + token.getToken() + "'.");
+				}
+				
+				token = lexer.nextToken();
+				if (!token.getToken().equals("=")) {
+					throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+				}
+				
+				data.setObstacles(ParseObstacles.parse(lexer, width, height));
+				data.setStart(startCoord);
+				data.setGoal(goalCoord);
+				
+			}
+			
 		}
 		
 		token = lexer.nextToken();
-		if (!token.getToken().equals("=")) {
-			throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+		if (!token.getToken().equals("}")) {
+			throw new ParsingException("parseGridPuzzle error: Expected '}' but received '" + token.getToken() + "'.");
 		}
-
-		List<Integer> startCoord = ParseNumList.parse(lexer);
 		
-		token = lexer.nextToken();
-		if (!token.getToken().equals("GoalCoordinates")) {
-			throw new ParsingException("parseGridPuzzle error: Expected 'GoalCoordinates' but received '" + token.getToken() + "'.");
-		}
+		return data;
 		
-		token = lexer.nextToken();
-		if (!token.getToken().equals("=")) {
-			throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
-		}
+	}
 
-		List<Integer> goalCoord = ParseNumList.parse(lexer);
+	/**
+	 * Helper function. Parses a named coordinate pair of a <code>Grid</code>
+	 * puzzle, such as <code>StartCoordinates = 0 , 0</code>.
+	 */
+	private List<Integer> parseCoordinates(Lexer lexer, String name) throws ParsingException {
 		
-		token = lexer.nextToken();
-		if (!token.getToken().equals("Obstacles")) {
-			throw new ParsingException("parseGridPuzzle error: Expected 'Obstacles' but received '" + token.getToken() + "'.");
+		Token token = lexer.nextToken();
+		if (!token.getToken().equals(name)) {
+			throw new ParsingException("parseGridPuzzle error: Expected '" + name + "' but received '" + token.getToken() + "'.");
 		}
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals("=")) {
 			throw new ParsingException("parseGridPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
 		}
-
-		int[][] obstacles = ParseObstacles.parse(lexer, gridSize);
-		
-		token = lexer.nextToken();
-		if (!token.getToken().equals("}")) {
-			throw new ParsingException("parseGridPuzzle error: Expected '}' but received '" + token.getToken() + "'.");
-		}
-
-		GridPuzzleData data = new GridPuzzleData();
-		data.setHName(hName);
-		data.setSize(gridSize);
-		data.setObstacles(obstacles);
-		data.setStart(startCoord);
-		data.setGoal(goalCoord);
 		
-		return data;
+		return ParseNumList.parse(lexer);
 		
 	}
-
+	
 	private MCPuzzleData parseMCPuzzle(Lexer lexer) throws ParsingException {
 		
 		Token token = lexer.nextToken();
@@ -1445,7 +3402,7 @@ public class PuzzleMuncher {
 			throw new ParsingException("parseMCPuzzle error: Expected '(' but received '" + token.getToken() + "'.");
 		}
 
-		hName = ParseHName.parse(lexer);
+		String hName = ParseHName.parse(lexer);
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals(")")) {
@@ -1514,7 +3471,7 @@ public class PuzzleMuncher {
 		
 	}
 
-	private void parseN2KPuzzle(Lexer lexer) throws ParsingException {
+	private NKPuzzleData parseN2KPuzzle(Lexer lexer) throws ParsingException {
 		
 		Token token = lexer.nextToken();
 		if (!token.getToken().equals("NToTheKPuzzle")) {
@@ -1526,7 +3483,7 @@ public class PuzzleMuncher {
 			throw new ParsingException("parseN2KPuzzle error: Expected '(' but received '" + token.getToken() + "'.");
 		}
 
-		hName = ParseHName.parse(lexer);
+		String hName = ParseHName.parse(lexer);
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals(")")) {
@@ -1543,17 +3500,26 @@ public class PuzzleMuncher {
 			throw new ParsingException("parseN2KPuzzle error: Expected '{' but received '" + token.getToken() + "'.");
 		}
 
+		// A file of start boards may be given in place of the start board,
+		// to solve each of them.
 		token = lexer.nextToken();
-		if (!token.getToken().equals("StartState")) {
-			throw new ParsingException("parseN2KPuzzle error: Expected 'StartState' but received '" + token.getToken() + "'.");
+		if (!token.getToken().equals("StartState") && !token.getToken().equals("InstanceFile")) {
+			throw new ParsingException("parseN2KPuzzle error: Expected 'StartState' or 'InstanceFile' but received '" + token.getToken() + "'.");
 		}
+		boolean fromFile = token.getToken().equals("InstanceFile");
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals("=")) {
 			throw new ParsingException("parseN2KPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
 		}
 
-		List<Object> initialState = ParseNKPuzState.parse(lexer);
+		List<Object> initialState = null;
+		File instanceFile = null;
+		if (fromFile) {
+			instanceFile = new File(ParseFile.parseFileSpec(lexer));
+		} else {
+			initialState = ParseNKPuzState.parse(lexer);
+		}
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals("GoalState")) {
@@ -1567,11 +3533,50 @@ public class PuzzleMuncher {
 
 		List<Object> goalState = ParseNKPuzState.parse(lexer);
 		
+		NKPuzzleData data = new NKPuzzleData();
+		data.setHName(hName);
+		if (fromFile) {
+			data.setGoal(goalState);
+			data.setInstanceFile(instanceFile);
+			data.getInstances();
+		} else {
+			data.setStart(initialState);
+			data.setGoal(goalState);
+		}
+		
+		// The tiles of each pattern database may be given, and a directory
+		// to save the databases in.
 		token = lexer.nextToken();
+		if (token.getToken().equals("Patterns")) {
+			
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("parseN2KPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+			
+			data.setPatterns(ParseNKPuzState.parse(lexer));
+			token = lexer.nextToken();
+			
+		}
+		
+		if (token.getToken().equals("PatternDir")) {
+			
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("parseN2KPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+			
+			data.setPatternDir(new File(ParseFile.parseFileSpec(lexer)));
+			token = lexer.nextToken();
+			
+		}
+		
 		if (!token.getToken().equals("}")) {
 			throw new ParsingException("parseN2KPuzzle error: Expected '}' but received '" + token.getToken() + "'.");
 		}
-
+		
+		return data;
+		
 	}
 
 	private SPPuzzleData parseSPPuzzle( Lexer lexer ) throws ParsingException {
@@ -1586,7 +3591,7 @@ public class PuzzleMuncher {
 			throw new ParsingException("parseSPPuzzle error: Expected '(' but received '" + token.getToken() + "'.");
 		}
 
-		hName = ParseHName.parse(lexer);
+		String hName = ParseHName.parse(lexer);
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals(")")) {
@@ -1603,29 +3608,68 @@ public class PuzzleMuncher {
 			throw new ParsingException("parseSPPuzzle error: Expected '{' but received '" + token.getToken() + "'.");
 		}
 
-		token = lexer.nextToken();
-		if (!token.getToken().equals("Cities")) {
-			throw new ParsingException("parseSPPuzzle error: Expected 'Cities' but received '" + token.getToken() + "'.");
-		}
-		
-		token = lexer.nextToken();
-		if (!token.getToken().equals("=")) {
-			throw new ParsingException("parseSPPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
-		}
-
-		List<String> cityList = ParseCityList.parse(lexer);
+		SPPuzzleData data = new SPPuzzleData();
+		data.setHName(hName);
 		
+		// Large maps may be loaded from DIMACS files instead of being
+		// listed inline. Their cities are named by node number.
 		token = lexer.nextToken();
-		if (!token.getToken().equals("Distances")) {
-			throw new ParsingException("parseSPPuzzle error: Expected 'Distances' but received '" + token.getToken() + "'.");
-		}
+		boolean fromFile = token.getToken().equals("GraphFile");
 		
-		token = lexer.nextToken();
-		if (!token.getToken().equals("=")) {
-			throw new ParsingException("parseSPPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+		if (fromFile) {
+			
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("parseSPPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+			
+			File graphFile = new File(ParseFile.parseFileSpec(lexer));
+			File coordFile = null;
+			
+			// The coordinate file is optional.
+			token = lexer.nextToken();
+			if (token.getToken().equals("CoordFile")) {
+				
+				token = lexer.nextToken();
+				if (!token.getToken().equals("=")) {
+					throw new ParsingException("parseSPPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+				}
+				
+				coordFile = new File(ParseFile.parseFileSpec(lexer));
+				
+			} else {
+				lexer.pushBack(token);
+			}
+			
+			data.setGraph(DimacsFileReader.read(graphFile, coordFile, hName.equals("ShortestPathsStraight")));
+			
+		} else {
+			
+			if (!token.getToken().equals("Cities")) {
+				throw new ParsingException("parseSPPuzzle error: Expected 'Cities' but received '" + token.getToken() + "'.");
+			}
+			
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("parseSPPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+			
+			CityTable cityTable = ParseCityList.parse(lexer);
+			data.setCityTable(cityTable);
+			
+			token = lexer.nextToken();
+			if (!token.getToken().equals("Distances")) {
+				throw new ParsingException("parseSPPuzzle error: Expected 'Distances' but received '" + token.getToken() + "'.");
+			}
+			
+			token = lexer.nextToken();
+			if (!token.getToken().equals("=")) {
+				throw new ParsingException("parseSPPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
+			}
+			
+			data.setRoads(ParseDistList.parse(lexer, cityTable));
+			
 		}
-
-		List<String[]> distList = ParseDistList.parse(lexer);
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals("StartCity")) {
@@ -1637,7 +3681,7 @@ public class PuzzleMuncher {
 			throw new ParsingException("parseSPPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
 		}
 
-		String startState = ParseCityName.parse(lexer);
+		data.setStart(ParseCityName.parse(lexer, fromFile));
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals("GoalCity")) {
@@ -1649,19 +3693,12 @@ public class PuzzleMuncher {
 			throw new ParsingException("parseSPPuzzle error: Expected '=' but received '" + token.getToken() + "'.");
 		}
 
-		String goalState = ParseCityName.parse(lexer);
+		data.setGoal(ParseCityName.parse(lexer, fromFile));
 		
 		token = lexer.nextToken();
 		if (!token.getToken().equals("}")) {
 			throw new ParsingException("parseSPPuzzle error: Expected '}' but received '" + token.getToken() + "'.");
 		}
-
-		SPPuzzleData data = new SPPuzzleData();
-		data.setHName(hName);
-		data.setStart(startState);
-		data.setGoal(goalState);
-		data.setCityList(cityList);
-		data.setDistList(distList);
 		
 		return data;
 		
@@ -1679,50 +3716,200 @@ public class PuzzleMuncher {
 		nodesClosed = false;
 		numReopened = false;
 		
+		engine = "AStar";
+		kPaths = 1;
+		cornerCutting = GridOctile.CUT_NEVER;
+		clusterSize = 10;
+		
 		Global.reset();
 		
 	}
 	
 	/**
-	 * The puzzle driver.
+	 * Helper function. Returns the current engine for a <code>Grid</code>
+	 * puzzle with the given movement rules.
+	 */
+	private PuzzleEngine gridEngine(Grid start, Grid goal, boolean diagonal, int cutRule) {
+		
+		if (engine.equals("Hierarchical")) {
+			return gridData.getHierarchical(clusterSize, diagonal, cutRule);
+		} else if (engine.equals("Incremental")) {
+			return gridData.getIncremental(diagonal, cutRule);
+		} else if (engine.equals("FlowField")) {
+			return gridData.getFlowField(diagonal, cutRule);
+		} else if (engine.equals("DeltaStepping")) {
+			return gridData.getDeltaStepping(diagonal, cutRule);
+		}
+		
+		return new AStar((PuzState)start, (PuzState)goal);
+		
+	}
+	
+	/**
+	 * Helper function. Returns the current engine for a Missionaries and
+	 * Cannibals puzzle.
+	 */
+	private PuzzleEngine mcEngine(AbstractMandC start, AbstractMandC goal) {
+		
+		if (engine.equals("Dense")) {
+			return new DenseMandC(start, goal);
+		} else if (engine.equals("Retrograde")) {
+			
+			// One table serves every start of the same puzzle and goal.
+			String key = RetrogradeMandC.key(goal);
+			RetrogradeMandC table = mcTables.get(key);
+			if (table == null) {
+				table = new RetrogradeMandC(goal);
+				mcTables.put(key, table);
+			}
+			table.setStart(start);
+			
+			return table;
+			
+		}
+		
+		return new AStar(start, goal);
+		
+	}
+	
+	/**
+	 * Helper function. Returns the current engine for a
+	 * <code>ShortestPaths</code> puzzle.
+	 */
+	private PuzzleEngine spEngine(PuzState start, PuzState goal) {
+		
+		if (engine.equals("Incremental")) {
+			return spData.getIncremental();
+		} else if (engine.equals("DeltaStepping")) {
+			return spData.getDeltaStepping();
+		}
+		
+		return new AStar(start, goal);
+		
+	}
+	
+	/**
+	 * Helper function. Solves the current <code>Grid</code> puzzle from its
+	 * current start to its current goal with the current engine.
+	 */
+	private void runGrid() {
+		
+		if (hName.equals("GridManhattan")) {
+			
+			// Set the start state and goal state.
+			GridManhattan start = (GridManhattan)gridData.getStart();
+			GridManhattan goal = (GridManhattan)gridData.getGoal();
+			start.setGoal( goal );
+			
+			// Find a solution!
+			PuzzleEngine pe = gridEngine(start, goal, false, GridOctile.CUT_NEVER);
+			gridData.print(pe.path());
+			
+		}
+		
+		else if (hName.equals("GridStraight")) {
+			
+			// Set the start state and goal state.
+			GridStraight start = (GridStraight)gridData.getStart();
+			GridStraight goal = (GridStraight)gridData.getGoal();
+			start.setGoal(goal);
+			
+			// Find a solution!
+			AStar astar = new AStar(start, goal);
+			gridData.print(astar.path());
+			
+		}
+		
+		else if (hName.equals("GridOctile")) {
+			
+			// Set the start state and goal state.
+			GridOctile start = (GridOctile)gridData.getStart();
+			GridOctile goal = (GridOctile)gridData.getGoal();
+			start.setGoal(goal);
+			
+			// Diagonal moves follow the current corner-cutting rule.
+			start.setCornerCutting(cornerCutting);
+			
+			// Find a solution!
+			PuzzleEngine pe = gridEngine(start, goal, true, cornerCutting);
+			gridData.print(pe.path());
+			
+		}
+		
+		else  {
+			throw new UnsupportedOperationException("PuzzleMuncher.parse error: " + hName + " not supported at this time.");
+		}
+		
+	}
+	
+	/**
+	 * The puzzle driver. Given <tt>-compile</tt>, the input file is
+	 * compiled rather than run. An input file that was compiled is
+	 * recognized and run as such.
 	 * 
-	 * @param args the single input file to the app.
+	 * @param args the single input file to the app, or <tt>-compile</tt>,
+	 * the input file and the compiled puzzle file to write.
 	 */
 	public static void main( String[] args ) {
 		
-		// Only one command line argument allowed (and required).
-		if (args.length != 1) {
+		// One command line argument, or three to compile.
+		boolean compile = (args.length == 3 && args[0].equals("-compile"));
+		if (args.length != 1 && !compile) {
 			System.out.println("Usage: java PuzzleMuncher inputFile");
+			System.out.println("       java PuzzleMuncher -compile inputFile compiledFile");
 			System.exit(1);
 		}
 		
 		// The input file.
-		File input = new File(args[0]);
-
-		// Create and instantiate a PushbackReader object
-		// and open up the input file.
-		PushbackReader pr = new PushbackReader();
-		pr.open(input);
+		File input = new File(compile ? args[1] : args[0]);
 
 		// Create a global object.
 		new Global();
 
-		// Create the lexer.
-		Lexer lexer = new PuzzleLexer(pr);
-		
-		// Create a PuzzleMuncher object.
-		PuzzleMuncher pm = new PuzzleMuncher(lexer);
+		// Create a PuzzleMuncher object, reading a compiled puzzle file,
+		// or parsing the input file through a PushbackReader and lexer.
+		PushbackReader pr = null;
+		PuzzleFileReader pfr = null;
+		PuzzleMuncher pm;
+		if (!compile && PuzzleFileReader.isCompiled(input)) {
+			pfr = new PuzzleFileReader();
+			if (!pfr.open(input)) {
+				System.exit(1);
+			}
+			pm = new PuzzleMuncher(pfr);
+		} else {
+			pr = new PushbackReader();
+			pr.open(input);
+			pm = new PuzzleMuncher(new PuzzleLexer(pr));
+		}
 
 		// Start the parse! (or try to)
+		PuzzleFileWriter pfw = null;
 		try {
-			pm.parse(); 
+			if (compile) {
+				pfw = new PuzzleFileWriter();
+				if (pfw.open(new File(args[2]))) {
+					pm.compile(pfw);
+				}
+			} else {
+				pm.parse();
+			}
 		}
 		catch (Exception e) {
 			Global.error(e.getMessage());
 		}
 		finally {
 			// Close the reader.
-			pr.close();
+			if (pr != null) {
+				pr.close();
+			}
+			if (pfr != null) {
+				pfr.close();
+			}
+			// Close the compiled puzzle file.
+			if (pfw != null) {
+				pfw.close();
+			}
 			// Close the error file.
 			if (Global.getErrFile() != null) {
 				Global.getErrFile().close();
@@ -0,0 +1,326 @@
+package com.michaelzanussi.astar;
+
+import java.util.LinkedList;
+
+/**
+ * A table of the shortest way to the goal from every state of a
+ * Missionaries and Cannibals puzzle. A move can always be undone by
+ * ferrying the same people back, so one breadth-first search out from the
+ * goal over the whole state space finds the number of moves from each
+ * state to the goal, and the next state along the way. After that, the
+ * path from any start state is read off the table in as many steps as it
+ * has moves, without searching. <p>
+ *
+ * The table depends only on the totals, the boat capacity and the goal
+ * state, so one table answers any number of start states: set each with
+ * <code>setStart()</code> before calling <code>path()</code>. States are
+ * numbered as in <code>DenseMandC</code>. The table is built on the first
+ * call to <code>path()</code>, and every state it expands then counts as
+ * a node opened; after that, only the states along each path do.
+ *
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004)
+ */
+public final class RetrogradeMandC implements PuzzleEngine {
+
+	// A state from which the goal cannot be reached.
+	private static final int UNREACHED = -1;
+
+	// The goal state, and the start state of the next path.
+	private AbstractMandC goal;
+	private AbstractMandC start;
+
+	// The total cannibals and missionaries.
+	private int totalC;
+	private int totalM;
+
+	// The number of states.
+	private int size;
+
+	// The moves from each state to the goal, and the next state along the
+	// way, once the table is built.
+	private int[] dist;
+	private int[] next;
+
+	/**
+	 * Standard constructor.
+	 *
+	 * @param goal the goal state, with the puzzle's totals and boat
+	 * capacity set.
+	 * @throws NullPointerException If no goal state was specified.
+	 * @throws IllegalArgumentException If the goal state does not fit the
+	 * totals, the boat capacity is not positive, or there are too many
+	 * states.
+	 */
+	public RetrogradeMandC(AbstractMandC goal) throws NullPointerException, IllegalArgumentException {
+
+		if (goal == null) {
+			throw new NullPointerException("RetrogradeMandC.RetrogradeMandC error: The goal state cannot be null.");
+		}
+
+		if (goal.getBoatCapacity() < 1) {
+			throw new IllegalArgumentException("RetrogradeMandC.RetrogradeMandC error: Boat capacity must be > 0. Received: " + goal.getBoatCapacity());
+		}
+
+		totalC = goal.getTotalC();
+		totalM = goal.getTotalM();
+		long states = (totalC + 1L) * (totalM + 1L) * 2L;
+		if (states > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("RetrogradeMandC.RetrogradeMandC error: Too many states: " + states);
+		}
+
+		this.goal = goal;
+		this.size = (int)states;
+		this.start = null;
+
+		checkState(goal, "goal");
+
+	}
+
+	/**
+	 * Returns a key naming the table a goal state needs: equal keys mean
+	 * one table serves both.
+	 *
+	 * @param goal the goal state, with the puzzle's totals and boat
+	 * capacity set.
+	 * @return the key.
+	 */
+	public static String key(AbstractMandC goal) {
+
+		return goal.getTotalC() + "," + goal.getTotalM() + "," + goal.getBoatCapacity() + "," + goal.getLabel();
+
+	}
+
+	/**
+	 * Returns the number of moves from a state to the goal, building the
+	 * table first if need be. A state where cannibals are outnumbered is
+	 * never entered, so it is never reached.
+	 *
+	 * @param c the cannibals on the west bank.
+	 * @param m the missionaries on the west bank.
+	 * @param bank the boat location.
+	 * @return the number of moves, or <tt>-1</tt> if the goal cannot be
+	 * reached.
+	 * @throws IllegalStateException If the system times out building the
+	 * table.
+	 */
+	public int getDistance(int c, int m, int bank) throws IllegalStateException {
+
+		build();
+
+		return dist[index(c, m, bank)];
+
+	}
+
+	/**
+	 * Tests whether the table has been built.
+	 *
+	 * @return <code>true</code> if the table has been built, otherwise
+	 * <code>false</code>.
+	 */
+	public boolean isBuilt() {
+
+		return (dist != null);
+
+	}
+
+	/**
+	 * Reads the shortest path from the start state to the goal state off
+	 * the table, building the table first if need be. The path holds the
+	 * states along the way, with the goal state first.
+	 *
+	 * @return the path, or <code>null</code> if the goal cannot be reached.
+	 * @throws IllegalStateException If no start state has been set, or the
+	 * system times out building the table.
+	 */
+	public LinkedList<Object> path() throws IllegalStateException {
+
+		if (start == null) {
+			throw new IllegalStateException("RetrogradeMandC.path error: The start state has not been set.");
+		}
+
+		build();
+
+		// The search never enters a state where cannibals are outnumbered,
+		// but a start state may be one; its way out is its best move.
+		LinkedList<Object> path = new LinkedList<Object>();
+		PuzState prev = null;
+		int u = index(start.getC(), start.getM(), start.getBank());
+		if (dist[u] == UNREACHED) {
+			u = bestMove(start);
+			if (u == UNREACHED) {
+				return null;
+			}
+			prev = start.newState(start.getC(), start.getM(), start.getBank(), null);
+			path.addFirst(prev);
+		}
+
+		// Follow the next states to the goal.
+		while (true) {
+			int bank = u & 1;
+			int m = (u >> 1) % (totalM + 1);
+			int c = (u >> 1) / (totalM + 1);
+			prev = start.newState(c, m, bank, prev);
+			path.addFirst(prev);
+			if (dist[u] == 0) {
+				break;
+			}
+			u = next[u];
+		}
+
+		Global.addNodesOpened(path.size());
+
+		return path;
+
+	}
+
+	/**
+	 * Sets the start state of the next path.
+	 *
+	 * @param start the start state.
+	 * @throws NullPointerException If no start state was specified.
+	 * @throws IllegalArgumentException If the start state is of another
+	 * puzzle or does not fit the totals.
+	 */
+	public void setStart(AbstractMandC start) throws NullPointerException, IllegalArgumentException {
+
+		if (start == null) {
+			throw new NullPointerException("RetrogradeMandC.setStart error: The start state cannot be null.");
+		}
+
+		if (start.getTotalC() != totalC || start.getTotalM() != totalM || start.getBoatCapacity() != goal.getBoatCapacity()) {
+			throw new IllegalArgumentException("RetrogradeMandC.setStart error: The start state " + start.getLabel() + " is of another puzzle.");
+		}
+
+		checkState(start, "start");
+		this.start = start;
+
+	}
+
+	/**
+	 * Helper function. Returns the state one move from a state that is
+	 * nearest the goal, or <tt>-1</tt> if none can reach it.
+	 */
+	private int bestMove(AbstractMandC state) {
+
+		int[] ranges = new int[state.getMaxMoves()];
+		int count = state.moves(state.getC(), state.getM(), state.getBank(), ranges);
+		int other = (state.getBank() == MandC.WEST ? MandC.EAST : MandC.WEST);
+
+		int best = UNREACHED;
+		for (int k = 0; k < count; k += 3) {
+			for (int nm = ranges[k + 1]; nm <= ranges[k + 2]; nm++) {
+				int v = index(ranges[k], nm, other);
+				if (dist[v] != UNREACHED && (best == UNREACHED || dist[v] < dist[best])) {
+					best = v;
+				}
+			}
+		}
+
+		return best;
+
+	}
+
+	/**
+	 * Helper function. Builds the table, if it has not been built, by a
+	 * breadth-first search out from the goal.
+	 */
+	private void build() throws IllegalStateException {
+
+		if (dist != null) {
+			return;
+		}
+
+		int[] d = new int[size];
+		int[] n = new int[size];
+		for (int u = 0; u < size; u++) {
+			d[u] = UNREACHED;
+		}
+
+		// Each state is queued once, so the queue never holds more.
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+		int t = index(goal.getC(), goal.getM(), goal.getBank());
+		d[t] = 0;
+		n[t] = t;
+
+		// No move enters a state where cannibals are outnumbered, so the
+		// search engines only reach such a goal by starting there.
+		if (isSafe(goal.getC(), goal.getM())) {
+			queue[tail++] = t;
+		}
+
+		int[] ranges = new int[goal.getMaxMoves()];
+		try {
+
+			while (head < tail) {
+
+				// Have we timed out?
+				if (Global.isTimeUp()) {
+					throw new IllegalStateException("RetrogradeMandC.path error: System timed out building the table.");
+				}
+
+				int v = queue[head++];
+				int bank = v & 1;
+				int m = (v >> 1) % (totalM + 1);
+				int c = (v >> 1) / (totalM + 1);
+
+				// Every state one move from v is one move further from the
+				// goal, by way of v.
+				int count = goal.moves(c, m, bank, ranges);
+				int other = (bank == MandC.WEST ? MandC.EAST : MandC.WEST);
+				for (int k = 0; k < count; k += 3) {
+					for (int nm = ranges[k + 1]; nm <= ranges[k + 2]; nm++) {
+						int u = index(ranges[k], nm, other);
+						if (d[u] == UNREACHED) {
+							d[u] = d[v] + 1;
+							n[u] = v;
+							queue[tail++] = u;
+						}
+					}
+				}
+
+			}
+
+		} finally {
+			Global.addNodesOpened(head);
+			Global.setNodesClosed(head);
+		}
+
+		dist = d;
+		next = n;
+
+	}
+
+	/**
+	 * Helper function. Verifies a state fits the totals of the puzzle.
+	 */
+	private void checkState(AbstractMandC state, String name) throws IllegalArgumentException {
+
+		if (state.getC() > totalC || state.getM() > totalM || state.getBank() < 0 || state.getBank() > 1) {
+			throw new IllegalArgumentException("RetrogradeMandC.checkState error: The " + name + " state " + state.getLabel() + " does not fit " + totalC + " cannibals and " + totalM + " missionaries.");
+		}
+
+	}
+
+	/**
+	 * Helper function. Tests that the cannibals on neither bank are
+	 * outnumbered, unless there are none.
+	 */
+	private boolean isSafe(int c, int m) {
+
+		return (c == 0 || m <= c) && (totalC - c == 0 || totalM - m <= totalC - c);
+
+	}
+
+	/**
+	 * Helper function. Returns the number of a state.
+	 */
+	private int index(int c, int m, int bank) {
+
+		return (((c * (totalM + 1)) + m) * 2) + bank;
+
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.michaelzanussi.astar;
+
+/**
+ * The <code>ShortestPathsStraight</code> heuristic calculates the straight
+ * line distance between the current city and the goal city from the city
+ * coordinates given in the <code>CITYLIST</code>. The distance is scaled by
+ * the smallest road-to-straight-line ratio found on the map, which keeps
+ * the estimate admissible even when the coordinates and the distances are
+ * given in different units. This heuristic is monotonic. <p>
+ * 
+ * If any city lacks coordinates the scale collapses to 0.0 and the search
+ * behaves exactly like <code>ShortestPathsMono</code>.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public class ShortestPathsStraight extends AbstractShortestPaths implements Monotonic {
+	
+	/**
+	 * The city table holding the city coordinates.
+	 */
+	protected CityTable table;
+	
+	/**
+	 * The city ID of this city in the city table.
+	 */
+	protected int id;
+	
+	/**
+	 * Standard constructor.
+	 * 
+	 * @param city the name of the city.
+	 * @param distance the cost to travel to this city
+	 * from the "parent" city.
+	 * @param parent the city we traveled from.
+	 */
+	public ShortestPathsStraight(String city, double distance, PuzState parent) {
+		
+		super(city, distance, parent);
+		table = null;
+		id = -1;
+		
+	}
+	
+	/**
+	 * Indicates whether some other object is "equal to" this one. In the
+	 * Shortest Path's case, we compare city names. Needed mainly by the
+	 * <code>HashMap</code> in <code>HashingHeap</code>.
+	 * 
+	 * @param o the state to test the current state against.
+	 * @return <code>true</code> if this object is the same as the obj
+     * argument; <code>false</code> otherwise.
+	 */
+	public boolean equals(Object o) {
+		
+		return (city.compareTo(((ShortestPathsStraight)o).getLabel()) == 0);
+		
+	}
+	
+	/**
+	 * Returns the city ID of this city.
+	 * 
+	 * @return the city ID.
+	 */
+	public int getId() {
+		
+		return id;
+		
+	}
+	
+	/**
+	 * Return the heuristic estimate of the value of this node.  This
+	 * function should provide the combined "cost-so-far" function <code>g()</code>
+	 * with the "estimated cost-to-goal" function, <code>h()</code>.  That is,
+	 * this represents the complete function <code>f(s)=g(s)+h(s)</code>.
+	 * 
+	 * @return the total function representing cost-from-start
+	 * <em>plus</em> estimated cost-to-goal.
+	 * @throws NullPointerException If the goal state <code>_theGoal</code>
+	 * or the city table is <code>null</code>.
+	 */
+	public double heuristic() throws NullPointerException {
+		
+		if (theGoal == null) {
+			throw new NullPointerException("ShortestPathsStraight.heuristic error: Goal state has not been set.");
+		}
+		
+		if (table == null) {
+			throw new NullPointerException("ShortestPathsStraight.heuristic error: City table has not been set.");
+		}
+		
+		// Scaled straight-line distance to the goal city.
+		double h = table.getScale() * table.straightLine(id, ((ShortestPathsStraight)theGoal).getId());
+		
+		// *DEBUG*
+		if (Global.getDebug()) {
+			System.out.println("*DEBUG* [" + city + "]  g = " + g + ", h = " + h + ", Heuristic() = " + (g + h));
+		}
+		
+		return g + h;
+		
+	}
+	
+	/**
+	 * Set the city table and look up this city's ID.
+	 * 
+	 * @param table the city table.
+	 * @throws IllegalArgumentException If this city is not in the table.
+	 */
+	public void setCityTable(CityTable table) throws IllegalArgumentException {
+		
+		int id = table.getId(city);
+		if (id < 0) {
+			throw new IllegalArgumentException("ShortestPathsStraight.setCityTable error: Unknown city: " + city);
+		}
+		
+		this.table = table;
+		this.id = id;
+		
+	}
+	
+}
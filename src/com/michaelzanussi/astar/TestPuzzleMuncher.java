@@ -212,4 +212,1256 @@ public class TestPuzzleMuncher {
 		}
 	}
 
+	@Test
+	public void testShortestPathsStraight() {
+		File input = new File("test/ShortestPathsStraight");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: ShortestPathsStraightCurrentCity = AlbuquerqueCurrentCity = GallupCurrentCity = SantaFeCurrentCity = MoriarityCurrentCity = GallupCurrentCity = AlbuquerqueCurrentCity = TubaCityCurrentCity = FlagstaffCurrentCity = TubaCityCurrentCity = GallupCurrentCity = FlagstaffCurrentCity = PageCurrentCity = BitterspringsCurrentCity = BitterspringsCurrentCity = PageCurrentCity = StGeorgeCurrentCity = TubaCityCurrentCity = FlagstaffCurrentCity = GallupCurrentCity = TubaCityCurrentCity = SedonaCurrentCity = SeligmanCurrentCity = MoriarityCurrentCity = AlbuquerqueCurrentCity = SantaFeCurrentCity = PageCurrentCity = BitterspringsCurrentCity = TubaCityCurrentCity = SantaFeCurrentCity = AlbuquerqueCurrentCity = MoriarityMOVE 1: TRAVEL FROM Albuquerque TO GallupMOVE 2: TRAVEL FROM Gallup TO TubaCityMOVE 3: TRAVEL FROM TubaCity TO BitterspringsMOVE 4: TRAVEL FROM Bittersprings TO StGeorgeSolnPathLen: 4NodesOpened: 9NumReopened: 0NodesClosed: 8OpenListMaxLen: 6OpenClosedRatio (min): 0.0OpenClosedRatio (max): 3.0");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testShortestPathsIncremental() {
+		File input = new File("test/ShortestPathsIncremental");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: ShortestPathsStraightMOVE 1: TRAVEL FROM Albuquerque TO GallupMOVE 2: TRAVEL FROM Gallup TO TubaCityMOVE 3: TRAVEL FROM TubaCity TO BitterspringsMOVE 4: TRAVEL FROM Bittersprings TO StGeorgeSolnPathLen: 4NodesOpened: 9");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testShortestPathsKPaths() {
+		File input = new File("test/ShortestPathsKPaths");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: ShortestPathsMonoPATH 1: COST 533.0MOVE 1: TRAVEL FROM Albuquerque TO GallupMOVE 2: TRAVEL FROM Gallup TO TubaCityMOVE 3: TRAVEL FROM TubaCity TO BitterspringsMOVE 4: TRAVEL FROM Bittersprings TO StGeorgeSolnPathLen: 4PATH 2: COST 578.0MOVE 1: TRAVEL FROM Albuquerque TO GallupMOVE 2: TRAVEL FROM Gallup TO TubaCityMOVE 3: TRAVEL FROM TubaCity TO PageMOVE 4: TRAVEL FROM Page TO BitterspringsMOVE 5: TRAVEL FROM Bittersprings TO StGeorgeSolnPathLen: 5PATH 3: COST 616.0MOVE 1: TRAVEL FROM Albuquerque TO GallupMOVE 2: TRAVEL FROM Gallup TO FlagstaffMOVE 3: TRAVEL FROM Flagstaff TO TubaCityMOVE 4: TRAVEL FROM TubaCity TO BitterspringsMOVE 5: TRAVEL FROM Bittersprings TO StGeorgeSolnPathLen: 5PATH 4: COST 661.0MOVE 1: TRAVEL FROM Albuquerque TO GallupMOVE 2: TRAVEL FROM Gallup TO FlagstaffMOVE 3: TRAVEL FROM Flagstaff TO TubaCityMOVE 4: TRAVEL FROM TubaCity TO PageMOVE 5: TRAVEL FROM Page TO BitterspringsMOVE 6: TRAVEL FROM Bittersprings TO StGeorgeSolnPathLen: 6NodesOpened: 60");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testShortestPathsDimacs() {
+		File input = new File("test/ShortestPathsDimacs");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: ShortestPathsStraightPATH 1: COST 578.0MOVE 1: TRAVEL FROM 1 TO 6MOVE 2: TRAVEL FROM 6 TO 7MOVE 3: TRAVEL FROM 7 TO 2MOVE 4: TRAVEL FROM 2 TO 11MOVE 5: TRAVEL FROM 11 TO 5SolnPathLen: 5PATH 2: COST 661.0MOVE 1: TRAVEL FROM 1 TO 6MOVE 2: TRAVEL FROM 6 TO 3MOVE 3: TRAVEL FROM 3 TO 7MOVE 4: TRAVEL FROM 7 TO 2MOVE 5: TRAVEL FROM 2 TO 11MOVE 6: TRAVEL FROM 11 TO 5SolnPathLen: 6PATH 3: COST 697.0MOVE 1: TRAVEL FROM 1 TO 6MOVE 2: TRAVEL FROM 6 TO 3MOVE 3: TRAVEL FROM 3 TO 9MOVE 4: TRAVEL FROM 9 TO 8MOVE 5: TRAVEL FROM 8 TO 4MOVE 6: TRAVEL FROM 4 TO 5SolnPathLen: 6");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridBlocked() {
+		File input = new File("test/GridBlocked");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridManhattanMOVE 1: TRAVEL FROM 0,0 TO 1,0MOVE 2: TRAVEL FROM 1,0 TO 2,0MOVE 3: TRAVEL FROM 2,0 TO 2,1MOVE 4: TRAVEL FROM 2,1 TO 2,2MOVE 5: TRAVEL FROM 2,2 TO 2,3MOVE 6: TRAVEL FROM 2,3 TO 3,3MOVE 7: TRAVEL FROM 3,3 TO 4,3MOVE 8: TRAVEL FROM 4,3 TO 4,2MOVE 9: TRAVEL FROM 4,2 TO 4,1MOVE 10: TRAVEL FROM 4,1 TO 4,0MOVE 11: TRAVEL FROM 4,0 TO 5,0MOVE 12: TRAVEL FROM 5,0 TO 6,0MOVE 13: TRAVEL FROM 6,0 TO 7,0SolnPathLen: 13NodesOpened: 20NumReopened: 0NodesClosed: 19");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridOctile() {
+		File input = new File("test/GridOctile");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridOctileMOVE 1: TRAVEL FROM 0,3 TO 1,2MOVE 2: TRAVEL FROM 1,2 TO 2,2MOVE 3: TRAVEL FROM 2,2 TO 3,1MOVE 4: TRAVEL FROM 3,1 TO 4,0MOVE 5: TRAVEL FROM 4,0 TO 5,0SolnPathLen: 5NodesOpened: 16");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridHierarchical() {
+		File input = new File("test/GridHierarchical");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridOctileSolnPathLen: 23NodesOpened: 70");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+
+	@Test
+	public void testGridMapFile() {
+		File input = new File("test/GridMapFile");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridManhattanMOVE 1: TRAVEL FROM 0,7 TO 0,6MOVE 2: TRAVEL FROM 0,6 TO 1,6MOVE 3: TRAVEL FROM 1,6 TO 1,5MOVE 4: TRAVEL FROM 1,5 TO 1,4MOVE 5: TRAVEL FROM 1,4 TO 2,4MOVE 6: TRAVEL FROM 2,4 TO 3,4MOVE 7: TRAVEL FROM 3,4 TO 4,4MOVE 8: TRAVEL FROM 4,4 TO 5,4MOVE 9: TRAVEL FROM 5,4 TO 6,4MOVE 10: TRAVEL FROM 6,4 TO 7,4MOVE 11: TRAVEL FROM 7,4 TO 7,3MOVE 12: TRAVEL FROM 7,3 TO 7,2MOVE 13: TRAVEL FROM 7,2 TO 7,1MOVE 14: TRAVEL FROM 7,1 TO 6,1MOVE 15: TRAVEL FROM 6,1 TO 6,0MOVE 16: TRAVEL FROM 6,0 TO 5,0SolnPathLen: 16");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridIncremental() {
+		File input = new File("test/GridIncremental");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridManhattanMOVE 1: TRAVEL FROM 0,2 TO 1,2MOVE 2: TRAVEL FROM 1,2 TO 2,2MOVE 3: TRAVEL FROM 2,2 TO 3,2MOVE 4: TRAVEL FROM 3,2 TO 4,2MOVE 5: TRAVEL FROM 4,2 TO 5,2MOVE 6: TRAVEL FROM 5,2 TO 5,1MOVE 7: TRAVEL FROM 5,1 TO 6,1MOVE 8: TRAVEL FROM 6,1 TO 7,1MOVE 9: TRAVEL FROM 7,1 TO 8,1MOVE 10: TRAVEL FROM 8,1 TO 9,1MOVE 11: TRAVEL FROM 9,1 TO 9,2SolnPathLen: 11NodesOpened: 20\nHeuristic: GridManhattanMOVE 1: TRAVEL FROM 0,2 TO 1,2MOVE 2: TRAVEL FROM 1,2 TO 2,2MOVE 3: TRAVEL FROM 2,2 TO 3,2MOVE 4: TRAVEL FROM 3,2 TO 3,3MOVE 5: TRAVEL FROM 3,3 TO 3,4MOVE 6: TRAVEL FROM 3,4 TO 3,5MOVE 7: TRAVEL FROM 3,5 TO 4,5MOVE 8: TRAVEL FROM 4,5 TO 5,5MOVE 9: TRAVEL FROM 5,5 TO 5,4MOVE 10: TRAVEL FROM 5,4 TO 5,3MOVE 11: TRAVEL FROM 5,3 TO 5,2MOVE 12: TRAVEL FROM 5,2 TO 6,2MOVE 13: TRAVEL FROM 6,2 TO 7,2MOVE 14: TRAVEL FROM 7,2 TO 8,2MOVE 15: TRAVEL FROM 8,2 TO 9,2SolnPathLen: 15NodesOpened: 59\nHeuristic: GridManhattanMOVE 1: TRAVEL FROM 2,4 TO 3,4MOVE 2: TRAVEL FROM 3,4 TO 3,5MOVE 3: TRAVEL FROM 3,5 TO 4,5MOVE 4: TRAVEL FROM 4,5 TO 5,5MOVE 5: TRAVEL FROM 5,5 TO 5,4MOVE 6: TRAVEL FROM 5,4 TO 5,3MOVE 7: TRAVEL FROM 5,3 TO 5,2MOVE 8: TRAVEL FROM 5,2 TO 6,2MOVE 9: TRAVEL FROM 6,2 TO 7,2MOVE 10: TRAVEL FROM 7,2 TO 8,2MOVE 11: TRAVEL FROM 8,2 TO 9,2SolnPathLen: 11NodesOpened: 59");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridFlowField() {
+		File input = new File("test/GridFlowField");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridOctileMOVE 1: TRAVEL FROM 0,0 TO 0,1MOVE 2: TRAVEL FROM 0,1 TO 0,2MOVE 3: TRAVEL FROM 0,2 TO 1,3MOVE 4: TRAVEL FROM 1,3 TO 2,4MOVE 5: TRAVEL FROM 2,4 TO 3,4MOVE 6: TRAVEL FROM 3,4 TO 4,4MOVE 7: TRAVEL FROM 4,4 TO 5,4MOVE 8: TRAVEL FROM 5,4 TO 6,3MOVE 9: TRAVEL FROM 6,3 TO 7,3MOVE 10: TRAVEL FROM 7,3 TO 8,3MOVE 11: TRAVEL FROM 8,3 TO 9,4MOVE 12: TRAVEL FROM 9,4 TO 10,5MOVE 13: TRAVEL FROM 10,5 TO 10,6MOVE 14: TRAVEL FROM 10,6 TO 11,7SolnPathLen: 14NodesOpened: 88\nHeuristic: GridOctileMOVE 1: TRAVEL FROM 0,7 TO 1,7MOVE 2: TRAVEL FROM 1,7 TO 2,7MOVE 3: TRAVEL FROM 2,7 TO 3,6MOVE 4: TRAVEL FROM 3,6 TO 4,5MOVE 5: TRAVEL FROM 4,5 TO 5,4MOVE 6: TRAVEL FROM 5,4 TO 6,3MOVE 7: TRAVEL FROM 6,3 TO 7,3MOVE 8: TRAVEL FROM 7,3 TO 8,3MOVE 9: TRAVEL FROM 8,3 TO 9,4MOVE 10: TRAVEL FROM 9,4 TO 10,5MOVE 11: TRAVEL FROM 10,5 TO 10,6MOVE 12: TRAVEL FROM 10,6 TO 11,7SolnPathLen: 12NodesOpened: 88\nHeuristic: GridOctileMOVE 1: TRAVEL FROM 11,0 TO 11,1MOVE 2: TRAVEL FROM 11,1 TO 11,2MOVE 3: TRAVEL FROM 11,2 TO 11,3MOVE 4: TRAVEL FROM 11,3 TO 11,4MOVE 5: TRAVEL FROM 11,4 TO 11,5MOVE 6: TRAVEL FROM 11,5 TO 11,6MOVE 7: TRAVEL FROM 11,6 TO 11,7SolnPathLen: 7NodesOpened: 88\nHeuristic: GridOctileMOVE 1: TRAVEL FROM 0,0 TO 0,1MOVE 2: TRAVEL FROM 0,1 TO 0,2MOVE 3: TRAVEL FROM 0,2 TO 1,3MOVE 4: TRAVEL FROM 1,3 TO 2,4MOVE 5: TRAVEL FROM 2,4 TO 3,4MOVE 6: TRAVEL FROM 3,4 TO 4,4MOVE 7: TRAVEL FROM 4,4 TO 4,3MOVE 8: TRAVEL FROM 4,3 TO 5,2MOVE 9: TRAVEL FROM 5,2 TO 6,1MOVE 10: TRAVEL FROM 6,1 TO 7,1MOVE 11: TRAVEL FROM 7,1 TO 8,1MOVE 12: TRAVEL FROM 8,1 TO 8,2MOVE 13: TRAVEL FROM 8,2 TO 8,3MOVE 14: TRAVEL FROM 8,3 TO 9,4MOVE 15: TRAVEL FROM 9,4 TO 10,5MOVE 16: TRAVEL FROM 10,5 TO 10,6MOVE 17: TRAVEL FROM 10,6 TO 11,7SolnPathLen: 17NodesOpened: 174");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testShortestPathsDeltaStepping() {
+		File input = new File("test/ShortestPathsDeltaStepping");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridOctileMOVE 1: TRAVEL FROM 0,0 TO 0,1MOVE 2: TRAVEL FROM 0,1 TO 0,2MOVE 3: TRAVEL FROM 0,2 TO 1,3MOVE 4: TRAVEL FROM 1,3 TO 2,4MOVE 5: TRAVEL FROM 2,4 TO 3,4MOVE 6: TRAVEL FROM 3,4 TO 4,4MOVE 7: TRAVEL FROM 4,4 TO 5,3MOVE 8: TRAVEL FROM 5,3 TO 6,3MOVE 9: TRAVEL FROM 6,3 TO 7,3MOVE 10: TRAVEL FROM 7,3 TO 8,3MOVE 11: TRAVEL FROM 8,3 TO 8,4MOVE 12: TRAVEL FROM 8,4 TO 9,5MOVE 13: TRAVEL FROM 9,5 TO 10,6MOVE 14: TRAVEL FROM 10,6 TO 11,7SolnPathLen: 14NodesOpened: 88NodesClosed: 88");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridCostFile() {
+		File input = null;
+		File costs = null;
+		PushbackReader pr = new PushbackReader();
+		try {
+			// Keep the cost file out of the source tree, and leave a wall
+			// in it first: the obstacles given must replace it.
+			input = File.createTempFile("GridCostFile", null);
+			costs = File.createTempFile("GridCostFile", ".costs");
+			copy(new File("test/GridCostFile"), input, "test/GridCostFile.costs", costs.getPath());
+			CostMap stale = CostMap.create(costs, 300, 280, 0);
+			for (int x = 240; x < 270; x++) {
+				stale.setBlocked(x, 261, true);
+			}
+			stale.getTiles().close();
+			pr.open(input);
+			new Global();
+			Lexer lexer = new PuzzleLexer( pr );
+			PuzzleMuncher pm = new PuzzleMuncher( lexer );
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridOctileSolnPathLen: 18NodesOpened: 1082\nHeuristic: GridOctileSolnPathLen: 18NodesOpened: 2164");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader and remove the temporary files.
+			pr.close();
+			if( input != null ) {
+				input.delete();
+			}
+			if( costs != null ) {
+				costs.delete();
+			}
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridCostFileShared() {
+		File input = null;
+		File costs = null;
+		PushbackReader pr = new PushbackReader();
+		try {
+			// Two puzzles share a cost file and the second writes a wall
+			// into it. Parse ahead on another thread: the first puzzle's
+			// run must not see the wall.
+			input = File.createTempFile("GridCostFileShared", null);
+			costs = File.createTempFile("GridCostFileShared", ".costs");
+			copy(new File("test/GridCostFileShared"), input, "test/GridCostFileShared.costs", costs.getPath());
+			pr.open(input);
+			new Global();
+			Lexer lexer = new PuzzleLexer( pr );
+			PuzzleMuncher pm = new PuzzleMuncher( lexer );
+			pm.setThreads(4);
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridManhattanSolnPathLen: 299\nHeuristic: GridManhattanSolnPathLen: 359");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader and remove the temporary files.
+			pr.close();
+			if( input != null ) {
+				input.delete();
+			}
+			if( costs != null ) {
+				costs.delete();
+			}
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridTieBreaking() {
+		File input = new File("test/GridTieBreaking");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridManhattanSolnPathLen: 33NodesOpened: 390");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testShortestPathsTieBreaking() {
+		File input = new File("test/ShortestPathsTieBreaking");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: ShortestPathsMonoMOVE 1: TRAVEL FROM S TO BMOVE 2: TRAVEL FROM B TO GSolnPathLen: 2\nHeuristic: ShortestPathsMonoMOVE 1: TRAVEL FROM S TO BMOVE 2: TRAVEL FROM B TO GSolnPathLen: 2\nHeuristic: ShortestPathsMonoMOVE 1: TRAVEL FROM S TO BMOVE 2: TRAVEL FROM B TO GSolnPathLen: 2\nHeuristic: ShortestPathsMonoMOVE 1: TRAVEL FROM S TO BMOVE 2: TRAVEL FROM B TO GSolnPathLen: 2");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testNToTheKManhattan() {
+		File input = new File("test/NToTheKManhattan");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: NToTheKManhattanSolnPathLen: 36NodesOpened: 76773");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testNToTheKPatternDB() {
+		File input = null;
+		File dir = null;
+		PushbackReader pr = new PushbackReader();
+		try {
+			// Keep the databases out of the source tree. The second puzzle
+			// reads back those the first one wrote.
+			input = File.createTempFile("NToTheKPatternDB", null);
+			dir = File.createTempFile("NToTheKPatternDB", null);
+			dir.delete();
+			dir.mkdir();
+			copy(new File("test/NToTheKPatternDB"), input, "\"test\"", "\"" + dir.getPath() + "\"");
+			pr.open(input);
+			new Global();
+			Lexer lexer = new PuzzleLexer( pr );
+			PuzzleMuncher pm = new PuzzleMuncher( lexer );
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: NToTheKPatternDBSolnPathLen: 31NodesOpened: 32");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader and remove the temporary files.
+			pr.close();
+			if( input != null ) {
+				input.delete();
+			}
+			if( dir != null ) {
+				File[] files = dir.listFiles();
+				if( files != null ) {
+					for( int i = 0; i < files.length; i++ ) {
+						files[i].delete();
+					}
+				}
+				dir.delete();
+			}
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testNToTheKUnsolvable() {
+		File input = new File("test/NToTheKUnsolvable");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: NToTheKManhattanNo solution.NodesOpened: 0");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testMandCDense() {
+		File input = new File("test/MandCDense");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: MandCTripsSolnPathLen: 359NodesOpened: 81780NumReopened: 0");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testMandCRetrograde() {
+		File input = new File("test/MandCRetrograde");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: MandCCountMOVE 1: FERRY 0 Cannibals and 1 Missionaries FROM East TO WestMOVE 2: FERRY 2 Cannibals and 2 Missionaries FROM West TO EastMOVE 3: FERRY 0 Cannibals and 1 Missionaries FROM East TO WestMOVE 4: FERRY 3 Cannibals and 1 Missionaries FROM West TO EastMOVE 5: FERRY 0 Cannibals and 1 Missionaries FROM East TO WestMOVE 6: FERRY 0 Cannibals and 2 Missionaries FROM West TO EastSolnPathLen: 6NodesOpened: 7");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testMandCRetrogradeUnsafe() {
+		File input = new File("test/MandCRetrogradeUnsafe");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: MandCCountNo solution.");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testNToTheKCube() {
+		File input = new File("test/NToTheKCube");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: NToTheKManhattanMOVE 1: SLIDE 1 FROM 1,0,0 TO 0,0,0MOVE 2: SLIDE 3 FROM 1,1,0 TO 1,0,0MOVE 3: SLIDE 6 FROM 2,1,0 TO 1,1,0MOVE 4: SLIDE 15 FROM 2,1,1 TO 2,1,0MOVE 5: SLIDE 14 FROM 2,0,1 TO 2,1,1MOVE 6: SLIDE 5 FROM 2,0,2 TO 2,0,1MOVE 7: SLIDE 12 FROM 1,0,2 TO 2,0,2MOVE 8: SLIDE 19 FROM 1,1,2 TO 1,0,2MOVE 9: SLIDE 23 FROM 0,1,2 TO 1,1,2MOVE 10: SLIDE 22 FROM 0,0,2 TO 0,1,2MOVE 11: SLIDE 19 FROM 1,0,2 TO 0,0,2MOVE 12: SLIDE 20 FROM 1,0,1 TO 1,0,2MOVE 13: SLIDE 5 FROM 2,0,1 TO 1,0,1MOVE 14: SLIDE 11 FROM 2,0,0 TO 2,0,1MOVE 15: SLIDE 3 FROM 1,0,0 TO 2,0,0MOVE 16: SLIDE 5 FROM 1,0,1 TO 1,0,0MOVE 17: SLIDE 2 FROM 0,0,1 TO 1,0,1MOVE 18: SLIDE 10 FROM 0,1,1 TO 0,0,1MOVE 19: SLIDE 13 FROM 0,1,0 TO 0,1,1MOVE 20: SLIDE 4 FROM 0,2,0 TO 0,1,0MOVE 21: SLIDE 7 FROM 1,2,0 TO 0,2,0MOVE 22: SLIDE 8 FROM 1,2,1 TO 1,2,0MOVE 23: SLIDE 17 FROM 1,1,1 TO 1,2,1MOVE 24: SLIDE 14 FROM 2,1,1 TO 1,1,1MOVE 25: SLIDE 15 FROM 2,1,0 TO 2,1,1MOVE 26: SLIDE 6 FROM 1,1,0 TO 2,1,0MOVE 27: SLIDE 5 FROM 1,0,0 TO 1,1,0MOVE 28: SLIDE 2 FROM 1,0,1 TO 1,0,0MOVE 29: SLIDE 11 FROM 2,0,1 TO 1,0,1MOVE 30: SLIDE 12 FROM 2,0,2 TO 2,0,1MOVE 31: SLIDE 21 FROM 2,1,2 TO 2,0,2MOVE 32: SLIDE 24 FROM 2,2,2 TO 2,1,2SolnPathLen: 32NodesOpened: 2022");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testNToTheKBatch() {
+		File input = new File("test/NToTheKBatch");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: NToTheKManhattan\nInstance 1: [[8,6,7],[2,5,4],[3,0,1]]SolnPathLen: 31NodesOpened: 7667NodesClosed: 7666\nInstance 2: [[1,2,3],[4,5,6],[0,7,8]]SolnPathLen: 2NodesOpened: 3NodesClosed: 2\nInstance 3: [[6,4,7],[8,5,0],[3,2,1]]SolnPathLen: 31NodesOpened: 6897NodesClosed: 6896\nInstance 4: [[2,1,3],[4,5,6],[7,8,0]]No solution.NodesOpened: 0NodesClosed: 0\nInstance 5: [[0,8,7],[6,5,4],[3,2,1]]SolnPathLen: 28NodesOpened: 178NodesClosed: 177\nTotal:NodesOpened: 14745NodesClosed: 14741");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testCompiled() {
+		File input = new File("test/GridBlocked");
+		File compiled = new File("test/GridBlocked.pzc");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		PuzzleFileWriter pfw = new PuzzleFileWriter();
+		pfw.open(compiled);
+		PuzzleFileReader pfr = new PuzzleFileReader();
+		try {
+			new PuzzleMuncher( new PuzzleLexer( pr ) ).compile( pfw );
+			pfw.close();
+			assertTrue(PuzzleFileReader.isCompiled(compiled));
+			pfr.open(compiled);
+			new Global();
+			PuzzleMuncher pm = new PuzzleMuncher( pfr );
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridManhattanMOVE 1: TRAVEL FROM 0,0 TO 1,0MOVE 2: TRAVEL FROM 1,0 TO 2,0MOVE 3: TRAVEL FROM 2,0 TO 2,1MOVE 4: TRAVEL FROM 2,1 TO 2,2MOVE 5: TRAVEL FROM 2,2 TO 2,3MOVE 6: TRAVEL FROM 2,3 TO 3,3MOVE 7: TRAVEL FROM 3,3 TO 4,3MOVE 8: TRAVEL FROM 4,3 TO 4,2MOVE 9: TRAVEL FROM 4,2 TO 4,1MOVE 10: TRAVEL FROM 4,1 TO 4,0MOVE 11: TRAVEL FROM 4,0 TO 5,0MOVE 12: TRAVEL FROM 5,0 TO 6,0MOVE 13: TRAVEL FROM 6,0 TO 7,0SolnPathLen: 13NodesOpened: 20NumReopened: 0NodesClosed: 19");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader and the compiled file.
+			pr.close();
+			pfw.close();
+			pfr.close();
+			compiled.delete();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testCompiledCostFile() {
+		File input = null;
+		File costs = null;
+		File compiled = null;
+		PushbackReader pr = new PushbackReader();
+		PuzzleFileWriter pfw = new PuzzleFileWriter();
+		PuzzleFileReader pfr = new PuzzleFileReader();
+		try {
+			// The compiled file must write the obstacles into the cost
+			// file just as the input file does. The first puzzle uses the
+			// cost file as it stands, so each run starts without one.
+			input = File.createTempFile("GridCostFileShared", null);
+			costs = File.createTempFile("GridCostFileShared", ".costs");
+			compiled = File.createTempFile("GridCostFileShared", ".pzc");
+			copy(new File("test/GridCostFileShared"), input, "test/GridCostFileShared.costs", costs.getPath());
+			pr.open(input);
+			new Global();
+			new PuzzleMuncher( new PuzzleLexer( pr ) ).parse();
+			pr.close();
+			String text = Global.getData();
+			pr.open(input);
+			pfw.open(compiled);
+			new PuzzleMuncher( new PuzzleLexer( pr ) ).compile( pfw );
+			pfw.close();
+			costs.delete();
+			pfr.open(compiled);
+			new Global();
+			PuzzleMuncher pm = new PuzzleMuncher( pfr );
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,text);
+			assertEquals(foo,"\nHeuristic: GridManhattanSolnPathLen: 299\nHeuristic: GridManhattanSolnPathLen: 359");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the readers and the compiled file, and remove the
+			// temporary files.
+			pr.close();
+			pfw.close();
+			pfr.close();
+			if( input != null ) {
+				input.delete();
+			}
+			if( costs != null ) {
+				costs.delete();
+			}
+			if( compiled != null ) {
+				compiled.delete();
+			}
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridUpdateAfterShortestPaths() {
+		File input = new File("test/GridUpdateAfterShortestPaths");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			// The obstacles follow a ShortestPaths puzzle, not the Grid
+			// puzzle before it.
+			pm.parse(); 
+			fail("no exception thrown");
+			
+		} catch (ParsingException e) {
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridManhattanSolnPathLen: 3\nHeuristic: ShortestPathsStraightSolnPathLen: 2");
+			assertEquals(e.getMessage(),"PuzzleMuncher.parse error: UpdateObstacles requires a Grid puzzle.");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testShortestPathsUpdateAfterGrid() {
+		File input = new File("test/ShortestPathsUpdateAfterGrid");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			// The distances follow a Grid puzzle, not the ShortestPaths
+			// puzzle before it.
+			pm.parse(); 
+			fail("no exception thrown");
+			
+		} catch (ParsingException e) {
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: ShortestPathsStraightSolnPathLen: 2\nHeuristic: GridManhattanSolnPathLen: 3");
+			assertEquals(e.getMessage(),"PuzzleMuncher.parse error: UpdateDistances requires a ShortestPaths puzzle.");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testShortestPathsDimacsOverflow() {
+		File input = new File("test/ShortestPathsDimacsOverflow");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			// The arc length does not fit in a long.
+			pm.parse(); 
+			fail("no exception thrown");
+			
+		} catch (ParsingException e) {
+			String foo = Global.getData();
+			assertEquals(foo,"");
+			assertEquals(e.getMessage(),"MappedFileReader.readLong error: Integer out of range.");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridLexerWindow() {
+		File input = new File("test/GridLexerWindow");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			// Over four windows of input, with some numbers carried from one
+			// window into the next and more distinct tokens than are interned.
+			// A number misread opens a gap in the wall and shortens the path.
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridManhattanSolnPathLen: 10000NodesOpened: 10001");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testShortestPathsScanFallbacks() {
+		File input = new File("test/ShortestPathsScanFallbacks");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			// The first city follows a pushed-back token, and some distances
+			// have more digits than the lexer scans.
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: ShortestPathsMonoMOVE 1: TRAVEL FROM S TO BMOVE 2: TRAVEL FROM B TO GSolnPathLen: 2\nHeuristic: ShortestPathsMonoMOVE 1: TRAVEL FROM S TO DMOVE 2: TRAVEL FROM D TO AMOVE 3: TRAVEL FROM A TO GSolnPathLen: 3");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridScanFallbacks() {
+		File input = new File("test/GridScanFallbacks");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			// Some coordinates and costs have more digits than the lexer
+			// scans.
+			pm.parse(); 
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: GridManhattanSolnPathLen: 5\nHeuristic: GridManhattanSolnPathLen: 8");
+			
+		} catch (Exception e) {
+			fail("exception thrown");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testGridKeywordFileName() {
+		File input = new File("test/GridKeywordFileName");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			// The keyword runs on into a file name, so is read as a token.
+			pm.parse(); 
+			fail("no exception thrown");
+			
+		} catch (ParsingException e) {
+			String foo = Global.getData();
+			assertEquals(foo,"");
+			assertEquals(e.getMessage(),"ParseInteger.parseInteger error: Integer expected but received: Blocked.txt");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	@Test
+	public void testShortestPathsUpdateUnknownCity() {
+		File input = new File("test/ShortestPathsUpdateUnknownCity");
+		PushbackReader pr = new PushbackReader();
+		pr.open(input);
+		new Global();
+		Lexer lexer = new PuzzleLexer( pr );
+		PuzzleMuncher pm = new PuzzleMuncher( lexer );
+		try {
+			// The roads updated must be between cities on the map.
+			pm.parse(); 
+			fail("no exception thrown");
+			
+		} catch (ParsingException e) {
+			String foo = Global.getData();
+			assertEquals(foo,"\nHeuristic: ShortestPathsMonoSolnPathLen: 2");
+			assertEquals(e.getMessage(),"ParseDistList.parse error: Unknown city: X");
+		}
+		finally {
+			// Close the reader.
+			pr.close();
+			// Close the error file.
+			if( Global.getErrFile() != null ) {
+				Global.getErrFile().close();
+			}
+			// Close the log file.
+			if( Global.getLogFile() != null ) {
+				Global.getLogFile().close();
+			}
+			// Close the output file.
+			if( Global.getOutFile() != null ) {
+				Global.getOutFile().close();
+			}
+		}
+	}
+	
+	/**
+	 * Helper function. Copies a puzzle file, replacing every occurrence of
+	 * one piece of text (such as a file name) with another.
+	 */
+	private static void copy(File from, File to, String oldText, String newText) {
+		TextFileReader in = new TextFileReader();
+		TextFileWriter out = new TextFileWriter();
+		in.open(from);
+		out.open(to);
+		String line;
+		while ((line = in.readLine()) != null) {
+			out.writeln(line.replace(oldText, newText));
+		}
+		in.close();
+		out.close();
+	}
+	
 }
@@ -0,0 +1,427 @@
+package com.michaelzanussi.astar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The cell costs and blocked cells of a <code>Grid</code> puzzle, held in
+ * a file outside the Java heap and cut into square tiles of
+ * <code>TILE_SIZE</code> cells a side. Each tile is memory-mapped the
+ * first time one of its cells is touched, so a search only pages in the
+ * tiles it explores, and a map far larger than the heap costs nothing to
+ * open again in a later run. <p>
+ * 
+ * The file begins with a header giving the grid dimensions, the tile
+ * size and the cell width; the tiles follow in row-major order, every
+ * tile the full size even at the edges of the grid. Each tile holds the
+ * cost of each of its cells (in one, two or four bytes, chosen when the
+ * file is created from the largest cost expected) followed by one bit
+ * per cell for the blocked cells. A new file is all zeroes past the
+ * header, which is an open grid at the default cost, so the operating
+ * system need not store the tiles never written. <p>
+ * 
+ * The tiles may be read from several threads at once; changes are made
+ * from one thread only, and are written through to the file.
+ * 
+ * @author <a href="mailto:iosdevx@gmail.com">Michael Zanussi</a>
+ * @version 1.0 (29 Mar 2004) 
+ */
+public final class TiledCostFile {
+	
+	/**
+	 * The number of cells along each side of a tile.
+	 */
+	public static final int TILE_SIZE = 256;
+	
+	// Tile arithmetic.
+	private static final int TILE_SHIFT = 8;
+	private static final int TILE_MASK = TILE_SIZE - 1;
+	private static final int TILE_CELLS = TILE_SIZE * TILE_SIZE;
+	
+	// The file header: magic number ("ASTC"), version, width, height,
+	// tile size and cell width, padded to a fixed size.
+	private static final int MAGIC = 0x41535443;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	
+	// The largest cost each cell width can hold.
+	private static final int BYTE_MAX = 0xFF;
+	private static final int SHORT_MAX = 0xFFFF;
+	
+	// The file and its channel.
+	private File file;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	
+	// The grid dimensions, in cells and tiles.
+	private int width;
+	private int height;
+	private int tilesX;
+	
+	// The number of bytes per cell cost, the bytes of cost per tile, and
+	// the bytes per tile in all.
+	private int cellWidth;
+	private int costBytes;
+	private int tileBytes;
+	
+	// The tiles mapped so far, by tile number.
+	private AtomicReferenceArray<MappedByteBuffer> tiles;
+	
+	/**
+	 * Helper constructor. Use <code>open()</code>.
+	 */
+	private TiledCostFile(File file, RandomAccessFile raf, int width, int height, int cellWidth) {
+		
+		this.file = file;
+		this.raf = raf;
+		this.channel = raf.getChannel();
+		this.width = width;
+		this.height = height;
+		this.cellWidth = cellWidth;
+		this.tilesX = (width + TILE_MASK) >>> TILE_SHIFT;
+		this.costBytes = TILE_CELLS * cellWidth;
+		this.tileBytes = costBytes + (TILE_CELLS >>> 3);
+		
+		int tilesY = (height + TILE_MASK) >>> TILE_SHIFT;
+		tiles = new AtomicReferenceArray<MappedByteBuffer>(tilesX * tilesY);
+		
+	}
+	
+	/**
+	 * Creates a tiled cost file with every cell open at the default cost,
+	 * replacing any existing file. The old file is removed rather than
+	 * cleared, so tiles of it still mapped elsewhere stay readable.
+	 * 
+	 * @param file the file.
+	 * @param width the number of cells along the <tt>x</tt> axis.
+	 * @param height the number of cells along the <tt>y</tt> axis.
+	 * @param maxCost the largest cost expected, used to choose the cell
+	 * width.
+	 * @return the created file.
+	 * @throws ParsingException If the file cannot be replaced or created.
+	 */
+	public static TiledCostFile create(File file, int width, int height, int maxCost) throws ParsingException {
+		
+		if (file.exists() && !file.delete()) {
+			throw new ParsingException("TiledCostFile.create error: Unable to replace " + file + ".");
+		}
+		
+		return open(file, width, height, maxCost);
+		
+	}
+	
+	/**
+	 * Opens a tiled cost file, creating it if it does not exist. An
+	 * existing file keeps its own cell width.
+	 * 
+	 * @param file the file.
+	 * @param width the number of cells along the <tt>x</tt> axis.
+	 * @param height the number of cells along the <tt>y</tt> axis.
+	 * @param maxCost the largest cost expected, used to choose the cell
+	 * width of a new file.
+	 * @return the opened file.
+	 * @throws ParsingException If the file cannot be opened or created,
+	 * or an existing file is not a tiled cost file of the same dimensions.
+	 */
+	public static TiledCostFile open(File file, int width, int height, int maxCost) throws ParsingException {
+		
+		if (width <= 0 || height <= 0) {
+			throw new ParsingException("TiledCostFile.open error: Width and height must be > 0. Received: " + width + ", " + height);
+		}
+		
+		RandomAccessFile raf = null;
+		try {
+			
+			boolean exists = file.exists() && file.length() > 0;
+			raf = new RandomAccessFile(file, "rw");
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			
+			// Check the header of an existing file.
+			if (exists) {
+				
+				raf.getChannel().read(header, 0);
+				header.flip();
+				if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+					throw new ParsingException("TiledCostFile.open error: " + file + " is not a tiled cost file.");
+				}
+				
+				int w = header.getInt();
+				int h = header.getInt();
+				int tileSize = header.getInt();
+				int cellWidth = header.getInt();
+				if (w != width || h != height || tileSize != TILE_SIZE) {
+					throw new ParsingException("TiledCostFile.open error: " + file + " holds a " + w + " x " + h + " grid, not " + width + " x " + height + ".");
+				}
+				if (cellWidth != 1 && cellWidth != 2 && cellWidth != 4) {
+					throw new ParsingException("TiledCostFile.open error: Invalid cell width " + cellWidth + " in " + file + ".");
+				}
+				
+				TiledCostFile tcf = new TiledCostFile(file, raf, width, height, cellWidth);
+				if (raf.length() < tcf.length()) {
+					throw new ParsingException("TiledCostFile.open error: " + file + " is truncated.");
+				}
+				
+				return tcf;
+				
+			}
+			
+			// Write the header of a new file and size it; the tiles are
+			// left as zeroes.
+			int cellWidth = (maxCost <= BYTE_MAX ? 1 : (maxCost <= SHORT_MAX ? 2 : 4));
+			header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(TILE_SIZE).putInt(cellWidth);
+			header.clear();
+			raf.getChannel().write(header, 0);
+			
+			TiledCostFile tcf = new TiledCostFile(file, raf, width, height, cellWidth);
+			raf.setLength(tcf.length());
+			
+			return tcf;
+			
+		} catch (IOException e) {
+			close(raf);
+			throw new ParsingException("TiledCostFile.open error: Unable to open " + file + ": " + e.getMessage());
+		} catch (ParsingException e) {
+			close(raf);
+			throw e;
+		}
+		
+	}
+	
+	/**
+	 * Closes the file. Tiles already mapped stay readable until they are
+	 * no longer referenced.
+	 */
+	public void close() {
+		
+		close(raf);
+		
+	}
+	
+	/**
+	 * Returns the number of bytes used to store the cost of each cell.
+	 * 
+	 * @return <tt>1</tt>, <tt>2</tt> or <tt>4</tt>.
+	 */
+	public int getCellWidth() {
+		
+		return cellWidth;
+		
+	}
+	
+	/**
+	 * Returns the cost of entering a cell.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @return the cost, or <tt>0</tt> for the default cost.
+	 */
+	public int getCost(int x, int y) {
+		
+		MappedByteBuffer tile = tile(x, y);
+		int at = local(x, y) * cellWidth;
+		
+		if (cellWidth == 1) {
+			return tile.get(at) & BYTE_MAX;
+		} else if (cellWidth == 2) {
+			return tile.getShort(at) & SHORT_MAX;
+		}
+		
+		return tile.getInt(at);
+		
+	}
+	
+	/**
+	 * Returns the file.
+	 * 
+	 * @return the file.
+	 */
+	public File getFile() {
+		
+		return file;
+		
+	}
+	
+	/**
+	 * Returns the number of cells along the <tt>y</tt> axis.
+	 * 
+	 * @return the grid height.
+	 */
+	public int getHeight() {
+		
+		return height;
+		
+	}
+	
+	/**
+	 * Returns the largest cost a cell can hold.
+	 * 
+	 * @return the largest cost.
+	 */
+	public int getMaxCost() {
+		
+		return (cellWidth == 1 ? BYTE_MAX : (cellWidth == 2 ? SHORT_MAX : Integer.MAX_VALUE));
+		
+	}
+	
+	/**
+	 * Returns the number of tiles mapped so far.
+	 * 
+	 * @return the number of tiles mapped.
+	 */
+	public int getTilesMapped() {
+		
+		int n = 0;
+		for (int i = 0; i < tiles.length(); i++) {
+			if (tiles.get(i) != null) {
+				n++;
+			}
+		}
+		
+		return n;
+		
+	}
+	
+	/**
+	 * Returns the number of cells along the <tt>x</tt> axis.
+	 * 
+	 * @return the grid width.
+	 */
+	public int getWidth() {
+		
+		return width;
+		
+	}
+	
+	/**
+	 * Tests whether a cell is blocked.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @return <code>true</code> if the cell cannot be entered, otherwise
+	 * <code>false</code>.
+	 */
+	public boolean isBlocked(int x, int y) {
+		
+		int l = local(x, y);
+		
+		return ((tile(x, y).get(costBytes + (l >>> 3)) & (1 << (l & 7))) != 0);
+		
+	}
+	
+	/**
+	 * Marks a cell as blocked or passable.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @param value <code>true</code> to block the cell, <code>false</code>
+	 * to make it passable.
+	 */
+	public void setBlocked(int x, int y, boolean value) {
+		
+		MappedByteBuffer tile = tile(x, y);
+		int l = local(x, y);
+		int at = costBytes + (l >>> 3);
+		
+		int bits = tile.get(at);
+		if (value) {
+			bits |= (1 << (l & 7));
+		} else {
+			bits &= ~(1 << (l & 7));
+		}
+		tile.put(at, (byte)bits);
+		
+	}
+	
+	/**
+	 * Sets the cost of entering a cell.
+	 * 
+	 * @param x the <tt>x</tt> coordinate.
+	 * @param y the <tt>y</tt> coordinate.
+	 * @param cost the cost, or <tt>0</tt> for the default cost.
+	 * @throws IllegalArgumentException If the cost is negative or too large
+	 * for the cell width of the file.
+	 */
+	public void setCost(int x, int y, int cost) throws IllegalArgumentException {
+		
+		if (cost < 0 || cost > getMaxCost()) {
+			throw new IllegalArgumentException("TiledCostFile.setCost error: Cost must be between 0 and " + getMaxCost() + " in " + file + ". Received: " + cost);
+		}
+		
+		MappedByteBuffer tile = tile(x, y);
+		int at = local(x, y) * cellWidth;
+		
+		if (cellWidth == 1) {
+			tile.put(at, (byte)cost);
+		} else if (cellWidth == 2) {
+			tile.putShort(at, (short)cost);
+		} else {
+			tile.putInt(at, cost);
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Closes a file, reporting any error.
+	 */
+	private static void close(RandomAccessFile raf) {
+		
+		try {
+			if (raf != null) {
+				raf.close();
+			}
+		} catch (IOException e) {
+			System.err.println("ERROR: " + e.getMessage());
+		}
+		
+	}
+	
+	/**
+	 * Helper function. Returns the length of the file.
+	 */
+	private long length() {
+		
+		return HEADER_SIZE + ((long)tiles.length() * tileBytes);
+		
+	}
+	
+	/**
+	 * Helper function. Returns the position of a cell within its tile.
+	 */
+	private int local(int x, int y) {
+		
+		return ((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+		
+	}
+	
+	/**
+	 * Helper function. Returns the tile holding a cell, mapping it if this
+	 * is the first time it has been touched.
+	 * 
+	 * @throws IllegalStateException If the tile cannot be mapped.
+	 */
+	private MappedByteBuffer tile(int x, int y) throws IllegalStateException {
+		
+		int t = ((y >>> TILE_SHIFT) * tilesX) + (x >>> TILE_SHIFT);
+		MappedByteBuffer tile = tiles.get(t);
+		if (tile != null) {
+			return tile;
+		}
+		
+		// Two threads may race to map the same tile; both mappings see
+		// the same file, and the first one stored wins.
+		try {
+			tile = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + ((long)t * tileBytes), tileBytes);
+		} catch (IOException e) {
+			throw new IllegalStateException("TiledCostFile.tile error: Unable to map tile " + t + " of " + file + ": " + e.getMessage());
+		}
+		
+		return (tiles.compareAndSet(t, null, tile) ? tile : tiles.get(t));
+		
+	}
+	
+}